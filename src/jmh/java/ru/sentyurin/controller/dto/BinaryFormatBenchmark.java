@@ -0,0 +1,133 @@
+package ru.sentyurin.controller.dto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Encoding and decoding cost of the catalog in JSON, Smile and CBOR, with the
+ * object mappers Spring MVC configures for each. The catalog has 500 directors
+ * of 20 movies each. {@link #encodedSize} reports the size of each body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryFormatBenchmark {
+	private static final int DIRECTOR_COUNT = 500;
+	private static final int MOVIES_PER_DIRECTOR = 20;
+
+	@Param({ "json", "smile", "cbor" })
+	private String format;
+
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 20);
+	private ObjectWriter writer;
+	private ObjectReader moviesReader;
+	private ObjectReader directorsReader;
+	private List<MovieOutgoingDto> movies;
+	private List<DirectorOutgoingDto> directors;
+	private byte[] encodedMovies;
+	private byte[] encodedDirectors;
+
+	@Setup
+	public void init() throws IOException {
+		ObjectMapper mapper = switch (format) {
+		case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+		case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+		default -> Jackson2ObjectMapperBuilder.json().build();
+		};
+		writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		moviesReader = mapper.readerForListOf(MovieOutgoingDto.class);
+		directorsReader = mapper.readerForListOf(DirectorOutgoingDto.class);
+
+		movies = new ArrayList<>(DIRECTOR_COUNT * MOVIES_PER_DIRECTOR);
+		directors = new ArrayList<>(DIRECTOR_COUNT);
+		for (int d = 1; d <= DIRECTOR_COUNT; d++) {
+			List<MovieOutgoingDto> directed = new ArrayList<>(MOVIES_PER_DIRECTOR);
+			for (int m = 1; m <= MOVIES_PER_DIRECTOR; m++) {
+				int id = (d - 1) * MOVIES_PER_DIRECTOR + m;
+				directed.add(new MovieOutgoingDto().setId(id).setTitle("Movie number " + id)
+						.setReleaseYear(1950 + id % 75).setDirectorId(d)
+						.setDirectorName("Director number " + d).setVersion(1 + id % 3));
+			}
+			DirectorOutgoingDto director = new DirectorOutgoingDto();
+			director.setId(d);
+			director.setName("Director number " + d);
+			director.setVersion(1 + d % 3);
+			director.setMovies(directed);
+			directors.add(director);
+			movies.addAll(directed);
+		}
+		encodedMovies = writer.writeValueAsBytes(movies);
+		encodedDirectors = writer.writeValueAsBytes(directors);
+	}
+
+	@Benchmark
+	public int writeMovies() throws IOException {
+		output.reset();
+		writer.writeValue(output, movies);
+		return output.size();
+	}
+
+	@Benchmark
+	public int writeDirectors() throws IOException {
+		output.reset();
+		writer.writeValue(output, directors);
+		return output.size();
+	}
+
+	@Benchmark
+	public List<MovieOutgoingDto> readMovies() throws IOException {
+		return moviesReader.readValue(encodedMovies);
+	}
+
+	@Benchmark
+	public List<DirectorOutgoingDto> readDirectors() throws IOException {
+		return directorsReader.readValue(encodedDirectors);
+	}
+
+	/**
+	 * Encodes both bodies once and reports their sizes as the
+	 * {@code movieBytes} and {@code directorBytes} counters. It runs a single
+	 * shot, so that each counter holds the size of one body.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public void encodedSize(EncodedSize size) {
+		size.movieBytes = encodedMovies.length;
+		size.directorBytes = encodedDirectors.length;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class EncodedSize {
+		public long movieBytes;
+		public long directorBytes;
+	}
+
+}
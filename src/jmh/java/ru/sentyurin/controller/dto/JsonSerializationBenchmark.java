@@ -0,0 +1,71 @@
+package ru.sentyurin.controller.dto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Throughput and allocation of serialising response bodies with the object
+ * mapper Spring MVC configures by default. Output is discarded, so only the
+ * serialiser's own buffers are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int movieCount;
+
+	private final ObjectWriter writer = Jackson2ObjectMapperBuilder.json().build().writer()
+			.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	private final OutputStream output = OutputStream.nullOutputStream();
+	private List<MovieOutgoingDto> movies;
+	private DirectorOutgoingDto director;
+
+	@Setup
+	public void init() {
+		movies = new ArrayList<>(movieCount);
+		for (int i = 1; i <= movieCount; i++)
+			movies.add(new MovieOutgoingDto().setId(i).setTitle("Movie number " + i)
+					.setReleaseYear(1950 + i % 75).setDirectorId(1)
+					.setDirectorName("Quentin Tarantino").setVersion(1));
+		director = new DirectorOutgoingDto();
+		director.setId(1);
+		director.setName("Quentin Tarantino");
+		director.setVersion(3);
+		director.setMovies(movies);
+	}
+
+	@Benchmark
+	public void writeMovies() throws IOException {
+		writer.writeValue(output, movies);
+	}
+
+	@Benchmark
+	public void writeDirector() throws IOException {
+		writer.writeValue(output, director);
+	}
+
+}
@@ -0,0 +1,78 @@
+package ru.sentyurin.controller.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.model.Movie;
+
+/**
+ * Throughput and allocation of mapping entities to outgoing DTOs: a single
+ * movie, and a director with {@code movieCount} movies
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+	private static final MovieDtoMapper MOVIE_DTO_MAPPER = new MovieDtoMapperImpl();
+	private static final DirectorDtoMapper DIRECTOR_DTO_MAPPER = new DirectorDtoMapperImpl();
+
+	@State(Scope.Benchmark)
+	public static class MovieState {
+		private final Movie movie = movie(1, new Director(1, "Quentin Tarantino", null));
+	}
+
+	@State(Scope.Benchmark)
+	public static class DirectorState {
+
+		@Param({ "10", "100", "1000", "10000" })
+		private int movieCount;
+
+		private Director director;
+
+		@Setup
+		public void init() {
+			director = new Director(1, "Quentin Tarantino", null);
+			director.setVersion(3);
+			List<Movie> movies = new ArrayList<>(movieCount);
+			for (int i = 1; i <= movieCount; i++)
+				movies.add(movie(i, director));
+			director.setMovies(movies);
+		}
+	}
+
+	@Benchmark
+	public MovieOutgoingDto mapMovie(MovieState state) {
+		return MOVIE_DTO_MAPPER.map(state.movie);
+	}
+
+	@Benchmark
+	public DirectorOutgoingDto mapDirector(DirectorState state) {
+		return DIRECTOR_DTO_MAPPER.map(state.director);
+	}
+
+	private static Movie movie(int id, Director director) {
+		Movie movie = new Movie(id, "Movie number " + id, 1950 + id % 75, director);
+		movie.setVersion(1);
+		return movie;
+	}
+
+}
@@ -0,0 +1,130 @@
+package ru.sentyurin.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.controller.mapper.DirectorDtoMapper;
+import ru.sentyurin.controller.mapper.DirectorDtoMapperImpl;
+import ru.sentyurin.controller.mapper.MovieDtoMapper;
+import ru.sentyurin.controller.mapper.MovieDtoMapperImpl;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.model.Movie;
+import ru.sentyurin.repository.JpaTestConfig;
+
+/**
+ * Time and, through the gc profiler, allocation of reading the whole catalog on
+ * H2: through the DTO projections the services use, and through managed
+ * entities mapped to DTOs as before. The entity reads bypass the second-level
+ * cache, so the movie read loads each director lazily. Run with
+ * {@code mvn -P jmh verify -Djmh.include=ReadPathBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadPathBenchmark {
+
+	private static final MovieDtoMapper MOVIE_DTO_MAPPER = new MovieDtoMapperImpl();
+	private static final DirectorDtoMapper DIRECTOR_DTO_MAPPER = new DirectorDtoMapperImpl();
+
+	@Param({ "200" })
+	private int directorCount;
+
+	@Param({ "25" })
+	private int moviesPerDirector;
+
+	private AnnotationConfigApplicationContext context;
+	private MovieService movieService;
+	private DirectorService directorService;
+	private EntityManager entityManager;
+	private TransactionTemplate readOnlyTransaction;
+
+	@Setup
+	public void init() {
+		context = new AnnotationConfigApplicationContext(JpaTestConfig.class);
+		movieService = context.getBean(MovieService.class);
+		directorService = context.getBean(DirectorService.class);
+		entityManager = SharedEntityManagerCreator
+				.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+		readOnlyTransaction = new TransactionTemplate(
+				context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+
+		for (int i = 0; i < directorCount; i++) {
+			Integer directorId = directorService
+					.createDirector(new DirectorIncomingDto(null, "Director " + i)).getId();
+			for (int j = 0; j < moviesPerDirector; j++)
+				movieService.createMovie(new MovieIncomingDto(null, "Movie " + i + "-" + j,
+						1950 + j, directorId, null));
+		}
+	}
+
+	@TearDown
+	public void close() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<MovieOutgoingDto> moviesFromProjection() {
+		return movieService.getMovies();
+	}
+
+	@Benchmark
+	public List<MovieOutgoingDto> moviesFromEntities() {
+		return readOnlyTransaction.execute(status -> {
+			bypassSecondLevelCache();
+			return entityManager.createQuery("select m from Movie m order by m.id", Movie.class)
+					.getResultList().stream().map(MOVIE_DTO_MAPPER::map).toList();
+		});
+	}
+
+	@Benchmark
+	public List<DirectorOutgoingDto> directorsFromProjection() {
+		return directorService.getDirectors();
+	}
+
+	@Benchmark
+	public List<DirectorOutgoingDto> directorsFromEntities() {
+		return readOnlyTransaction.execute(status -> {
+			bypassSecondLevelCache();
+			return entityManager
+					.createQuery("select distinct d from Director d left join fetch d.movies "
+							+ "order by d.id", Director.class)
+					.getResultList().stream().map(DIRECTOR_DTO_MAPPER::map).toList();
+		});
+	}
+
+	private void bypassSecondLevelCache() {
+		entityManager.setProperty("jakarta.persistence.cache.retrieveMode",
+				CacheRetrieveMode.BYPASS);
+		entityManager.setProperty("jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+	}
+
+}
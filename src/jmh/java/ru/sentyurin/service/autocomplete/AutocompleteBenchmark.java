@@ -0,0 +1,131 @@
+package ru.sentyurin.service.autocomplete;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sentyurin.controller.dto.SuggestionDto;
+
+/**
+ * Lookups and changes of {@link AutocompleteIndex} over a catalog whose titles
+ * crowd under a few leading words, as real ones do: a third start with "The ".
+ * {@link #suggestCrowded} types the crowded prefixes, {@link #suggestTyped}
+ * prefixes of random titles. {@link #updateBest} moves a movie in and out of
+ * the best suggestions of the crowded prefixes, and {@link #rebuild} loads the
+ * whole catalog. Run with
+ * {@code mvn -P jmh verify -Djmh.include=AutocompleteBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AutocompleteBenchmark {
+	private static final String[] LEADING_WORDS = { "The ", "A ", "Star ", "Love ", "Night ",
+			"Last ", "Return of ", "Dark ", "Blood ", "My " };
+	/** Share of titles starting with each leading word, in percent; the rest start randomly */
+	private static final int[] LEADING_WEIGHTS = { 33, 8, 4, 4, 3, 3, 3, 2, 2, 2 };
+	private static final List<String> CROWDED_PREFIXES = List.of("t", "th", "the", "the ",
+			"the s", "a", "a ", "s", "st", "star ");
+	private static final int DIRECTORS = 50_000;
+
+	@Param({ "2000000" })
+	private int titleCount;
+
+	private String[] titles;
+	private int[] years;
+	private AutocompleteIndex index;
+	private String[] typed;
+	private int next;
+	private int movedId;
+	private boolean movedUp;
+
+	@Setup
+	public void init() {
+		Random random = new Random(1);
+		titles = new String[titleCount];
+		years = new int[titleCount];
+		for (int i = 0; i < titleCount; i++) {
+			titles[i] = title(random);
+			years[i] = 1900 + random.nextInt(125);
+		}
+		index = new AutocompleteIndex(titleCount + DIRECTORS);
+		rebuild();
+
+		typed = new String[4096];
+		for (int i = 0; i < typed.length; i++) {
+			String title = titles[random.nextInt(titleCount)];
+			typed[i] = title.substring(0, 1 + random.nextInt(Math.min(title.length(), 8)));
+		}
+		for (movedId = 0; !titles[movedId].startsWith("The "); movedId++)
+			;
+	}
+
+	@Benchmark
+	public List<SuggestionDto> suggestCrowded() {
+		next = (next + 1) % CROWDED_PREFIXES.size();
+		return index.suggest(CROWDED_PREFIXES.get(next), 10);
+	}
+
+	@Benchmark
+	public List<SuggestionDto> suggestTyped() {
+		next = (next + 1) & (typed.length - 1);
+		return index.suggest(typed[next], 10);
+	}
+
+	@Benchmark
+	public void updateBest() {
+		movedUp = !movedUp;
+		index.putMovie(movedId, titles[movedId], movedUp ? 2100 : 1900,
+				movedId % DIRECTORS);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public int rebuild() {
+		index.rebuild(loader -> {
+			for (int i = 0; i < titleCount; i++)
+				loader.putMovie(i, titles[i], years[i], i % DIRECTORS);
+			for (int d = 0; d < DIRECTORS; d++)
+				loader.putDirector(d, "Director " + Integer.toString(d, 36));
+		});
+		return index.size();
+	}
+
+	private static String title(Random random) {
+		StringBuilder title = new StringBuilder();
+		int pick = random.nextInt(100);
+		for (int i = 0; i < LEADING_WORDS.length && title.isEmpty(); i++) {
+			if (pick < LEADING_WEIGHTS[i])
+				title.append(LEADING_WORDS[i]);
+			pick -= LEADING_WEIGHTS[i];
+		}
+		int words = 1 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			if (w > 0)
+				title.append(' ');
+			int length = 3 + random.nextInt(6);
+			title.append((char) ('A' + random.nextInt(26)));
+			for (int c = 1; c < length; c++)
+				title.append((char) ('a' + random.nextInt(26)));
+		}
+		return title.toString();
+	}
+
+}
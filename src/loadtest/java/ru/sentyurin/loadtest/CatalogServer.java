@@ -0,0 +1,77 @@
+package ru.sentyurin.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.postgresql.Driver;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.web.SpringServletContainerInitializer;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import ru.sentyurin.config.CatalogSchema;
+import ru.sentyurin.config.DispatcherServletInitializer;
+
+/**
+ * The application as deployed: {@link DispatcherServletInitializer} bootstrapped
+ * by an embedded Tomcat on a free port, against PostgreSQL with the schema of
+ * {@code schema.sql}. Unless a database URL is given, PostgreSQL is started from
+ * the embedded binaries, which must not run as root.
+ */
+public class CatalogServer implements AutoCloseable {
+
+	private final EmbeddedPostgres postgres;
+	private final Tomcat tomcat;
+	private final URI baseUri;
+
+	private CatalogServer(EmbeddedPostgres postgres, Tomcat tomcat) {
+		this.postgres = postgres;
+		this.tomcat = tomcat;
+		baseUri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort());
+	}
+
+	public static CatalogServer start(LoadTestConfig config) throws Exception {
+		EmbeddedPostgres postgres = null;
+		String url = config.dbUrl();
+		if (url.isEmpty()) {
+			postgres = EmbeddedPostgres.builder().start();
+			url = postgres.getJdbcUrl(config.dbUsername(), "postgres");
+		}
+		url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+		SimpleDriverDataSource dataSource = new SimpleDriverDataSource(
+				new Driver(), url, config.dbUsername(), config.dbPassword());
+		CatalogSchema.apply(dataSource);
+
+		// System properties take precedence over db.properties
+		System.setProperty("db.url", url);
+		System.setProperty("db.username", config.dbUsername());
+		System.setProperty("db.password", config.dbPassword());
+
+		File baseDir = Files.createTempDirectory("loadtest-tomcat").toFile();
+		Tomcat tomcat = new Tomcat();
+		tomcat.setBaseDir(baseDir.getPath());
+		tomcat.setPort(0);
+		Context context = tomcat.addContext("", baseDir.getPath());
+		context.addServletContainerInitializer(new SpringServletContainerInitializer(),
+				Set.of(DispatcherServletInitializer.class));
+		tomcat.getConnector();
+		tomcat.start();
+		return new CatalogServer(postgres, tomcat);
+	}
+
+	public URI getBaseUri() {
+		return baseUri;
+	}
+
+	@Override
+	public void close() throws Exception {
+		tomcat.stop();
+		tomcat.destroy();
+		if (postgres != null)
+			postgres.close();
+	}
+
+}
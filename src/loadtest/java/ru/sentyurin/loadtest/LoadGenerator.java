@@ -0,0 +1,156 @@
+package ru.sentyurin.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ru.sentyurin.loadtest.Workload.Call;
+import ru.sentyurin.loadtest.Workload.Operation;
+import ru.sentyurin.util.metrics.LatencyHistogram;
+
+/**
+ * Drives a {@link Workload} against the server, every request on a virtual
+ * thread. A closed loop keeps a fixed number of clients busy, so its rate
+ * follows the server. An open loop sends requests on a fixed schedule, so a
+ * slow server builds a backlog; its latencies are measured from the scheduled
+ * time of a request rather than the time it was sent, so that stalls are not
+ * hidden.
+ */
+public class LoadGenerator {
+	private static final int MAX_OUTSTANDING = 10_000;
+
+	/**
+	 * Latencies and failures of one run, by operation
+	 */
+	public static class Results {
+		private final Map<Operation, LatencyHistogram> latencyNanos = new EnumMap<>(
+				Operation.class);
+		private final Map<Operation, LongAdder> errorCounts = new EnumMap<>(Operation.class);
+		private final LatencyHistogram totalLatencyNanos = new LatencyHistogram();
+		private final LongAdder droppedCount = new LongAdder();
+		private long elapsedNanos;
+
+		Results() {
+			for (Operation operation : Operation.values()) {
+				latencyNanos.put(operation, new LatencyHistogram());
+				errorCounts.put(operation, new LongAdder());
+			}
+		}
+
+		void record(Operation operation, long nanos, boolean failed) {
+			latencyNanos.get(operation).record(nanos);
+			totalLatencyNanos.record(nanos);
+			if (failed)
+				errorCounts.get(operation).increment();
+		}
+
+		public LatencyHistogram getLatencyNanos(Operation operation) {
+			return latencyNanos.get(operation);
+		}
+
+		public LatencyHistogram getTotalLatencyNanos() {
+			return totalLatencyNanos;
+		}
+
+		public long getErrorCount(Operation operation) {
+			return errorCounts.get(operation).sum();
+		}
+
+		/**
+		 * Requests of an open loop that were not sent because
+		 * {@value LoadGenerator#MAX_OUTSTANDING} were outstanding
+		 */
+		public long getDroppedCount() {
+			return droppedCount.sum();
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+	}
+
+	private final HttpClient client;
+	private final Workload workload;
+
+	public LoadGenerator(HttpClient client, Workload workload) {
+		this.client = client;
+		this.workload = workload;
+	}
+
+	public Results closedLoop(int concurrency, Duration duration) {
+		Results results = new Results();
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < concurrency; i++) {
+				executor.execute(() -> {
+					while (System.nanoTime() < end) {
+						long sent = System.nanoTime();
+						send(workload.next(), sent, results);
+					}
+				});
+			}
+		}
+		results.elapsedNanos = System.nanoTime() - start;
+		return results;
+	}
+
+	public Results openLoop(double rate, Duration duration) {
+		Results results = new Results();
+		long interval = (long) (1e9 / rate);
+		AtomicInteger outstanding = new AtomicInteger();
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (long scheduled = start; scheduled < end; scheduled += interval) {
+				long delay = scheduled - System.nanoTime();
+				if (delay > 0)
+					LockSupport.parkNanos(delay);
+				if (outstanding.get() >= MAX_OUTSTANDING) {
+					results.droppedCount.increment();
+					continue;
+				}
+				outstanding.incrementAndGet();
+				long intended = scheduled;
+				executor.execute(() -> {
+					try {
+						send(workload.next(), intended, results);
+					} finally {
+						outstanding.decrementAndGet();
+					}
+				});
+			}
+		}
+		results.elapsedNanos = System.nanoTime() - start;
+		return results;
+	}
+
+	private void send(Call call, long startNanos, Results results) {
+		boolean failed = true;
+		try {
+			BodyHandler<byte[]> handler = call.onSuccess() == null
+					? BodyHandlers.replacing(null)
+					: BodyHandlers.ofByteArray();
+			HttpResponse<byte[]> response = client.send(call.request(), handler);
+			failed = response.statusCode() / 100 != 2;
+			if (!failed && call.onSuccess() != null)
+				call.onSuccess().accept(response.body());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			// Counted as a failure
+		} finally {
+			results.record(call.operation(), System.nanoTime() - startNanos, failed);
+		}
+	}
+
+}
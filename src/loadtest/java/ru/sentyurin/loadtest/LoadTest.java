@@ -0,0 +1,126 @@
+package ru.sentyurin.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ru.sentyurin.loadtest.LoadGenerator.Results;
+import ru.sentyurin.loadtest.Workload.Operation;
+import ru.sentyurin.util.metrics.LatencyHistogram;
+
+/**
+ * End-to-end load test of the application: boots a {@link CatalogServer},
+ * seeds a synthetic catalog, warms up, then runs the closed-loop and open-loop
+ * generators and writes their throughput and latency percentiles, in total and
+ * by operation, to a JSON file with sorted keys, so that runs of different
+ * commits can be diffed. Configured by {@link LoadTestConfig}; run with
+ * {@code mvn -P loadtest verify}.
+ */
+public class LoadTest {
+
+	public static void main(String[] args) throws Exception {
+		((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+				.setLevel(Level.ERROR);
+		LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+		try (CatalogServer server = CatalogServer.start(config);
+				HttpClient client = HttpClient.newBuilder()
+						.executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+			Workload workload = new Workload(server.getBaseUri(), config.writePercent());
+			long seedStart = System.nanoTime();
+			workload.seed(client, config.directors(), config.movies(), config.seed());
+			System.out.printf("Seeded %d movies of %d directors in %d ms%n",
+					workload.getMovieCount(), workload.getDirectorCount(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+			LoadGenerator generator = new LoadGenerator(client, workload);
+			generator.closedLoop(config.concurrency(), config.warmup());
+			Map<String, Object> runs = new LinkedHashMap<>();
+			if (config.runsClosedLoop())
+				runs.put("closed", summarize(
+						generator.closedLoop(config.concurrency(), config.duration())));
+			if (config.runsOpenLoop())
+				runs.put("open", summarize(generator.openLoop(config.rate(), config.duration())));
+
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("config", describe(config));
+			report.put("runs", runs);
+			write(report, config);
+		}
+	}
+
+	private static Map<String, Object> describe(LoadTestConfig config) {
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("database", config.dbUrl().isEmpty() ? "embedded" : config.dbUrl());
+		description.put("directors", config.directors());
+		description.put("movies", config.movies());
+		description.put("seed", config.seed());
+		description.put("concurrency", config.concurrency());
+		description.put("rate", config.rate());
+		description.put("warmupSeconds", config.warmup().toSeconds());
+		description.put("durationSeconds", config.duration().toSeconds());
+		description.put("writePercent", config.writePercent());
+		return description;
+	}
+
+	private static Map<String, Object> summarize(Results results) {
+		long errors = 0;
+		Map<String, Object> operations = new LinkedHashMap<>();
+		for (Operation operation : Operation.values()) {
+			LatencyHistogram latency = results.getLatencyNanos(operation);
+			if (latency.getCount() == 0)
+				continue;
+			operations.put(operation.getLabel(), stats(latency,
+					results.getErrorCount(operation), results.getElapsedNanos()));
+			errors += results.getErrorCount(operation);
+		}
+		Map<String, Object> summary = stats(results.getTotalLatencyNanos(), errors,
+				results.getElapsedNanos());
+		summary.put("dropped", results.getDroppedCount());
+		summary.put("operations", operations);
+		return summary;
+	}
+
+	private static Map<String, Object> stats(LatencyHistogram latency, long errors,
+			long elapsedNanos) {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("requests", latency.getCount());
+		stats.put("errors", errors);
+		stats.put("throughput", round(latency.getCount() * 1e9 / elapsedNanos));
+		stats.put("p50Millis", millis(latency.getValueAtQuantile(0.5)));
+		stats.put("p99Millis", millis(latency.getValueAtQuantile(0.99)));
+		stats.put("p999Millis", millis(latency.getValueAtQuantile(0.999)));
+		stats.put("maxMillis", millis(latency.getMax()));
+		return stats;
+	}
+
+	private static double millis(long nanos) {
+		return round(nanos / 1e6);
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 1000) / 1000.0;
+	}
+
+	private static void write(Map<String, Object> report, LoadTestConfig config)
+			throws IOException {
+		ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+				.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+		if (config.output().getParent() != null)
+			Files.createDirectories(config.output().getParent());
+		mapper.writeValue(config.output().toFile(), report);
+		System.out.println(mapper.writeValueAsString(report));
+		System.out.println("Written to " + config.output().toAbsolutePath());
+	}
+
+}
@@ -0,0 +1,47 @@
+package ru.sentyurin.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a load test, read from {@code loadtest.*} system properties
+ *
+ * @param dbUrl        JDBC URL of a running PostgreSQL, or an empty string to
+ *                     start an embedded one
+ * @param mode         {@code closed}, {@code open} or {@code both}
+ * @param concurrency  clients of the closed-loop run, each sending its next
+ *                     request when the previous one completes
+ * @param rate         requests per second of the open-loop run, sent on
+ *                     schedule whether or not earlier ones have completed
+ * @param writePercent share of requests that change the catalog
+ * @param seed         seed of the synthetic catalog, so that runs compare
+ */
+public record LoadTestConfig(String dbUrl, String dbUsername, String dbPassword, int directors,
+		int movies, String mode, int concurrency, double rate, Duration warmup,
+		Duration duration, int writePercent, long seed, Path output) {
+
+	public static LoadTestConfig fromSystemProperties() {
+		return new LoadTestConfig(System.getProperty("loadtest.db.url", ""),
+				System.getProperty("loadtest.db.username", "postgres"),
+				System.getProperty("loadtest.db.password", "postgres"),
+				Integer.getInteger("loadtest.directors", 500),
+				Integer.getInteger("loadtest.movies", 20_000),
+				System.getProperty("loadtest.mode", "both"),
+				Integer.getInteger("loadtest.concurrency", 32),
+				Double.parseDouble(System.getProperty("loadtest.rate", "500")),
+				Duration.ofSeconds(Integer.getInteger("loadtest.warmup_seconds", 10)),
+				Duration.ofSeconds(Integer.getInteger("loadtest.duration_seconds", 30)),
+				Integer.getInteger("loadtest.write_percent", 20),
+				Long.getLong("loadtest.seed", 42),
+				Path.of(System.getProperty("loadtest.output", "target/loadtest-result.json")));
+	}
+
+	public boolean runsClosedLoop() {
+		return !"open".equals(mode);
+	}
+
+	public boolean runsOpenLoop() {
+		return !"closed".equals(mode);
+	}
+
+}
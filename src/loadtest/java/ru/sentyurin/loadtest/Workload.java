@@ -0,0 +1,317 @@
+package ru.sentyurin.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Mix of requests covering every route of the movie and director controllers.
+ * Reads address the seeded catalog. Writes create movies and directors of their
+ * own, and updates and deletes only touch those, so that writes do not conflict
+ * with each other and the seeded catalog stays as seeded.
+ */
+public class Workload {
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final String JSON = "application/json";
+	private static final String[] WORDS = { "night", "city", "river", "love", "war", "dream",
+			"winter", "shadow", "road", "silence", "fire", "garden" };
+	private static final int SEED_CHUNK = 10_000;
+	private static final int PAGE_SIZE = 1_000;
+	private static final int BATCH_SIZE = 10;
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	/**
+	 * A route with its share of the read or write requests
+	 */
+	public enum Operation {
+		MOVIES_PAGE("movies.page", 20, false), MOVIES_ALL("movies.all", 1, false),
+		MOVIES_FILTER("movies.filter", 10, false), MOVIES_STREAM("movies.stream", 1, false),
+		MOVIES_SEARCH("movies.search", 10, false), MOVIES_EXPORT("movies.export", 2, false),
+		MOVIE_GET("movies.get", 40, false), DIRECTORS_PAGE("directors.page", 10, false),
+		DIRECTORS_ALL("directors.all", 1, false), DIRECTOR_GET("directors.get", 20, false),
+		MOVIE_CREATE("movies.create", 20, true), MOVIES_BATCH("movies.batch", 5, true),
+		MOVIES_IMPORT("movies.import", 2, true), MOVIE_UPDATE("movies.update", 20, true),
+		MOVIE_DELETE("movies.delete", 15, true), DIRECTOR_CREATE("directors.create", 10, true),
+		DIRECTORS_BATCH("directors.batch", 3, true),
+		DIRECTOR_UPDATE("directors.update", 10, true),
+		DIRECTOR_DELETE("directors.delete", 8, true);
+
+		private final String label;
+		private final int weight;
+		private final boolean write;
+
+		Operation(String label, int weight, boolean write) {
+			this.label = label;
+			this.weight = weight;
+			this.write = write;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * A request to send, and what to do with the body of a successful response
+	 */
+	public record Call(Operation operation, HttpRequest request, Consumer<byte[]> onSuccess) {
+	}
+
+	private record Versioned(int id, int version) {
+	}
+
+	private final URI baseUri;
+	private final int writePercent;
+	private final List<Operation> reads = new ArrayList<>();
+	private final List<Operation> writes = new ArrayList<>();
+	private final List<Integer> movieIds = new ArrayList<>();
+	private final List<Integer> directorIds = new ArrayList<>();
+	private final Queue<Versioned> createdMovies = new ConcurrentLinkedQueue<>();
+	private final Queue<Versioned> createdDirectors = new ConcurrentLinkedQueue<>();
+	private final AtomicLong nameCounter = new AtomicLong();
+	private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+	public Workload(URI baseUri, int writePercent) {
+		this.baseUri = baseUri;
+		this.writePercent = writePercent;
+		for (Operation operation : Operation.values()) {
+			for (int i = 0; i < operation.weight; i++)
+				(operation.write ? writes : reads).add(operation);
+		}
+	}
+
+	/**
+	 * Imports a synthetic catalog of {@code movies} movies spread over
+	 * {@code directors} directors through {@code POST /movies/import}, then
+	 * collects the IDs the reads address
+	 */
+	public void seed(HttpClient client, int directors, int movies, long seed)
+			throws IOException, InterruptedException {
+		Random random = new Random(seed);
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < movies; i++) {
+			if (csv.isEmpty())
+				csv.append("title,releaseYear,directorId,directorName\n");
+			csv.append("Seed movie ").append(i).append(' ')
+					.append(WORDS[random.nextInt(WORDS.length)]).append(',')
+					.append(1920 + random.nextInt(105)).append(",,Seed director ")
+					.append(random.nextInt(directors)).append('\n');
+			if ((i + 1) % SEED_CHUNK == 0 || i == movies - 1) {
+				expectOk(client.send(post("/movies/import", "text/csv", csv.toString()),
+						BodyHandlers.ofString()));
+				csv.setLength(0);
+			}
+		}
+		Set<Integer> seenDirectorIds = new LinkedHashSet<>();
+		String cursor = "";
+		do {
+			HttpResponse<byte[]> page = expectOk(client.send(
+					get("/movies?limit=" + PAGE_SIZE + cursor), BodyHandlers.ofByteArray()));
+			for (Map<String, Object> movie : MAPPER.readValue(page.body(),
+					new TypeReference<List<Map<String, Object>>>() {
+					})) {
+				movieIds.add((Integer) movie.get("id"));
+				seenDirectorIds.add((Integer) movie.get("directorId"));
+			}
+			cursor = page.headers().firstValue("X-Next-Cursor").map(next -> "&after=" + next)
+					.orElse(null);
+		} while (cursor != null);
+		directorIds.addAll(seenDirectorIds);
+	}
+
+	public int getMovieCount() {
+		return movieIds.size();
+	}
+
+	public int getDirectorCount() {
+		return directorIds.size();
+	}
+
+	public Call next() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		List<Operation> group = random.nextInt(100) < writePercent ? writes : reads;
+		return call(group.get(random.nextInt(group.size())), random);
+	}
+
+	private Call call(Operation operation, ThreadLocalRandom random) {
+		return switch (operation) {
+		case MOVIES_PAGE -> read(operation,
+				"/movies?limit=100&after=" + pick(movieIds, random));
+		case MOVIES_ALL -> read(operation, "/movies");
+		case MOVIES_FILTER -> read(operation, "/movies?limit=50&sort=-releaseYear&yearFrom="
+				+ (1920 + random.nextInt(100)) + "&directorId=" + pick(directorIds, random));
+		case MOVIES_STREAM -> read(operation, "/movies/stream");
+		case MOVIES_SEARCH -> read(operation,
+				"/movies/search?limit=20&q=" + WORDS[random.nextInt(WORDS.length)]);
+		case MOVIES_EXPORT -> read(operation,
+				"/movies/export?format=ndjson&directorId=" + pick(directorIds, random));
+		case MOVIE_GET -> read(operation, "/movies/" + pick(movieIds, random));
+		case DIRECTORS_PAGE -> read(operation,
+				"/directors?limit=20&after=" + pick(directorIds, random));
+		case DIRECTORS_ALL -> read(operation, "/directors");
+		case DIRECTOR_GET -> read(operation, "/directors/" + pick(directorIds, random));
+		case MOVIE_CREATE -> new Call(operation,
+				post("/movies", JSON, json(newMovie(random))),
+				body -> createdMovies.add(versioned(body)));
+		case MOVIES_BATCH -> new Call(operation,
+				post("/movies/batch", JSON, json(newList(() -> newMovie(random)))),
+				body -> addCreated(createdMovies, body));
+		case MOVIES_IMPORT -> new Call(operation,
+				post("/movies/import", "text/csv", newCsv(random)), null);
+		case MOVIE_UPDATE -> update(operation, createdMovies, "/movies",
+				movie -> Map.of("id", movie.id(), "title", newName("Movie"),
+						"releaseYear", 1920 + random.nextInt(105), "directorId",
+						pick(directorIds, random), "version", movie.version()));
+		case MOVIE_DELETE -> delete(operation, createdMovies, "/movies/");
+		case DIRECTOR_CREATE -> new Call(operation,
+				post("/directors", JSON, json(Map.of("name", newName("Director")))),
+				body -> createdDirectors.add(versioned(body)));
+		case DIRECTORS_BATCH -> new Call(operation,
+				post("/directors/batch", JSON,
+						json(newList(() -> Map.of("name", newName("Director"))))),
+				body -> addCreated(createdDirectors, body));
+		case DIRECTOR_UPDATE -> update(operation, createdDirectors, "/directors",
+				director -> Map.of("id", director.id(), "name", newName("Director"),
+						"version", director.version()));
+		case DIRECTOR_DELETE -> delete(operation, createdDirectors, "/directors/");
+		};
+	}
+
+	private Call read(Operation operation, String path) {
+		return new Call(operation, get(path), null);
+	}
+
+	/**
+	 * Updates a movie or director created earlier, or creates one if there is
+	 * none yet
+	 */
+	private Call update(Operation operation, Queue<Versioned> created, String path,
+			Function<Versioned, Map<String, Object>> body) {
+		Versioned entity = created.poll();
+		if (entity == null)
+			return call(operation == Operation.MOVIE_UPDATE ? Operation.MOVIE_CREATE
+					: Operation.DIRECTOR_CREATE, ThreadLocalRandom.current());
+		return new Call(operation, request(path).header("Content-Type", JSON)
+				.PUT(BodyPublishers.ofString(json(body.apply(entity)))).build(),
+				response -> created.add(versioned(response)));
+	}
+
+	private Call delete(Operation operation, Queue<Versioned> created, String path) {
+		Versioned entity = created.poll();
+		if (entity == null)
+			return call(operation == Operation.MOVIE_DELETE ? Operation.MOVIE_CREATE
+					: Operation.DIRECTOR_CREATE, ThreadLocalRandom.current());
+		return new Call(operation, request(path + entity.id()).DELETE().build(), null);
+	}
+
+	private Map<String, Object> newMovie(ThreadLocalRandom random) {
+		return Map.of("title", newName("Movie"), "releaseYear", 1920 + random.nextInt(105),
+				"directorId", pick(directorIds, random));
+	}
+
+	private String newCsv(ThreadLocalRandom random) {
+		StringBuilder csv = new StringBuilder("title,releaseYear,directorId,directorName\n");
+		for (int i = 0; i < BATCH_SIZE; i++)
+			csv.append(newName("Imported movie")).append(',')
+					.append(1920 + random.nextInt(105)).append(',')
+					.append(pick(directorIds, random)).append(",\n");
+		return csv.toString();
+	}
+
+	private static List<Map<String, Object>> newList(
+			Supplier<Map<String, Object>> element) {
+		List<Map<String, Object>> list = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++)
+			list.add(element.get());
+		return list;
+	}
+
+	private String newName(String prefix) {
+		return prefix + " " + runId + "-" + nameCounter.incrementAndGet();
+	}
+
+	private static Integer pick(List<Integer> ids, ThreadLocalRandom random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+
+	private static Versioned versioned(byte[] body) {
+		Map<String, Object> entity = readMap(body);
+		return new Versioned((Integer) entity.get("id"), (Integer) entity.get("version"));
+	}
+
+	private static void addCreated(Queue<Versioned> created, byte[] body) {
+		try {
+			for (Map<String, Object> item : MAPPER.readValue(body,
+					new TypeReference<List<Map<String, Object>>>() {
+					})) {
+				if ("CREATED".equals(item.get("status")))
+					created.add(new Versioned((Integer) item.get("id"), 0));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Map<String, Object> readMap(byte[] body) {
+		try {
+			return MAPPER.readValue(body, new TypeReference<Map<String, Object>>() {
+			});
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String json(Object value) {
+		try {
+			return MAPPER.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private HttpRequest get(String path) {
+		return request(path).GET().build();
+	}
+
+	private HttpRequest post(String path, String contentType, String body) {
+		return request(path).header("Content-Type", contentType)
+				.POST(BodyPublishers.ofString(body)).build();
+	}
+
+	private HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT);
+	}
+
+	private static <T> HttpResponse<T> expectOk(HttpResponse<T> response) {
+		if (response.statusCode() != 200)
+			throw new IllegalStateException(response.request().uri() + " answered "
+					+ response.statusCode() + ": " + (response.body() instanceof byte[] bytes
+							? new String(bytes, StandardCharsets.UTF_8)
+							: response.body()));
+		return response;
+	}
+
+}
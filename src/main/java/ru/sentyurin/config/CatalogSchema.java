@@ -0,0 +1,26 @@
+package ru.sentyurin.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+/**
+ * Runs {@code schema.sql} against a PostgreSQL database. The script goes to the
+ * driver whole, which splits it without breaking up dollar-quoted blocks, as
+ * {@code psql} does when the script is deployed.
+ */
+public final class CatalogSchema {
+
+	private CatalogSchema() {
+	}
+
+	public static void apply(DataSource dataSource) {
+		ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+				new ClassPathResource("schema.sql"));
+		populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+		populator.execute(dataSource);
+	}
+
+}
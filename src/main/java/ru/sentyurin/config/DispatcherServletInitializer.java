@@ -1,12 +1,21 @@
 package ru.sentyurin.config;
 
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import jakarta.servlet.Filter;
+
 public class DispatcherServletInitializer extends AbstractAnnotationConfigDispatcherServletInitializer {
 
+	/**
+	 * There is no root context: the whole application lives in the servlet
+	 * context, so that every bean, with the caches and indexes it holds, exists
+	 * once
+	 */
 	@Override
 	protected Class<?>[] getRootConfigClasses() {
-		return new Class[] { SpringConfig.class };
+		return null;
 	}
 
 	@Override
@@ -19,4 +28,21 @@ public class DispatcherServletInitializer extends AbstractAnnotationConfigDispat
 		return new String[] { "/" };
 	}
 
+	/**
+	 * Filters are beans of the servlet context, where the metrics endpoint reads
+	 * them. Compression comes after the metrics filter, which then counts the
+	 * bytes actually sent.
+	 */
+	@Override
+	protected Filter[] getServletFilters() {
+		return new Filter[] { servletContextFilter("requestMetricsFilter"),
+				servletContextFilter("compressionFilter") };
+	}
+
+	private DelegatingFilterProxy servletContextFilter(String beanName) {
+		DelegatingFilterProxy filter = new DelegatingFilterProxy(beanName);
+		filter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + getServletName());
+		return filter;
+	}
+
 }
@@ -0,0 +1,68 @@
+package ru.sentyurin.config;
+
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.spi.RegionFactory;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import ru.sentyurin.model.Director;
+import ru.sentyurin.model.Movie;
+
+/**
+ * Creates the Caffeine caches backing the regions of the Hibernate second-level
+ * cache. Regions of entities, collections and query results are bounded in size
+ * and expire after a write; the update timestamps region, which tells whether
+ * cached query results are still valid, is neither bounded nor expired.
+ */
+public final class SecondLevelCache {
+
+	private static final List<String> DATA_REGIONS = List.of(Movie.CACHE_REGION,
+			Director.CACHE_REGION, Director.MOVIES_CACHE_REGION,
+			RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+	private static final AtomicInteger MANAGER_COUNT = new AtomicInteger();
+
+	private SecondLevelCache() {
+	}
+
+	/**
+	 * Returns a new cache manager holding every region, so that each session
+	 * factory has caches of its own. Entries are kept by reference rather than
+	 * copied: Hibernate caches immutable disassembled state.
+	 *
+	 * @param maximumSize  entries per region
+	 * @param timeToLiveMs time after which an entry written to a region expires
+	 */
+	public static CacheManager createCacheManager(long maximumSize, long timeToLiveMs) {
+		URI uri = URI.create("second-level-cache-" + MANAGER_COUNT.incrementAndGet());
+		CacheManager cacheManager = Caching
+				.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(uri, SecondLevelCache.class.getClassLoader());
+		for (String region : DATA_REGIONS) {
+			CaffeineConfiguration<Object, Object> configuration = configuration();
+			configuration.setMaximumSize(OptionalLong.of(maximumSize));
+			configuration.setExpireAfterWrite(
+					OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(timeToLiveMs)));
+			cacheManager.createCache(region, configuration);
+		}
+		cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+				configuration());
+		return cacheManager;
+	}
+
+	private static CaffeineConfiguration<Object, Object> configuration() {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setStoreByValue(false);
+		return configuration;
+	}
+
+}
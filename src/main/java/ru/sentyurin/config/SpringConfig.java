@@ -2,50 +2,149 @@ package ru.sentyurin.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Properties;
 
+import javax.cache.CacheManager;
 import javax.sql.DataSource;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.stat.Statistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Role;
 import org.springframework.core.env.Environment;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.sentyurin.controller.advice.FieldsetAdvice;
+import ru.sentyurin.controller.interceptor.ConditionalGetInterceptor;
+import ru.sentyurin.controller.interceptor.SqlBudgetInterceptor;
+import ru.sentyurin.util.concurrent.DbGate;
+import ru.sentyurin.util.concurrent.GatedDataSource;
 import ru.sentyurin.util.exception.FileReadingException;
+import ru.sentyurin.util.metrics.MetricsAdvisor;
+import ru.sentyurin.util.metrics.PoolMetrics;
+import ru.sentyurin.util.metrics.RequestMetrics;
 
 @Configuration
 @EnableWebMvc
 @ComponentScan("ru.sentyurin")
-@PropertySource("classpath:db.properties")
+@PropertySource({ "classpath:db.properties", "classpath:application.properties" })
 @EnableTransactionManagement
 @EnableJpaRepositories("ru.sentyurin.repository")
 public class SpringConfig implements WebMvcConfigurer {
 	private final Environment env;
+	private final ConditionalGetInterceptor conditionalGetInterceptor;
+	private final SqlBudgetInterceptor sqlBudgetInterceptor;
 
 	@Autowired
-	public SpringConfig(Environment env) {
+	public SpringConfig(Environment env, ConditionalGetInterceptor conditionalGetInterceptor,
+			SqlBudgetInterceptor sqlBudgetInterceptor) {
 		this.env = env;
+		this.conditionalGetInterceptor = conditionalGetInterceptor;
+		this.sqlBudgetInterceptor = sqlBudgetInterceptor;
+	}
+
+	/**
+	 * Bulk import and batch creates issue statements in proportion to their
+	 * input, so they have no SQL budget
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/movies/**",
+				"/directors/**", "/autocomplete/**");
+		registry.addInterceptor(sqlBudgetInterceptor)
+				.addPathPatterns("/movies/**", "/directors/**", "/autocomplete/**")
+				.excludePathPatterns("/movies/import", "/movies/batch", "/directors/batch");
+	}
+
+	/**
+	 * Lets the JSON, Smile and CBOR converters serialise sparse fieldsets
+	 */
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		FieldsetAdvice.configure(converters);
 	}
 
 	@Bean
 	public DataSource dataSource() {
-		DriverManagerDataSource dataSource = new DriverManagerDataSource();
-		dataSource.setDriverClassName(env.getRequiredProperty("db.driver_class"));
-		dataSource.setUrl(env.getRequiredProperty("db.url"));
-		dataSource.setUsername(env.getRequiredProperty("db.username"));
-		dataSource.setPassword(env.getRequiredProperty("db.password"));
-		return dataSource;
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("movieCatalogPool");
+		config.setDriverClassName(env.getRequiredProperty("db.driver_class"));
+		config.setJdbcUrl(env.getRequiredProperty("db.url"));
+		config.setUsername(env.getRequiredProperty("db.username"));
+		config.setPassword(env.getRequiredProperty("db.password"));
+		config.setMaximumPoolSize(env.getProperty("db.pool.maximum_pool_size", Integer.class, 10));
+		config.setMinimumIdle(env.getProperty("db.pool.minimum_idle", Integer.class, 10));
+		config.setConnectionTimeout(
+				env.getProperty("db.pool.connection_timeout_ms", Long.class, 30_000L));
+		config.setIdleTimeout(env.getProperty("db.pool.idle_timeout_ms", Long.class, 600_000L));
+		config.setMaxLifetime(env.getProperty("db.pool.max_lifetime_ms", Long.class, 1_800_000L));
+		config.setKeepaliveTime(env.getProperty("db.pool.keepalive_time_ms", Long.class, 0L));
+		config.setValidationTimeout(
+				env.getProperty("db.pool.validation_timeout_ms", Long.class, 5_000L));
+		config.setLeakDetectionThreshold(
+				env.getProperty("db.pool.leak_detection_threshold_ms", Long.class, 0L));
+		config.setMetricsTrackerFactory(poolMetrics());
+		HikariDataSource pool = new HikariDataSource(config);
+		return virtualThreadsEnabled() ? new GatedDataSource(pool, dbGate()) : pool;
+	}
+
+	/**
+	 * Admits at most {@code web.virtual_threads.max_active} connection holders,
+	 * the pool size by default, so that requests on virtual threads wait in the
+	 * gate instead of piling up in the pool
+	 */
+	@Bean
+	public DbGate dbGate() {
+		int poolSize = env.getProperty("db.pool.maximum_pool_size", Integer.class, 10);
+		return new DbGate(
+				env.getProperty("web.virtual_threads.max_active", Integer.class, poolSize),
+				env.getProperty("web.virtual_threads.max_waiting", Integer.class, 10_000),
+				env.getProperty("db.pool.connection_timeout_ms", Long.class, 30_000L));
+	}
+
+	@Bean
+	public VirtualThreadHandlerAdapter virtualThreadHandlerAdapter(
+			RequestMappingHandlerAdapter requestMappingHandlerAdapter) {
+		return new VirtualThreadHandlerAdapter(requestMappingHandlerAdapter,
+				virtualThreadsEnabled(),
+				env.getProperty("web.virtual_threads.timeout_ms", Long.class, 0L));
+	}
+
+	@Bean
+	public PoolMetrics poolMetrics() {
+		return new PoolMetrics();
+	}
+
+	/**
+	 * Times service methods and exception handlers. The infrastructure role makes
+	 * the transaction auto-proxy creator apply it; the method is static since
+	 * advisors are created before the rest of the configuration.
+	 */
+	@Bean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public static MetricsAdvisor metricsAdvisor(RequestMetrics requestMetrics) {
+		return new MetricsAdvisor(requestMetrics);
 	}
 
 	@Bean
@@ -55,9 +154,30 @@ public class SpringConfig implements WebMvcConfigurer {
 		emf.setPackagesToScan("ru.sentyurin.model");
 		emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
 		emf.setJpaProperties(hibernateProperties());
+		emf.getJpaPropertyMap().put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager());
 		return emf;
 	}
 	
+	/**
+	 * Caches of the Hibernate second-level cache regions, bounded by
+	 * {@code cache.second_level.maximum_size} entries per region
+	 */
+	@Bean
+	public CacheManager secondLevelCacheManager() {
+		return SecondLevelCache.createCacheManager(
+				env.getProperty("cache.second_level.maximum_size", Long.class, 10_000L),
+				env.getProperty("cache.second_level.time_to_live_ms", Long.class, 600_000L));
+	}
+	
+	/**
+	 * Statistics of the session factory, collected when
+	 * {@code hibernate.generate_statistics} is set
+	 */
+	@Bean
+	public Statistics hibernateStatistics(EntityManagerFactory entityManagerFactory) {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
 	@Bean
 	public PlatformTransactionManager transactionManager() {
 		JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -65,6 +185,10 @@ public class SpringConfig implements WebMvcConfigurer {
 		return transactionManager;
 	}
 
+	private boolean virtualThreadsEnabled() {
+		return env.getProperty("web.virtual_threads.enabled", Boolean.class, false);
+	}
+
 	private Properties hibernateProperties() {
 		try (InputStream input = getClass().getClassLoader()
 				.getResourceAsStream("hibernate.properties")) {
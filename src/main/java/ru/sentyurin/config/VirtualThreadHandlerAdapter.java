@@ -0,0 +1,113 @@
+package ru.sentyurin.config;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerAdapter;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs controller methods on virtual threads. The request is put into async
+ * mode and the whole work of {@link RequestMappingHandlerAdapter} (argument
+ * resolution, the controller call and writing the response body) is done on a
+ * new virtual thread, which releases the container thread while the request
+ * blocks on JDBC. When the virtual thread finishes, the request is dispatched
+ * back to the container, where an exception is rethrown to the usual
+ * exception handlers.
+ * <p>
+ * Takes precedence over {@link RequestMappingHandlerAdapter} only when enabled;
+ * otherwise every request is handled on the container thread as before.
+ */
+public class VirtualThreadHandlerAdapter implements HandlerAdapter, Ordered {
+	private static final List<Class<?>> ASYNC_RETURN_TYPES = List.of(ResponseBodyEmitter.class,
+			StreamingResponseBody.class, DeferredResult.class, Callable.class, WebAsyncTask.class,
+			CompletionStage.class);
+
+	private final RequestMappingHandlerAdapter delegate;
+	private final boolean enabled;
+	private final long timeoutMillis;
+	private final AsyncTaskExecutor executor = new VirtualThreadTaskExecutor("request-");
+
+	/**
+	 * @param timeoutMillis async request timeout; 0 or less means no timeout
+	 */
+	public VirtualThreadHandlerAdapter(RequestMappingHandlerAdapter delegate, boolean enabled,
+			long timeoutMillis) {
+		this.delegate = delegate;
+		this.enabled = enabled;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Supports controller methods that return their result synchronously; those
+	 * returning an emitter, a deferred result and the like are already
+	 * asynchronous and are left to the delegate
+	 */
+	@Override
+	public boolean supports(Object handler) {
+		return enabled && handler instanceof HandlerMethod handlerMethod
+				&& delegate.supports(handler) && !isAsynchronous(handlerMethod);
+	}
+
+	@Override
+	public ModelAndView handle(HttpServletRequest request, HttpServletResponse response,
+			Object handler) throws Exception {
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		if (asyncManager.hasConcurrentResult()) {
+			Object result = asyncManager.getConcurrentResult();
+			asyncManager.clearConcurrentResult();
+			if (result instanceof Exception exception)
+				throw exception;
+			if (result instanceof Error error)
+				throw error;
+			return (ModelAndView) result;
+		}
+		AsyncWebRequest asyncWebRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+		asyncWebRequest.setTimeout(timeoutMillis > 0 ? timeoutMillis : -1L);
+		asyncManager.setTaskExecutor(executor);
+		asyncManager.setAsyncWebRequest(asyncWebRequest);
+		asyncManager.startCallableProcessing(() -> {
+			try {
+				return delegate.handle(request, response, handler);
+			} finally {
+				// the delegate registers an async request of its own; the dispatch
+				// must go through the one that started async processing
+				asyncManager.setAsyncWebRequest(asyncWebRequest);
+			}
+		});
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public long getLastModified(HttpServletRequest request, Object handler) {
+		return -1;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	private static boolean isAsynchronous(HandlerMethod handlerMethod) {
+		Class<?> returnType = handlerMethod.getReturnType().getParameterType();
+		return ASYNC_RETURN_TYPES.stream().anyMatch(type -> type.isAssignableFrom(returnType));
+	}
+
+}
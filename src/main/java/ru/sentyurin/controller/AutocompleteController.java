@@ -0,0 +1,32 @@
+package ru.sentyurin.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import ru.sentyurin.controller.dto.SuggestionDto;
+import ru.sentyurin.service.autocomplete.AutocompleteService;
+
+@RestController
+@RequestMapping("/autocomplete")
+public class AutocompleteController {
+	private static final int DEFAULT_LIMIT = 10;
+
+	private final AutocompleteService autocompleteService;
+
+	@Autowired
+	public AutocompleteController(AutocompleteService autocompleteService) {
+		this.autocompleteService = autocompleteService;
+	}
+
+	@GetMapping
+	public List<SuggestionDto> doGet(@RequestParam String prefix,
+			@RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+		return autocompleteService.suggest(prefix, limit);
+	}
+
+}
@@ -0,0 +1,69 @@
+package ru.sentyurin.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ru.sentyurin.controller.dto.ChangeDto;
+import ru.sentyurin.service.ChangeFeedListener;
+import ru.sentyurin.service.event.ChangeFeed;
+
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+	private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+	private final ChangeFeed changeFeed;
+	private final long timeoutMillis;
+
+	@Autowired
+	public ChangeController(ChangeFeed changeFeed,
+			@Value("${changes.emitter_timeout_ms:600000}") long timeoutMillis) {
+		this.changeFeed = changeFeed;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Streams committed changes as Server-Sent Events: a {@code change} event per
+	 * change, or a {@code reset} event when the changes after
+	 * {@value #LAST_EVENT_ID_HEADER} are no longer available. The stream is closed
+	 * when the client falls too far behind or after the timeout; the client then
+	 * reconnects with the last event ID it received.
+	 */
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter doGet(
+			@RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+		SseEmitter emitter = new SseEmitter(timeoutMillis);
+		ChangeFeed.Subscription subscription = changeFeed.subscribe(lastEventId,
+				new ChangeFeedListener() {
+
+					@Override
+					public void onChange(String eventId, ChangeDto change) throws IOException {
+						emitter.send(SseEmitter.event().id(eventId).name("change").data(change,
+								MediaType.APPLICATION_JSON));
+					}
+
+					@Override
+					public void onReset(String eventId) throws IOException {
+						emitter.send(SseEmitter.event().id(eventId).name("reset").data(""));
+					}
+
+					@Override
+					public void onDropped() {
+						emitter.complete();
+					}
+				});
+		emitter.onCompletion(subscription::cancel);
+		emitter.onTimeout(subscription::cancel);
+		emitter.onError(error -> subscription.cancel());
+		return emitter;
+	}
+
+}
@@ -1,5 +1,6 @@
 package ru.sentyurin.controller;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +13,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.controller.advice.FieldsetAdvice;
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
 import ru.sentyurin.service.DirectorService;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
 
@@ -23,22 +31,52 @@ import ru.sentyurin.util.exception.NoDataInRepositoryException;
 @RequestMapping("/directors")
 public class DirectorController {
 	private static final String NO_DIRECTOR_WITH_ID_MSG = "There is no director with this ID";
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final int DEFAULT_PAGE_SIZE = 100;
 
 	private final DirectorService directorService;
+	private final SnapshotResponses snapshotResponses;
 
 	@Autowired
-	public DirectorController(DirectorService directorServiceImpl) {
+	public DirectorController(DirectorService directorServiceImpl,
+			SnapshotResponses snapshotResponses) {
 		directorService = directorServiceImpl;
+		this.snapshotResponses = snapshotResponses;
 	}
 
+	/**
+	 * Returns all directors, or a page of them if paging is requested. All
+	 * directors are written by {@link SnapshotResponses} when the catalog snapshot
+	 * is up to date and every field is requested, in which case {@code null} is
+	 * returned.
+	 */
 	@GetMapping
-	public List<DirectorOutgoingDto> doGet() {
-		return directorService.getDirectors();
+	public ResponseEntity<List<DirectorOutgoingDto>> doGet(
+			@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String fields,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Fieldset fieldset = Fieldset.ofDirectors(fields);
+		FieldsetAdvice.select(request, fieldset);
+		if (after == null && limit == null) {
+			if (fieldset.isComplete() && snapshotResponses.writeDirectors(request, response))
+				return null;
+			return ResponseEntity.ok(directorService.getDirectors(fieldset));
+		}
+		CursorPage<DirectorOutgoingDto> page = directorService.getDirectors(after,
+				limit == null ? DEFAULT_PAGE_SIZE : limit, fieldset);
+		ResponseEntity.BodyBuilder pageResponse = ResponseEntity.ok();
+		if (page.getNextCursor() != null)
+			pageResponse.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+		return pageResponse.body(page.getItems());
 	}
 
 	@GetMapping("/{id}")
-	public DirectorOutgoingDto doGetById(@PathVariable Integer id) {
-		return directorService.getDirectorById(id)
+	public DirectorOutgoingDto doGetById(@PathVariable Integer id,
+			@RequestParam(required = false) String fields, HttpServletRequest request) {
+		Fieldset fieldset = Fieldset.ofDirectors(fields);
+		FieldsetAdvice.select(request, fieldset);
+		return directorService.getDirectorById(id, fieldset)
 				.orElseThrow(() -> new NoDataInRepositoryException(NO_DIRECTOR_WITH_ID_MSG));
 	}
 	
@@ -47,6 +85,11 @@ public class DirectorController {
 		return new ResponseEntity<>(directorService.createDirector(input), HttpStatus.CREATED);
 	}
 
+	@PostMapping("/batch")
+	public List<BatchItemResultDto> doPostBatch(@RequestBody List<DirectorIncomingDto> input) {
+		return directorService.createDirectors(input);
+	}
+
 	@PutMapping
 	public DirectorOutgoingDto doPut(@RequestBody DirectorIncomingDto input) {
 		return directorService.updateDirector(input);
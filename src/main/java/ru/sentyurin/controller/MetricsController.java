@@ -0,0 +1,320 @@
+package ru.sentyurin.controller;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import ru.sentyurin.controller.dto.CacheStatsOutgoingDto;
+import ru.sentyurin.controller.dto.PoolStatsOutgoingDto;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.concurrent.DbGate;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+import ru.sentyurin.util.metrics.EndpointMetrics;
+import ru.sentyurin.util.metrics.LatencyHistogram;
+import ru.sentyurin.util.metrics.OperationMetrics;
+import ru.sentyurin.util.metrics.PoolMetrics;
+import ru.sentyurin.util.metrics.PrometheusWriter;
+import ru.sentyurin.util.metrics.RequestMetrics;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+	private final PoolMetrics poolMetrics;
+	private final CatalogCache catalogCache;
+	private final RequestMetrics requestMetrics;
+	private final DbGate dbGate;
+	private final Statistics hibernateStatistics;
+	private final CompressionMetrics compressionMetrics;
+
+	@Autowired
+	public MetricsController(PoolMetrics poolMetrics, CatalogCache catalogCache,
+			RequestMetrics requestMetrics, DbGate dbGate, Statistics hibernateStatistics,
+			CompressionMetrics compressionMetrics) {
+		this.poolMetrics = poolMetrics;
+		this.catalogCache = catalogCache;
+		this.requestMetrics = requestMetrics;
+		this.dbGate = dbGate;
+		this.hibernateStatistics = hibernateStatistics;
+		this.compressionMetrics = compressionMetrics;
+	}
+
+	/**
+	 * Returns all metrics in the Prometheus text format
+	 */
+	@GetMapping(produces = PrometheusWriter.CONTENT_TYPE)
+	public String doGet() {
+		PrometheusWriter writer = new PrometheusWriter();
+		writeEndpoints(writer, requestMetrics.getEndpoints());
+		writeOperations(writer, "service", "Service method", requestMetrics.getServices());
+		writer.family("exception_handler_calls_total", "counter",
+				"Exceptions handled, by exception handler");
+		for (OperationMetrics handler : requestMetrics.getExceptionHandlers())
+			writer.sample("exception_handler_calls_total",
+					PrometheusWriter.label("handler", handler.getName()),
+					handler.getLatencyNanos().getCount());
+		writePool(writer);
+		writeCaches(writer);
+		writeHibernate(writer);
+		writeCompression(writer);
+		return writer.toString();
+	}
+
+	@GetMapping("/pool")
+	public PoolStatsOutgoingDto doGetPool() {
+		LatencyHistogram acquireNanos = poolMetrics.getAcquireNanos();
+		return new PoolStatsOutgoingDto().setActive(poolMetrics.getActiveConnections())
+				.setIdle(poolMetrics.getIdleConnections())
+				.setWaiting(poolMetrics.getPendingThreads())
+				.setTotal(poolMetrics.getTotalConnections())
+				.setMax(poolMetrics.getMaxConnections())
+				.setCreated(poolMetrics.getCreationCount())
+				.setTimeouts(poolMetrics.getTimeoutCount())
+				.setAcquired(acquireNanos.getCount())
+				.setAcquireMeanMicros(toMicros(acquireNanos.getMean()))
+				.setAcquireP50Micros(toMicros(acquireNanos.getValueAtQuantile(0.5)))
+				.setAcquireP99Micros(toMicros(acquireNanos.getValueAtQuantile(0.99)))
+				.setAcquireMaxMicros(toMicros(acquireNanos.getMax()));
+	}
+
+	@GetMapping("/cache")
+	public List<CacheStatsOutgoingDto> doGetCache() {
+		return List.of(
+				mapCacheStats("movies", catalogCache.getMovieCount(),
+						catalogCache.getMovieStats()),
+				mapCacheStats("directors", catalogCache.getDirectorCount(),
+						catalogCache.getDirectorStats()));
+	}
+
+	private static void writeEndpoints(PrometheusWriter writer, List<EndpointMetrics> endpoints) {
+		writer.family("http_server_requests_seconds", "histogram",
+				"Time to handle a request, by handler");
+		for (EndpointMetrics endpoint : endpoints)
+			writer.seconds("http_server_requests_seconds", handlerLabel(endpoint),
+					endpoint.getLatencyNanos(), 1);
+		writer.family("http_server_errors_total", "counter",
+				"Responses with an error status, by handler and status class");
+		for (EndpointMetrics endpoint : endpoints) {
+			writer.sample("http_server_errors_total",
+					handlerLabel(endpoint) + "," + PrometheusWriter.label("status", "4xx"),
+					endpoint.getClientErrorCount());
+			writer.sample("http_server_errors_total",
+					handlerLabel(endpoint) + "," + PrometheusWriter.label("status", "5xx"),
+					endpoint.getServerErrorCount());
+		}
+		writer.family("http_server_sql_statements", "histogram",
+				"SQL statements issued by a request, by handler");
+		for (EndpointMetrics endpoint : endpoints)
+			writer.counts("http_server_sql_statements", handlerLabel(endpoint),
+					endpoint.getStatements());
+		writer.family("http_server_sql_budget_exceeded_total", "counter",
+				"Requests that issued more SQL statements than the budget, by handler");
+		for (EndpointMetrics endpoint : endpoints)
+			writer.sample("http_server_sql_budget_exceeded_total", handlerLabel(endpoint),
+					endpoint.getOverBudgetCount());
+		writer.family("http_server_request_size_bytes", "histogram",
+				"Size of request bodies of known length, by handler");
+		for (EndpointMetrics endpoint : endpoints)
+			writer.bytes("http_server_request_size_bytes", handlerLabel(endpoint),
+					endpoint.getRequestBytes());
+		writer.family("http_server_response_size_bytes", "histogram",
+				"Size of response bodies, by handler");
+		for (EndpointMetrics endpoint : endpoints)
+			writer.bytes("http_server_response_size_bytes", handlerLabel(endpoint),
+					endpoint.getResponseBytes());
+	}
+
+	private static String handlerLabel(EndpointMetrics endpoint) {
+		return PrometheusWriter.label("handler", endpoint.getName());
+	}
+
+	private static void writeOperations(PrometheusWriter writer, String prefix, String help,
+			List<OperationMetrics> operations) {
+		writer.family(prefix + "_calls_seconds", "histogram", help + " call time");
+		for (OperationMetrics operation : operations)
+			writer.seconds(prefix + "_calls_seconds",
+					PrometheusWriter.label("method", operation.getName()),
+					operation.getLatencyNanos(), 1);
+		writer.family(prefix + "_errors_total", "counter", help + " calls that threw");
+		for (OperationMetrics operation : operations)
+			writer.sample(prefix + "_errors_total",
+					PrometheusWriter.label("method", operation.getName()),
+					operation.getErrorCount());
+	}
+
+	private void writePool(PrometheusWriter writer) {
+		writer.family("db_pool_connections", "gauge", "Connections of the pool, by state")
+				.sample("db_pool_connections", PrometheusWriter.label("state", "active"),
+						poolMetrics.getActiveConnections())
+				.sample("db_pool_connections", PrometheusWriter.label("state", "idle"),
+						poolMetrics.getIdleConnections())
+				.sample("db_pool_connections", PrometheusWriter.label("state", "max"),
+						poolMetrics.getMaxConnections())
+				.family("db_pool_pending_threads", "gauge", "Threads waiting for a connection")
+				.sample("db_pool_pending_threads", "", poolMetrics.getPendingThreads())
+				.family("db_pool_timeouts_total", "counter", "Connection acquisition timeouts")
+				.sample("db_pool_timeouts_total", "", poolMetrics.getTimeoutCount())
+				.family("db_pool_acquire_seconds", "histogram", "Connection acquisition time")
+				.seconds("db_pool_acquire_seconds", "", poolMetrics.getAcquireNanos(), 1)
+				.family("db_pool_usage_seconds", "histogram", "Connection holding time")
+				.seconds("db_pool_usage_seconds", "", poolMetrics.getUsageMillis(), 1_000_000)
+				.family("db_gate_holders", "gauge",
+						"Connection holders admitted by the virtual thread gate, by state")
+				.sample("db_gate_holders", PrometheusWriter.label("state", "active"),
+						dbGate.getActive())
+				.sample("db_gate_holders", PrometheusWriter.label("state", "waiting"),
+						dbGate.getWaiting())
+				.family("db_gate_rejected_total", "counter",
+						"Connection requests rejected by the virtual thread gate")
+				.sample("db_gate_rejected_total", "", dbGate.getRejectedCount());
+	}
+
+	private void writeCaches(PrometheusWriter writer) {
+		String movies = PrometheusWriter.label("cache", "movies");
+		String directors = PrometheusWriter.label("cache", "directors");
+		CacheStats movieStats = catalogCache.getMovieStats();
+		CacheStats directorStats = catalogCache.getDirectorStats();
+		writer.family("cache_size", "gauge", "Entries of a cache")
+				.sample("cache_size", movies, catalogCache.getMovieCount())
+				.sample("cache_size", directors, catalogCache.getDirectorCount())
+				.family("cache_hits_total", "counter", "Cache hits")
+				.sample("cache_hits_total", movies, movieStats.hitCount())
+				.sample("cache_hits_total", directors, directorStats.hitCount())
+				.family("cache_misses_total", "counter", "Cache misses")
+				.sample("cache_misses_total", movies, movieStats.missCount())
+				.sample("cache_misses_total", directors, directorStats.missCount())
+				.family("cache_evictions_total", "counter", "Cache evictions")
+				.sample("cache_evictions_total", movies, movieStats.evictionCount())
+				.sample("cache_evictions_total", directors, directorStats.evictionCount());
+	}
+
+	/**
+	 * Writes the query, entity, collection and second-level cache region
+	 * statistics of Hibernate. Maximum times are kept by Hibernate in
+	 * milliseconds.
+	 */
+	private void writeHibernate(PrometheusWriter writer) {
+		Statistics stats = hibernateStatistics;
+		writer.family("hibernate_statements_prepared_total", "counter", "JDBC statements prepared")
+				.sample("hibernate_statements_prepared_total", "",
+						stats.getPrepareStatementCount());
+		List<String> queries = sortedNames(stats.getQueries());
+		writer.family("hibernate_query_executions_total", "counter", "Executions, by query");
+		for (String query : queries)
+			writer.sample("hibernate_query_executions_total", queryLabel(query),
+					stats.getQueryStatistics(query).getExecutionCount());
+		writer.family("hibernate_query_execution_max_seconds", "gauge",
+				"Longest execution, by query");
+		for (String query : queries)
+			writer.sample("hibernate_query_execution_max_seconds", queryLabel(query),
+					stats.getQueryStatistics(query).getExecutionMaxTime() / 1000.0);
+
+		List<String> entities = sortedNames(stats.getEntityNames());
+		writer.family("hibernate_entity_loads_total", "counter", "Entities loaded, by entity");
+		for (String entity : entities)
+			writer.sample("hibernate_entity_loads_total", PrometheusWriter.label("entity", entity),
+					stats.getEntityStatistics(entity).getLoadCount());
+		writer.family("hibernate_entity_fetches_total", "counter",
+				"Entities fetched by a separate statement, by entity");
+		for (String entity : entities)
+			writer.sample("hibernate_entity_fetches_total",
+					PrometheusWriter.label("entity", entity),
+					stats.getEntityStatistics(entity).getFetchCount());
+
+		List<String> roles = sortedNames(stats.getCollectionRoleNames());
+		writer.family("hibernate_collection_loads_total", "counter",
+				"Collections loaded, by role");
+		for (String role : roles)
+			writer.sample("hibernate_collection_loads_total", PrometheusWriter.label("role", role),
+					stats.getCollectionStatistics(role).getLoadCount());
+		writer.family("hibernate_collection_fetches_total", "counter",
+				"Lazy collections fetched by a separate statement, by role");
+		for (String role : roles)
+			writer.sample("hibernate_collection_fetches_total",
+					PrometheusWriter.label("role", role),
+					stats.getCollectionStatistics(role).getFetchCount());
+
+		List<CacheRegionStatistics> regions = sortedNames(stats.getSecondLevelCacheRegionNames())
+				.stream().map(stats::getCacheRegionStatistics).filter(Objects::nonNull).toList();
+		writer.family("hibernate_cache_hits_total", "counter",
+				"Second-level cache hits, by region");
+		for (CacheRegionStatistics region : regions)
+			writer.sample("hibernate_cache_hits_total", regionLabel(region),
+					region.getHitCount());
+		writer.family("hibernate_cache_misses_total", "counter",
+				"Second-level cache misses, by region");
+		for (CacheRegionStatistics region : regions)
+			writer.sample("hibernate_cache_misses_total", regionLabel(region),
+					region.getMissCount());
+		writer.family("hibernate_cache_puts_total", "counter",
+				"Second-level cache puts, by region");
+		for (CacheRegionStatistics region : regions)
+			writer.sample("hibernate_cache_puts_total", regionLabel(region),
+					region.getPutCount());
+	}
+
+	/**
+	 * Writes the time spent compressing response bodies and their sizes before
+	 * and after, by content coding, and the time per byte saved since startup
+	 */
+	private void writeCompression(PrometheusWriter writer) {
+		writer.family("http_response_compression_seconds_total", "counter",
+				"Time spent compressing response bodies, by content coding");
+		for (ContentEncoding encoding : ContentEncoding.values())
+			writer.sample("http_response_compression_seconds_total", encodingLabel(encoding),
+					compressionMetrics.getNanos(encoding) / 1e9);
+		writer.family("http_response_compression_input_bytes_total", "counter",
+				"Size of compressed response bodies before compression, by content coding");
+		for (ContentEncoding encoding : ContentEncoding.values())
+			writer.sample("http_response_compression_input_bytes_total",
+					encodingLabel(encoding), compressionMetrics.getInputBytes(encoding));
+		writer.family("http_response_compression_output_bytes_total", "counter",
+				"Size of compressed response bodies after compression, by content coding");
+		for (ContentEncoding encoding : ContentEncoding.values())
+			writer.sample("http_response_compression_output_bytes_total",
+					encodingLabel(encoding), compressionMetrics.getOutputBytes(encoding));
+		writer.family("http_response_compression_seconds_per_saved_byte", "gauge",
+				"Compression time per byte saved since startup, by content coding");
+		for (ContentEncoding encoding : ContentEncoding.values())
+			writer.sample("http_response_compression_seconds_per_saved_byte",
+					encodingLabel(encoding), compressionMetrics.getSecondsPerSavedByte(encoding));
+	}
+
+	private static String encodingLabel(ContentEncoding encoding) {
+		return PrometheusWriter.label("encoding", encoding.getToken());
+	}
+
+	private static List<String> sortedNames(String[] names) {
+		return Arrays.stream(names).sorted().toList();
+	}
+
+	private static String queryLabel(String query) {
+		return PrometheusWriter.label("query", query);
+	}
+
+	private static String regionLabel(CacheRegionStatistics region) {
+		return PrometheusWriter.label("region", region.getRegionName());
+	}
+
+	private static CacheStatsOutgoingDto mapCacheStats(String name, long size, CacheStats stats) {
+		return new CacheStatsOutgoingDto().setName(name).setSize(size)
+				.setHits(stats.hitCount()).setMisses(stats.missCount())
+				.setHitRate(stats.hitRate()).setEvictions(stats.evictionCount());
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+}
@@ -1,9 +1,13 @@
 package ru.sentyurin.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,10 +16,31 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.controller.advice.FieldsetAdvice;
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
+import ru.sentyurin.controller.dto.ImportProgressDto;
+import ru.sentyurin.controller.dto.ImportRejectionDto;
 import ru.sentyurin.controller.dto.MovieIncomingDto;
 import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.controller.filter.CompressionFilter;
+import ru.sentyurin.controller.interceptor.ConditionalGetInterceptor;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieFilter;
+import ru.sentyurin.repository.MovieSort;
+import ru.sentyurin.service.MovieDataFormat;
+import ru.sentyurin.service.MovieImportListener;
+import ru.sentyurin.service.MovieImportService;
 import ru.sentyurin.service.MovieService;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
 
@@ -23,22 +48,121 @@ import ru.sentyurin.util.exception.NoDataInRepositoryException;
 @RequestMapping("/movies")
 public class MovieController {
 	private static final String NOT_FOUND_BY_ID_MSG = "There is no movie with this ID";
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+	private static final ObjectMapper STREAM_MAPPER = FieldsetAdvice
+			.configure(new ObjectMapper());
 
 	private final MovieService movieService;
+	private final MovieImportService movieImportService;
+	private final SnapshotResponses snapshotResponses;
 
 	@Autowired
-	public MovieController(MovieService movieService) {
+	public MovieController(MovieService movieService, MovieImportService movieImportService,
+			SnapshotResponses snapshotResponses) {
 		this.movieService = movieService;
+		this.movieImportService = movieImportService;
+		this.snapshotResponses = snapshotResponses;
 	}
 
+	/**
+	 * Returns all movies, or a page of them if paging, filtering or sorting is
+	 * requested. The ID of the last movie is passed in {@value #NEXT_CURSOR_HEADER}
+	 * when there is a next page. All movies are written by
+	 * {@link SnapshotResponses} when the catalog snapshot is up to date and every
+	 * field is requested, in which case {@code null} is returned.
+	 */
 	@GetMapping
-	public List<MovieOutgoingDto> doGet() {
-		return movieService.getMovies();
+	public ResponseEntity<List<MovieOutgoingDto>> doGet(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) Integer directorId,
+			@RequestParam(required = false) Integer yearFrom,
+			@RequestParam(required = false) Integer yearTo,
+			@RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Fieldset fieldset = Fieldset.ofMovies(fields);
+		FieldsetAdvice.select(request, fieldset);
+		boolean filtered = directorId != null || yearFrom != null || yearTo != null
+				|| sort != null;
+		if (after == null && limit == null && !filtered) {
+			if (fieldset.isComplete() && snapshotResponses.writeMovies(request, response))
+				return null;
+			return ResponseEntity.ok(movieService.getMovies(fieldset));
+		}
+		int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+		CursorPage<MovieOutgoingDto> page = filtered || !fieldset.isComplete()
+				? movieService.getMovies(new MovieFilter().setDirectorId(directorId)
+						.setYearFrom(yearFrom).setYearTo(yearTo)
+						.setSort(MovieSort.fromParameter(sort)), after, pageSize, fieldset)
+				: movieService.getMovies(after, pageSize);
+		ResponseEntity.BodyBuilder pageResponse = ResponseEntity.ok();
+		if (page.getNextCursor() != null)
+			pageResponse.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+		return pageResponse.body(page.getItems());
+	}
+
+	/**
+	 * Writes all movies as a JSON array, serialising each one as soon as it is read
+	 * from the database
+	 */
+	@GetMapping("/stream")
+	public void doGetStream(@RequestParam(required = false) String fields,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Fieldset fieldset = Fieldset.ofMovies(fields);
+		ObjectWriter writer = STREAM_MAPPER.writer(FieldsetAdvice.filters(fieldset));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding("UTF-8");
+		ConditionalGetInterceptor.addValidators(request, response);
+		try (JsonGenerator generator = STREAM_MAPPER.getFactory()
+				.createGenerator(response.getOutputStream())) {
+			generator.writeStartArray();
+			generator.flush();
+			movieService.forEachMovie(fieldset, movie -> writeMovie(generator, writer, movie));
+			generator.writeEndArray();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@GetMapping("/search")
+	public List<MovieOutgoingDto> doGetSearch(@RequestParam String q,
+			@RequestParam(defaultValue = "0") int offset,
+			@RequestParam(defaultValue = "" + DEFAULT_SEARCH_PAGE_SIZE) int limit,
+			@RequestParam(required = false) String fields, HttpServletRequest request) {
+		Fieldset fieldset = Fieldset.ofMovies(fields);
+		FieldsetAdvice.select(request, fieldset);
+		return movieService.searchMovies(q, offset, limit, fieldset);
+	}
+
+	/**
+	 * Exports movies as CSV (with a header) or NDJSON. The body is produced by the
+	 * database and compressed by {@link CompressionFilter} in the coding the client
+	 * prefers.
+	 */
+	@GetMapping("/export")
+	public void doGetExport(@RequestParam(defaultValue = "csv") String format,
+			@RequestParam(required = false) Integer releaseYearFrom,
+			@RequestParam(required = false) Integer releaseYearTo,
+			@RequestParam(required = false) Integer directorId,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		MovieDataFormat dataFormat = MovieDataFormat.fromName(format);
+		response.setContentType(dataFormat.getMediaType());
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=movies."
+				+ dataFormat.name().toLowerCase());
+		ConditionalGetInterceptor.addValidators(request, response);
+		movieService.exportMovies(dataFormat, releaseYearFrom, releaseYearTo, directorId,
+				response.getOutputStream());
 	}
 
 	@GetMapping("/{id}")
-	public MovieOutgoingDto doGetById(@PathVariable Integer id) {
-		return movieService.getMovieById(id)
+	public MovieOutgoingDto doGetById(@PathVariable Integer id,
+			@RequestParam(required = false) String fields, HttpServletRequest request) {
+		Fieldset fieldset = Fieldset.ofMovies(fields);
+		FieldsetAdvice.select(request, fieldset);
+		return movieService.getMovieById(id, fieldset)
 				.orElseThrow(() -> new NoDataInRepositoryException(NOT_FOUND_BY_ID_MSG));
 	}
 
@@ -47,6 +171,42 @@ public class MovieController {
 		return new ResponseEntity<>(movieService.createMovie(input), HttpStatus.CREATED);
 	}
 
+	@PostMapping("/batch")
+	public List<BatchItemResultDto> doPostBatch(@RequestBody List<MovieIncomingDto> input) {
+		return movieService.createMovies(input);
+	}
+
+	/**
+	 * Imports movies from a CSV or NDJSON request body. The response is NDJSON:
+	 * a line per rejected row and a progress line per imported chunk, each
+	 * flushed as soon as the chunk is committed, followed by the final totals.
+	 */
+	@PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+	public void doPostImport(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		MovieDataFormat format = MovieDataFormat.fromContentType(request.getContentType());
+		response.setContentType(MovieDataFormat.NDJSON.getMediaType());
+		response.setCharacterEncoding("UTF-8");
+		try (SequenceWriter writer = STREAM_MAPPER.writer().withRootValueSeparator("\n")
+				.writeValues(response.getOutputStream())) {
+			movieImportService.importMovies(request.getInputStream(), format,
+					new MovieImportListener() {
+
+						@Override
+						public void onRowRejected(ImportRejectionDto rejection) {
+							writeLine(writer, rejection, false);
+						}
+
+						@Override
+						public void onProgress(ImportProgressDto progress) {
+							writeLine(writer, progress, true);
+						}
+					});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
 	@PutMapping
 	public MovieOutgoingDto doPut(@RequestBody MovieIncomingDto movieIncomingDto) {
 		return movieService.updateMovie(movieIncomingDto);
@@ -57,4 +217,23 @@ public class MovieController {
 		movieService.deleteMovie(id);
 	}
 
-}
\ No newline at end of file
+	private static void writeMovie(JsonGenerator generator, ObjectWriter writer,
+			MovieOutgoingDto movie) {
+		try {
+			writer.writeValue(generator, movie);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeLine(SequenceWriter writer, Object value, boolean flush) {
+		try {
+			writer.write(value);
+			if (flush)
+				writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package ru.sentyurin.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.controller.interceptor.ConditionalGetInterceptor;
+import ru.sentyurin.service.cache.CatalogSnapshot;
+import ru.sentyurin.service.cache.CatalogSnapshot.Body;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+/**
+ * Writes bodies of {@link CatalogSnapshot} to the response as they are, in the
+ * content coding the client prefers. The bodies are compressed when the
+ * snapshot is built, so only their sizes are recorded here. The bodies are
+ * JSON, so they are only written to clients preferring JSON; others, such as
+ * those asking for Smile or CBOR, go through the message converters.
+ */
+@Component
+public class SnapshotResponses {
+	private static final List<MediaType> BINARY_TYPES = List.of(
+			new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR);
+
+	private final CatalogSnapshot catalogSnapshot;
+	private final ResponseCompression responseCompression;
+	private final CompressionMetrics compressionMetrics;
+
+	@Autowired
+	public SnapshotResponses(CatalogSnapshot catalogSnapshot,
+			ResponseCompression responseCompression, CompressionMetrics compressionMetrics) {
+		this.catalogSnapshot = catalogSnapshot;
+		this.responseCompression = responseCompression;
+		this.compressionMetrics = compressionMetrics;
+	}
+
+	/**
+	 * Writes all movies, unless the client prefers another format or the
+	 * snapshot is being rebuilt
+	 *
+	 * @return whether the response was written
+	 */
+	public boolean writeMovies(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		return prefersJson(request) && write(catalogSnapshot.getMovies(), request, response);
+	}
+
+	/**
+	 * Writes all directors, unless the client prefers another format or the
+	 * snapshot is being rebuilt
+	 *
+	 * @return whether the response was written
+	 */
+	public boolean writeDirectors(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		return prefersJson(request) && write(catalogSnapshot.getDirectors(), request, response);
+	}
+
+	/**
+	 * Tells whether the first media type in {@code Accept}, by quality and
+	 * specificity, that the catalog resources can be written in is JSON. A
+	 * missing header accepts JSON; a malformed one is left to content negotiation
+	 * to reject.
+	 */
+	private static boolean prefersJson(HttpServletRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null || accept.isBlank())
+			return true;
+		List<MediaType> mediaTypes;
+		try {
+			mediaTypes = MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+		MimeTypeUtils.sortBySpecificity(mediaTypes);
+		for (MediaType mediaType : mediaTypes) {
+			if (mediaType.getQualityValue() == 0)
+				continue;
+			if (mediaType.includes(MediaType.APPLICATION_JSON))
+				return true;
+			if (BINARY_TYPES.stream().anyMatch(mediaType::isCompatibleWith))
+				return false;
+		}
+		return false;
+	}
+
+	private boolean write(Optional<Body> snapshot, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		if (snapshot.isEmpty())
+			return false;
+		Body body = snapshot.get();
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		Optional<ContentEncoding> encoding = body.json().length < responseCompression
+				.getMinSize() ? Optional.empty() : responseCompression.negotiate(acceptEncoding);
+		byte[] bytes = encoding.map(body.compressed()::get).orElse(body.json());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (encoding.isPresent()) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.get().getToken());
+			compressionMetrics.recordResponse(encoding.get(), body.json().length, bytes.length);
+		}
+		response.setContentLength(bytes.length);
+		ConditionalGetInterceptor.addValidators(request, response);
+		response.getOutputStream().write(bytes);
+		return true;
+	}
+
+}
@@ -1,8 +1,10 @@
 package ru.sentyurin.controller.advice;
 
 import org.postgresql.util.PSQLException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -15,6 +17,7 @@ import ru.sentyurin.util.exception.IncompleateInputExeption;
 import ru.sentyurin.util.exception.InconsistentInputException;
 import ru.sentyurin.util.exception.IncorrectInputException;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 @ControllerAdvice
 public class DefaultAdvice {
@@ -58,6 +61,26 @@ public class DefaultAdvice {
 		return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
 	}
 	
+	@ExceptionHandler
+	public ResponseEntity<String> handleVersionConflictException(
+			VersionConflictException exception) {
+		return new ResponseEntity<>(exception.getMessage(), HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<String> handleOptimisticLockingFailureException(
+			OptimisticLockingFailureException exception) {
+		return new ResponseEntity<>("The data has been changed by someone else",
+				HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<String> handleCannotCreateTransactionException(
+			CannotCreateTransactionException exception) {
+		return new ResponseEntity<>("The database is busy, try again later",
+				HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
 	@ExceptionHandler
 	public ResponseEntity<String> handleServletException(ServletException exception) {
 		return new ResponseEntity<>("Oops! Something went wrong", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,120 @@
+package ru.sentyurin.controller.advice;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import jakarta.servlet.http.HttpServletRequest;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.DirectorField;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieField;
+
+/**
+ * Serialises only the properties of the {@link Fieldset} a handler selected for
+ * its request with {@link #select}. Object mappers set up with
+ * {@link #configure} filter movies and directors, serialising all their
+ * properties unless a fieldset is given.
+ */
+@ControllerAdvice
+public class FieldsetAdvice implements ResponseBodyAdvice<Object> {
+	private static final String FIELDSET_ATTRIBUTE = FieldsetAdvice.class.getName()
+			+ ".fieldset";
+	private static final String MOVIE_FILTER = "movieFields";
+	private static final String DIRECTOR_FILTER = "directorFields";
+
+	/**
+	 * Makes the response to {@code request} carry only the properties of
+	 * {@code fieldset}
+	 */
+	public static void select(HttpServletRequest request, Fieldset fieldset) {
+		if (!fieldset.isComplete())
+			request.setAttribute(FIELDSET_ATTRIBUTE, fieldset);
+	}
+
+	/**
+	 * Sets up {@code mapper} to filter the properties of movies and directors
+	 */
+	public static ObjectMapper configure(ObjectMapper mapper) {
+		return mapper.addMixIn(MovieOutgoingDto.class, MovieFilterMixIn.class)
+				.addMixIn(DirectorOutgoingDto.class, DirectorFilterMixIn.class)
+				.setFilterProvider(filters(Fieldset.ALL));
+	}
+
+	/**
+	 * Sets up the object mappers of the Jackson converters among
+	 * {@code converters}, whether they write JSON, Smile or CBOR
+	 */
+	public static void configure(List<HttpMessageConverter<?>> converters) {
+		for (HttpMessageConverter<?> converter : converters) {
+			if (converter instanceof AbstractJackson2HttpMessageConverter jackson)
+				configure(jackson.getObjectMapper());
+		}
+	}
+
+	/**
+	 * Returns filters of mappers set up with {@link #configure} passing only the
+	 * properties of {@code fieldset}
+	 */
+	public static FilterProvider filters(Fieldset fieldset) {
+		if (fieldset.isComplete())
+			return new SimpleFilterProvider()
+					.setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+		Set<String> movieNames = fieldset.getMovieFields().stream().map(MovieField::getName)
+				.collect(Collectors.toSet());
+		Set<String> directorNames = fieldset.getDirectorFields().stream()
+				.map(DirectorField::getName).collect(Collectors.toSet());
+		return new SimpleFilterProvider()
+				.addFilter(MOVIE_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(movieNames))
+				.addFilter(DIRECTOR_FILTER,
+						SimpleBeanPropertyFilter.filterOutAllExcept(directorNames));
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType,
+			MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType,
+			ServerHttpRequest request, ServerHttpResponse response) {
+		if (body == null || !(request instanceof ServletServerHttpRequest servletRequest)
+				|| !(servletRequest.getServletRequest()
+						.getAttribute(FIELDSET_ATTRIBUTE) instanceof Fieldset fieldset))
+			return body;
+		MappingJacksonValue value = body instanceof MappingJacksonValue wrapped ? wrapped
+				: new MappingJacksonValue(body);
+		value.setFilters(filters(fieldset));
+		return value;
+	}
+
+	@JsonFilter(MOVIE_FILTER)
+	private interface MovieFilterMixIn {
+	}
+
+	@JsonFilter(DIRECTOR_FILTER)
+	private interface DirectorFilterMixIn {
+	}
+
+}
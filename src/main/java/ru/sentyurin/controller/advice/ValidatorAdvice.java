@@ -0,0 +1,41 @@
+package ru.sentyurin.controller.advice;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import ru.sentyurin.controller.interceptor.ConditionalGetInterceptor;
+
+/**
+ * Adds the validators of {@link ConditionalGetInterceptor} to responses written
+ * from handler return values. Error responses, whose status is set by then,
+ * get none.
+ */
+@ControllerAdvice
+public class ValidatorAdvice implements ResponseBodyAdvice<Object> {
+
+	@Override
+	public boolean supports(MethodParameter returnType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType,
+			MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType,
+			ServerHttpRequest request, ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest servletRequest
+				&& response instanceof ServletServerHttpResponse servletResponse)
+			ConditionalGetInterceptor.addValidators(servletRequest.getServletRequest(),
+					servletResponse.getServletResponse());
+		return body;
+	}
+
+}
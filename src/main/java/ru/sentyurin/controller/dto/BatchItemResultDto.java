@@ -0,0 +1,52 @@
+package ru.sentyurin.controller.dto;
+
+/**
+ * Outcome of one item of a batch request. {@code index} is the position of the
+ * item in the request array.
+ */
+public class BatchItemResultDto {
+
+	public enum Status {
+		CREATED, REJECTED
+	}
+
+	private int index;
+	private Status status;
+	private Integer id;
+	private String error;
+
+	public BatchItemResultDto() {
+	}
+
+	public BatchItemResultDto(int index, Status status, Integer id, String error) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.error = error;
+	}
+
+	public static BatchItemResultDto created(int index, Integer id) {
+		return new BatchItemResultDto(index, Status.CREATED, id, null);
+	}
+
+	public static BatchItemResultDto rejected(int index, String error) {
+		return new BatchItemResultDto(index, Status.REJECTED, null, error);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
@@ -0,0 +1,66 @@
+package ru.sentyurin.controller.dto;
+
+public class CacheStatsOutgoingDto {
+
+	private String name;
+	private long size;
+	private long hits;
+	private long misses;
+	private double hitRate;
+	private long evictions;
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public double getHitRate() {
+		return hitRate;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public CacheStatsOutgoingDto setName(String name) {
+		this.name = name;
+		return this;
+	}
+
+	public CacheStatsOutgoingDto setSize(long size) {
+		this.size = size;
+		return this;
+	}
+
+	public CacheStatsOutgoingDto setHits(long hits) {
+		this.hits = hits;
+		return this;
+	}
+
+	public CacheStatsOutgoingDto setMisses(long misses) {
+		this.misses = misses;
+		return this;
+	}
+
+	public CacheStatsOutgoingDto setHitRate(double hitRate) {
+		this.hitRate = hitRate;
+		return this;
+	}
+
+	public CacheStatsOutgoingDto setEvictions(long evictions) {
+		this.evictions = evictions;
+		return this;
+	}
+
+}
@@ -0,0 +1,44 @@
+package ru.sentyurin.controller.dto;
+
+import java.util.Set;
+
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
+
+/**
+ * A committed change of the catalog as sent by the change feed. {@code id} is
+ * {@code null} when several movies or directors were created at once;
+ * {@code directorIds} holds the directors whose representation is affected.
+ */
+public class ChangeDto {
+
+	private final EntityType entityType;
+	private final ChangeType changeType;
+	private final Integer id;
+	private final Set<Integer> directorIds;
+
+	public ChangeDto(EntityType entityType, ChangeType changeType, Integer id,
+			Set<Integer> directorIds) {
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.id = id;
+		this.directorIds = directorIds;
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public ChangeType getChangeType() {
+		return changeType;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Set<Integer> getDirectorIds() {
+		return directorIds;
+	}
+
+}
@@ -0,0 +1,28 @@
+package ru.sentyurin.controller.dto;
+
+import java.util.List;
+
+/**
+ * A page of items fetched by keyset pagination. {@code nextCursor} is the ID to
+ * pass as {@code after} to fetch the next page, or {@code null} on the last
+ * page
+ */
+public class CursorPage<T> {
+
+	private final List<T> items;
+	private final Integer nextCursor;
+
+	public CursorPage(List<T> items, Integer nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public Integer getNextCursor() {
+		return nextCursor;
+	}
+
+}
@@ -3,6 +3,7 @@ package ru.sentyurin.controller.dto;
 public class DirectorIncomingDto {
 	private Integer id;
 	private String name;
+	private Integer version;
 
 	public DirectorIncomingDto() {
 	}
@@ -20,6 +21,13 @@ public class DirectorIncomingDto {
 		return name;
 	}
 
+	/**
+	 * Returns the version the client last read, required to update a director
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
 	public DirectorIncomingDto setId(Integer id) {
 		this.id = id;
 		return this;
@@ -29,4 +37,9 @@ public class DirectorIncomingDto {
 		this.name = name;
 		return this;
 	}
+
+	public DirectorIncomingDto setVersion(Integer version) {
+		this.version = version;
+		return this;
+	}
 }
@@ -6,6 +6,7 @@ public class DirectorOutgoingDto {
 
 	private Integer id;
 	private String name;
+	private Integer version;
 	private List<MovieOutgoingDto> movies;
 
 	public Integer getId() {
@@ -16,6 +17,10 @@ public class DirectorOutgoingDto {
 		return name;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
 	public List<MovieOutgoingDto> getMovies() {
 		return movies;
 	}
@@ -28,6 +33,10 @@ public class DirectorOutgoingDto {
 		this.name = name;
 	}
 
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	public void setMovies(List<MovieOutgoingDto> movies) {
 		this.movies = movies;
 	}
@@ -0,0 +1,60 @@
+package ru.sentyurin.controller.dto;
+
+/**
+ * Running totals of a bulk import, reported after every chunk and once more
+ * with {@code completed} set when the input is exhausted
+ */
+public class ImportProgressDto {
+
+	private int chunks;
+	private long rowsRead;
+	private long imported;
+	private long rejected;
+	private boolean completed;
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public ImportProgressDto setChunks(int chunks) {
+		this.chunks = chunks;
+		return this;
+	}
+
+	public ImportProgressDto setRowsRead(long rowsRead) {
+		this.rowsRead = rowsRead;
+		return this;
+	}
+
+	public ImportProgressDto setImported(long imported) {
+		this.imported = imported;
+		return this;
+	}
+
+	public ImportProgressDto setRejected(long rejected) {
+		this.rejected = rejected;
+		return this;
+	}
+
+	public ImportProgressDto setCompleted(boolean completed) {
+		this.completed = completed;
+		return this;
+	}
+
+}
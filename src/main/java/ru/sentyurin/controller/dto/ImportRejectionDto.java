@@ -0,0 +1,25 @@
+package ru.sentyurin.controller.dto;
+
+/**
+ * A row of a bulk import that was not imported. {@code row} is the 1-based
+ * number of the data row in the input, not counting a CSV header.
+ */
+public class ImportRejectionDto {
+
+	private final long row;
+	private final String error;
+
+	public ImportRejectionDto(long row, String error) {
+		this.row = row;
+		this.error = error;
+	}
+
+	public long getRow() {
+		return row;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
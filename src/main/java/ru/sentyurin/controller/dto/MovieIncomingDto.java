@@ -6,6 +6,7 @@ public class MovieIncomingDto {
 	private Integer releaseYear;
 	private Integer directorId;
 	private String directorName;
+	private Integer version;
 
 	public MovieIncomingDto() {
 	}
@@ -39,6 +40,13 @@ public class MovieIncomingDto {
 		return directorName;
 	}
 
+	/**
+	 * Returns the version the client last read, required to update a movie
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
 	public MovieIncomingDto setTitle(String title) {
 		this.title = title;
 		return this;
@@ -59,4 +67,8 @@ public class MovieIncomingDto {
 	public void setDirectorName(String directorName) {
 		this.directorName = directorName;
 	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
 }
@@ -1,5 +1,7 @@
 package ru.sentyurin.controller.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class MovieOutgoingDto {
 
 	private Integer id;
@@ -7,6 +9,32 @@ public class MovieOutgoingDto {
 	private Integer releaseYear;
 	private Integer directorId;
 	private String directorName;
+	private Integer version;
+	/**
+	 * Version of the director, carried for grouping movie rows into directors and
+	 * not serialised
+	 */
+	@JsonIgnore
+	private Integer directorVersion;
+
+	public MovieOutgoingDto() {
+	}
+
+	public MovieOutgoingDto(Integer id, String title, Integer releaseYear, Integer directorId,
+			String directorName) {
+		this(id, title, releaseYear, directorId, directorName, null, null);
+	}
+
+	public MovieOutgoingDto(Integer id, String title, Integer releaseYear, Integer directorId,
+			String directorName, Integer version, Integer directorVersion) {
+		this.id = id;
+		this.title = title;
+		this.releaseYear = releaseYear;
+		this.directorId = directorId;
+		this.directorName = directorName;
+		this.version = version;
+		this.directorVersion = directorVersion;
+	}
 
 	public Integer getId() {
 		return id;
@@ -28,6 +56,14 @@ public class MovieOutgoingDto {
 		return directorName;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public Integer getDirectorVersion() {
+		return directorVersion;
+	}
+
 	public MovieOutgoingDto setId(Integer id) {
 		this.id = id;
 		return this;
@@ -53,4 +89,14 @@ public class MovieOutgoingDto {
 		return this;
 	}
 
+	public MovieOutgoingDto setVersion(Integer version) {
+		this.version = version;
+		return this;
+	}
+
+	public MovieOutgoingDto setDirectorVersion(Integer directorVersion) {
+		this.directorVersion = directorVersion;
+		return this;
+	}
+
 }
@@ -0,0 +1,126 @@
+package ru.sentyurin.controller.dto;
+
+public class PoolStatsOutgoingDto {
+
+	private int active;
+	private int idle;
+	private int waiting;
+	private int total;
+	private int max;
+	private long created;
+	private long timeouts;
+	private long acquired;
+	private long acquireMeanMicros;
+	private long acquireP50Micros;
+	private long acquireP99Micros;
+	private long acquireMaxMicros;
+
+	public int getActive() {
+		return active;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public long getAcquired() {
+		return acquired;
+	}
+
+	public long getAcquireMeanMicros() {
+		return acquireMeanMicros;
+	}
+
+	public long getAcquireP50Micros() {
+		return acquireP50Micros;
+	}
+
+	public long getAcquireP99Micros() {
+		return acquireP99Micros;
+	}
+
+	public long getAcquireMaxMicros() {
+		return acquireMaxMicros;
+	}
+
+	public PoolStatsOutgoingDto setActive(int active) {
+		this.active = active;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setIdle(int idle) {
+		this.idle = idle;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setWaiting(int waiting) {
+		this.waiting = waiting;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setTotal(int total) {
+		this.total = total;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setMax(int max) {
+		this.max = max;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setCreated(long created) {
+		this.created = created;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setTimeouts(long timeouts) {
+		this.timeouts = timeouts;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setAcquired(long acquired) {
+		this.acquired = acquired;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setAcquireMeanMicros(long acquireMeanMicros) {
+		this.acquireMeanMicros = acquireMeanMicros;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setAcquireP50Micros(long acquireP50Micros) {
+		this.acquireP50Micros = acquireP50Micros;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setAcquireP99Micros(long acquireP99Micros) {
+		this.acquireP99Micros = acquireP99Micros;
+		return this;
+	}
+
+	public PoolStatsOutgoingDto setAcquireMaxMicros(long acquireMaxMicros) {
+		this.acquireMaxMicros = acquireMaxMicros;
+		return this;
+	}
+
+}
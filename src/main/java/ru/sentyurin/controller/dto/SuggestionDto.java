@@ -0,0 +1,34 @@
+package ru.sentyurin.controller.dto;
+
+/**
+ * An autocomplete suggestion: a movie title or a director name
+ */
+public class SuggestionDto {
+
+	public enum Type {
+		MOVIE, DIRECTOR
+	}
+
+	private final Type type;
+	private final Integer id;
+	private final String text;
+
+	public SuggestionDto(Type type, Integer id, String text) {
+		this.type = type;
+		this.id = id;
+		this.text = text;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+}
@@ -0,0 +1,407 @@
+package ru.sentyurin.controller.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+/**
+ * Compresses bodies of GET responses in the content coding the client prefers,
+ * as set up in {@link ResponseCompression}. The first
+ * {@code compression.min_size} bytes of a body are held back: a body ending
+ * before that is sent as it is, a longer one is compressed as it is written,
+ * without being buffered whole. Bodies other than text, JSON, XML, Smile and
+ * CBOR, and bodies that are already encoded, such as catalog snapshots, are sent
+ * as they are. The change feed is not filtered, since its
+ * events must not wait in a buffer.
+ * <p>
+ * A request handled asynchronously is written on another thread, and its body
+ * is finished when the dispatch back to the container ends. The compression
+ * time recorded in {@link CompressionMetrics} excludes the time spent writing
+ * to the client.
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+	private static final String RESPONSE_ATTRIBUTE = CompressionFilter.class.getName()
+			+ ".response";
+
+	private final ResponseCompression responseCompression;
+	private final CompressionMetrics compressionMetrics;
+
+	@Autowired
+	public CompressionFilter(ResponseCompression responseCompression,
+			CompressionMetrics compressionMetrics) {
+		this.responseCompression = responseCompression;
+		this.compressionMetrics = compressionMetrics;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return !HttpMethod.GET.matches(request.getMethod()) || path.startsWith("/changes");
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		CompressingResponse compressingResponse;
+		if (request.getAttribute(RESPONSE_ATTRIBUTE) instanceof CompressingResponse started) {
+			compressingResponse = started;
+		} else {
+			compressingResponse = new CompressingResponse(response, responseCompression
+					.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)).orElse(null));
+			request.setAttribute(RESPONSE_ATTRIBUTE, compressingResponse);
+		}
+		try {
+			filterChain.doFilter(request, compressingResponse);
+		} finally {
+			if (!request.isAsyncStarted())
+				compressingResponse.finish();
+		}
+	}
+
+	private static boolean isCompressible(String contentType) {
+		if (contentType == null)
+			return false;
+		try {
+			MediaType mediaType = MediaType.parseMediaType(contentType);
+			String subtype = mediaType.getSubtype().toLowerCase(Locale.ROOT);
+			return "text".equalsIgnoreCase(mediaType.getType()) || subtype.contains("json")
+					|| subtype.contains("xml") || subtype.contains("csv")
+					|| subtype.contains("smile") || subtype.contains("cbor");
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+	}
+
+	private enum State {
+		/** Nothing is written yet */
+		UNDECIDED,
+		/** Holding back the start of a body that may be compressed */
+		HOLDING,
+		/** Passing the body through */
+		IDENTITY,
+		/** Compressing the body */
+		COMPRESSING
+	}
+
+	private class CompressingResponse extends HttpServletResponseWrapper {
+		private final ContentEncoding encoding;
+		private State state = State.UNDECIDED;
+		private long contentLength = -1;
+		private ByteArrayOutputStream held;
+		private TimedSink sink;
+		private OutputStream compressor;
+		private long inputBytes;
+		private long nanos;
+		private ServletOutputStream outputStream;
+		private PrintWriter writer;
+
+		/**
+		 * @param encoding coding accepted by the client, {@code null} if none
+		 */
+		CompressingResponse(HttpServletResponse response, ContentEncoding encoding) {
+			super(response);
+			this.encoding = encoding;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (outputStream == null)
+				outputStream = new CompressingOutputStream(super.getOutputStream());
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null)
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+						Charset.forName(getCharacterEncoding())));
+			return writer;
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			setContentLengthLong(len);
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			if (state == State.IDENTITY)
+				super.setContentLengthLong(len);
+			else if (state != State.COMPRESSING)
+				contentLength = len;
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+				setContentLengthLong(Long.parseLong(value));
+			else
+				super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+				setContentLengthLong(Long.parseLong(value));
+			else
+				super.addHeader(name, value);
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+				setContentLengthLong(value);
+			else
+				super.setIntHeader(name, value);
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+				setContentLengthLong(value);
+			else
+				super.addIntHeader(name, value);
+		}
+
+		/**
+		 * Keeps a held back body until it is known whether to compress it
+		 */
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null)
+				writer.flush();
+			if (state == State.IDENTITY || state == State.COMPRESSING) {
+				getOutputStream().flush();
+				super.flushBuffer();
+			}
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			discard();
+		}
+
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			discard();
+		}
+
+		/**
+		 * Sends the held back body, or the end of the compressed one
+		 */
+		void finish() throws IOException {
+			if (writer != null)
+				writer.flush();
+			if (state == State.HOLDING) {
+				super.setContentLengthLong(held.size());
+				state = State.IDENTITY;
+				held.writeTo(super.getOutputStream());
+				held = null;
+			} else if (state == State.COMPRESSING) {
+				state = State.IDENTITY;
+				timed(compressor::close);
+				compressionMetrics.recordCompression(encoding, nanos);
+				compressionMetrics.recordResponse(encoding, inputBytes, sink.byteCount);
+			} else if (state == State.UNDECIDED && contentLength >= 0) {
+				super.setContentLengthLong(contentLength);
+			}
+		}
+
+		private void start() {
+			boolean compressible = getHeader(HttpHeaders.CONTENT_ENCODING) == null
+					&& isCompressible(getContentType());
+			if (compressible && getHeaders(HttpHeaders.VARY).stream().noneMatch(
+					vary -> vary.toLowerCase(Locale.ROOT).contains("accept-encoding")))
+				super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			if (compressible && encoding != null
+					&& (contentLength < 0 || contentLength >= responseCompression.getMinSize())) {
+				state = State.HOLDING;
+				held = new ByteArrayOutputStream(responseCompression.getMinSize());
+			} else {
+				state = State.IDENTITY;
+				if (contentLength >= 0)
+					super.setContentLengthLong(contentLength);
+			}
+		}
+
+		private void startCompressing() throws IOException {
+			super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+			sink = new TimedSink(super.getOutputStream());
+			compressor = responseCompression.compressing(encoding, sink);
+			state = State.COMPRESSING;
+			byte[] bytes = held.toByteArray();
+			held = null;
+			compress(bytes, 0, bytes.length);
+		}
+
+		private void compress(byte[] b, int off, int len) throws IOException {
+			timed(() -> compressor.write(b, off, len));
+			inputBytes += len;
+		}
+
+		/**
+		 * Runs a compressor call, adding its time without the time spent writing
+		 * to the client
+		 */
+		private void timed(IOAction action) throws IOException {
+			long start = System.nanoTime();
+			long sinkNanos = sink.nanos;
+			action.run();
+			nanos += System.nanoTime() - start - (sink.nanos - sinkNanos);
+		}
+
+		/**
+		 * Forgets a body dropped by a reset of the response buffer
+		 */
+		private void discard() {
+			if (state == State.COMPRESSING) {
+				sink.detached = true;
+				try {
+					compressor.close();
+				} catch (IOException e) {
+					// nothing is written to a detached sink
+				}
+			}
+			state = State.UNDECIDED;
+			held = null;
+			inputBytes = 0;
+			nanos = 0;
+		}
+
+		private class CompressingOutputStream extends ServletOutputStream {
+			private final ServletOutputStream delegate;
+
+			CompressingOutputStream(ServletOutputStream delegate) {
+				this.delegate = delegate;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if (len == 0)
+					return;
+				if (state == State.UNDECIDED)
+					start();
+				switch (state) {
+				case HOLDING -> {
+					held.write(b, off, len);
+					if (held.size() >= responseCompression.getMinSize())
+						startCompressing();
+				}
+				case COMPRESSING -> compress(b, off, len);
+				default -> delegate.write(b, off, len);
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				if (state == State.COMPRESSING) {
+					timed(compressor::flush);
+					delegate.flush();
+				} else if (state == State.IDENTITY) {
+					delegate.flush();
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				finish();
+				delegate.close();
+			}
+
+			@Override
+			public boolean isReady() {
+				return delegate.isReady();
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				delegate.setWriteListener(writeListener);
+			}
+		}
+	}
+
+	/**
+	 * Passes compressed bytes to the client, counting them and the time spent.
+	 * Closing the compressor does not close the client stream.
+	 */
+	private static class TimedSink extends OutputStream {
+		private final OutputStream delegate;
+		private long byteCount;
+		private long nanos;
+		private boolean detached;
+
+		TimedSink(OutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (detached)
+				return;
+			long start = System.nanoTime();
+			delegate.write(b, off, len);
+			nanos += System.nanoTime() - start;
+			byteCount += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (detached)
+				return;
+			long start = System.nanoTime();
+			delegate.flush();
+			nanos += System.nanoTime() - start;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@FunctionalInterface
+	private interface IOAction {
+		void run() throws IOException;
+	}
+
+}
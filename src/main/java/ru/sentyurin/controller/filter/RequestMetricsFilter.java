@@ -0,0 +1,147 @@
+package ru.sentyurin.controller.filter;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import ru.sentyurin.util.metrics.EndpointMetrics;
+import ru.sentyurin.util.metrics.RequestMetrics;
+
+/**
+ * Records the latency, the request and response body sizes and the status of
+ * every request that is mapped to a handler method. The latency spans the whole
+ * request, serialisation of the response included; a request handled
+ * asynchronously is recorded when it completes. The handler is the one chosen
+ * by the dispatcher servlet, so the filter must be mapped to that servlet.
+ * <p>
+ * Response bytes are counted as they pass through the output stream; bytes
+ * written through the writer are not counted, since handlers write through the
+ * stream. Metric scrapes and the change feed, which stays open indefinitely,
+ * are not recorded.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+	private final RequestMetrics requestMetrics;
+
+	@Autowired
+	public RequestMetricsFilter(RequestMetrics requestMetrics) {
+		this.requestMetrics = requestMetrics;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return path.startsWith("/metrics") || path.startsWith("/changes");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		long start = System.nanoTime();
+		CountingResponse countingResponse = new CountingResponse(response);
+		try {
+			filterChain.doFilter(request, countingResponse);
+		} finally {
+			if (request.isAsyncStarted())
+				request.getAsyncContext().addListener(new AsyncListener() {
+
+					@Override
+					public void onComplete(AsyncEvent event) {
+						record(request, countingResponse, start);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			else
+				record(request, countingResponse, start);
+		}
+	}
+
+	private void record(HttpServletRequest request, CountingResponse response, long start) {
+		if (request.getAttribute(
+				HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler)
+			requestMetrics.endpoint(handler.getMethod()).record(System.nanoTime() - start,
+					request.getContentLengthLong(), response.byteCount, response.getStatus());
+	}
+
+	private static class CountingResponse extends HttpServletResponseWrapper {
+		private ServletOutputStream outputStream;
+		private long byteCount;
+
+		CountingResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (outputStream == null)
+				outputStream = new CountingOutputStream(super.getOutputStream());
+			return outputStream;
+		}
+
+		private class CountingOutputStream extends ServletOutputStream {
+			private final ServletOutputStream delegate;
+
+			CountingOutputStream(ServletOutputStream delegate) {
+				this.delegate = delegate;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				delegate.write(b);
+				byteCount++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				delegate.write(b, off, len);
+				byteCount += len;
+			}
+
+			@Override
+			public void flush() throws IOException {
+				delegate.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				delegate.close();
+			}
+
+			@Override
+			public boolean isReady() {
+				return delegate.isReady();
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				delegate.setWriteListener(writeListener);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package ru.sentyurin.controller.interceptor;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import ru.sentyurin.controller.advice.ValidatorAdvice;
+import ru.sentyurin.service.cache.CatalogVersion;
+import ru.sentyurin.service.cache.CatalogVersion.Stamp;
+
+/**
+ * Answers conditional GET requests for catalog resources before the handler
+ * runs. The {@code ETag} and {@code Last-Modified} validators come from
+ * {@link CatalogVersion}: a single movie or director has its own version, any
+ * other resource has the version of the whole catalog. A request whose
+ * validators still match gets {@code 304 Not Modified} without loading or
+ * serialising anything. Other requests carry the validators in the response
+ * unless it has an error status: they are added by {@link #addValidators} once
+ * the handler starts writing the body, as {@link ValidatorAdvice} does for
+ * handler return values. Resources are negotiated as JSON, Smile or CBOR, so
+ * responses vary by {@code Accept}.
+ * The check is not repeated when a request handled on a virtual thread is
+ * dispatched back to the container.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+	private static final Pattern ENTITY_PATH = Pattern.compile("/(movies|directors)/(\\d+)");
+	private static final String VALIDATORS_ATTRIBUTE = ConditionalGetInterceptor.class.getName()
+			+ ".validators";
+
+	private final CatalogVersion catalogVersion;
+
+	@Autowired
+	public ConditionalGetInterceptor(CatalogVersion catalogVersion) {
+		this.catalogVersion = catalogVersion;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		if (!HttpMethod.GET.matches(request.getMethod())
+				&& !HttpMethod.HEAD.matches(request.getMethod())
+				|| request.getDispatcherType() == DispatcherType.ASYNC)
+			return true;
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		Stamp stamp = stampOf(request.getRequestURI().substring(request.getContextPath().length()));
+		Validators validators = new Validators(catalogVersion.toETag(stamp), stamp.lastModified());
+		if (new ServletWebRequest(request, new ValidatorlessResponse(response))
+				.checkNotModified(validators.etag(), validators.lastModified())) {
+			if (response.getStatus() == HttpStatus.NOT_MODIFIED.value())
+				validators.writeTo(response);
+			return false;
+		}
+		request.setAttribute(VALIDATORS_ATTRIBUTE, validators);
+		return true;
+	}
+
+	/**
+	 * Adds the validators of a request that passed {@link #preHandle} to its
+	 * response, unless the response has an error status. Handlers writing the
+	 * response themselves call it before writing the body.
+	 */
+	public static void addValidators(HttpServletRequest request, HttpServletResponse response) {
+		if (request.getAttribute(VALIDATORS_ATTRIBUTE) instanceof Validators validators
+				&& response.getStatus() < HttpStatus.BAD_REQUEST.value()
+				&& !response.isCommitted())
+			validators.writeTo(response);
+	}
+
+	private Stamp stampOf(String path) {
+		Matcher matcher = ENTITY_PATH.matcher(path);
+		if (!matcher.matches())
+			return catalogVersion.getCatalogStamp();
+		Integer id;
+		try {
+			id = Integer.valueOf(matcher.group(2));
+		} catch (NumberFormatException e) {
+			return catalogVersion.getCatalogStamp();
+		}
+		return matcher.group(1).equals("movies") ? catalogVersion.getMovieStamp(id)
+				: catalogVersion.getDirectorStamp(id);
+	}
+
+	private record Validators(String etag, long lastModified) {
+
+		void writeTo(HttpServletResponse response) {
+			response.setHeader(HttpHeaders.ETAG, etag);
+			response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+		}
+	}
+
+	/**
+	 * Lets the precondition check set the status while keeping the validators
+	 * out of the response, which cannot drop a header once it is set
+	 */
+	private static class ValidatorlessResponse extends HttpServletResponseWrapper {
+
+		ValidatorlessResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (!isValidator(name))
+				super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!isValidator(name))
+				super.addHeader(name, value);
+		}
+
+		@Override
+		public void setDateHeader(String name, long date) {
+			if (!isValidator(name))
+				super.setDateHeader(name, date);
+		}
+
+		@Override
+		public void addDateHeader(String name, long date) {
+			if (!isValidator(name))
+				super.addDateHeader(name, date);
+		}
+
+		private static boolean isValidator(String name) {
+			return HttpHeaders.ETAG.equalsIgnoreCase(name)
+					|| HttpHeaders.LAST_MODIFIED.equalsIgnoreCase(name);
+		}
+	}
+
+}
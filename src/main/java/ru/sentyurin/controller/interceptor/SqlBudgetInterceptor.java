@@ -0,0 +1,66 @@
+package ru.sentyurin.controller.interceptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.util.metrics.RequestMetrics;
+import ru.sentyurin.util.metrics.RequestStatementInspector;
+import ru.sentyurin.util.metrics.RequestStatements;
+
+/**
+ * Counts the SQL statements every request issues, through
+ * {@link RequestStatementInspector}, and records the count in the statistics of
+ * the handler. A request issuing more than {@code sql.statement_budget}
+ * statements is logged as soon as it crosses the budget and once more with its
+ * total when it completes. The count started by the first dispatch of a
+ * request carries over to its asynchronous dispatch.
+ */
+@Component
+public class SqlBudgetInterceptor implements HandlerInterceptor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SqlBudgetInterceptor.class);
+
+	private final RequestMetrics requestMetrics;
+	private final int budget;
+
+	@Autowired
+	public SqlBudgetInterceptor(RequestMetrics requestMetrics,
+			@Value("${sql.statement_budget:10}") int budget) {
+		this.requestMetrics = requestMetrics;
+		this.budget = budget;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		if (handler instanceof HandlerMethod handlerMethod
+				&& request.getAttribute(RequestStatements.ATTRIBUTE) == null)
+			request.setAttribute(RequestStatements.ATTRIBUTE,
+					new RequestStatements(
+							requestMetrics.endpoint(handlerMethod.getMethod()).getName(), budget));
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+			Object handler, Exception ex) {
+		if (!(handler instanceof HandlerMethod handlerMethod)
+				|| !(request.getAttribute(
+						RequestStatements.ATTRIBUTE) instanceof RequestStatements statements))
+			return;
+		requestMetrics.endpoint(handlerMethod.getMethod())
+				.recordStatements(statements.getCount(), statements.isOverBudget());
+		if (statements.isOverBudget())
+			LOG.warn("{} issued {} SQL statements for {} {}, budget {}", statements.getHandler(),
+					statements.getCount(), request.getMethod(), request.getRequestURI(),
+					statements.getBudget());
+	}
+
+}
@@ -1,7 +1,10 @@
 package ru.sentyurin.controller.mapper;
 
+import java.util.List;
+
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.model.Director;
 
 public interface DirectorDtoMapper {
@@ -9,4 +12,6 @@ public interface DirectorDtoMapper {
 	Director map(DirectorIncomingDto incomingDto);
 
 	DirectorOutgoingDto map(Director director);
+
+	List<DirectorOutgoingDto> groupByDirector(List<MovieOutgoingDto> movieRows);
 }
@@ -29,6 +29,7 @@ public class DirectorDtoMapperImpl implements DirectorDtoMapper {
 		DirectorOutgoingDto outgoingDto = new DirectorOutgoingDto();
 		outgoingDto.setId(director.getId());
 		outgoingDto.setName(director.getName());
+		outgoingDto.setVersion(director.getVersion());
 		if (director.getMovies() == null) {
 			return outgoingDto;
 		}
@@ -40,4 +41,27 @@ public class DirectorDtoMapperImpl implements DirectorDtoMapper {
 		return outgoingDto;
 	}
 
+	/**
+	 * Folds movie rows sorted by director ID into directors with their movies. A
+	 * row with {@code null} movie ID stands for a director without movies.
+	 */
+	@Override
+	public List<DirectorOutgoingDto> groupByDirector(List<MovieOutgoingDto> movieRows) {
+		List<DirectorOutgoingDto> directors = new ArrayList<>();
+		DirectorOutgoingDto director = null;
+		for (MovieOutgoingDto row : movieRows) {
+			if (director == null || !director.getId().equals(row.getDirectorId())) {
+				director = new DirectorOutgoingDto();
+				director.setId(row.getDirectorId());
+				director.setName(row.getDirectorName());
+				director.setVersion(row.getDirectorVersion());
+				director.setMovies(new ArrayList<>());
+				directors.add(director);
+			}
+			if (row.getId() != null)
+				director.getMovies().add(row);
+		}
+		return directors;
+	}
+
 }
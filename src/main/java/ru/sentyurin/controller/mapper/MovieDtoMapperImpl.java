@@ -29,6 +29,7 @@ public class MovieDtoMapperImpl implements MovieDtoMapper {
 		outgoingDto.setId(movie.getId());
 		outgoingDto.setTitle(movie.getTitle());
 		outgoingDto.setReleaseYear(movie.getReleaseYear());
+		outgoingDto.setVersion(movie.getVersion());
 		Director director = movie.getDirector();
 		if (director != null) {
 			outgoingDto.setDirectorId(director.getId());
@@ -2,6 +2,11 @@ package ru.sentyurin.model;
 
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -9,16 +14,28 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Director.CACHE_REGION)
 public class Director {
+	public static final String CACHE_REGION = "director";
+	public static final String MOVIES_CACHE_REGION = "director.movies";
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "director_id_seq")
+	@SequenceGenerator(name = "director_id_seq", sequenceName = "director_id_seq", allocationSize = 50)
 	private Integer id;
 	private String name;
+
+	@Version
+	private Integer version;
 	
 	@OneToMany(fetch = FetchType.LAZY)
+	@BatchSize(size = 100)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Director.MOVIES_CACHE_REGION)
 	@JoinColumn(name = "director_id")
 	private List<Movie> movies;
 
@@ -55,4 +72,12 @@ public class Director {
 		this.movies = movies;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 }
@@ -0,0 +1,48 @@
+package ru.sentyurin.repository;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Properties of {@link DirectorOutgoingDto} that can be selected with a
+ * {@link Fieldset}, with the expressions reading them for a director
+ * {@code d}. The movies are joined only when {@link #MOVIES} is selected.
+ */
+public enum DirectorField {
+	ID("id", "d.id"), NAME("name", "d.name"), VERSION("version", "d.version"),
+	MOVIES("movies", null);
+
+	private final String name;
+	private final String path;
+
+	DirectorField(String name, String path) {
+		this.name = name;
+		this.path = path;
+	}
+
+	/**
+	 * @throws IncorrectInputException if {@code name} names no director property
+	 */
+	public static DirectorField fromName(String name) throws IncorrectInputException {
+		for (DirectorField field : values()) {
+			if (field.name.equals(name))
+				return field;
+		}
+		throw new IncorrectInputException("Unknown director field: " + name);
+	}
+
+	/**
+	 * Name of the serialised property
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * JPQL path of the property, {@code null} for {@link #MOVIES}
+	 */
+	String getPath() {
+		return path;
+	}
+
+}
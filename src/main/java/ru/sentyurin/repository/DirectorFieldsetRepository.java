@@ -0,0 +1,20 @@
+package ru.sentyurin.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+
+/**
+ * Director queries reading only the columns of a {@link Fieldset}. They return
+ * movie rows as {@link DirectorRepository#findAllAsMovieRows()} does, joining
+ * the movies only when they are selected; otherwise every director is a single
+ * row with {@code null} movie fields.
+ */
+public interface DirectorFieldsetRepository {
+
+	List<MovieOutgoingDto> findAllAsMovieRows(Fieldset fields);
+
+	List<MovieOutgoingDto> findAsMovieRowsByIdIn(Collection<Integer> ids, Fieldset fields);
+
+}
@@ -0,0 +1,81 @@
+package ru.sentyurin.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+
+class DirectorFieldsetRepositoryImpl implements DirectorFieldsetRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<MovieOutgoingDto> findAllAsMovieRows(Fieldset fields) {
+		return find(fields, null);
+	}
+
+	@Override
+	public List<MovieOutgoingDto> findAsMovieRowsByIdIn(Collection<Integer> ids,
+			Fieldset fields) {
+		return find(fields, ids);
+	}
+
+	private List<MovieOutgoingDto> find(Fieldset fields, Collection<Integer> ids) {
+		boolean name = fields.getDirectorFields().contains(DirectorField.NAME)
+				|| fields.getMovieFields().contains(MovieField.DIRECTOR_NAME);
+		boolean version = fields.getDirectorFields().contains(DirectorField.VERSION);
+		boolean movies = fields.getDirectorFields().contains(DirectorField.MOVIES);
+		List<MovieField> movieColumns = new ArrayList<>();
+		if (movies) {
+			movieColumns.addAll(MovieFilterRepositoryImpl.columns(fields));
+			movieColumns.removeAll(Set.of(MovieField.DIRECTOR_ID, MovieField.DIRECTOR_NAME));
+		}
+		TypedQuery<Object[]> query = entityManager.createQuery(
+				jpql(name, version, movieColumns, ids != null), Object[].class);
+		if (ids != null)
+			query.setParameter("ids", ids);
+		return query.getResultList().stream().map(row -> {
+			int column = 0;
+			MovieOutgoingDto movie = new MovieOutgoingDto();
+			movie.setDirectorId((Integer) row[column++]);
+			if (name)
+				movie.setDirectorName((String) row[column++]);
+			if (version)
+				movie.setDirectorVersion((Integer) row[column++]);
+			for (MovieField field : movieColumns)
+				field.set(movie, row[column++]);
+			return movie;
+		}).toList();
+	}
+
+	/**
+	 * Builds the query of director {@code d} rows, joined with movies {@code m}
+	 * when {@code movieColumns} are selected
+	 */
+	static String jpql(boolean name, boolean version, List<MovieField> movieColumns,
+			boolean byIds) {
+		StringBuilder jpql = new StringBuilder("select ").append(DirectorField.ID.getPath());
+		if (name)
+			jpql.append(", ").append(DirectorField.NAME.getPath());
+		if (version)
+			jpql.append(", ").append(DirectorField.VERSION.getPath());
+		for (MovieField field : movieColumns)
+			jpql.append(", ").append(field.getPath());
+		jpql.append(" from Director d");
+		if (!movieColumns.isEmpty())
+			jpql.append(" left join d.movies m");
+		if (byIds)
+			jpql.append(" where d.id in :ids");
+		jpql.append(" order by d.id");
+		if (!movieColumns.isEmpty())
+			jpql.append(", m.id");
+		return jpql.toString();
+	}
+
+}
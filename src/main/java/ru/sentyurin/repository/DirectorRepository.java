@@ -1,23 +1,100 @@
 package ru.sentyurin.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 
+import jakarta.persistence.QueryHint;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.model.Director;
 
 @org.springframework.stereotype.Repository
-public interface DirectorRepository extends Repository<Director, Integer> {
+public interface DirectorRepository
+		extends Repository<Director, Integer>, DirectorFieldsetRepository {
 
 	Director save(Director t);
 
+	<S extends Director> List<S> saveAll(Iterable<S> directors);
+
+	void flush();
+
+	Director getReferenceById(Integer id);
+
+	List<Director> findByNameIn(Collection<String> names);
+
+	@EntityGraph(attributePaths = "movies")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select d from Director d order by d.id")
 	List<Director> findAll();
 
+	@Query("select d.id from Director d where d.id > ?1 order by d.id")
+	List<Integer> findIdPageAfter(Integer after, Limit limit);
+
+	/**
+	 * Returns one row per movie of every director ordered by director ID. A
+	 * director without movies produces a single row with {@code null} movie
+	 * fields.
+	 */
+	@Query(MovieRepository.MOVIE_DTO_SELECT
+			+ "from Director d left join d.movies m order by d.id, m.id")
+	List<MovieOutgoingDto> findAllAsMovieRows();
+
+	/**
+	 * Same as {@link #findAllAsMovieRows()}, read from a server-side cursor
+	 * without attaching anything to the persistence context. Must be called inside
+	 * a transaction and the stream must be closed.
+	 */
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Query(MovieRepository.MOVIE_DTO_SELECT
+			+ "from Director d left join d.movies m order by d.id, m.id")
+	Stream<MovieOutgoingDto> streamAllAsMovieRows();
+
+	/**
+	 * Same as {@link #findAllAsMovieRows()} restricted to directors with the given
+	 * IDs
+	 */
+	@Query(MovieRepository.MOVIE_DTO_SELECT
+			+ "from Director d left join d.movies m where d.id in ?1 order by d.id, m.id")
+	List<MovieOutgoingDto> findAsMovieRowsByIdIn(Collection<Integer> ids);
+
+	@EntityGraph(attributePaths = "movies")
 	Optional<Director> findById(Integer id);
 
+	/**
+	 * Renames the director with ID {@code id} if it still has version
+	 * {@code version}, incrementing the version, and returns it in the same
+	 * statement as in {@link #findAsMovieRowsByIdIn}: one row per movie, or a
+	 * single row with {@code null} movie fields
+	 * 
+	 * @return rows of the updated director, or no rows if there is no director
+	 *         with such ID and version
+	 */
+	@Query(value = "with updated as (update Director set name = ?2, version = version + 1 "
+			+ "where id = ?1 and version = ?3 returning id, name, version) "
+			+ "select m.id as \"id\", m.title as \"title\", m.release_year as \"releaseYear\", "
+			+ "u.id as \"directorId\", u.name as \"directorName\", m.version as \"version\", "
+			+ "u.version as \"directorVersion\" "
+			+ "from updated u left join Movie m on m.director_id = u.id order by m.id",
+			nativeQuery = true)
+	List<MovieView> updateVersioned(Integer id, String name, int version);
+
 	Boolean deleteById(Integer id);
 
 	Boolean existsById(Integer id);
 
+	@Query("select d.id from Director d where d.id in ?1")
+	List<Integer> findExistingIds(Collection<Integer> ids);
+
+	@Query("select d.name from Director d where d.name in ?1")
+	List<String> findExistingNames(Collection<String> names);
+
 }
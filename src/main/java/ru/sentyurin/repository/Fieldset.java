@@ -0,0 +1,100 @@
+package ru.sentyurin.repository;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Properties of movies and directors a client asked for with the {@code fields}
+ * parameter. Only these are read from the database and serialised; the IDs of
+ * movies are read in any case, as cursors and for grouping movies into
+ * directors.
+ */
+public class Fieldset {
+	public static final Fieldset ALL = new Fieldset(EnumSet.allOf(MovieField.class),
+			EnumSet.allOf(DirectorField.class));
+
+	private static final String MOVIES_PREFIX = DirectorField.MOVIES.getName() + ".";
+
+	private final Set<MovieField> movieFields;
+	private final Set<DirectorField> directorFields;
+
+	private Fieldset(Set<MovieField> movieFields, Set<DirectorField> directorFields) {
+		this.movieFields = Collections.unmodifiableSet(movieFields);
+		this.directorFields = Collections.unmodifiableSet(directorFields);
+	}
+
+	/**
+	 * @param parameter comma-separated names of movie properties, such as
+	 *                  {@code id,title}; {@code null} means all of them
+	 *
+	 * @throws IncorrectInputException if {@code parameter} names no property or an
+	 *                                 unknown one
+	 */
+	public static Fieldset ofMovies(String parameter) throws IncorrectInputException {
+		if (parameter == null)
+			return ALL;
+		Set<MovieField> movieFields = EnumSet.noneOf(MovieField.class);
+		for (String name : split(parameter))
+			movieFields.add(MovieField.fromName(name));
+		return new Fieldset(movieFields, EnumSet.allOf(DirectorField.class));
+	}
+
+	/**
+	 * @param parameter comma-separated names of director properties, such as
+	 *                  {@code id,name,movies.title}. {@code movies} selects the
+	 *                  movies with all their properties, {@code movies.<name>} the
+	 *                  movies with the named ones only. {@code null} means all of
+	 *                  them.
+	 *
+	 * @throws IncorrectInputException if {@code parameter} names no property or an
+	 *                                 unknown one
+	 */
+	public static Fieldset ofDirectors(String parameter) throws IncorrectInputException {
+		if (parameter == null)
+			return ALL;
+		Set<DirectorField> directorFields = EnumSet.noneOf(DirectorField.class);
+		Set<MovieField> movieFields = EnumSet.noneOf(MovieField.class);
+		for (String name : split(parameter)) {
+			if (name.startsWith(MOVIES_PREFIX)) {
+				directorFields.add(DirectorField.MOVIES);
+				movieFields.add(MovieField.fromName(name.substring(MOVIES_PREFIX.length())));
+			} else {
+				directorFields.add(DirectorField.fromName(name));
+			}
+		}
+		if (directorFields.contains(DirectorField.MOVIES) && movieFields.isEmpty())
+			movieFields = EnumSet.allOf(MovieField.class);
+		return new Fieldset(movieFields, directorFields);
+	}
+
+	public Set<MovieField> getMovieFields() {
+		return movieFields;
+	}
+
+	public Set<DirectorField> getDirectorFields() {
+		return directorFields;
+	}
+
+	/**
+	 * Tells whether every property is selected, so the full representations can
+	 * be served
+	 */
+	public boolean isComplete() {
+		return movieFields.size() == MovieField.values().length
+				&& directorFields.size() == DirectorField.values().length;
+	}
+
+	private static String[] split(String parameter) throws IncorrectInputException {
+		String[] names = parameter.split(",");
+		for (int i = 0; i < names.length; i++) {
+			names[i] = names[i].strip();
+			if (names[i].isEmpty())
+				throw new IncorrectInputException("Fields must be non-empty names");
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,181 @@
+package ru.sentyurin.repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.service.MovieDataFormat;
+import ru.sentyurin.util.exception.DataBaseException;
+
+/**
+ * Reads and writes movies with the PostgreSQL {@code COPY} protocol, bypassing
+ * Hibernate. Uses the JDBC connection of the current transaction, so the copied
+ * rows are committed or rolled back together with it.
+ */
+@org.springframework.stereotype.Repository
+public class MovieCopyRepository {
+	private static final String COPY_IN_SQL = "COPY Movie (id, title, release_year, "
+			+ "director_id) FROM STDIN WITH (FORMAT csv)";
+	/**
+	 * Size of the ID blocks the movie sequence hands out, as to the pooled
+	 * generator of {@code Movie}: each value is the last ID of its block
+	 */
+	static final int ID_BLOCK_SIZE = 50;
+	private static final String RESERVE_IDS_SQL = "select nextval('movie_id_seq') "
+			+ "from generate_series(1, ?)";
+
+	private static final String EXPORT_FROM = " from Movie m "
+			+ "join Director d on d.id = m.director_id";
+	private static final String EXPORT_CSV_COLUMNS = "select m.id, m.title, "
+			+ "m.release_year as \"releaseYear\", d.id as \"directorId\", "
+			+ "d.name as \"directorName\"";
+	private static final String EXPORT_JSON_COLUMNS = "select json_build_object('id', m.id, "
+			+ "'title', m.title, 'releaseYear', m.release_year, 'directorId', d.id, "
+			+ "'directorName', d.name)";
+	/**
+	 * CSV options that never quote a JSON document: the quote and delimiter
+	 * characters are control characters which {@code json_build_object} always
+	 * escapes, so every line is the document itself. The text format would
+	 * double its backslashes instead.
+	 */
+	private static final String RAW_LINE_OPTIONS = "(FORMAT csv, "
+			+ "QUOTE e'\\x01', DELIMITER e'\\x02')";
+
+	private final DataSource dataSource;
+
+	@Autowired
+	public MovieCopyRepository(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Inserts {@code movies} with a single {@code COPY FROM STDIN}. Fields
+	 * {@code title}, {@code releaseYear} and {@code directorId} must be set. IDs
+	 * are reserved from the movie sequence in whole blocks, so every row takes
+	 * one ID rather than a block of its own through the identity default.
+	 * 
+	 * @return number of inserted rows
+	 */
+	public long copyIn(List<MovieIncomingDto> movies) {
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			int[] ids = reserveIds(connection, movies.size());
+			StringBuilder csv = new StringBuilder(movies.size() * 72);
+			for (int i = 0; i < ids.length; i++) {
+				MovieIncomingDto movie = movies.get(i);
+				csv.append(ids[i]).append(',');
+				appendQuoted(csv, movie.getTitle());
+				csv.append(',').append(movie.getReleaseYear()).append(',')
+						.append(movie.getDirectorId()).append('\n');
+			}
+			CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+			return copyManager.copyIn(COPY_IN_SQL, new StringReader(csv.toString()));
+		} catch (SQLException | IOException e) {
+			throw new DataBaseException("Failed to copy movies: " + e.getMessage(), e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	/**
+	 * Writes movies joined with their directors, ordered by ID, to {@code output}
+	 * with a single {@code COPY TO STDOUT}. Rows are formatted by the database and
+	 * streamed as they are produced. {@code null} filters are not applied.
+	 * 
+	 * @return number of written rows
+	 */
+	public long copyOut(MovieDataFormat format, Integer releaseYearFrom, Integer releaseYearTo,
+			Integer directorId, OutputStream output) throws IOException {
+		String sql = exportSql(format, releaseYearFrom, releaseYearTo, directorId);
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+			return copyManager.copyOut(sql, output);
+		} catch (SQLException e) {
+			throw new DataBaseException("Failed to export movies: " + e.getMessage(), e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	/**
+	 * Builds the export statement. {@code COPY} takes no bind parameters, so the
+	 * filters are inlined; they are integers and cannot inject SQL.
+	 */
+	static String exportSql(MovieDataFormat format, Integer releaseYearFrom,
+			Integer releaseYearTo, Integer directorId) {
+		StringBuilder sql = new StringBuilder("COPY (")
+				.append(format == MovieDataFormat.CSV ? EXPORT_CSV_COLUMNS : EXPORT_JSON_COLUMNS)
+				.append(EXPORT_FROM);
+		String conjunction = " where ";
+		if (releaseYearFrom != null) {
+			sql.append(conjunction).append("m.release_year >= ")
+					.append(releaseYearFrom.intValue());
+			conjunction = " and ";
+		}
+		if (releaseYearTo != null) {
+			sql.append(conjunction).append("m.release_year <= ").append(releaseYearTo.intValue());
+			conjunction = " and ";
+		}
+		if (directorId != null)
+			sql.append(conjunction).append("m.director_id = ").append(directorId.intValue());
+		sql.append(" order by m.id) TO STDOUT WITH ").append(
+				format == MovieDataFormat.CSV ? "(FORMAT csv, HEADER)" : RAW_LINE_OPTIONS);
+		return sql.toString();
+	}
+
+	private static int[] reserveIds(Connection connection, int count) throws SQLException {
+		int[] ids = new int[count];
+		int reserved = 0;
+		try (PreparedStatement statement = connection.prepareStatement(RESERVE_IDS_SQL)) {
+			// The first value of the sequence ends a block of one ID, which may
+			// leave the others short
+			while (reserved < count) {
+				statement.setInt(1, (count - reserved + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE);
+				try (ResultSet blocks = statement.executeQuery()) {
+					while (blocks.next())
+						reserved = addBlock(ids, reserved, blocks.getInt(1));
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Adds the IDs of the block ending at {@code last} to {@code ids}, as far as
+	 * it has room
+	 * 
+	 * @return number of IDs in {@code ids}
+	 */
+	static int addBlock(int[] ids, int reserved, int last) {
+		for (int id = Math.max(1, last - ID_BLOCK_SIZE + 1); id <= last
+				&& reserved < ids.length; id++)
+			ids[reserved++] = id;
+		return reserved;
+	}
+
+	private static void appendQuoted(StringBuilder csv, String value) {
+		csv.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"')
+				csv.append('"');
+			csv.append(c);
+		}
+		csv.append('"');
+	}
+
+}
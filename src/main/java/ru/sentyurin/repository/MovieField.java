@@ -0,0 +1,79 @@
+package ru.sentyurin.repository;
+
+import java.util.function.BiConsumer;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Properties of {@link MovieOutgoingDto} that can be selected with a
+ * {@link Fieldset}, with the expressions reading them for a movie {@code m}
+ * and its director {@code d}. Only the director name needs the director to be
+ * joined: its ID is the foreign key of the movie.
+ */
+public enum MovieField {
+	ID("id", "m.id", "m.id", (movie, value) -> movie.setId((Integer) value)),
+	TITLE("title", "m.title", "m.title", (movie, value) -> movie.setTitle((String) value)),
+	RELEASE_YEAR("releaseYear", "m.releaseYear", "m.release_year",
+			(movie, value) -> movie.setReleaseYear((Integer) value)),
+	DIRECTOR_ID("directorId", "m.director.id", "m.director_id",
+			(movie, value) -> movie.setDirectorId((Integer) value)),
+	DIRECTOR_NAME("directorName", "d.name", "d.name",
+			(movie, value) -> movie.setDirectorName((String) value)),
+	VERSION("version", "m.version", "m.version",
+			(movie, value) -> movie.setVersion((Integer) value));
+
+	private final String name;
+	private final String path;
+	private final String column;
+	private final BiConsumer<MovieOutgoingDto, Object> setter;
+
+	MovieField(String name, String path, String column,
+			BiConsumer<MovieOutgoingDto, Object> setter) {
+		this.name = name;
+		this.path = path;
+		this.column = column;
+		this.setter = setter;
+	}
+
+	/**
+	 * @throws IncorrectInputException if {@code name} names no movie property
+	 */
+	public static MovieField fromName(String name) throws IncorrectInputException {
+		for (MovieField field : values()) {
+			if (field.name.equals(name))
+				return field;
+		}
+		throw new IncorrectInputException("Unknown movie field: " + name);
+	}
+
+	/**
+	 * Name of the serialised property
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * JPQL path of the property
+	 */
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * SQL column of the property
+	 */
+	String getColumn() {
+		return column;
+	}
+
+	boolean needsDirector() {
+		return this == DIRECTOR_NAME;
+	}
+
+	void set(MovieOutgoingDto movie, Object value) {
+		setter.accept(movie, value);
+	}
+
+}
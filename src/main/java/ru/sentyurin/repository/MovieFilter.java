@@ -0,0 +1,49 @@
+package ru.sentyurin.repository;
+
+/**
+ * Criteria of a filtered movie list. {@code null} fields are not applied.
+ */
+public class MovieFilter {
+
+	private Integer directorId;
+	private Integer yearFrom;
+	private Integer yearTo;
+	private MovieSort sort = MovieSort.ID;
+
+	public Integer getDirectorId() {
+		return directorId;
+	}
+
+	public Integer getYearFrom() {
+		return yearFrom;
+	}
+
+	public Integer getYearTo() {
+		return yearTo;
+	}
+
+	public MovieSort getSort() {
+		return sort;
+	}
+
+	public MovieFilter setDirectorId(Integer directorId) {
+		this.directorId = directorId;
+		return this;
+	}
+
+	public MovieFilter setYearFrom(Integer yearFrom) {
+		this.yearFrom = yearFrom;
+		return this;
+	}
+
+	public MovieFilter setYearTo(Integer yearTo) {
+		this.yearTo = yearTo;
+		return this;
+	}
+
+	public MovieFilter setSort(MovieSort sort) {
+		this.sort = sort;
+		return this;
+	}
+
+}
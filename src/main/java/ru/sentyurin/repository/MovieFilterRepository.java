@@ -0,0 +1,49 @@
+package ru.sentyurin.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+
+/**
+ * Queries whose shape depends on the request and which therefore cannot be
+ * declared with {@code @Query}
+ */
+public interface MovieFilterRepository {
+
+	/**
+	 * Returns at most {@code limit} movies matching {@code filter} in its sort
+	 * order, starting after the movie with ID {@code after} (from the first movie
+	 * if {@code after} is {@code null})
+	 */
+	List<MovieOutgoingDto> findFilteredPage(MovieFilter filter, Integer after, int limit);
+
+	/**
+	 * Same as {@link #findFilteredPage(MovieFilter, Integer, int)}, reading only
+	 * the columns of {@code fields}
+	 */
+	List<MovieOutgoingDto> findFilteredPage(MovieFilter filter, Integer after, int limit,
+			Fieldset fields);
+
+	/**
+	 * Returns all movies ordered by ID, reading only the columns of {@code fields}
+	 */
+	List<MovieOutgoingDto> findAll(Fieldset fields);
+
+	/**
+	 * Same as {@link #findAll(Fieldset)}, read from a server-side cursor without
+	 * attaching anything to the persistence context. Must be called inside a
+	 * transaction and the stream must be closed.
+	 */
+	Stream<MovieOutgoingDto> streamAll(Fieldset fields);
+
+	Optional<MovieOutgoingDto> findById(Integer id, Fieldset fields);
+
+	/**
+	 * Same as {@link MovieRepository#search}, reading only the columns of
+	 * {@code fields}
+	 */
+	List<MovieOutgoingDto> search(String query, int offset, int limit, Fieldset fields);
+
+}
@@ -0,0 +1,192 @@
+package ru.sentyurin.repository;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+
+/**
+ * Builds the JPQL of {@link MovieFilterRepository#findFilteredPage} from the
+ * present criteria only, so every combination maps onto one of the composite
+ * indexes of {@code Movie} instead of a query with optional predicates. Queries
+ * taking a {@link Fieldset} select only its columns, and join the director
+ * only for its name.
+ */
+class MovieFilterRepositoryImpl implements MovieFilterRepository {
+	/**
+	 * Release year of the cursor movie, looked up in the same statement so the
+	 * cursor stays a plain movie ID
+	 */
+	private static final String AFTER_YEAR = "(select a.releaseYear from Movie a "
+			+ "where a.id = :after)";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<MovieOutgoingDto> findFilteredPage(MovieFilter filter, Integer after,
+			int limit) {
+		TypedQuery<MovieOutgoingDto> query = entityManager
+				.createQuery(filteredPageJpql(filter, after != null), MovieOutgoingDto.class)
+				.setMaxResults(limit);
+		setFilterParameters(query, filter, after);
+		return query.getResultList();
+	}
+
+	@Override
+	public List<MovieOutgoingDto> findFilteredPage(MovieFilter filter, Integer after, int limit,
+			Fieldset fields) {
+		List<MovieField> columns = columns(fields);
+		TypedQuery<Object[]> query = entityManager
+				.createQuery(filteredPageJpql(select(columns), filter, after != null),
+						Object[].class)
+				.setMaxResults(limit);
+		setFilterParameters(query, filter, after);
+		return query.getResultList().stream().map(row -> toMovie(columns, row)).toList();
+	}
+
+	@Override
+	public List<MovieOutgoingDto> findAll(Fieldset fields) {
+		List<MovieField> columns = columns(fields);
+		return entityManager.createQuery(select(columns) + " order by m.id", Object[].class)
+				.getResultList().stream().map(row -> toMovie(columns, row)).toList();
+	}
+
+	@Override
+	public Stream<MovieOutgoingDto> streamAll(Fieldset fields) {
+		List<MovieField> columns = columns(fields);
+		return entityManager.createQuery(select(columns) + " order by m.id", Object[].class)
+				.setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+				.setHint(HibernateHints.HINT_READ_ONLY, true).getResultStream()
+				.map(row -> toMovie(columns, row));
+	}
+
+	@Override
+	public Optional<MovieOutgoingDto> findById(Integer id, Fieldset fields) {
+		List<MovieField> columns = columns(fields);
+		return entityManager
+				.createQuery(select(columns) + " where m.id = :id", Object[].class)
+				.setParameter("id", id).getResultList().stream().map(row -> toMovie(columns, row))
+				.findFirst();
+	}
+
+	@Override
+	public List<MovieOutgoingDto> search(String query, int offset, int limit,
+			Fieldset fields) {
+		List<MovieField> columns = columns(fields);
+		Query search = entityManager.createNativeQuery(searchSql(columns))
+				.setParameter("query", query).setParameter("offset", offset)
+				.setParameter("limit", limit);
+		return ((List<?>) search.getResultList()).stream()
+				.map(row -> toMovie(columns,
+						row instanceof Object[] values ? values : new Object[] { row }))
+				.toList();
+	}
+
+	static String filteredPageJpql(MovieFilter filter, boolean hasCursor) {
+		return filteredPageJpql(MovieRepository.MOVIE_DTO_SELECT
+				+ "from Movie m join m.director d", filter, hasCursor);
+	}
+
+	/**
+	 * @param selectFrom select and from clauses reading a movie {@code m}
+	 */
+	static String filteredPageJpql(String selectFrom, MovieFilter filter, boolean hasCursor) {
+		StringBuilder jpql = new StringBuilder(selectFrom);
+		String conjunction = " where ";
+		if (filter.getDirectorId() != null) {
+			jpql.append(conjunction).append("m.director.id = :directorId");
+			conjunction = " and ";
+		}
+		if (filter.getYearFrom() != null) {
+			jpql.append(conjunction).append("m.releaseYear >= :yearFrom");
+			conjunction = " and ";
+		}
+		if (filter.getYearTo() != null) {
+			jpql.append(conjunction).append("m.releaseYear <= :yearTo");
+			conjunction = " and ";
+		}
+		switch (filter.getSort()) {
+		case ID -> {
+			if (hasCursor)
+				jpql.append(conjunction).append("m.id > :after");
+			jpql.append(" order by m.id");
+		}
+		case RELEASE_YEAR -> {
+			if (hasCursor)
+				jpql.append(conjunction).append("(m.releaseYear, m.id) > (").append(AFTER_YEAR)
+						.append(", :after)");
+			jpql.append(" order by m.releaseYear, m.id");
+		}
+		case RELEASE_YEAR_DESC -> {
+			if (hasCursor)
+				jpql.append(conjunction).append("(m.releaseYear, m.id) < (").append(AFTER_YEAR)
+						.append(", :after)");
+			jpql.append(" order by m.releaseYear desc, m.id desc");
+		}
+		}
+		return jpql.toString();
+	}
+
+	/**
+	 * Returns the select and from clauses reading {@code columns} of a movie
+	 * {@code m}
+	 */
+	static String select(List<MovieField> columns) {
+		return columns.stream().map(MovieField::getPath)
+				.collect(Collectors.joining(", ", "select ", " from Movie m"))
+				+ (needsDirector(columns) ? " join m.director d" : "");
+	}
+
+	static String searchSql(List<MovieField> columns) {
+		return columns.stream().map(MovieField::getColumn)
+				.collect(Collectors.joining(", ", "select ", " from Movie m"))
+				+ (needsDirector(columns) ? " join Director d on d.id = m.director_id" : "")
+				+ ", websearch_to_tsquery('english', :query) query "
+				+ "where m.title_search @@ query "
+				+ "order by ts_rank(m.title_search, query) desc, m.id "
+				+ "limit :limit offset :offset";
+	}
+
+	/**
+	 * Returns the movie properties of {@code fields} with the movie ID first
+	 */
+	static List<MovieField> columns(Fieldset fields) {
+		Set<MovieField> columns = EnumSet.of(MovieField.ID);
+		columns.addAll(fields.getMovieFields());
+		return List.copyOf(columns);
+	}
+
+	static MovieOutgoingDto toMovie(List<MovieField> columns, Object[] row) {
+		MovieOutgoingDto movie = new MovieOutgoingDto();
+		for (int i = 0; i < columns.size(); i++)
+			columns.get(i).set(movie, row[i]);
+		return movie;
+	}
+
+	private static boolean needsDirector(List<MovieField> columns) {
+		return columns.stream().anyMatch(MovieField::needsDirector);
+	}
+
+	private static void setFilterParameters(Query query, MovieFilter filter, Integer after) {
+		if (filter.getDirectorId() != null)
+			query.setParameter("directorId", filter.getDirectorId());
+		if (filter.getYearFrom() != null)
+			query.setParameter("yearFrom", filter.getYearFrom());
+		if (filter.getYearTo() != null)
+			query.setParameter("yearTo", filter.getYearTo());
+		if (after != null)
+			query.setParameter("after", after);
+	}
+
+}
@@ -1,29 +1,119 @@
 package ru.sentyurin.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 
+import jakarta.persistence.QueryHint;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.model.Movie;
 
 @org.springframework.stereotype.Repository
-public interface MovieRepository extends Repository<Movie, Integer> {
+public interface MovieRepository extends Repository<Movie, Integer>, MovieFilterRepository {
+
+	/**
+	 * Select clause that projects a movie {@code m} and its director {@code d}
+	 * straight into {@link MovieOutgoingDto}, bypassing entity hydration
+	 */
+	String MOVIE_DTO_SELECT = "select new ru.sentyurin.controller.dto.MovieOutgoingDto("
+			+ "m.id, m.title, m.releaseYear, d.id, d.name, m.version, d.version) ";
 
 	Movie save(Movie t);
 
+	<S extends Movie> List<S> saveAll(Iterable<S> movies);
+
+	void flush();
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	List<Movie> findAll();
 
+	@Query(MOVIE_DTO_SELECT + "from Movie m join m.director d order by m.id")
+	List<MovieOutgoingDto> findAllDtos();
+
+	@Query(MOVIE_DTO_SELECT + "from Movie m join m.director d where m.id > ?1 order by m.id")
+	List<MovieOutgoingDto> findPageAfter(Integer after, Limit limit);
+
+	/**
+	 * Streams all movies ordered by ID. Rows are read from a server-side cursor in
+	 * batches of the fetch size and are not attached to the persistence context,
+	 * so memory use does not depend on the table size. Must be called inside a
+	 * transaction and the stream must be closed.
+	 */
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Query(MOVIE_DTO_SELECT + "from Movie m join m.director d order by m.id")
+	Stream<MovieOutgoingDto> streamAll();
+
+	/**
+	 * Returns movies whose title matches {@code query}, most relevant first. The
+	 * query is parsed with {@code websearch_to_tsquery}, so it accepts plain words,
+	 * quoted phrases, {@code or} and {@code -word}; words are stemmed with the
+	 * English configuration. Matching uses the GIN index on
+	 * {@code Movie.title_search}.
+	 */
+	@Query(value = "select m.id as \"id\", m.title as \"title\", "
+			+ "m.release_year as \"releaseYear\", d.id as \"directorId\", "
+			+ "d.name as \"directorName\", m.version as \"version\", "
+			+ "d.version as \"directorVersion\" "
+			+ "from Movie m join Director d on d.id = m.director_id, "
+			+ "websearch_to_tsquery('english', ?1) query "
+			+ "where m.title_search @@ query "
+			+ "order by ts_rank(m.title_search, query) desc, m.id "
+			+ "limit ?3 offset ?2", nativeQuery = true)
+	List<MovieView> search(String query, int offset, int limit);
+
 	Optional<Movie> findById(Integer id);
+
+	/**
+	 * Updates the movie with ID {@code id} if it still has version
+	 * {@code version}, incrementing the version, and returns the updated row in
+	 * the same statement. The director is checked by the foreign key on
+	 * {@code Movie.director_id}, so a missing director fails the statement.
+	 * 
+	 * @return the updated movie, or nothing if there is no movie with such ID and
+	 *         version
+	 */
+	@Query(value = "with previous as (select director_id from Movie where id = ?1), "
+			+ "updated as (update Movie set title = ?2, release_year = ?3, director_id = ?4, "
+			+ "version = version + 1 where id = ?1 and version = ?5 "
+			+ "returning id, title, release_year, director_id, version) "
+			+ "select u.id as \"id\", u.title as \"title\", u.release_year as \"releaseYear\", "
+			+ "d.id as \"directorId\", d.name as \"directorName\", u.version as \"version\", "
+			+ "d.version as \"directorVersion\", p.director_id as \"previousDirectorId\" "
+			+ "from updated u join Director d on d.id = u.director_id, previous p",
+			nativeQuery = true)
+	Optional<MovieUpdateView> updateVersioned(Integer id, String title, int releaseYear,
+			Integer directorId, int version);
+
+	@Query(MOVIE_DTO_SELECT + "from Movie m join m.director d where m.id = ?1")
+	Optional<MovieOutgoingDto> findDtoById(Integer id);
 	
 	Boolean deleteById(Integer id);
 
+	void delete(Movie movie);
+
+	/**
+	 * Deletes the movies of a director. The statement is declared to touch only
+	 * the {@code movie} table, so that Hibernate evicts the cached movies,
+	 * director movie lists and query results instead of its whole second-level
+	 * cache.
+	 */
 	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie"))
 	@Query(value = "delete from Movie m where m.director_id =?1", nativeQuery = true)
 	Integer deleteByDirectorId(Integer id);
 
 	Boolean existsById(Integer id);
 
+	@Query("select m.title from Movie m where m.title in ?1")
+	List<String> findExistingTitles(Collection<String> titles);
+
 }
@@ -0,0 +1,34 @@
+package ru.sentyurin.repository;
+
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Orders of a filtered movie list. Movie ID breaks ties, so every order is
+ * total and can be paged with the ID of the last movie as the cursor.
+ */
+public enum MovieSort {
+	ID("id"), RELEASE_YEAR("releaseYear"), RELEASE_YEAR_DESC("-releaseYear");
+
+	private final String parameter;
+
+	MovieSort(String parameter) {
+		this.parameter = parameter;
+	}
+
+	/**
+	 * @param parameter {@code id}, {@code releaseYear} or {@code -releaseYear};
+	 *                  {@code null} means {@link #ID}
+	 * 
+	 * @throws IncorrectInputException if {@code parameter} names no order
+	 */
+	public static MovieSort fromParameter(String parameter) throws IncorrectInputException {
+		if (parameter == null)
+			return ID;
+		for (MovieSort sort : values()) {
+			if (sort.parameter.equals(parameter))
+				return sort;
+		}
+		throw new IncorrectInputException("Unsupported sort order: " + parameter);
+	}
+
+}
@@ -0,0 +1,11 @@
+package ru.sentyurin.repository;
+
+/**
+ * Movie row returned by {@link MovieRepository#updateVersioned}, together with
+ * the director the movie had before the update
+ */
+public interface MovieUpdateView extends MovieView {
+
+	Integer getPreviousDirectorId();
+
+}
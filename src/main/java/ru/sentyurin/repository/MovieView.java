@@ -0,0 +1,30 @@
+package ru.sentyurin.repository;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+
+/**
+ * Projection of a movie row joined with its director, used by native queries
+ * that cannot construct {@link MovieOutgoingDto} directly
+ */
+public interface MovieView {
+
+	Integer getId();
+
+	String getTitle();
+
+	Integer getReleaseYear();
+
+	Integer getDirectorId();
+
+	String getDirectorName();
+
+	Integer getVersion();
+
+	Integer getDirectorVersion();
+
+	default MovieOutgoingDto toOutgoingDto() {
+		return new MovieOutgoingDto(getId(), getTitle(), getReleaseYear(), getDirectorId(),
+				getDirectorName(), getVersion(), getDirectorVersion());
+	}
+
+}
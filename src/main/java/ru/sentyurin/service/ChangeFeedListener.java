@@ -0,0 +1,30 @@
+package ru.sentyurin.service;
+
+import java.io.IOException;
+
+import ru.sentyurin.controller.dto.ChangeDto;
+
+/**
+ * Receives the changes of a change feed subscription in order. The methods are
+ * called on a thread of the feed, one at a time; an {@link IOException} ends
+ * the subscription.
+ */
+public interface ChangeFeedListener {
+
+	void onChange(String eventId, ChangeDto change) throws IOException;
+
+	/**
+	 * Called instead of the missed changes when the subscription cannot resume
+	 * from the requested event, because it belongs to an earlier run or has been
+	 * overwritten. {@code eventId} is the ID of the latest change; everything the
+	 * subscriber knows must be read again.
+	 */
+	void onReset(String eventId) throws IOException;
+
+	/**
+	 * Called when the subscriber fell so far behind that changes it has not
+	 * received yet were overwritten. No more calls follow.
+	 */
+	void onDropped();
+
+}
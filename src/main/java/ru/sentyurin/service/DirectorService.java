@@ -3,16 +3,29 @@ package ru.sentyurin.service;
 import java.util.List;
 import java.util.Optional;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
 
 public interface DirectorService {
 
 	DirectorOutgoingDto createDirector(DirectorIncomingDto director);
 
+	List<BatchItemResultDto> createDirectors(List<DirectorIncomingDto> directors);
+
 	List<DirectorOutgoingDto> getDirectors();
 
+	List<DirectorOutgoingDto> getDirectors(Fieldset fields);
+
+	CursorPage<DirectorOutgoingDto> getDirectors(Integer after, int limit);
+
+	CursorPage<DirectorOutgoingDto> getDirectors(Integer after, int limit, Fieldset fields);
+
 	Optional<DirectorOutgoingDto> getDirectorById(Integer id);
+
+	Optional<DirectorOutgoingDto> getDirectorById(Integer id, Fieldset fields);
 	
 	DirectorOutgoingDto updateDirector(DirectorIncomingDto director);
 
@@ -0,0 +1,50 @@
+package ru.sentyurin.service;
+
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Bulk formats of movie data used by {@link MovieImportService} and the export
+ * of {@link MovieService}. A CSV file starts with a header naming the columns
+ * ({@code title}, {@code releaseYear}, {@code directorId},
+ * {@code directorName}); an NDJSON file holds one movie object per line.
+ */
+public enum MovieDataFormat {
+	CSV("text/csv"), NDJSON("application/x-ndjson");
+
+	private final String mediaType;
+
+	MovieDataFormat(String mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	/**
+	 * @throws IncorrectInputException if {@code name} matches no format
+	 */
+	public static MovieDataFormat fromName(String name) throws IncorrectInputException {
+		for (MovieDataFormat format : values()) {
+			if (format.name().equalsIgnoreCase(name))
+				return format;
+		}
+		throw new IncorrectInputException("Unsupported format: " + name);
+	}
+
+	/**
+	 * @throws IncorrectInputException if {@code contentType} matches no format
+	 */
+	public static MovieDataFormat fromContentType(String contentType)
+			throws IncorrectInputException {
+		if (contentType != null) {
+			String mediaType = contentType.split(";", 2)[0].trim();
+			for (MovieDataFormat format : values()) {
+				if (format.mediaType.equalsIgnoreCase(mediaType))
+					return format;
+			}
+		}
+		throw new IncorrectInputException("Unsupported import format: " + contentType);
+	}
+
+}
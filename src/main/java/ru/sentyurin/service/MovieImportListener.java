@@ -0,0 +1,16 @@
+package ru.sentyurin.service;
+
+import ru.sentyurin.controller.dto.ImportProgressDto;
+import ru.sentyurin.controller.dto.ImportRejectionDto;
+
+/**
+ * Receives the outcome of a running import. Both methods are called on the
+ * importing thread after the chunk concerned has been committed.
+ */
+public interface MovieImportListener {
+
+	void onRowRejected(ImportRejectionDto rejection);
+
+	void onProgress(ImportProgressDto progress);
+
+}
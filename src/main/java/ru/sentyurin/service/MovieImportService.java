@@ -0,0 +1,13 @@
+package ru.sentyurin.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import ru.sentyurin.controller.dto.ImportProgressDto;
+
+public interface MovieImportService {
+
+	ImportProgressDto importMovies(InputStream input, MovieDataFormat format,
+			MovieImportListener listener) throws IOException;
+
+}
@@ -1,18 +1,49 @@
 package ru.sentyurin.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.MovieIncomingDto;
 import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieFilter;
 
 public interface MovieService {
 
 	MovieOutgoingDto createMovie(MovieIncomingDto movie);
 
+	List<BatchItemResultDto> createMovies(List<MovieIncomingDto> movies);
+
 	List<MovieOutgoingDto> getMovies();
 
+	List<MovieOutgoingDto> getMovies(Fieldset fields);
+
+	CursorPage<MovieOutgoingDto> getMovies(Integer after, int limit);
+
+	CursorPage<MovieOutgoingDto> getMovies(MovieFilter filter, Integer after, int limit);
+
+	CursorPage<MovieOutgoingDto> getMovies(MovieFilter filter, Integer after, int limit,
+			Fieldset fields);
+
+	List<MovieOutgoingDto> searchMovies(String query, int offset, int limit);
+
+	List<MovieOutgoingDto> searchMovies(String query, int offset, int limit, Fieldset fields);
+
+	void forEachMovie(Consumer<MovieOutgoingDto> action);
+
+	void forEachMovie(Fieldset fields, Consumer<MovieOutgoingDto> action);
+
+	long exportMovies(MovieDataFormat format, Integer releaseYearFrom, Integer releaseYearTo,
+			Integer directorId, OutputStream output) throws IOException;
+
 	Optional<MovieOutgoingDto> getMovieById(Integer id);
+
+	Optional<MovieOutgoingDto> getMovieById(Integer id, Fieldset fields);
 	
 	MovieOutgoingDto updateMovie(MovieIncomingDto movie);
 
@@ -0,0 +1,633 @@
+package ru.sentyurin.service.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import ru.sentyurin.controller.dto.SuggestionDto;
+import ru.sentyurin.controller.dto.SuggestionDto.Type;
+
+/**
+ * In-memory prefix index over movie titles and director names: a radix trie
+ * over the text of the entries ignoring leading white space and case. Every node
+ * above more than {@value #MAX_SUGGESTIONS} entries keeps the best
+ * {@value #MAX_SUGGESTIONS} of them in order, so a lookup walks the characters
+ * of the prefix and copies a list however many entries share it; a smaller
+ * subtree is collected and sorted. An entry alone under its prefix is a leaf by
+ * itself, and node labels are read from the display text of an entry below
+ * them, so no folded text is stored.
+ * <p>
+ * An entry scores by recency: a movie by its release year, a director by the
+ * latest release year of its movies. Higher scores come first, then text order.
+ * A director's score only grows between rebuilds; moving or deleting its latest
+ * movie does not lower it.
+ * <p>
+ * The index holds at most {@code maxEntries} entries. A rebuild keeps the best
+ * of them; past the cap, new entries are left out until the next rebuild, while
+ * indexed ones are still updated and removed.
+ * <p>
+ * Lookups do not lock: they read an immutable trie, which a change replaces
+ * along the path of the changed entry. Changes are serialised on the index.
+ */
+public class AutocompleteIndex implements AutocompleteLoader {
+	static final int MAX_SUGGESTIONS = 20;
+
+	/** Folded text, then type and ID, so that equal texts do not collide */
+	private static final Comparator<Entry> TEXT_ORDER = AutocompleteIndex::compareText;
+	private static final Comparator<Entry> BEST_FIRST = Comparator
+			.comparingInt((Entry entry) -> entry.score).reversed().thenComparing(TEXT_ORDER);
+	private static final Object[] NO_CHILDREN = {};
+	private static final Entry[] NO_ENTRIES = {};
+	private static final Node EMPTY = new Node(null, 0, 0, NO_CHILDREN, NO_ENTRIES, 0, null);
+
+	private final int maxEntries;
+	private IntTable<Entry> movies = new IntTable<>();
+	private IntTable<Director> directors = new IntTable<>();
+	private volatile Node root = EMPTY;
+
+	public AutocompleteIndex(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns at most {@code limit} (capped at {@value #MAX_SUGGESTIONS})
+	 * suggestions whose text starts with {@code prefix}, ignoring case
+	 */
+	public List<SuggestionDto> suggest(String prefix, int limit) {
+		String key = prefix == null ? "" : fold(prefix);
+		int size = Math.min(limit, MAX_SUGGESTIONS);
+		if (key.isEmpty() || size < 1)
+			return List.of();
+		Object match = find(root, key);
+		if (match == null)
+			return List.of();
+		if (match instanceof Entry entry)
+			return List.of(entry.toSuggestion());
+		Node node = (Node) match;
+		List<Entry> best = node.best != null ? Arrays.asList(node.best) : collectBest(node);
+		return best.stream().limit(size).map(Entry::toSuggestion).toList();
+	}
+
+	@Override
+	public synchronized void putMovie(Integer id, String title, int releaseYear,
+			Integer directorId) {
+		Entry previous = movies.get(id);
+		Director director = directorOf(directors, directorId);
+		boolean unchanged = previous != null && previous.text.equals(title)
+				&& previous.score == releaseYear && previous.directorId == directorId;
+		if (!unchanged && (previous != null || root.size < maxEntries)) {
+			Entry movie = new Entry(Type.MOVIE, id, title, releaseYear, directorId);
+			if (previous != null)
+				directors.get(previous.directorId).unlink(previous);
+			movies.put(id, movie);
+			director.link(movie);
+			replace(previous, movie);
+		}
+		if (director.latestYear < releaseYear) {
+			director.latestYear = releaseYear;
+			if (director.entry != null) {
+				Entry rescored = director.entry.withScore(releaseYear);
+				replace(director.entry, rescored);
+				director.entry = rescored;
+			}
+		}
+	}
+
+	@Override
+	public synchronized void putDirector(Integer id, String name) {
+		Director director = directorOf(directors, id);
+		Entry previous = director.entry;
+		if (previous == null ? root.size >= maxEntries : previous.text.equals(name))
+			return;
+		director.entry = new Entry(Type.DIRECTOR, id, name, director.latestYear, 0);
+		replace(previous, director.entry);
+	}
+
+	public synchronized void removeMovie(Integer id) {
+		Entry movie = movies.remove(id);
+		if (movie == null)
+			return;
+		directors.get(movie.directorId).unlink(movie);
+		replace(movie, null);
+	}
+
+	/**
+	 * Removes the director and all of its movies
+	 */
+	public synchronized void removeDirector(Integer id) {
+		Director director = directors.remove(id);
+		if (director == null)
+			return;
+		Node node = director.entry == null ? root : remove(root, director.entry);
+		for (Entry movie = director.firstMovie, next; movie != null; movie = next) {
+			next = movie.nextMovie;
+			movie.nextMovie = null;
+			movies.remove(movie.id);
+			node = remove(node, movie);
+		}
+		root = node;
+	}
+
+	/**
+	 * Replaces the content of the index with the entries passed by {@code load}
+	 * to its loader. The trie is built once they are all known and lookups see
+	 * the previous content until then; changes wait for the rebuild.
+	 */
+	public synchronized void rebuild(Consumer<AutocompleteLoader> load) {
+		IntTable<Entry> loadedMovies = new IntTable<>();
+		IntTable<Director> loadedDirectors = new IntTable<>();
+		load.accept(new AutocompleteLoader() {
+
+			@Override
+			public void putMovie(Integer id, String title, int releaseYear,
+					Integer directorId) {
+				Entry movie = new Entry(Type.MOVIE, id, title, releaseYear, directorId);
+				Entry previous = loadedMovies.put(id, movie);
+				if (previous != null)
+					loadedDirectors.get(previous.directorId).unlink(previous);
+				Director director = directorOf(loadedDirectors, directorId);
+				director.link(movie);
+				director.latestYear = Math.max(director.latestYear, releaseYear);
+			}
+
+			@Override
+			public void putDirector(Integer id, String name) {
+				directorOf(loadedDirectors, id).entry = new Entry(Type.DIRECTOR, id, name, 0,
+						0);
+			}
+		});
+
+		List<Entry> entries = new ArrayList<>(loadedMovies.size() + loadedDirectors.size());
+		loadedMovies.forEach(entries::add);
+		loadedDirectors.forEach(director -> {
+			if (director.entry != null) {
+				director.entry = director.entry.withScore(director.latestYear);
+				entries.add(director.entry);
+			}
+		});
+		if (entries.size() > maxEntries) {
+			entries.sort(BEST_FIRST);
+			for (Entry dropped : entries.subList(maxEntries, entries.size())) {
+				if (dropped.type == Type.MOVIE) {
+					loadedMovies.remove(dropped.id);
+					loadedDirectors.get(dropped.directorId).unlink(dropped);
+				} else {
+					loadedDirectors.get(dropped.id).entry = null;
+				}
+			}
+			entries.subList(maxEntries, entries.size()).clear();
+		}
+		Entry[] sorted = entries.toArray(NO_ENTRIES);
+		Arrays.sort(sorted, TEXT_ORDER);
+
+		movies = loadedMovies;
+		directors = loadedDirectors;
+		root = sorted.length == 0 ? EMPTY : branch(sorted, 0, sorted.length, 0, 0);
+	}
+
+	public synchronized void clear() {
+		movies = new IntTable<>();
+		directors = new IntTable<>();
+		root = EMPTY;
+	}
+
+	public int size() {
+		return root.size;
+	}
+
+	private void replace(Entry previous, Entry next) {
+		Node node = root;
+		if (previous != null)
+			node = remove(node, previous);
+		if (next != null)
+			node = insert(node, next);
+		root = node;
+	}
+
+	private static Director directorOf(IntTable<Director> directors, int id) {
+		Director director = directors.get(id);
+		if (director == null) {
+			director = new Director();
+			directors.put(id, director);
+		}
+		return director;
+	}
+
+	/**
+	 * Returns the node or the leaf above exactly the entries whose folded text
+	 * starts with {@code key}, or {@code null} if there are none
+	 */
+	private static Object find(Node root, String key) {
+		Node node = root;
+		while (node.depth < key.length()) {
+			Object child = childAt(node, key.charAt(node.depth));
+			if (child == null)
+				return null;
+			Entry source = sourceOf(child);
+			int end = Math.min(endOf(child), key.length());
+			for (int i = node.depth + 1; i < end; i++) {
+				if (source.key(i) != key.charAt(i))
+					return null;
+			}
+			if (end == key.length())
+				return child;
+			if (child instanceof Entry)
+				return null;
+			node = (Node) child;
+		}
+		return node;
+	}
+
+	/**
+	 * Returns {@code node} with {@code entry} added below it, copying the nodes
+	 * on its path. The path to {@code node} must match the text of {@code entry}.
+	 */
+	private static Node insert(Node node, Entry entry) {
+		int depth = node.depth;
+		Object[] children = node.children;
+		Entry[] ends = node.ends;
+		if (entry.keyLength() == depth) {
+			ends = insertAt(ends, ends.length, entry);
+		} else {
+			int index = indexOf(children, depth, entry.key(depth));
+			if (index < 0)
+				children = insertAt(children, -index - 1, entry);
+			else
+				children = replaceAt(children, index, insertBelow(children[index], entry, depth));
+		}
+		int size = node.size + 1;
+		Entry[] best = node.best == null ? null : withBest(node.best, entry);
+		return best == null ? node(node.source, node.from, depth, children, ends, size)
+				: new Node(node.source, node.from, depth, children, ends, size, best);
+	}
+
+	/**
+	 * Adds {@code entry} to {@code child}, a leaf or a node whose label starts at
+	 * {@code from}, splitting the label where the text of {@code entry} leaves it
+	 */
+	private static Node insertBelow(Object child, Entry entry, int from) {
+		Entry source = sourceOf(child);
+		int end = Math.min(endOf(child), entry.keyLength());
+		int split = from + 1;
+		while (split < end && source.key(split) == entry.key(split))
+			split++;
+		if (child instanceof Node node && split == node.depth)
+			return insert(node, entry);
+		Object lower = child instanceof Node node ? node.withFrom(split) : child;
+		List<Object> parts = new ArrayList<>(2);
+		parts.add(lower);
+		parts.add(entry);
+		return node(source, from, split, parts);
+	}
+
+	/**
+	 * Returns {@code node} without {@code entry}: {@code node} itself if
+	 * {@code entry} is not below it, otherwise a copy or, unless {@code node} is
+	 * the root, its only remaining part
+	 */
+	private static Node remove(Node root, Entry entry) {
+		return (Node) removeBelow(root, entry);
+	}
+
+	private static Object removeBelow(Node node, Entry entry) {
+		int depth = node.depth;
+		Object[] children = node.children;
+		Entry[] ends = node.ends;
+		if (entry.keyLength() == depth) {
+			int index = Arrays.asList(ends).indexOf(entry);
+			if (index < 0)
+				return node;
+			ends = removeAt(ends, index);
+		} else if (entry.keyLength() > depth) {
+			int index = indexOf(children, depth, entry.key(depth));
+			if (index < 0)
+				return node;
+			Object child = children[index];
+			Object remaining = child instanceof Node childNode ? removeBelow(childNode, entry)
+					: child == entry ? null : child;
+			if (remaining == child)
+				return node;
+			children = remaining == null ? removeAt(children, index)
+					: replaceAt(children, index, remaining);
+		} else {
+			return node;
+		}
+		if (depth > 0 && ends.length + children.length == 1) {
+			if (ends.length == 1)
+				return ends[0];
+			return children[0] instanceof Node only ? only.withFrom(node.from) : children[0];
+		}
+		int size = node.size - 1;
+		Entry[] best = null;
+		if (size > MAX_SUGGESTIONS)
+			best = Arrays.asList(node.best).contains(entry) ? bestOf(children, ends) : node.best;
+		return new Node(node.source, node.from, depth, children, ends, size, best);
+	}
+
+	/**
+	 * Builds the subtree of {@code sorted} entries from {@code lo} to {@code hi},
+	 * which share their text up to {@code from}
+	 */
+	private static Object build(Entry[] sorted, int lo, int hi, int from) {
+		if (hi - lo == 1)
+			return sorted[lo];
+		// the first and the last entry share the least
+		Entry first = sorted[lo];
+		Entry last = sorted[hi - 1];
+		int end = Math.min(first.keyLength(), last.keyLength());
+		int depth = from + 1;
+		while (depth < end && first.key(depth) == last.key(depth))
+			depth++;
+		return branch(sorted, lo, hi, from, depth);
+	}
+
+	private static Node branch(Entry[] sorted, int lo, int hi, int from, int depth) {
+		int start = lo;
+		while (start < hi && sorted[start].keyLength() == depth)
+			start++;
+		Entry[] ends = start == lo ? NO_ENTRIES : Arrays.copyOfRange(sorted, lo, start);
+		List<Object> children = new ArrayList<>();
+		while (start < hi) {
+			char key = sorted[start].key(depth);
+			int next = start + 1;
+			while (next < hi && sorted[next].key(depth) == key)
+				next++;
+			children.add(build(sorted, start, next, depth));
+			start = next;
+		}
+		return node(sorted[lo], from, depth, children.toArray(), ends, hi - lo);
+	}
+
+	/**
+	 * Returns a node holding {@code parts}, entries and nodes whose text goes
+	 * through {@code source} up to {@code depth}
+	 */
+	private static Node node(Entry source, int from, int depth, List<Object> parts) {
+		List<Entry> ends = new ArrayList<>();
+		List<Object> children = new ArrayList<>();
+		int size = 0;
+		for (Object part : parts) {
+			if (part instanceof Entry entry && entry.keyLength() == depth)
+				ends.add(entry);
+			else
+				children.add(part);
+			size += part instanceof Node node ? node.size : 1;
+		}
+		children.sort(Comparator.comparing(child -> sourceOf(child).key(depth)));
+		return node(source, from, depth, children.toArray(), ends.toArray(NO_ENTRIES), size);
+	}
+
+	private static Node node(Entry source, int from, int depth, Object[] children,
+			Entry[] ends, int size) {
+		return new Node(source, from, depth, children, ends, size,
+				size > MAX_SUGGESTIONS ? bestOf(children, ends) : null);
+	}
+
+	/**
+	 * Merges the best entries of the parts of a node. The entries of a child node
+	 * come in order, so the first that does not make it ends the child.
+	 */
+	private static Entry[] bestOf(Object[] children, Entry[] ends) {
+		Entry[] best = NO_ENTRIES;
+		for (Entry end : ends)
+			best = withBest(best, end);
+		for (Object child : children) {
+			if (child instanceof Entry entry) {
+				best = withBest(best, entry);
+				continue;
+			}
+			Node node = (Node) child;
+			for (Entry entry : node.best != null ? Arrays.asList(node.best) : collectBest(node)) {
+				Entry[] merged = withBest(best, entry);
+				if (merged == best)
+					break;
+				best = merged;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns {@code best} with {@code entry} in its place, or {@code best} itself
+	 * if {@code entry} does not make it
+	 */
+	private static Entry[] withBest(Entry[] best, Entry entry) {
+		int position = Arrays.binarySearch(best, entry, BEST_FIRST);
+		position = position < 0 ? -position - 1 : position;
+		if (position >= MAX_SUGGESTIONS)
+			return best;
+		Entry[] merged = insertAt(best, position, entry);
+		return merged.length > MAX_SUGGESTIONS ? Arrays.copyOf(merged, MAX_SUGGESTIONS) : merged;
+	}
+
+	private static List<Entry> collectBest(Node node) {
+		List<Entry> entries = new ArrayList<>(node.size);
+		collect(node, entries);
+		entries.sort(BEST_FIRST);
+		return entries;
+	}
+
+	private static void collect(Node node, List<Entry> entries) {
+		entries.addAll(Arrays.asList(node.ends));
+		for (Object child : node.children) {
+			if (child instanceof Entry entry)
+				entries.add(entry);
+			else
+				collect((Node) child, entries);
+		}
+	}
+
+	private static Object childAt(Node node, char key) {
+		int index = indexOf(node.children, node.depth, key);
+		return index < 0 ? null : node.children[index];
+	}
+
+	/**
+	 * Binary search of children ordered by their folded character at
+	 * {@code depth}
+	 */
+	private static int indexOf(Object[] children, int depth, char key) {
+		int low = 0;
+		int high = children.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char middleKey = sourceOf(children[middle]).key(depth);
+			if (middleKey < key)
+				low = middle + 1;
+			else if (middleKey > key)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -(low + 1);
+	}
+
+	private static Entry sourceOf(Object child) {
+		return child instanceof Node node ? node.source : (Entry) child;
+	}
+
+	private static int endOf(Object child) {
+		return child instanceof Node node ? node.depth : ((Entry) child).keyLength();
+	}
+
+	private static <T> T[] insertAt(T[] array, int index, T element) {
+		T[] copy = Arrays.copyOf(array, array.length + 1);
+		System.arraycopy(array, index, copy, index + 1, array.length - index);
+		copy[index] = element;
+		return copy;
+	}
+
+	private static <T> T[] replaceAt(T[] array, int index, T element) {
+		T[] copy = array.clone();
+		copy[index] = element;
+		return copy;
+	}
+
+	private static <T> T[] removeAt(T[] array, int index) {
+		T[] copy = Arrays.copyOf(array, array.length - 1);
+		System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+		return copy;
+	}
+
+	/**
+	 * Orders entries by text ignoring leading white space and case, then by type
+	 * and ID
+	 */
+	private static int compareText(Entry left, Entry right) {
+		int length = Math.min(left.keyLength(), right.keyLength());
+		for (int i = 0; i < length; i++) {
+			int difference = Character.compare(left.key(i), right.key(i));
+			if (difference != 0)
+				return difference;
+		}
+		int difference = Integer.compare(left.keyLength(), right.keyLength());
+		if (difference != 0)
+			return difference;
+		difference = left.type.compareTo(right.type);
+		return difference != 0 ? difference : Integer.compare(left.id, right.id);
+	}
+
+	private static String fold(String text) {
+		int start = start(text);
+		StringBuilder folded = new StringBuilder(text.length() - start);
+		for (int i = start; i < text.length(); i++)
+			folded.append(fold(text.charAt(i)));
+		return folded.toString();
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(c);
+	}
+
+	private static int start(String text) {
+		int start = 0;
+		while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+			start++;
+		return start;
+	}
+
+	/**
+	 * A movie or a director. Its key is its display text from the first
+	 * character that is not white space, folded one character at a time.
+	 */
+	private static final class Entry {
+		final Type type;
+		final int id;
+		final String text;
+		final int start;
+		final int score;
+		/** Set for movies only */
+		final int directorId;
+		/** Next movie of the same director, changed under the lock of the index */
+		Entry nextMovie;
+
+		Entry(Type type, int id, String text, int score, int directorId) {
+			this.type = type;
+			this.id = id;
+			this.text = text;
+			start = start(text);
+			this.score = score;
+			this.directorId = directorId;
+		}
+
+		int keyLength() {
+			return text.length() - start;
+		}
+
+		char key(int index) {
+			return fold(text.charAt(start + index));
+		}
+
+		Entry withScore(int newScore) {
+			return new Entry(type, id, text, newScore, directorId);
+		}
+
+		SuggestionDto toSuggestion() {
+			return new SuggestionDto(type, id, text);
+		}
+	}
+
+	/**
+	 * A node of the trie, never changed once built. Its label is the key of
+	 * {@code source} from {@code from} to {@code depth}; its children, entries
+	 * and nodes, are ordered by their key at {@code depth}, and {@code ends} are
+	 * the entries whose key ends at {@code depth}.
+	 */
+	private static final class Node {
+		final Entry source;
+		final int from;
+		final int depth;
+		final Object[] children;
+		final Entry[] ends;
+		/** Number of entries below */
+		final int size;
+		/** The best entries below in order, or {@code null} for a small subtree */
+		final Entry[] best;
+
+		Node(Entry source, int from, int depth, Object[] children, Entry[] ends, int size,
+				Entry[] best) {
+			this.source = source;
+			this.from = from;
+			this.depth = depth;
+			this.children = children;
+			this.ends = ends;
+			this.size = size;
+			this.best = best;
+		}
+
+		Node withFrom(int newFrom) {
+			return new Node(source, newFrom, depth, children, ends, size, best);
+		}
+	}
+
+	/**
+	 * A director's entry, if indexed, its score and its indexed movies, linked
+	 * through {@link Entry#nextMovie}
+	 */
+	private static final class Director {
+		Entry entry;
+		int latestYear;
+		Entry firstMovie;
+
+		void link(Entry movie) {
+			movie.nextMovie = firstMovie;
+			firstMovie = movie;
+		}
+
+		void unlink(Entry movie) {
+			if (firstMovie == movie) {
+				firstMovie = movie.nextMovie;
+			} else {
+				Entry previous = firstMovie;
+				while (previous != null && previous.nextMovie != movie)
+					previous = previous.nextMovie;
+				if (previous != null)
+					previous.nextMovie = movie.nextMovie;
+			}
+			movie.nextMovie = null;
+		}
+	}
+
+}
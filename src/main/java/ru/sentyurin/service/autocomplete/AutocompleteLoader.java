@@ -0,0 +1,13 @@
+package ru.sentyurin.service.autocomplete;
+
+/**
+ * Receives movies and directors for an {@link AutocompleteIndex}, either one
+ * change at a time or as the whole content of a rebuild
+ */
+public interface AutocompleteLoader {
+
+	void putMovie(Integer id, String title, int releaseYear, Integer directorId);
+
+	void putDirector(Integer id, String name);
+
+}
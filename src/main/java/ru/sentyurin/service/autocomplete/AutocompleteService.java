@@ -0,0 +1,121 @@
+package ru.sentyurin.service.autocomplete;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.controller.dto.SuggestionDto;
+import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.service.cache.CatalogVersion;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
+
+/**
+ * Keeps an {@link AutocompleteIndex} of the whole catalog, or of its best
+ * {@code autocomplete.max_entries} titles and names. The index is built with one
+ * streaming scan when the context starts and then follows every committed
+ * {@link CatalogChangedEvent}, so suggestions never query the database.
+ */
+@Service
+public class AutocompleteService {
+
+	private final AutocompleteIndex index;
+	private final MovieRepository movieRepository;
+	private final DirectorRepository directorRepository;
+	private final TransactionTemplate readOnlyTransaction;
+	private final ApplicationContext applicationContext;
+
+	@Autowired
+	public AutocompleteService(MovieRepository movieRepository,
+			DirectorRepository directorRepository,
+			PlatformTransactionManager transactionManager,
+			ApplicationContext applicationContext,
+			@Value("${autocomplete.max_entries:2000000}") int maxEntries) {
+		index = new AutocompleteIndex(maxEntries);
+		this.movieRepository = movieRepository;
+		this.directorRepository = directorRepository;
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+		this.applicationContext = applicationContext;
+	}
+
+	/**
+	 * Returns at most {@code limit} movie titles and director names starting with
+	 * {@code prefix}, most recent first
+	 */
+	public List<SuggestionDto> suggest(String prefix, int limit) {
+		return index.suggest(prefix, limit);
+	}
+
+	/**
+	 * Builds the index when its own context is refreshed. A refresh of a child
+	 * context is published to this one too and is ignored.
+	 */
+	@EventListener
+	public void onContextRefreshed(ContextRefreshedEvent event) {
+		if (event.getApplicationContext() == applicationContext)
+			rebuild();
+	}
+
+	/**
+	 * Replaces the content of the index with the current catalog
+	 */
+	public void rebuild() {
+		index.rebuild(loader -> readOnlyTransaction.executeWithoutResult(status -> {
+			try (Stream<MovieOutgoingDto> rows = directorRepository.streamAllAsMovieRows()) {
+				rows.forEach(row -> put(loader, row));
+			}
+		}));
+	}
+
+	/**
+	 * Applies a committed change to the index. Runs before {@link CatalogVersion}
+	 * moves on, so that suggestions validated against the new catalog version
+	 * already contain the change.
+	 */
+	@Order(CatalogVersion.INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if (event.getChangeType() == ChangeType.DELETED) {
+			if (event.getEntityType() == EntityType.MOVIE)
+				index.removeMovie(event.getId());
+			else
+				index.removeDirector(event.getId());
+		} else if (event.getEntityType() == EntityType.MOVIE && event.getId() != null) {
+			movieRepository.findDtoById(event.getId()).ifPresent(row -> put(index, row));
+		} else {
+			// a director or a bulk import: reload the affected directors with their movies
+			directorRepository.findAsMovieRowsByIdIn(event.getDirectorIds())
+					.forEach(row -> put(index, row));
+		}
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Puts a row of a movie joined with its director. A director without movies
+	 * comes as a row without a movie ID.
+	 */
+	private static void put(AutocompleteLoader target, MovieOutgoingDto row) {
+		if (row.getId() != null)
+			target.putMovie(row.getId(), row.getTitle(), row.getReleaseYear(),
+					row.getDirectorId());
+		target.putDirector(row.getDirectorId(), row.getDirectorName());
+	}
+
+}
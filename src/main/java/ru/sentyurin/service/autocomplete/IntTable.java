@@ -0,0 +1,107 @@
+package ru.sentyurin.service.autocomplete;
+
+import java.util.function.Consumer;
+
+/**
+ * Map from {@code int} keys to values in two arrays with linear probing, without
+ * a node or a boxed key per mapping. Not thread-safe.
+ */
+final class IntTable<V> {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] keys = new int[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int size;
+
+	V get(int key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : value(slot);
+	}
+
+	V put(int key, V value) {
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			V previous = value(slot);
+			values[slot] = value;
+			return previous;
+		}
+		if ((size + 1) * 3 > keys.length * 2)
+			resize(keys.length * 2);
+		insert(key, value);
+		size++;
+		return null;
+	}
+
+	V remove(int key) {
+		int slot = slotOf(key);
+		if (slot < 0)
+			return null;
+		V removed = value(slot);
+		values[slot] = null;
+		size--;
+		// moves back the following mappings that would no longer be reached
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int i = (slot + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+			int home = hash(keys[i]) & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				keys[hole] = keys[i];
+				values[hole] = values[i];
+				values[i] = null;
+				hole = i;
+			}
+		}
+		return removed;
+	}
+
+	void forEach(Consumer<V> action) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null)
+				action.accept(value(i));
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int slotOf(int key) {
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return i;
+		}
+		return -1;
+	}
+
+	private void insert(int key, Object value) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null)
+			i = (i + 1) & mask;
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null)
+				insert(oldKeys[i], oldValues[i]);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(int slot) {
+		return (V) values[slot];
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,125 @@
+package ru.sentyurin.service.cache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
+
+/**
+ * Size-bounded read-through cache of outgoing movie and director DTOs by ID.
+ * Eviction uses Caffeine's W-TinyLFU policy, so frequently requested IDs stay
+ * cached. Entries are invalidated after every committed change of the catalog.
+ */
+@Component
+public class CatalogCache {
+
+	private final Cache<Integer, MovieOutgoingDto> movies;
+	private final Cache<Integer, DirectorOutgoingDto> directors;
+	private final AtomicLong invalidations = new AtomicLong();
+
+	@Autowired
+	public CatalogCache(@Value("${cache.movies.maximum_size:10000}") long moviesMaximumSize,
+			@Value("${cache.directors.maximum_size:10000}") long directorsMaximumSize) {
+		movies = Caffeine.newBuilder().maximumSize(moviesMaximumSize).recordStats().build();
+		directors = Caffeine.newBuilder().maximumSize(directorsMaximumSize).recordStats()
+				.build();
+	}
+
+	public Optional<MovieOutgoingDto> getMovie(Integer id,
+			Function<Integer, Optional<MovieOutgoingDto>> loader) {
+		return get(movies, id, loader);
+	}
+
+	public Optional<DirectorOutgoingDto> getDirector(Integer id,
+			Function<Integer, Optional<DirectorOutgoingDto>> loader) {
+		return get(directors, id, loader);
+	}
+
+	/**
+	 * Returns a cached movie without loading a missing one
+	 */
+	public Optional<MovieOutgoingDto> peekMovie(Integer id) {
+		return Optional.ofNullable(movies.getIfPresent(id));
+	}
+
+	/**
+	 * Returns a cached director without loading a missing one
+	 */
+	public Optional<DirectorOutgoingDto> peekDirector(Integer id) {
+		return Optional.ofNullable(directors.getIfPresent(id));
+	}
+
+	/**
+	 * Drops every entry whose content is affected by the change: the changed
+	 * movie and the directors embedding it, or the changed director and the
+	 * movies carrying its name. Runs before {@link CatalogVersion} moves on, so
+	 * that a cached DTO is never served under the version that replaced it.
+	 */
+	@Order(CatalogVersion.INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		invalidations.incrementAndGet();
+		if (event.getEntityType() == EntityType.MOVIE) {
+			if (event.getId() != null)
+				movies.invalidate(event.getId());
+			directors.invalidateAll(event.getDirectorIds());
+		} else {
+			directors.invalidateAll(event.getDirectorIds());
+			if (event.getChangeType() != ChangeType.CREATED)
+				movies.asMap().values()
+						.removeIf(movie -> event.getId().equals(movie.getDirectorId()));
+		}
+	}
+
+	public CacheStats getMovieStats() {
+		return movies.stats();
+	}
+
+	public CacheStats getDirectorStats() {
+		return directors.stats();
+	}
+
+	public long getMovieCount() {
+		return movies.estimatedSize();
+	}
+
+	public long getDirectorCount() {
+		return directors.estimatedSize();
+	}
+
+	/**
+	 * Loads a missing value and caches it unless an invalidation happened while it
+	 * was being loaded, so that a value read before a concurrent commit is never
+	 * left in the cache
+	 */
+	private <T> Optional<T> get(Cache<Integer, T> cache, Integer id,
+			Function<Integer, Optional<T>> loader) {
+		T cached = cache.getIfPresent(id);
+		if (cached != null)
+			return Optional.of(cached);
+		long stamp = invalidations.get();
+		Optional<T> loaded = loader.apply(id);
+		if (loaded.isPresent()) {
+			cache.put(id, loaded.get());
+			if (invalidations.get() != stamp)
+				cache.asMap().remove(id, loaded.get());
+		}
+		return loaded;
+	}
+
+}
@@ -0,0 +1,165 @@
+package ru.sentyurin.service.cache;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.annotation.PreDestroy;
+import ru.sentyurin.service.DirectorService;
+import ru.sentyurin.service.MovieService;
+import ru.sentyurin.service.cache.CatalogVersion.Stamp;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+
+/**
+ * Serialised JSON, plain and compressed with every offered content coding, of
+ * all movies and of all directors, as returned by
+ * {@link MovieService#getMovies()} and {@link DirectorService#getDirectors()}.
+ * The bodies are built together and
+ * labelled with the {@link CatalogVersion} stamp read before building, and are
+ * only served while that stamp is still the catalog stamp.
+ * <p>
+ * A committed change schedules a rebuild {@code snapshot.debounce_ms} later on
+ * a single background thread. Changes arriving before the rebuild are covered
+ * by it, and changes arriving while it runs by a single next one, so a burst of
+ * writes costs one or two rebuilds. Readers never wait for a rebuild: until it
+ * completes they get nothing and read the catalog as usual. The first read
+ * schedules the first build.
+ * <p>
+ * Closing cancels a pending rebuild and waits for a running one, so that no
+ * rebuild reads the catalog once the persistence layer has shut down.
+ */
+@Component
+public class CatalogSnapshot {
+	private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+	private static final ObjectWriter WRITER = Jackson2ObjectMapperBuilder.json().build()
+			.writer();
+	private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+	private final MovieService movieService;
+	private final DirectorService directorService;
+	private final CatalogVersion catalogVersion;
+	private final ResponseCompression responseCompression;
+	private final long debounceMs;
+	private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+			Thread.ofVirtual().name("catalog-snapshot").factory());
+	private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+	private volatile Snapshot snapshot;
+
+	@Autowired
+	public CatalogSnapshot(MovieService movieService, DirectorService directorService,
+			CatalogVersion catalogVersion, ResponseCompression responseCompression,
+			@Value("${snapshot.debounce_ms:200}") long debounceMs) {
+		this.movieService = movieService;
+		this.directorService = directorService;
+		this.catalogVersion = catalogVersion;
+		this.responseCompression = responseCompression;
+		this.debounceMs = debounceMs;
+		scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Returns the body of all movies, or nothing if the snapshot is being rebuilt
+	 */
+	public Optional<Body> getMovies() {
+		return current().map(Snapshot::movies);
+	}
+
+	/**
+	 * Returns the body of all directors, or nothing if the snapshot is being
+	 * rebuilt
+	 */
+	public Optional<Body> getDirectors() {
+		return current().map(Snapshot::directors);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		scheduleRebuild();
+	}
+
+	/**
+	 * Cancels a pending rebuild and waits for a running one to finish; one still
+	 * running after {@value #CLOSE_TIMEOUT_SECONDS} seconds is interrupted
+	 */
+	@PreDestroy
+	public void close() throws InterruptedException {
+		scheduler.shutdown();
+		if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			scheduler.shutdownNow();
+	}
+
+	/**
+	 * Builds the snapshot of the current catalog, and schedules another build if
+	 * the catalog changed meanwhile. A failed build is logged and retried on the
+	 * next read.
+	 */
+	void rebuild() {
+		Stamp stamp = catalogVersion.getCatalogStamp();
+		try {
+			snapshot = new Snapshot(stamp, toBody(movieService.getMovies()),
+					toBody(directorService.getDirectors()));
+		} catch (RuntimeException | IOException e) {
+			log.warn("Catalog snapshot of version {} could not be built", stamp.version(), e);
+			rebuildScheduled.set(false);
+			return;
+		}
+		rebuildScheduled.set(false);
+		if (catalogVersion.getCatalogStamp().version() != stamp.version())
+			scheduleRebuild();
+	}
+
+	private Optional<Snapshot> current() {
+		Snapshot current = snapshot;
+		if (current != null
+				&& current.stamp().version() == catalogVersion.getCatalogStamp().version())
+			return Optional.of(current);
+		scheduleRebuild();
+		return Optional.empty();
+	}
+
+	/**
+	 * Schedules a rebuild unless one is already scheduled or the snapshot is
+	 * closed
+	 */
+	private void scheduleRebuild() {
+		if (rebuildScheduled.compareAndSet(false, true)) {
+			try {
+				scheduler.schedule(this::rebuild, debounceMs, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				log.debug("Catalog snapshot is closed, no rebuild scheduled");
+			}
+		}
+	}
+
+	private Body toBody(Object value) throws IOException {
+		byte[] json = WRITER.writeValueAsBytes(value);
+		return new Body(json, responseCompression.precompress(json));
+	}
+
+	/**
+	 * Serialised body, and its compressed forms by content coding; the arrays are
+	 * shared and must not be modified
+	 */
+	public record Body(byte[] json, Map<ContentEncoding, byte[]> compressed) {
+	}
+
+	private record Snapshot(Stamp stamp, Body movies, Body directors) {
+	}
+
+}
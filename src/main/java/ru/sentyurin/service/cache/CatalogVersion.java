@@ -0,0 +1,152 @@
+package ru.sentyurin.service.cache;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
+
+/**
+ * In-memory version of the catalog and of recently changed movies and
+ * directors, advanced by every committed {@link CatalogChangedEvent}. The
+ * versions let HTTP validators be checked without touching the database.
+ * <p>
+ * Every change takes the next value of one global counter, so a version is
+ * never reused. An entity not changed since startup has the startup version.
+ * A change to a director's name, a deleted director and a bulk import all
+ * alter movies that are not named in the event, so they raise a floor under
+ * the versions of all movies.
+ * <p>
+ * At most {@code cache.versions.maximum_size} versions of each kind are kept.
+ * Evicting one raises the floor of its kind to it, so an entity never goes back
+ * to a version it had before; unchanged entities of that kind get a new version
+ * instead.
+ * <p>
+ * Changes are a whole second apart in {@code Last-Modified}, which may run ahead
+ * of the clock while writes come faster than one a second.
+ * <p>
+ * The listener runs after those dropping cached content, so that a request
+ * validated against a new version never reads content of the old one.
+ */
+@Component
+public class CatalogVersion {
+	/** Order of the after-commit listeners that drop cached catalog content */
+	public static final int INVALIDATION_ORDER = Ordered.HIGHEST_PRECEDENCE;
+	/** Order of {@link #onCatalogChanged}, after every invalidation */
+	public static final int ORDER = 0;
+
+	private final long epoch = System.currentTimeMillis();
+	private final AtomicReference<Stamp> last = new AtomicReference<>(new Stamp(0, epoch));
+	private final Cache<Integer, Stamp> movies;
+	private final Cache<Integer, Stamp> directors;
+	private final AtomicReference<Stamp> movieFloor;
+	private final AtomicReference<Stamp> directorFloor;
+	private volatile Stamp catalog = last.get();
+
+	@Autowired
+	public CatalogVersion(@Value("${cache.versions.maximum_size:100000}") long maximumSize) {
+		movieFloor = new AtomicReference<>(catalog);
+		directorFloor = new AtomicReference<>(catalog);
+		movies = versions(maximumSize, movieFloor);
+		directors = versions(maximumSize, directorFloor);
+	}
+
+	@Order(ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		Stamp stamp = nextStamp();
+		if (event.getEntityType() == EntityType.MOVIE) {
+			if (event.getId() != null)
+				movies.put(event.getId(), stamp);
+			else
+				raise(movieFloor, stamp);
+		} else if (event.getChangeType() != ChangeType.CREATED) {
+			raise(movieFloor, stamp);
+		}
+		event.getDirectorIds().forEach(directorId -> directors.put(directorId, stamp));
+		catalog = stamp;
+	}
+
+	/**
+	 * Returns the stamp of the last change of any kind
+	 */
+	public Stamp getCatalogStamp() {
+		return catalog;
+	}
+
+	public Stamp getMovieStamp(Integer id) {
+		return stampOf(movies, movieFloor, id);
+	}
+
+	public Stamp getDirectorStamp(Integer id) {
+		return stampOf(directors, directorFloor, id);
+	}
+
+	/**
+	 * Returns a weak entity tag of {@code stamp}. The startup time is part of the
+	 * tag, so tags issued before a restart never match.
+	 */
+	public String toETag(Stamp stamp) {
+		return "W/\"" + Long.toString(epoch, Character.MAX_RADIX) + '.' + stamp.version() + '"';
+	}
+
+	/**
+	 * Takes the next version. HTTP dates have a resolution of one second, so the
+	 * time is rounded up to a whole second later than that of the previous
+	 * change: a client revalidating with {@code If-Modified-Since} alone never
+	 * misses a change made within the second it has read.
+	 */
+	private Stamp nextStamp() {
+		long now = System.currentTimeMillis();
+		return last.updateAndGet(previous -> new Stamp(previous.version() + 1,
+				Math.max(ceilToSecond(now), floorToSecond(previous.lastModified()) + 1000)));
+	}
+
+	private static long ceilToSecond(long millis) {
+		return -Math.floorDiv(-millis, 1000) * 1000;
+	}
+
+	private static long floorToSecond(long millis) {
+		return Math.floorDiv(millis, 1000) * 1000;
+	}
+
+	private static Cache<Integer, Stamp> versions(long maximumSize, AtomicReference<Stamp> floor) {
+		return Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run)
+				.<Integer, Stamp>evictionListener((id, stamp, cause) -> {
+					if (cause.wasEvicted())
+						raise(floor, stamp);
+				}).build();
+	}
+
+	private static Stamp stampOf(Cache<Integer, Stamp> versions, AtomicReference<Stamp> floor,
+			Integer id) {
+		// the floor is raised before an evicted version disappears, so it is read second
+		Stamp stamp = versions.getIfPresent(id);
+		Stamp lowest = floor.get();
+		return stamp == null || stamp.version() < lowest.version() ? lowest : stamp;
+	}
+
+	private static void raise(AtomicReference<Stamp> floor, Stamp stamp) {
+		floor.accumulateAndGet(stamp,
+				(current, next) -> next.version() > current.version() ? next : current);
+	}
+
+	/**
+	 * @param version      value of the global change counter
+	 * @param lastModified time of the change in epoch milliseconds, a whole second
+	 *                     later than that of the previous change
+	 */
+	public record Stamp(long version, long lastModified) {
+	}
+
+}
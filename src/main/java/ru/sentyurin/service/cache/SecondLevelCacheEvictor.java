@@ -0,0 +1,91 @@
+package ru.sentyurin.service.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.model.Movie;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
+
+/**
+ * Keeps the Hibernate second-level cache consistent with changes that Hibernate
+ * does not see: versioned updates run as native statements, and bulk import
+ * runs as {@code COPY}. Neither evicts the changed entities, and neither
+ * invalidates the cached query results of their tables. Creating or deleting a
+ * movie through Hibernate does not update the cached movie list of its director
+ * either, since the list is mapped on the director side.
+ * <p>
+ * A versioned update invalidates twice, as Hibernate does around its own bulk
+ * statements: before the statement, within its transaction, and again after
+ * the transaction completes. In between, a concurrent session can still read
+ * the old rows, but the query results it caches are never taken as current.
+ */
+@Component
+public class SecondLevelCacheEvictor {
+	static final String DIRECTOR_MOVIES_ROLE = Director.class.getName() + ".movies";
+
+	private final EntityManagerFactory entityManagerFactory;
+	private final Cache cache;
+
+	@Autowired
+	public SecondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+		cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+	}
+
+	/**
+	 * Evicts the entity that a native statement of the current transaction is
+	 * about to change and marks the tables of its type as changing until the
+	 * transaction completes, committed or not. Query results over those tables
+	 * cached meanwhile are out of date at once; the mark is replaced by the
+	 * completion time.
+	 * 
+	 * @throws IllegalStateException if there is no transaction
+	 */
+	public void beforeNativeChange(EntityType entityType, Integer id) {
+		Class<?> entityClass = entityType == EntityType.MOVIE ? Movie.class : Director.class;
+		cache.evictEntityData(entityClass, id);
+		EntityManager entityManager = EntityManagerFactoryUtils
+				.getTransactionalEntityManager(entityManagerFactory);
+		if (entityManager == null)
+			throw new IllegalStateException("A native change must run in a transaction");
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		String[] spaces = session.getFactory().getMappingMetamodel()
+				.getEntityDescriptor(entityClass).getPropertySpaces();
+		TimestampsCache timestamps = session.getFactory().getCache().getTimestampsCache();
+		timestamps.preInvalidate(spaces, session);
+		session.getActionQueue().registerProcess(
+				(success, completedSession) -> timestamps.invalidate(spaces, completedSession));
+	}
+
+	/**
+	 * Evicts the changed entity, the movie lists of the affected directors and
+	 * all cached query results. Runs with the other cache invalidations, before
+	 * {@link CatalogVersion} moves on.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	@Order(CatalogVersion.INVALIDATION_ORDER)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if (event.getEntityType() == EntityType.MOVIE) {
+			if (event.getId() != null)
+				cache.evictEntityData(Movie.class, event.getId());
+		} else {
+			for (Integer directorId : event.getDirectorIds())
+				cache.evictEntityData(Director.class, directorId);
+		}
+		for (Integer directorId : event.getDirectorIds())
+			cache.evictCollectionData(DIRECTOR_MOVIES_ROLE, directorId);
+		cache.evictDefaultQueryRegion();
+	}
+
+}
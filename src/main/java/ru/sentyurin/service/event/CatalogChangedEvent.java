@@ -0,0 +1,77 @@
+package ru.sentyurin.service.event;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Published by the service layer for every create, update or delete of a movie
+ * or a director. {@code directorIds} holds the directors whose representation
+ * (embedded movie list or name) is affected by the change. {@code id} is
+ * {@code null} when several movies or directors were created at once, by a
+ * batch or a bulk import; a batch of directors lists them in
+ * {@code directorIds}.
+ */
+public class CatalogChangedEvent {
+
+	public enum EntityType {
+		MOVIE, DIRECTOR
+	}
+
+	public enum ChangeType {
+		CREATED, UPDATED, DELETED
+	}
+
+	private final EntityType entityType;
+	private final ChangeType changeType;
+	private final Integer id;
+	private final Set<Integer> directorIds;
+
+	public CatalogChangedEvent(EntityType entityType, ChangeType changeType, Integer id,
+			Set<Integer> directorIds) {
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.id = id;
+		this.directorIds = directorIds;
+	}
+
+	public static CatalogChangedEvent movieChanged(ChangeType changeType, Integer movieId,
+			Integer... directorIds) {
+		return new CatalogChangedEvent(EntityType.MOVIE, changeType, movieId, Arrays
+				.stream(directorIds).filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet()));
+	}
+
+	public static CatalogChangedEvent moviesImported(Collection<Integer> directorIds) {
+		return new CatalogChangedEvent(EntityType.MOVIE, ChangeType.CREATED, null,
+				Set.copyOf(directorIds));
+	}
+
+	public static CatalogChangedEvent directorsCreated(Collection<Integer> directorIds) {
+		return new CatalogChangedEvent(EntityType.DIRECTOR, ChangeType.CREATED, null,
+				Set.copyOf(directorIds));
+	}
+
+	public static CatalogChangedEvent directorChanged(ChangeType changeType, Integer directorId) {
+		return new CatalogChangedEvent(EntityType.DIRECTOR, changeType, directorId,
+				Set.of(directorId));
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public ChangeType getChangeType() {
+		return changeType;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Set<Integer> getDirectorIds() {
+		return directorIds;
+	}
+
+}
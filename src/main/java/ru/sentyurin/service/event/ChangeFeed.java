@@ -0,0 +1,198 @@
+package ru.sentyurin.service.event;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PreDestroy;
+import ru.sentyurin.controller.dto.ChangeDto;
+import ru.sentyurin.service.ChangeFeedListener;
+
+/**
+ * Feed of committed catalog changes. Every {@link CatalogChangedEvent} gets the
+ * next sequence number and is stored in a ring buffer of the last
+ * {@code changes.buffer_size} changes, which is shared by all subscribers. A
+ * subscriber only keeps its position in the buffer and is drained on a virtual
+ * thread of its own, so a slow subscriber neither delays the others nor holds
+ * extra memory; once the changes it has not received are overwritten it is
+ * dropped.
+ * <p>
+ * Event IDs are {@code <run>.<sequence>}, where the run is the startup time, so
+ * an ID from before a restart is never taken for a current one.
+ */
+@Component
+public class ChangeFeed {
+	private static final int MAX_DRAIN_BATCH = 256;
+
+	private final String run = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+	private final ChangeDto[] ring;
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+	private final TaskExecutor executor = new VirtualThreadTaskExecutor("change-feed-");
+	private long nextSequence = 1;
+
+	@Autowired
+	public ChangeFeed(@Value("${changes.buffer_size:10000}") int bufferSize) {
+		ring = new ChangeDto[bufferSize];
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		ChangeDto change = new ChangeDto(event.getEntityType(), event.getChangeType(),
+				event.getId(), event.getDirectorIds());
+		synchronized (this) {
+			ring[index(nextSequence)] = change;
+			nextSequence++;
+		}
+		subscriptions.forEach(Subscription::schedule);
+	}
+
+	/**
+	 * Subscribes {@code listener} to changes after {@code lastEventId}, or to new
+	 * changes only if it is {@code null}
+	 */
+	public Subscription subscribe(String lastEventId, ChangeFeedListener listener) {
+		Subscription subscription;
+		synchronized (this) {
+			long resumeFrom = resumeSequence(lastEventId);
+			subscription = resumeFrom < 0 ? new Subscription(listener, nextSequence, true)
+					: new Subscription(listener, resumeFrom, false);
+		}
+		subscriptions.add(subscription);
+		subscription.schedule();
+		return subscription;
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	@PreDestroy
+	public void close() {
+		subscriptions.forEach(Subscription::cancel);
+	}
+
+	/**
+	 * Returns the first sequence to send after {@code lastEventId}, or -1 if the
+	 * changes after it are not available
+	 */
+	private long resumeSequence(String lastEventId) {
+		if (lastEventId == null)
+			return nextSequence;
+		int separator = lastEventId.indexOf('.');
+		if (separator < 0 || !run.equals(lastEventId.substring(0, separator)))
+			return -1;
+		long sequence;
+		try {
+			sequence = Long.parseLong(lastEventId.substring(separator + 1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+		if (sequence < 0 || sequence >= nextSequence || sequence + 1 < oldestSequence())
+			return -1;
+		return sequence + 1;
+	}
+
+	private long oldestSequence() {
+		return Math.max(1, nextSequence - ring.length);
+	}
+
+	private int index(long sequence) {
+		return (int) (sequence % ring.length);
+	}
+
+	private String eventId(long sequence) {
+		return run + '.' + sequence;
+	}
+
+	/**
+	 * Copies at most {@value #MAX_DRAIN_BATCH} changes starting at
+	 * {@code sequence}, or returns {@code null} if some of them were overwritten
+	 */
+	private synchronized List<ChangeDto> read(long sequence) {
+		if (sequence < oldestSequence())
+			return null;
+		int count = (int) Math.min(nextSequence - sequence, MAX_DRAIN_BATCH);
+		List<ChangeDto> changes = new ArrayList<>(count);
+		for (long next = sequence; next < sequence + count; next++)
+			changes.add(ring[index(next)]);
+		return changes;
+	}
+
+	private synchronized boolean hasChangesFrom(long sequence) {
+		return sequence < nextSequence;
+	}
+
+	public class Subscription {
+
+		private final ChangeFeedListener listener;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile boolean cancelled;
+		private boolean resetPending;
+		private long cursor;
+
+		private Subscription(ChangeFeedListener listener, long cursor, boolean resetPending) {
+			this.listener = listener;
+			this.cursor = cursor;
+			this.resetPending = resetPending;
+		}
+
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+		}
+
+		private void schedule() {
+			if (!cancelled && draining.compareAndSet(false, true))
+				executor.execute(this::drain);
+		}
+
+		private void drain() {
+			try {
+				do {
+					if (!send())
+						return;
+					draining.set(false);
+				} while (!cancelled && hasChangesFrom(cursor)
+						&& draining.compareAndSet(false, true));
+			} catch (IOException | RuntimeException e) {
+				cancel();
+			}
+		}
+
+		/**
+		 * Sends everything available; returns {@code false} if the subscription has
+		 * ended
+		 */
+		private boolean send() throws IOException {
+			if (resetPending) {
+				resetPending = false;
+				listener.onReset(eventId(cursor - 1));
+			}
+			List<ChangeDto> changes;
+			while (!cancelled && (changes = read(cursor)) != null) {
+				if (changes.isEmpty())
+					return true;
+				for (ChangeDto change : changes) {
+					listener.onChange(eventId(cursor), change);
+					cursor++;
+				}
+			}
+			if (!cancelled) {
+				cancel();
+				listener.onDropped();
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package ru.sentyurin.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+/**
+ * Helpers shared by the batch operations of the services
+ */
+final class BatchSupport {
+	/**
+	 * Maximum number of items accepted in one batch request
+	 */
+	static final int MAX_BATCH_SIZE = 10_000;
+	/**
+	 * Number of entities persisted between two flushes. Hibernate further splits
+	 * every flush into JDBC batches of {@code hibernate.jdbc.batch_size}.
+	 */
+	static final int FLUSH_CHUNK_SIZE = 500;
+	/**
+	 * Maximum number of values bound to a single {@code IN} list
+	 */
+	static final int LOOKUP_CHUNK_SIZE = 1000;
+
+	private BatchSupport() {
+	}
+
+	/**
+	 * @throws IncorrectInputException if {@code items} is {@code null}, empty or
+	 *                                 longer than {@value #MAX_BATCH_SIZE}
+	 */
+	static void checkBatchSize(List<?> items) throws IncorrectInputException {
+		if (items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE)
+			throw new IncorrectInputException(
+					"A batch must contain between 1 and " + MAX_BATCH_SIZE + " items");
+	}
+
+	/**
+	 * Runs {@code query} over {@code values} in chunks of
+	 * {@value #LOOKUP_CHUNK_SIZE} and returns the union of the results
+	 */
+	static <T> Set<T> findExisting(Collection<T> values,
+			Function<Collection<T>, List<T>> query) {
+		Set<T> existing = new HashSet<>();
+		for (List<T> chunk : chunks(new ArrayList<>(values), LOOKUP_CHUNK_SIZE))
+			existing.addAll(query.apply(chunk));
+		return existing;
+	}
+
+	static <T> List<List<T>> chunks(List<T> items, int chunkSize) {
+		List<List<T>> chunks = new ArrayList<>();
+		for (int from = 0; from < items.size(); from += chunkSize)
+			chunks.add(items.subList(from, Math.min(from + chunkSize, items.size())));
+		return chunks;
+	}
+
+}
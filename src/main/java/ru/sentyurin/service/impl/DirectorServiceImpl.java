@@ -1,35 +1,63 @@
 package ru.sentyurin.service.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.controller.mapper.DirectorDtoMapper;
 import ru.sentyurin.model.Director;
 import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.Fieldset;
 import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.repository.MovieView;
 import ru.sentyurin.service.DirectorService;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.service.cache.SecondLevelCacheEvictor;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
 import ru.sentyurin.util.exception.IncompleateInputExeption;
+import ru.sentyurin.util.exception.IncorrectInputException;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 @Service
 public class DirectorServiceImpl implements DirectorService {
+	private static final int MAX_PAGE_SIZE = 1000;
 
 	private final DirectorRepository directorRepository;
 	private final MovieRepository movieRepository;
 	private final DirectorDtoMapper dtoMapper;
+	private final CatalogCache catalogCache;
+	private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Autowired
 	public DirectorServiceImpl(DirectorRepository directorRepository,
-			MovieRepository movieRepository, DirectorDtoMapper directorDtoMapper) {
+			MovieRepository movieRepository, DirectorDtoMapper directorDtoMapper,
+			CatalogCache catalogCache, SecondLevelCacheEvictor secondLevelCacheEvictor,
+			ApplicationEventPublisher eventPublisher) {
 		this.directorRepository = directorRepository;
 		this.movieRepository = movieRepository;
 		dtoMapper = directorDtoMapper;
+		this.catalogCache = catalogCache;
+		this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -44,37 +72,170 @@ public class DirectorServiceImpl implements DirectorService {
 			throws IncompleateInputExeption {
 		directorDataValidation(director);
 		director.setId(null);
-		return dtoMapper.map(directorRepository.save(dtoMapper.map(director)));
+		DirectorOutgoingDto createdDirector = dtoMapper
+				.map(directorRepository.save(dtoMapper.map(director)));
+		eventPublisher.publishEvent(
+				CatalogChangedEvent.directorChanged(ChangeType.CREATED, createdDirector.getId()));
+		return createdDirector;
+	}
+
+	/**
+	 * Creates new director entities in repository. Items without a name or with a
+	 * name that is already taken are reported as rejected while valid ones are
+	 * persisted with JDBC batching.
+	 * 
+	 * @return one result per item of {@code directors}, in the same order
+	 * 
+	 * @throws IncorrectInputException if {@code directors} is empty or contains
+	 *                                 more than
+	 *                                 {@value BatchSupport#MAX_BATCH_SIZE} items
+	 */
+	@Override
+	@Transactional
+	public List<BatchItemResultDto> createDirectors(List<DirectorIncomingDto> directors)
+			throws IncorrectInputException {
+		BatchSupport.checkBatchSize(directors);
+		Set<String> existingNames = BatchSupport.findExisting(
+				directors.stream().filter(Objects::nonNull).map(DirectorIncomingDto::getName)
+						.filter(Objects::nonNull).distinct().toList(),
+				directorRepository::findExistingNames);
+
+		BatchItemResultDto[] results = new BatchItemResultDto[directors.size()];
+		Set<String> batchNames = new HashSet<>();
+		List<Integer> accepted = new ArrayList<>();
+		List<Integer> createdIds = new ArrayList<>();
+		for (int i = 0; i < directors.size(); i++) {
+			DirectorIncomingDto director = directors.get(i);
+			if (director == null || director.getName() == null)
+				results[i] = BatchItemResultDto.rejected(i, "There must be a director name");
+			else if (existingNames.contains(director.getName())
+					|| !batchNames.add(director.getName()))
+				results[i] = BatchItemResultDto.rejected(i, "There is a director with such name");
+			else
+				accepted.add(i);
+		}
+
+		for (List<Integer> chunk : BatchSupport.chunks(accepted, BatchSupport.FLUSH_CHUNK_SIZE)) {
+			List<Director> entities = new ArrayList<>(chunk.size());
+			for (Integer index : chunk) {
+				Director entity = new Director();
+				entity.setName(directors.get(index).getName());
+				entities.add(entity);
+			}
+			directorRepository.saveAll(entities);
+			directorRepository.flush();
+			for (int i = 0; i < chunk.size(); i++) {
+				int index = chunk.get(i);
+				Integer id = entities.get(i).getId();
+				results[index] = BatchItemResultDto.created(index, id);
+				createdIds.add(id);
+			}
+		}
+		if (!createdIds.isEmpty())
+			eventPublisher.publishEvent(CatalogChangedEvent.directorsCreated(createdIds));
+		return Arrays.asList(results);
 	}
 
 	/**
 	 * Returns all director entities in repository
 	 */
 	@Override
-	@Transactional()
+	@Transactional(readOnly = true)
 	public List<DirectorOutgoingDto> getDirectors() {
-		return directorRepository.findAll().stream().map(this::mapToOutgoingDto).toList();
+		return dtoMapper.groupByDirector(directorRepository.findAllAsMovieRows());
 	}
 
 	/**
-	 * Returns director entity with specified ID
+	 * Returns all directors in repository, reading only the columns of
+	 * {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<DirectorOutgoingDto> getDirectors(Fieldset fields) {
+		if (fields.isComplete())
+			return getDirectors();
+		return dtoMapper.groupByDirector(directorRepository.findAllAsMovieRows(fields));
+	}
+
+	/**
+	 * Returns a page of director entities ordered by ID
+	 * 
+	 * @param after ID of the last director of the previous page, or {@code null}
+	 *              for the first page
+	 * @param limit maximum number of directors in the page
+	 * 
+	 * @throws IncorrectInputException if {@code limit} is not positive or exceeds
+	 *                                 {@value #MAX_PAGE_SIZE}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<DirectorOutgoingDto> getDirectors(Integer after, int limit)
+			throws IncorrectInputException {
+		return getDirectors(after, limit, Fieldset.ALL);
+	}
+
+	/**
+	 * Same as {@link #getDirectors(Integer, int)}, reading only the columns of
+	 * {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<DirectorOutgoingDto> getDirectors(Integer after, int limit,
+			Fieldset fields) throws IncorrectInputException {
+		if (limit < 1 || limit > MAX_PAGE_SIZE)
+			throw new IncorrectInputException(
+					"A page size must be between 1 and " + MAX_PAGE_SIZE);
+		List<Integer> ids = directorRepository
+				.findIdPageAfter(after == null ? Integer.MIN_VALUE : after, Limit.of(limit + 1));
+		boolean hasNext = ids.size() > limit;
+		if (hasNext)
+			ids = ids.subList(0, limit);
+		Integer nextCursor = hasNext ? ids.get(limit - 1) : null;
+		List<DirectorOutgoingDto> directors = ids.isEmpty() ? List.of()
+				: dtoMapper.groupByDirector(fields.isComplete()
+						? directorRepository.findAsMovieRowsByIdIn(ids)
+						: directorRepository.findAsMovieRowsByIdIn(ids, fields));
+		return new CursorPage<>(directors, nextCursor);
+	}
+
+	/**
+	 * Returns director entity with specified ID. Served from {@link CatalogCache}
+	 * when possible, so a hit neither opens a transaction nor touches the database
 	 */
 	@Override
-	@Transactional
 	public Optional<DirectorOutgoingDto> getDirectorById(Integer id) {
-		Optional<Director> optionalDirector = directorRepository.findById(id);
-		return optionalDirector.isEmpty() ? Optional.empty()
-				: Optional.of(mapToOutgoingDto(optionalDirector.get()));
+		return catalogCache.getDirector(id, directorId -> dtoMapper
+				.groupByDirector(directorRepository.findAsMovieRowsByIdIn(List.of(directorId)))
+				.stream().findFirst());
 	}
 
 	/**
-	 * Creates new director entity in repository
+	 * Returns director entity with specified ID. A cached director is served as
+	 * it is; a missing one is read with only the columns of {@code fields} and is
+	 * not cached.
+	 */
+	@Override
+	public Optional<DirectorOutgoingDto> getDirectorById(Integer id, Fieldset fields) {
+		if (fields.isComplete())
+			return getDirectorById(id);
+		return catalogCache.peekDirector(id).or(() -> dtoMapper
+				.groupByDirector(directorRepository.findAsMovieRowsByIdIn(List.of(id), fields))
+				.stream().findFirst());
+	}
+
+	/**
+	 * Updates director entity in repository with a single version-checked
+	 * statement
 	 * 
 	 * @param director contains field {@code directorId} (ID of director entity to
-	 *                 update) and new data to persist
+	 *                 update), the {@code version} it was read with and new data to
+	 *                 persist
 	 * 
-	 * @throws IncompleateInputExeption if fields {@code id} or {@code name} in
-	 *                                  {@code director} is {@code null}
+	 * @throws IncompleateInputExeption if fields {@code id}, {@code name} or
+	 *                                  {@code version} in {@code director} is
+	 *                                  {@code null}
+	 * @throws VersionConflictException if the director has been changed since
+	 *                                  {@code version}
 	 */
 	@Override
 	@Transactional
@@ -82,20 +243,35 @@ public class DirectorServiceImpl implements DirectorService {
 		if (director.getId() == null)
 			throw new IncompleateInputExeption("There must be a director ID");
 		directorDataValidation(director);
-		Director directorToUpdate = directorRepository.findById(director.getId()).orElseThrow(
-				() -> new NoDataInRepositoryException("There is no director with such ID"));
-		directorToUpdate.setName(director.getName());
-		return mapToOutgoingDto(directorRepository.save(directorToUpdate));
+		if (director.getVersion() == null)
+			throw new IncompleateInputExeption("There must be a director version");
+		secondLevelCacheEvictor.beforeNativeChange(EntityType.DIRECTOR, director.getId());
+		List<MovieOutgoingDto> rows = directorRepository
+				.updateVersioned(director.getId(), director.getName(), director.getVersion())
+				.stream().map(MovieView::toOutgoingDto).toList();
+		if (rows.isEmpty()) {
+			if (!directorRepository.existsById(director.getId()))
+				throw new NoDataInRepositoryException("There is no director with such ID");
+			throw new VersionConflictException("The director has been changed by someone else");
+		}
+		DirectorOutgoingDto updatedDirector = dtoMapper.groupByDirector(rows).get(0);
+		eventPublisher.publishEvent(
+				CatalogChangedEvent.directorChanged(ChangeType.UPDATED, updatedDirector.getId()));
+		return updatedDirector;
 	}
 
 	/**
-	 * Deletes director entity from repository
+	 * Deletes director entity from repository. Nothing is changed or published
+	 * when there is no director with such ID.
 	 */
 	@Override
 	@Transactional
 	public void deleteDirector(Integer id) {
+		if (!directorRepository.existsById(id))
+			return;
 		movieRepository.deleteByDirectorId(id);
 		directorRepository.deleteById(id);
+		eventPublisher.publishEvent(CatalogChangedEvent.directorChanged(ChangeType.DELETED, id));
 	}
 
 	private void directorDataValidation(DirectorIncomingDto director)
@@ -104,8 +280,4 @@ public class DirectorServiceImpl implements DirectorService {
 			throw new IncompleateInputExeption("There must be a director name");
 	}
 
-	private DirectorOutgoingDto mapToOutgoingDto(Director director) {
-		return dtoMapper.map(director);
-	}
-
 }
@@ -0,0 +1,249 @@
+package ru.sentyurin.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import ru.sentyurin.controller.dto.ImportProgressDto;
+import ru.sentyurin.controller.dto.ImportRejectionDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.MovieCopyRepository;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.service.MovieDataFormat;
+import ru.sentyurin.service.MovieImportListener;
+import ru.sentyurin.service.MovieImportService;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.util.exception.IncompleateInputExeption;
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+@Service
+public class MovieImportServiceImpl implements MovieImportService {
+	private static final ObjectReader NDJSON_READER = new ObjectMapper()
+			.readerFor(MovieIncomingDto.class)
+			.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	private static final ObjectReader CSV_READER = new CsvMapper()
+			.enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+			.readerFor(MovieIncomingDto.class).with(CsvSchema.emptySchema().withHeader())
+			.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	private final MovieRepository movieRepository;
+	private final DirectorRepository directorRepository;
+	private final MovieCopyRepository movieCopyRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final int chunkSize;
+
+	@Autowired
+	public MovieImportServiceImpl(MovieRepository movieRepository,
+			DirectorRepository directorRepository, MovieCopyRepository movieCopyRepository,
+			PlatformTransactionManager transactionManager,
+			ApplicationEventPublisher eventPublisher,
+			@Value("${import.chunk_size:5000}") int chunkSize) {
+		this.movieRepository = movieRepository;
+		this.directorRepository = directorRepository;
+		this.movieCopyRepository = movieCopyRepository;
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		this.eventPublisher = eventPublisher;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Imports movies from {@code input}, reading it incrementally. Rows are
+	 * collected into chunks of {@code import.chunk_size}; every chunk is
+	 * validated, its director names are resolved to IDs in bulk (creating the
+	 * directors that do not exist yet) and its valid rows are written with
+	 * {@code COPY} in a transaction of its own. A row is rejected if it cannot be
+	 * parsed, fails the checks of {@code createMovie}, has neither a director ID
+	 * nor a director name, refers to a missing director ID or repeats an existing
+	 * title.
+	 *
+	 * @return totals of the whole import
+	 *
+	 * @throws IncorrectInputException if the input is malformed beyond the current
+	 *                                 row; chunks committed so far stay imported
+	 */
+	@Override
+	public ImportProgressDto importMovies(InputStream input, MovieDataFormat format,
+			MovieImportListener listener) throws IOException {
+		ImportProgressDto progress = new ImportProgressDto();
+		Map<String, Integer> directorIdsByName = new HashMap<>();
+		List<Row> chunk = new ArrayList<>(chunkSize);
+		long rowNumber = 0;
+		try (MappingIterator<MovieIncomingDto> rows = reader(format).readValues(input)) {
+			while (hasNextRow(rows, rowNumber)) {
+				rowNumber++;
+				try {
+					chunk.add(new Row(rowNumber, rows.nextValue()));
+				} catch (JsonProcessingException | RuntimeJsonMappingException e) {
+					chunk.add(new Row(rowNumber, null));
+				}
+				if (chunk.size() == chunkSize) {
+					importChunk(chunk, directorIdsByName, progress, listener);
+					chunk.clear();
+				}
+			}
+		}
+		if (!chunk.isEmpty())
+			importChunk(chunk, directorIdsByName, progress, listener);
+		progress.setCompleted(true);
+		listener.onProgress(progress);
+		return progress;
+	}
+
+	private static ObjectReader reader(MovieDataFormat format) {
+		return format == MovieDataFormat.CSV ? CSV_READER : NDJSON_READER;
+	}
+
+	private static boolean hasNextRow(MappingIterator<MovieIncomingDto> rows, long rowNumber)
+			throws IncorrectInputException {
+		try {
+			return rows.hasNextValue();
+		} catch (IOException | RuntimeJsonMappingException e) {
+			throw new IncorrectInputException(
+					"Malformed input after row " + rowNumber + ": " + e.getMessage());
+		}
+	}
+
+	private void importChunk(List<Row> chunk, Map<String, Integer> directorIdsByName,
+			ImportProgressDto progress, MovieImportListener listener) {
+		List<ImportRejectionDto> rejections = new ArrayList<>();
+		long imported = transactionTemplate
+				.execute(status -> copyChunk(chunk, directorIdsByName, rejections));
+		progress.setChunks(progress.getChunks() + 1)
+				.setRowsRead(progress.getRowsRead() + chunk.size())
+				.setImported(progress.getImported() + imported)
+				.setRejected(progress.getRejected() + rejections.size());
+		rejections.forEach(listener::onRowRejected);
+		listener.onProgress(progress);
+	}
+
+	private long copyChunk(List<Row> chunk, Map<String, Integer> directorIdsByName,
+			List<ImportRejectionDto> rejections) {
+		List<Row> valid = new ArrayList<>(chunk.size());
+		for (Row row : chunk) {
+			String error = validate(row.movie());
+			if (error == null)
+				valid.add(row);
+			else
+				rejections.add(new ImportRejectionDto(row.number(), error));
+		}
+
+		Set<String> existingTitles = BatchSupport.findExisting(
+				valid.stream().map(row -> row.movie().getTitle()).distinct().toList(),
+				movieRepository::findExistingTitles);
+		Set<Integer> existingDirectorIds = BatchSupport.findExisting(
+				valid.stream().map(row -> row.movie().getDirectorId()).filter(Objects::nonNull)
+						.distinct().toList(),
+				directorRepository::findExistingIds);
+		Set<String> chunkTitles = new HashSet<>();
+		List<MovieIncomingDto> accepted = new ArrayList<>(valid.size());
+		for (Row row : valid) {
+			MovieIncomingDto movie = row.movie();
+			if (existingTitles.contains(movie.getTitle()) || !chunkTitles.add(movie.getTitle()))
+				rejections.add(
+						new ImportRejectionDto(row.number(), "There is a movie with such title"));
+			else if (movie.getDirectorId() != null
+					&& !existingDirectorIds.contains(movie.getDirectorId()))
+				rejections.add(
+						new ImportRejectionDto(row.number(), "There is no director with such ID"));
+			else
+				accepted.add(movie);
+		}
+		if (accepted.isEmpty())
+			return 0;
+
+		resolveDirectorIds(accepted, directorIdsByName);
+		long copied = movieCopyRepository.copyIn(accepted);
+		eventPublisher.publishEvent(CatalogChangedEvent.moviesImported(
+				accepted.stream().map(MovieIncomingDto::getDirectorId).distinct().toList()));
+		return copied;
+	}
+
+	/**
+	 * Returns the reason {@code movie} cannot be imported, or {@code null}
+	 */
+	private static String validate(MovieIncomingDto movie) {
+		if (movie == null)
+			return "The row cannot be parsed";
+		try {
+			MovieServiceImpl.validateMovieFields(movie);
+		} catch (IncompleateInputExeption | IncorrectInputException e) {
+			return e.getMessage();
+		}
+		if (movie.getDirectorId() == null && movie.getDirectorName() == null)
+			return "There must be director ID or director name";
+		return null;
+	}
+
+	/**
+	 * Sets {@code directorId} of every movie that has only a director name. Names
+	 * already resolved by an earlier chunk are taken from
+	 * {@code directorIdsByName}; the rest are looked up in one pass and the
+	 * directors still missing are created in one batch.
+	 */
+	private void resolveDirectorIds(List<MovieIncomingDto> movies,
+			Map<String, Integer> directorIdsByName) {
+		Set<String> unknownNames = new LinkedHashSet<>();
+		for (MovieIncomingDto movie : movies) {
+			if (movie.getDirectorId() == null
+					&& !directorIdsByName.containsKey(movie.getDirectorName()))
+				unknownNames.add(movie.getDirectorName());
+		}
+		if (!unknownNames.isEmpty()) {
+			for (List<String> names : BatchSupport.chunks(new ArrayList<>(unknownNames),
+					BatchSupport.LOOKUP_CHUNK_SIZE)) {
+				for (Director director : directorRepository.findByNameIn(names)) {
+					directorIdsByName.put(director.getName(), director.getId());
+					unknownNames.remove(director.getName());
+				}
+			}
+			List<Director> created = new ArrayList<>(unknownNames.size());
+			for (String name : unknownNames) {
+				Director director = new Director();
+				director.setName(name);
+				created.add(director);
+			}
+			directorRepository.saveAll(created);
+			directorRepository.flush();
+			for (Director director : created)
+				directorIdsByName.put(director.getName(), director.getId());
+			if (!created.isEmpty())
+				eventPublisher.publishEvent(CatalogChangedEvent
+						.directorsCreated(created.stream().map(Director::getId).toList()));
+		}
+		for (MovieIncomingDto movie : movies) {
+			if (movie.getDirectorId() == null)
+				movie.setDirectorId(directorIdsByName.get(movie.getDirectorName()));
+		}
+	}
+
+	private record Row(long number, MovieIncomingDto movie) {
+	}
+
+}
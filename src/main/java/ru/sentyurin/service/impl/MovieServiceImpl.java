@@ -1,114 +1,416 @@
 package ru.sentyurin.service.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.MovieIncomingDto;
 import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.controller.mapper.MovieDtoMapper;
-import ru.sentyurin.model.Director;
 import ru.sentyurin.model.Movie;
 import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieCopyRepository;
+import ru.sentyurin.repository.MovieFilter;
 import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.repository.MovieSort;
+import ru.sentyurin.repository.MovieUpdateView;
+import ru.sentyurin.repository.MovieView;
+import ru.sentyurin.service.MovieDataFormat;
 import ru.sentyurin.service.MovieService;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.service.cache.SecondLevelCacheEvictor;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.service.event.CatalogChangedEvent.EntityType;
 import ru.sentyurin.util.exception.IncompleateInputExeption;
 import ru.sentyurin.util.exception.IncorrectInputException;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 @Service
 public class MovieServiceImpl implements MovieService {
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int MAX_SEARCH_PAGE_SIZE = 100;
+	private static final int MAX_SEARCH_DEPTH = 1000;
+	private static final String DIRECTOR_FOREIGN_KEY = "movie_director_fk";
 
 	private final MovieRepository movieRepository;
 	private final DirectorRepository directorRepository;
+	private final MovieCopyRepository movieCopyRepository;
 	private final MovieDtoMapper dtoMapper;
+	private final CatalogCache catalogCache;
+	private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Autowired
 	public MovieServiceImpl(MovieRepository movieRepository, DirectorRepository directorRepository,
-			MovieDtoMapper movieDtoMapper) {
+			MovieCopyRepository movieCopyRepository, MovieDtoMapper movieDtoMapper,
+			CatalogCache catalogCache, SecondLevelCacheEvictor secondLevelCacheEvictor,
+			ApplicationEventPublisher eventPublisher) {
 		this.movieRepository = movieRepository;
 		this.directorRepository = directorRepository;
+		this.movieCopyRepository = movieCopyRepository;
 		dtoMapper = movieDtoMapper;
+		this.catalogCache = catalogCache;
+		this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
 	 * Creates new movie entity in repository
 	 * 
-	 * @throws IncompleateInputExeption if fields {@code title}, or
-	 *                                  {@code releaseYear} in {@code movie} is
-	 *                                  {@code null}
+	 * @throws IncompleateInputExeption    if fields {@code title}, or
+	 *                                     {@code releaseYear} in {@code movie} is
+	 *                                     {@code null}
 	 * 
-	 * @throws IncompleateInputExeption if fields no {@code directorId} and
-	 *                                  {@code directorName} in {@code movie} are
-	 *                                  {@code null}
-	 * @throws IncorrectInputException  if field {@code releaseYear} in
-	 *                                  {@code movie} less than 1895
+	 * @throws IncompleateInputExeption    if fields no {@code directorId} and
+	 *                                     {@code directorName} in {@code movie}
+	 *                                     are {@code null}
+	 * @throws IncorrectInputException     if field {@code releaseYear} in
+	 *                                     {@code movie} less than 1895
+	 * @throws NoDataInRepositoryException if there is no director with
+	 *                                     {@code directorId}
 	 */
 	@Override
 	@Transactional
 	public MovieOutgoingDto createMovie(MovieIncomingDto movie)
 			throws IncompleateInputExeption, IncorrectInputException {
 		validateMovieData(movie);
+		if (!directorRepository.existsById(movie.getDirectorId()))
+			throw new NoDataInRepositoryException("There is no director with such ID");
 		movie.setId(null);
-		return mapToOutgoingDto(movieRepository.save(mapFromIncomingDto(movie)));
+		Movie movieToCreate = mapFromIncomingDto(movie);
+		movieToCreate.setDirector(directorRepository.getReferenceById(movie.getDirectorId()));
+		Movie savedMovie = movieRepository.save(movieToCreate);
+		try {
+			// the director may be deleted since it was checked
+			movieRepository.flush();
+		} catch (DataIntegrityViolationException e) {
+			throw missingDirectorOr(e);
+		}
+		MovieOutgoingDto createdMovie = mapToOutgoingDto(savedMovie);
+		eventPublisher.publishEvent(CatalogChangedEvent.movieChanged(ChangeType.CREATED,
+				createdMovie.getId(), createdMovie.getDirectorId()));
+		return createdMovie;
 	}
 
 	/**
-	 * Returns all movie entities in repository
+	 * Creates new movie entities in repository. Every item is validated as in
+	 * {@link #createMovie(MovieIncomingDto)}; titles and director IDs are checked
+	 * against the repository with a few bulk queries. Invalid items are reported
+	 * as rejected while valid ones are persisted with JDBC batching.
+	 * 
+	 * @return one result per item of {@code movies}, in the same order
+	 * 
+	 * @throws IncorrectInputException if {@code movies} is empty or contains more
+	 *                                 than {@value BatchSupport#MAX_BATCH_SIZE}
+	 *                                 items
 	 */
 	@Override
 	@Transactional
+	public List<BatchItemResultDto> createMovies(List<MovieIncomingDto> movies)
+			throws IncorrectInputException {
+		BatchSupport.checkBatchSize(movies);
+		Set<String> existingTitles = BatchSupport.findExisting(
+				movies.stream().filter(Objects::nonNull).map(MovieIncomingDto::getTitle)
+						.filter(Objects::nonNull).distinct().toList(),
+				movieRepository::findExistingTitles);
+		Set<Integer> existingDirectorIds = BatchSupport.findExisting(
+				movies.stream().filter(Objects::nonNull).map(MovieIncomingDto::getDirectorId)
+						.filter(Objects::nonNull).distinct().toList(),
+				directorRepository::findExistingIds);
+
+		BatchItemResultDto[] results = new BatchItemResultDto[movies.size()];
+		Set<String> batchTitles = new HashSet<>();
+		List<Integer> accepted = new ArrayList<>();
+		for (int i = 0; i < movies.size(); i++) {
+			MovieIncomingDto movie = movies.get(i);
+			try {
+				if (movie == null)
+					throw new IncompleateInputExeption("There must be a movie");
+				validateMovieData(movie);
+			} catch (IncompleateInputExeption | IncorrectInputException e) {
+				results[i] = BatchItemResultDto.rejected(i, e.getMessage());
+				continue;
+			}
+			if (existingTitles.contains(movie.getTitle()) || !batchTitles.add(movie.getTitle()))
+				results[i] = BatchItemResultDto.rejected(i, "There is a movie with such title");
+			else if (!existingDirectorIds.contains(movie.getDirectorId()))
+				results[i] = BatchItemResultDto.rejected(i, "There is no director with such ID");
+			else
+				accepted.add(i);
+		}
+
+		for (List<Integer> chunk : BatchSupport.chunks(accepted, BatchSupport.FLUSH_CHUNK_SIZE)) {
+			List<Movie> entities = new ArrayList<>(chunk.size());
+			for (Integer index : chunk) {
+				MovieIncomingDto movie = movies.get(index);
+				Movie entity = new Movie();
+				entity.setTitle(movie.getTitle());
+				entity.setReleaseYear(movie.getReleaseYear());
+				entity.setDirector(directorRepository.getReferenceById(movie.getDirectorId()));
+				entities.add(entity);
+			}
+			movieRepository.saveAll(entities);
+			movieRepository.flush();
+			for (int i = 0; i < chunk.size(); i++) {
+				int index = chunk.get(i);
+				results[index] = BatchItemResultDto.created(index, entities.get(i).getId());
+			}
+		}
+		if (!accepted.isEmpty())
+			eventPublisher.publishEvent(CatalogChangedEvent.moviesImported(accepted.stream()
+					.map(index -> movies.get(index).getDirectorId()).distinct().toList()));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Returns all movie entities in repository
+	 */
+	@Override
+	@Transactional(readOnly = true)
 	public List<MovieOutgoingDto> getMovies() {
-		return movieRepository.findAll().stream().map(this::mapToOutgoingDto).toList();
+		return movieRepository.findAllDtos();
 	}
 
 	/**
-	 * Returns movie entity with specified ID
+	 * Returns all movies in repository, reading only the columns of {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<MovieOutgoingDto> getMovies(Fieldset fields) {
+		if (fields.isComplete())
+			return getMovies();
+		return movieRepository.findAll(fields);
+	}
+
+	/**
+	 * Returns a page of movie entities ordered by ID
+	 * 
+	 * @param after ID of the last movie of the previous page, or {@code null} for
+	 *              the first page
+	 * @param limit maximum number of movies in the page
+	 * 
+	 * @throws IncorrectInputException if {@code limit} is not positive or exceeds
+	 *                                 {@value #MAX_PAGE_SIZE}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<MovieOutgoingDto> getMovies(Integer after, int limit)
+			throws IncorrectInputException {
+		checkPageSize(limit);
+		return toPage(movieRepository.findPageAfter(after == null ? Integer.MIN_VALUE : after,
+				Limit.of(limit + 1)), limit);
+	}
+
+	/**
+	 * Returns a page of movies matching {@code filter} in its sort order
+	 * 
+	 * @param after ID of the last movie of the previous page, or {@code null} for
+	 *              the first page
+	 * @param limit maximum number of movies in the page
+	 * 
+	 * @throws IncorrectInputException if {@code limit} is not positive or exceeds
+	 *                                 {@value #MAX_PAGE_SIZE}, if
+	 *                                 {@code yearFrom} is greater than
+	 *                                 {@code yearTo}, or if a page in year order
+	 *                                 follows a movie that no longer exists
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<MovieOutgoingDto> getMovies(MovieFilter filter, Integer after, int limit)
+			throws IncorrectInputException {
+		checkFilter(filter, limit);
+		List<MovieOutgoingDto> movies = movieRepository.findFilteredPage(filter, after,
+				limit + 1);
+		checkCursor(filter, after, movies);
+		return toPage(movies, limit);
+	}
+
+	/**
+	 * Same as {@link #getMovies(MovieFilter, Integer, int)}, reading only the
+	 * columns of {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<MovieOutgoingDto> getMovies(MovieFilter filter, Integer after, int limit,
+			Fieldset fields) throws IncorrectInputException {
+		if (fields.isComplete())
+			return getMovies(filter, after, limit);
+		checkFilter(filter, limit);
+		List<MovieOutgoingDto> movies = movieRepository.findFilteredPage(filter, after,
+				limit + 1, fields);
+		checkCursor(filter, after, movies);
+		return toPage(movies, limit);
+	}
+
+	/**
+	 * Returns a page of movies whose title matches {@code query}, ordered by
+	 * relevance. Results deeper than {@value #MAX_SEARCH_DEPTH} are not served:
+	 * every page ranks all the matches before it, so deep pages only get slower
+	 * while they are rarely useful.
+	 * 
+	 * @param query words to search for; see {@link MovieRepository#search}
+	 * 
+	 * @throws IncorrectInputException if {@code query} is blank, {@code limit} is
+	 *                                 not between 1 and
+	 *                                 {@value #MAX_SEARCH_PAGE_SIZE} or the page
+	 *                                 ends beyond {@value #MAX_SEARCH_DEPTH}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<MovieOutgoingDto> searchMovies(String query, int offset, int limit)
+			throws IncorrectInputException {
+		checkSearch(query, offset, limit);
+		return movieRepository.search(query, offset, limit).stream()
+				.map(MovieView::toOutgoingDto).toList();
+	}
+
+	/**
+	 * Same as {@link #searchMovies(String, int, int)}, reading only the columns of
+	 * {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<MovieOutgoingDto> searchMovies(String query, int offset, int limit,
+			Fieldset fields) throws IncorrectInputException {
+		if (fields.isComplete())
+			return searchMovies(query, offset, limit);
+		checkSearch(query, offset, limit);
+		return movieRepository.search(query, offset, limit, fields);
+	}
+
+	/**
+	 * Passes every movie in repository, ordered by ID, to {@code action} one by one
+	 * without materialising the whole table in memory
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void forEachMovie(Consumer<MovieOutgoingDto> action) {
+		try (Stream<MovieOutgoingDto> movies = movieRepository.streamAll()) {
+			movies.forEach(action);
+		}
+	}
+
+	/**
+	 * Same as {@link #forEachMovie(Consumer)}, reading only the columns of
+	 * {@code fields}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void forEachMovie(Fieldset fields, Consumer<MovieOutgoingDto> action) {
+		if (fields.isComplete()) {
+			forEachMovie(action);
+			return;
+		}
+		try (Stream<MovieOutgoingDto> movies = movieRepository.streamAll(fields)) {
+			movies.forEach(action);
+		}
+	}
+
+	/**
+	 * Writes movies matching the filters to {@code output} in the given format.
+	 * The rows are formatted by the database and copied to {@code output} as they
+	 * arrive, without creating objects per movie.
+	 * 
+	 * @param releaseYearFrom lowest release year, or {@code null}
+	 * @param releaseYearTo   highest release year, or {@code null}
+	 * @param directorId      director of the movies, or {@code null} for all
+	 * 
+	 * @return number of written movies
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long exportMovies(MovieDataFormat format, Integer releaseYearFrom,
+			Integer releaseYearTo, Integer directorId, OutputStream output) throws IOException {
+		return movieCopyRepository.copyOut(format, releaseYearFrom, releaseYearTo, directorId,
+				output);
+	}
+
+	/**
+	 * Returns movie entity with specified ID. Served from {@link CatalogCache}
+	 * when possible, so a hit neither opens a transaction nor touches the database
 	 */
 	@Override
-	@Transactional
 	public Optional<MovieOutgoingDto> getMovieById(Integer id) {
-		Optional<Movie> optionalMovie = movieRepository.findById(id);
-		return optionalMovie.isEmpty() ? Optional.empty()
-				: Optional.of(mapToOutgoingDto(optionalMovie.get()));
+		return catalogCache.getMovie(id, movieRepository::findDtoById);
+	}
+
+	/**
+	 * Returns movie entity with specified ID. A cached movie is served as it is;
+	 * a missing one is read with only the columns of {@code fields} and is not
+	 * cached.
+	 */
+	@Override
+	public Optional<MovieOutgoingDto> getMovieById(Integer id, Fieldset fields) {
+		if (fields.isComplete())
+			return getMovieById(id);
+		return catalogCache.peekMovie(id).or(() -> movieRepository.findById(id, fields));
 	}
 
 	/**
-	 * Updates movie entity in repository
+	 * Updates movie entity in repository with a single version-checked statement
 	 * 
-	 * @param movie contains field {@code movieId} (ID of movie entity to update)
-	 *              and new data to persist
+	 * @param movie contains field {@code movieId} (ID of movie entity to update),
+	 *              the {@code version} it was read with and new data to persist
 	 * 
-	 * @throws IncompleateInputExeption if fields {@code movieId}, {@code title}, or
-	 *                                  {@code releaseYear} in {@code movie} is
-	 *                                  {@code null}
+	 * @throws IncompleateInputExeption if fields {@code movieId}, {@code title},
+	 *                                  {@code releaseYear} or {@code version} in
+	 *                                  {@code movie} is {@code null}
 	 * 
 	 * @throws IncompleateInputExeption if fields no {@code directorId} and
 	 *                                  {@code directorName} in {@code movie} are
 	 *                                  {@code null}
 	 * @throws IncorrectInputException  if field {@code releaseYear} in
 	 *                                  {@code movie} less than 1895
+	 * @throws VersionConflictException if the movie has been changed since
+	 *                                  {@code version}
 	 */
 	@Override
 	@Transactional
 	public MovieOutgoingDto updateMovie(MovieIncomingDto movie)
-			throws IncompleateInputExeption, IncorrectInputException {
+			throws IncompleateInputExeption, IncorrectInputException, VersionConflictException {
 		if (movie.getId() == null)
 			throw new IncompleateInputExeption("There must be a movie ID");
 		validateMovieData(movie);
-		Movie movieToUpdate = movieRepository.findById(movie.getId()).orElseThrow(
-				() -> new NoDataInRepositoryException("There is no movie with such ID"));
-		movieToUpdate.setReleaseYear(movie.getReleaseYear());
-		movieToUpdate.setTitle(movie.getTitle());
-		if (!movieToUpdate.getDirector().getId().equals(movie.getDirectorId())) {
-			Director director = directorRepository.findById(movie.getDirectorId()).orElseThrow(
-					() -> new NoDataInRepositoryException("There is no director with such ID"));
-			movieToUpdate.setDirector(director);
+		if (movie.getVersion() == null)
+			throw new IncompleateInputExeption("There must be a movie version");
+		MovieUpdateView updated;
+		secondLevelCacheEvictor.beforeNativeChange(EntityType.MOVIE, movie.getId());
+		try {
+			updated = movieRepository.updateVersioned(movie.getId(), movie.getTitle(),
+					movie.getReleaseYear(), movie.getDirectorId(), movie.getVersion())
+					.orElse(null);
+		} catch (DataIntegrityViolationException e) {
+			throw missingDirectorOr(e);
 		}
-		return mapToOutgoingDto(movieRepository.save(movieToUpdate));
+		if (updated == null) {
+			if (!movieRepository.existsById(movie.getId()))
+				throw new NoDataInRepositoryException("There is no movie with such ID");
+			throw new VersionConflictException("The movie has been changed by someone else");
+		}
+		eventPublisher.publishEvent(CatalogChangedEvent.movieChanged(ChangeType.UPDATED,
+				updated.getId(), updated.getPreviousDirectorId(), updated.getDirectorId()));
+		return updated.toOutgoingDto();
 	}
 
 	/**
@@ -117,11 +419,25 @@ public class MovieServiceImpl implements MovieService {
 	@Override
 	@Transactional
 	public void deleteMovie(Integer id) {
-		movieRepository.deleteById(id);
+		movieRepository.findById(id).ifPresent(movie -> {
+			movieRepository.delete(movie);
+			eventPublisher.publishEvent(CatalogChangedEvent.movieChanged(ChangeType.DELETED, id,
+					movie.getDirector().getId()));
+		});
 	}
 
 	private void validateMovieData(MovieIncomingDto movie)
 			throws IncompleateInputExeption, IncorrectInputException {
+		validateMovieFields(movie);
+		if (movie.getDirectorId() == null)
+			throw new IncompleateInputExeption("There must be director ID");
+	}
+
+	/**
+	 * Checks the fields of {@code movie} that do not refer to a director
+	 */
+	static void validateMovieFields(MovieIncomingDto movie)
+			throws IncompleateInputExeption, IncorrectInputException {
 		if (movie.getTitle() == null)
 			throw new IncompleateInputExeption("There must be a movie title");
 		if (movie.getReleaseYear() == null)
@@ -129,8 +445,70 @@ public class MovieServiceImpl implements MovieService {
 		if (movie.getReleaseYear() < 1895)
 			throw new IncorrectInputException(
 					"A release year is less than 1895. It is unacceptably suspicious");
-		if (movie.getDirectorId() == null)
-			throw new IncompleateInputExeption("There must be director ID");
+	}
+
+	/**
+	 * Turns a violation of the director key into {@link NoDataInRepositoryException}
+	 * and returns any other violation as it is
+	 */
+	private static RuntimeException missingDirectorOr(DataIntegrityViolationException e) {
+		if (e.getCause() instanceof ConstraintViolationException violation
+				&& DIRECTOR_FOREIGN_KEY.equalsIgnoreCase(violation.getConstraintName()))
+			return new NoDataInRepositoryException("There is no director with such ID");
+		return e;
+	}
+
+	private static void checkPageSize(int limit) throws IncorrectInputException {
+		if (limit < 1 || limit > MAX_PAGE_SIZE)
+			throw new IncorrectInputException(
+					"A page size must be between 1 and " + MAX_PAGE_SIZE);
+	}
+
+	private static void checkFilter(MovieFilter filter, int limit)
+			throws IncorrectInputException {
+		checkPageSize(limit);
+		if (filter.getYearFrom() != null && filter.getYearTo() != null
+				&& filter.getYearFrom() > filter.getYearTo())
+			throw new IncorrectInputException("A year range must not be empty");
+	}
+
+	/**
+	 * A page in year order starts after the release year of the cursor movie,
+	 * and finds nothing once that movie is deleted. Only an empty page is checked,
+	 * so this costs no query on the way through the list.
+	 */
+	private void checkCursor(MovieFilter filter, Integer after, List<MovieOutgoingDto> movies)
+			throws IncorrectInputException {
+		if (movies.isEmpty() && after != null && filter.getSort() != MovieSort.ID
+				&& !movieRepository.existsById(after))
+			throw new IncorrectInputException(
+					"There is no movie with the cursor ID, start from the first page");
+	}
+
+	private static void checkSearch(String query, int offset, int limit)
+			throws IncorrectInputException {
+		if (query == null || query.isBlank())
+			throw new IncorrectInputException("There must be a search query");
+		if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE)
+			throw new IncorrectInputException(
+					"A page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+		// limit is in range, so this cannot overflow as offset + limit would
+		if (offset < 0 || offset > MAX_SEARCH_DEPTH - limit)
+			throw new IncorrectInputException(
+					"Only the first " + MAX_SEARCH_DEPTH + " search results are available");
+	}
+
+	/**
+	 * Cuts the extra movie fetched beyond {@code limit} and turns its presence
+	 * into the next cursor
+	 */
+	private static CursorPage<MovieOutgoingDto> toPage(List<MovieOutgoingDto> movies,
+			int limit) {
+		boolean hasNext = movies.size() > limit;
+		if (hasNext)
+			movies = movies.subList(0, limit);
+		Integer nextCursor = hasNext ? movies.get(limit - 1).getId() : null;
+		return new CursorPage<>(movies, nextCursor);
 	}
 
 	private MovieOutgoingDto mapToOutgoingDto(Movie movie) {
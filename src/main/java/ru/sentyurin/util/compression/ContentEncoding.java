@@ -0,0 +1,106 @@
+package ru.sentyurin.util.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Content codings a response body can be compressed with
+ */
+public enum ContentEncoding {
+	GZIP("gzip") {
+		@Override
+		public OutputStream compressing(OutputStream output, int level) throws IOException {
+			return new GZIPOutputStream(output, BUFFER_SIZE, true) {
+				{
+					def.setLevel(level);
+				}
+			};
+		}
+	},
+	ZSTD("zstd") {
+		@Override
+		public OutputStream compressing(OutputStream output, int level) throws IOException {
+			return new ZstdOutputStream(output, level);
+		}
+	};
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final String token;
+
+	ContentEncoding(String token) {
+		this.token = token;
+	}
+
+	/**
+	 * Returns the name of the coding in {@code Accept-Encoding} and
+	 * {@code Content-Encoding}
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Returns a stream compressing into {@code output}. Flushing the stream
+	 * flushes what was compressed so far; closing it finishes the body and closes
+	 * {@code output}.
+	 */
+	public abstract OutputStream compressing(OutputStream output, int level) throws IOException;
+
+	public static ContentEncoding fromToken(String token) {
+		for (ContentEncoding encoding : values())
+			if (encoding.token.equalsIgnoreCase(token.trim()))
+				return encoding;
+		throw new IllegalArgumentException("Unknown content encoding: " + token);
+	}
+
+	/**
+	 * Chooses the coding of {@code offered} with the highest quality value in
+	 * {@code acceptEncoding}, the earlier one of equal values. Codings not listed
+	 * take the quality of {@code *}, if any.
+	 *
+	 * @param offered codings in order of preference
+	 * @return nothing if the client accepts none of them
+	 */
+	public static Optional<ContentEncoding> negotiate(String acceptEncoding,
+			List<ContentEncoding> offered) {
+		if (acceptEncoding == null || acceptEncoding.isBlank())
+			return Optional.empty();
+		Map<String, Double> qualities = new HashMap<>();
+		for (String item : acceptEncoding.split(",")) {
+			String[] parts = item.split(";");
+			double quality = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(parameter.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			qualities.put(parts[0].trim().toLowerCase(Locale.ROOT), quality);
+		}
+		double wildcard = qualities.getOrDefault("*", 0.0);
+		ContentEncoding chosen = null;
+		double chosenQuality = 0;
+		for (ContentEncoding encoding : offered) {
+			double quality = qualities.getOrDefault(encoding.token, wildcard);
+			if (quality > chosenQuality) {
+				chosen = encoding;
+				chosenQuality = quality;
+			}
+		}
+		return Optional.ofNullable(chosen);
+	}
+
+}
@@ -0,0 +1,98 @@
+package ru.sentyurin.util.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+/**
+ * Settings of response compression: the offered content codings in order of
+ * preference, the smallest body worth compressing, and the compression levels
+ * of bodies compressed per response and of bodies compressed once and reused,
+ * which can afford a slower level
+ */
+@Component
+public class ResponseCompression {
+
+	private final List<ContentEncoding> encodings;
+	private final int minSize;
+	private final Map<ContentEncoding, Integer> levels = new EnumMap<>(ContentEncoding.class);
+	private final Map<ContentEncoding, Integer> precompressedLevels = new EnumMap<>(
+			ContentEncoding.class);
+	private final CompressionMetrics compressionMetrics;
+
+	@Autowired
+	public ResponseCompression(@Value("${compression.encodings}") String[] encodings,
+			@Value("${compression.min_size}") int minSize,
+			@Value("${compression.gzip.level}") int gzipLevel,
+			@Value("${compression.zstd.level}") int zstdLevel,
+			@Value("${compression.precompressed.gzip.level}") int precompressedGzipLevel,
+			@Value("${compression.precompressed.zstd.level}") int precompressedZstdLevel,
+			CompressionMetrics compressionMetrics) {
+		this.encodings = Arrays.stream(encodings).filter(token -> !token.isBlank())
+				.map(ContentEncoding::fromToken).distinct().toList();
+		this.minSize = minSize;
+		levels.put(ContentEncoding.GZIP, gzipLevel);
+		levels.put(ContentEncoding.ZSTD, zstdLevel);
+		precompressedLevels.put(ContentEncoding.GZIP, precompressedGzipLevel);
+		precompressedLevels.put(ContentEncoding.ZSTD, precompressedZstdLevel);
+		this.compressionMetrics = compressionMetrics;
+	}
+
+	/**
+	 * Returns the offered coding the client prefers, nothing if it accepts none
+	 */
+	public Optional<ContentEncoding> negotiate(String acceptEncoding) {
+		return ContentEncoding.negotiate(acceptEncoding, encodings);
+	}
+
+	/**
+	 * Returns the size of the smallest body to compress, in bytes
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Returns a stream compressing a response body into {@code output}
+	 */
+	public OutputStream compressing(ContentEncoding encoding, OutputStream output)
+			throws IOException {
+		return encoding.compressing(output, levels.get(encoding));
+	}
+
+	/**
+	 * Compresses {@code body} with every offered coding at the level of reused
+	 * bodies. The time spent is recorded in {@link CompressionMetrics}; the sizes
+	 * are to be recorded on every send.
+	 */
+	public Map<ContentEncoding, byte[]> precompress(byte[] body) {
+		Map<ContentEncoding, byte[]> compressed = new EnumMap<>(ContentEncoding.class);
+		for (ContentEncoding encoding : encodings) {
+			long start = System.nanoTime();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+			try (OutputStream output = encoding.compressing(bytes,
+					precompressedLevels.get(encoding))) {
+				output.write(body);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			compressed.put(encoding, bytes.toByteArray());
+			compressionMetrics.recordCompression(encoding, System.nanoTime() - start);
+		}
+		return Collections.unmodifiableMap(compressed);
+	}
+
+}
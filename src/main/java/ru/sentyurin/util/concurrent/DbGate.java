@@ -0,0 +1,85 @@
+package ru.sentyurin.util.concurrent;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of threads that hold a database connection at once and the
+ * number of threads waiting for one. When requests run on virtual threads they
+ * are no longer limited by the size of a thread pool, so without the gate any
+ * number of them could queue inside the connection pool until they time out.
+ * A thread beyond {@code maxWaiting} waiters, or one that waits longer than
+ * {@code timeoutMillis}, is refused at once.
+ */
+public class DbGate {
+
+	private final Semaphore semaphore;
+	private final int permits;
+	private final int maxWaiting;
+	private final long timeoutMillis;
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public DbGate(int permits, int maxWaiting, long timeoutMillis) {
+		semaphore = new Semaphore(permits, true);
+		this.permits = permits;
+		this.maxWaiting = maxWaiting;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Takes a permit, waiting for at most {@code timeoutMillis}
+	 * 
+	 * @throws SQLTransientConnectionException if there are too many waiters, the
+	 *                                         wait times out or the thread is
+	 *                                         interrupted
+	 */
+	public void acquire() throws SQLTransientConnectionException {
+		if (semaphore.tryAcquire())
+			return;
+		if (waiting.incrementAndGet() > maxWaiting) {
+			waiting.decrementAndGet();
+			throw reject("Too many threads are waiting for a database connection");
+		}
+		boolean acquired;
+		try {
+			acquired = semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw reject("Interrupted while waiting for a database connection");
+		} finally {
+			waiting.decrementAndGet();
+		}
+		if (!acquired)
+			throw reject("No database connection available in " + timeoutMillis + " ms");
+	}
+
+	public void release() {
+		semaphore.release();
+	}
+
+	public int getPermits() {
+		return permits;
+	}
+
+	public int getActive() {
+		return permits - semaphore.availablePermits();
+	}
+
+	public int getWaiting() {
+		return waiting.get();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	private SQLTransientConnectionException reject(String message) {
+		rejectedCount.increment();
+		return new SQLTransientConnectionException(message);
+	}
+
+}
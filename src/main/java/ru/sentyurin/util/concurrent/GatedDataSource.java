@@ -0,0 +1,91 @@
+package ru.sentyurin.util.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source that passes every connection through a {@link DbGate}: the
+ * permit is taken before the connection is borrowed from the target and
+ * returned when the connection is closed
+ */
+public class GatedDataSource extends DelegatingDataSource implements Closeable {
+
+	private final DbGate gate;
+
+	public GatedDataSource(DataSource targetDataSource, DbGate gate) {
+		super(targetDataSource);
+		this.gate = gate;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		gate.acquire();
+		try {
+			return gated(super.getConnection());
+		} catch (SQLException | RuntimeException e) {
+			gate.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		gate.acquire();
+		try {
+			return gated(super.getConnection(username, password));
+		} catch (SQLException | RuntimeException e) {
+			gate.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the target data source if it can be closed, so that the pool is shut
+	 * down with the application context
+	 */
+	@Override
+	public void close() throws IOException {
+		if (obtainTargetDataSource() instanceof Closeable target)
+			target.close();
+	}
+
+	private Connection gated(Connection connection) {
+		AtomicBoolean released = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "close":
+						if (released.compareAndSet(false, true)) {
+							try {
+								connection.close();
+							} finally {
+								gate.release();
+							}
+							return null;
+						}
+						break;
+					default:
+						break;
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+}
@@ -0,0 +1,12 @@
+package ru.sentyurin.util.exception;
+
+/**
+ * Thrown when an entity has been changed since the version the client read
+ */
+public class VersionConflictException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public VersionConflictException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,63 @@
+package ru.sentyurin.util.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import ru.sentyurin.util.compression.ContentEncoding;
+
+/**
+ * Totals of response compression by content coding: time spent compressing and
+ * bytes before and after compression. A body compressed once and sent many
+ * times adds its compression time once and its sizes on every send, so that the
+ * time per byte saved covers both kinds of body.
+ */
+@Component
+public class CompressionMetrics {
+
+	private final Map<ContentEncoding, Totals> totals = new EnumMap<>(ContentEncoding.class);
+
+	public CompressionMetrics() {
+		for (ContentEncoding encoding : ContentEncoding.values())
+			totals.put(encoding, new Totals());
+	}
+
+	public void recordCompression(ContentEncoding encoding, long nanos) {
+		totals.get(encoding).nanos.add(nanos);
+	}
+
+	public void recordResponse(ContentEncoding encoding, long inputBytes, long outputBytes) {
+		Totals encodingTotals = totals.get(encoding);
+		encodingTotals.inputBytes.add(inputBytes);
+		encodingTotals.outputBytes.add(outputBytes);
+	}
+
+	public long getNanos(ContentEncoding encoding) {
+		return totals.get(encoding).nanos.sum();
+	}
+
+	public long getInputBytes(ContentEncoding encoding) {
+		return totals.get(encoding).inputBytes.sum();
+	}
+
+	public long getOutputBytes(ContentEncoding encoding) {
+		return totals.get(encoding).outputBytes.sum();
+	}
+
+	/**
+	 * Returns the compression time per byte saved so far, 0 if nothing was saved
+	 */
+	public double getSecondsPerSavedByte(ContentEncoding encoding) {
+		long saved = getInputBytes(encoding) - getOutputBytes(encoding);
+		return saved <= 0 ? 0 : getNanos(encoding) / 1e9 / saved;
+	}
+
+	private static class Totals {
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder inputBytes = new LongAdder();
+		private final LongAdder outputBytes = new LongAdder();
+	}
+
+}
@@ -0,0 +1,77 @@
+package ru.sentyurin.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of one request handler: latency, payload sizes, responses by
+ * status class and SQL statements per request. Recording never allocates and never blocks.
+ */
+public class EndpointMetrics {
+
+	private final String name;
+	private final LatencyHistogram latencyNanos = new LatencyHistogram();
+	private final LatencyHistogram requestBytes = new LatencyHistogram();
+	private final LatencyHistogram responseBytes = new LatencyHistogram();
+	private final LongAdder clientErrorCount = new LongAdder();
+	private final LongAdder serverErrorCount = new LongAdder();
+	private final LatencyHistogram statements = new LatencyHistogram();
+	private final LongAdder overBudgetCount = new LongAdder();
+
+	public EndpointMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param requestSize size of the request body, or a negative number when it
+	 *                    is unknown
+	 */
+	public void record(long nanos, long requestSize, long responseSize, int status) {
+		latencyNanos.record(nanos);
+		if (requestSize >= 0)
+			requestBytes.record(requestSize);
+		responseBytes.record(responseSize);
+		if (status >= 500)
+			serverErrorCount.increment();
+		else if (status >= 400)
+			clientErrorCount.increment();
+	}
+
+	public void recordStatements(int count, boolean overBudget) {
+		statements.record(count);
+		if (overBudget)
+			overBudgetCount.increment();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public LatencyHistogram getRequestBytes() {
+		return requestBytes;
+	}
+
+	public LatencyHistogram getResponseBytes() {
+		return responseBytes;
+	}
+
+	public long getClientErrorCount() {
+		return clientErrorCount.sum();
+	}
+
+	public long getServerErrorCount() {
+		return serverErrorCount.sum();
+	}
+
+	public LatencyHistogram getStatements() {
+		return statements;
+	}
+
+	public long getOverBudgetCount() {
+		return overBudgetCount.sum();
+	}
+
+}
@@ -0,0 +1,59 @@
+package ru.sentyurin.util.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Times every public method of a {@link Service} bean and counts the calls of
+ * every {@link ExceptionHandler} of a {@link ControllerAdvice} bean. The advice
+ * runs outside any other, so that a service call includes its transaction.
+ * <p>
+ * Registered with the infrastructure role, the advisor is applied by the same
+ * auto-proxy creator as {@code @Transactional}.
+ */
+public class MetricsAdvisor extends StaticMethodMatcherPointcutAdvisor {
+
+	private static final long serialVersionUID = 1L;
+
+	public MetricsAdvisor(RequestMetrics requestMetrics) {
+		setAdvice((MethodInterceptor) invocation -> {
+			Class<?> targetClass = AopUtils.getTargetClass(invocation.getThis());
+			OperationMetrics metrics = isExceptionHandler(invocation.getMethod())
+					? requestMetrics.exceptionHandler(invocation.getMethod(), targetClass)
+					: requestMetrics.service(invocation.getMethod(), targetClass);
+			long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				Object result = invocation.proceed();
+				failed = false;
+				return result;
+			} finally {
+				metrics.record(System.nanoTime() - start, failed);
+			}
+		});
+		setOrder(Ordered.HIGHEST_PRECEDENCE);
+	}
+
+	@Override
+	public boolean matches(Method method, Class<?> targetClass) {
+		if (AnnotatedElementUtils.hasAnnotation(targetClass, ControllerAdvice.class))
+			return isExceptionHandler(method);
+		return AnnotatedElementUtils.hasAnnotation(targetClass, Service.class)
+				&& Modifier.isPublic(method.getModifiers())
+				&& method.getDeclaringClass() != Object.class;
+	}
+
+	private static boolean isExceptionHandler(Method method) {
+		return method.isAnnotationPresent(ExceptionHandler.class);
+	}
+
+}
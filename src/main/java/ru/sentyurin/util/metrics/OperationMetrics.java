@@ -0,0 +1,37 @@
+package ru.sentyurin.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of one method: call latency and the number of calls that threw.
+ * Recording never allocates and never blocks.
+ */
+public class OperationMetrics {
+
+	private final String name;
+	private final LatencyHistogram latencyNanos = new LatencyHistogram();
+	private final LongAdder errorCount = new LongAdder();
+
+	public OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	public void record(long nanos, boolean failed) {
+		latencyNanos.record(nanos);
+		if (failed)
+			errorCount.increment();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+}
@@ -0,0 +1,89 @@
+package ru.sentyurin.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Collects live statistics of the Hikari connection pool: connection counts
+ * and histograms of connection acquisition and usage time
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+	private final LatencyHistogram acquireNanos = new LatencyHistogram();
+	private final LatencyHistogram usageMillis = new LatencyHistogram();
+	private final LongAdder creationCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private volatile PoolStats poolStats;
+
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		this.poolStats = poolStats;
+		return new IMetricsTracker() {
+
+			@Override
+			public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+				creationCount.increment();
+			}
+
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				acquireNanos.record(elapsedAcquiredNanos);
+			}
+
+			@Override
+			public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+				usageMillis.record(elapsedBorrowedMillis);
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				timeoutCount.increment();
+			}
+		};
+	}
+
+	public int getActiveConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getActiveConnections();
+	}
+
+	public int getIdleConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getIdleConnections();
+	}
+
+	public int getTotalConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getTotalConnections();
+	}
+
+	public int getPendingThreads() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getPendingThreads();
+	}
+
+	public int getMaxConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getMaxConnections();
+	}
+
+	public LatencyHistogram getAcquireNanos() {
+		return acquireNanos;
+	}
+
+	public LatencyHistogram getUsageMillis() {
+		return usageMillis;
+	}
+
+	public long getCreationCount() {
+		return creationCount.sum();
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount.sum();
+	}
+
+}
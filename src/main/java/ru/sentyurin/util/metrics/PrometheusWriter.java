@@ -0,0 +1,141 @@
+package ru.sentyurin.util.metrics;
+
+import java.math.BigDecimal;
+
+/**
+ * Builds a scrape in the Prometheus text exposition format (version 0.0.4).
+ * Histograms are exported with fixed bucket bounds, the counts of which are
+ * taken from a {@link LatencyHistogram} with its bucket precision.
+ */
+public class PrometheusWriter {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final double[] SECONDS_BOUNDS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025,
+			0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+	private static final long[] BYTES_BOUNDS = { 128, 512, 1024, 4096, 16_384, 65_536,
+			262_144, 1_048_576, 4_194_304, 16_777_216 };
+	private static final long[] COUNT_BOUNDS = { 1, 2, 3, 5, 10, 20, 50, 100, 1000 };
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final StringBuilder output = new StringBuilder(4096);
+
+	/**
+	 * Writes the {@code HELP} and {@code TYPE} lines of a metric family
+	 *
+	 * @param type {@code counter}, {@code gauge} or {@code histogram}
+	 */
+	public PrometheusWriter family(String name, String type, String help) {
+		output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		return this;
+	}
+
+	/**
+	 * @param labels labels made by {@link #label(String, String)}, or an empty
+	 *               string
+	 */
+	public PrometheusWriter sample(String name, String labels, long value) {
+		appendName(name, labels, null);
+		output.append(' ').append(value).append('\n');
+		return this;
+	}
+
+	public PrometheusWriter sample(String name, String labels, double value) {
+		appendName(name, labels, null);
+		output.append(' ').append(format(value)).append('\n');
+		return this;
+	}
+
+	/**
+	 * Writes the samples of a histogram of durations in seconds
+	 *
+	 * @param unitNanos nanoseconds per recorded unit: 1 for a histogram of
+	 *                  nanoseconds, 1 000 000 for one of milliseconds
+	 */
+	public PrometheusWriter seconds(String name, String labels, LatencyHistogram histogram,
+			long unitNanos) {
+		for (double bound : SECONDS_BOUNDS) {
+			long value = (long) (bound * NANOS_PER_SECOND / unitNanos);
+			bucket(name, labels, format(bound), histogram.getCountAtOrBelow(value));
+		}
+		return total(name, labels, histogram,
+				format(histogram.getSum() * (double) unitNanos / NANOS_PER_SECOND));
+	}
+
+	/**
+	 * Writes the samples of a histogram of sizes in bytes
+	 */
+	public PrometheusWriter bytes(String name, String labels, LatencyHistogram histogram) {
+		return integers(name, labels, histogram, BYTES_BOUNDS);
+	}
+
+	/**
+	 * Writes the samples of a histogram of small counts, such as statements per
+	 * request
+	 */
+	public PrometheusWriter counts(String name, String labels, LatencyHistogram histogram) {
+		return integers(name, labels, histogram, COUNT_BOUNDS);
+	}
+
+	/**
+	 * Returns a label to be passed as {@code labels}; labels are joined with
+	 * commas
+	 */
+	public static String label(String name, String value) {
+		StringBuilder label = new StringBuilder(name.length() + value.length() + 3);
+		label.append(name).append("=\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\' -> label.append("\\\\");
+			case '"' -> label.append("\\\"");
+			case '\n' -> label.append("\\n");
+			default -> label.append(c);
+			}
+		}
+		return label.append('"').toString();
+	}
+
+	@Override
+	public String toString() {
+		return output.toString();
+	}
+
+	private PrometheusWriter integers(String name, String labels, LatencyHistogram histogram,
+			long[] bounds) {
+		for (long bound : bounds)
+			bucket(name, labels, Long.toString(bound), histogram.getCountAtOrBelow(bound));
+		return total(name, labels, histogram, Long.toString(histogram.getSum()));
+	}
+
+	private void bucket(String name, String labels, String bound, long count) {
+		appendName(name + "_bucket", labels, label("le", bound));
+		output.append(' ').append(count).append('\n');
+	}
+
+	private PrometheusWriter total(String name, String labels, LatencyHistogram histogram,
+			String sum) {
+		bucket(name, labels, "+Inf", histogram.getCount());
+		appendName(name + "_sum", labels, null);
+		output.append(' ').append(sum).append('\n');
+		return sample(name + "_count", labels, histogram.getCount());
+	}
+
+	private void appendName(String name, String labels, String extraLabel) {
+		output.append(name);
+		boolean hasLabels = !labels.isEmpty();
+		if (hasLabels || extraLabel != null) {
+			output.append('{').append(labels);
+			if (extraLabel != null)
+				output.append(hasLabels ? "," : "").append(extraLabel);
+			output.append('}');
+		}
+	}
+
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15)
+			return Long.toString((long) value);
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+}
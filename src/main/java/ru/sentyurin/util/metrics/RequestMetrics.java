@@ -0,0 +1,90 @@
+package ru.sentyurin.util.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the statistics of request handlers, service methods and
+ * exception handlers. Statistics are created on the first call of a method and
+ * looked up by the {@link Method} afterwards, so that the lookup does not
+ * allocate.
+ */
+@Component
+public class RequestMetrics {
+
+	private final Map<Method, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+	private final Map<Method, OperationMetrics> services = new ConcurrentHashMap<>();
+	private final Map<Method, OperationMetrics> exceptionHandlers = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the statistics of a handler method, named
+	 * {@code Controller.method}
+	 */
+	public EndpointMetrics endpoint(Method handler) {
+		EndpointMetrics metrics = endpoints.get(handler);
+		if (metrics == null)
+			metrics = endpoints.computeIfAbsent(handler,
+					method -> new EndpointMetrics(simpleName(method.getDeclaringClass(), method)));
+		return metrics;
+	}
+
+	/**
+	 * Returns the statistics of a service method, named
+	 * {@code ServiceImpl.method(ParameterType,...)} since service methods are
+	 * overloaded
+	 */
+	public OperationMetrics service(Method method, Class<?> targetClass) {
+		OperationMetrics metrics = services.get(method);
+		if (metrics == null)
+			metrics = services.computeIfAbsent(method,
+					key -> new OperationMetrics(signature(targetClass, key)));
+		return metrics;
+	}
+
+	/**
+	 * Returns the statistics of an exception handler, named
+	 * {@code Advice.method}
+	 */
+	public OperationMetrics exceptionHandler(Method method, Class<?> targetClass) {
+		OperationMetrics metrics = exceptionHandlers.get(method);
+		if (metrics == null)
+			metrics = exceptionHandlers.computeIfAbsent(method,
+					key -> new OperationMetrics(simpleName(targetClass, key)));
+		return metrics;
+	}
+
+	public List<EndpointMetrics> getEndpoints() {
+		return sorted(endpoints.values(), EndpointMetrics::getName);
+	}
+
+	public List<OperationMetrics> getServices() {
+		return sorted(services.values(), OperationMetrics::getName);
+	}
+
+	public List<OperationMetrics> getExceptionHandlers() {
+		return sorted(exceptionHandlers.values(), OperationMetrics::getName);
+	}
+
+	private static <T> List<T> sorted(Collection<T> values, Function<T, String> name) {
+		return values.stream().sorted(Comparator.comparing(name)).toList();
+	}
+
+	private static String simpleName(Class<?> type, Method method) {
+		return type.getSimpleName() + "." + method.getName();
+	}
+
+	private static String signature(Class<?> type, Method method) {
+		return simpleName(type, method) + Arrays.stream(method.getParameterTypes())
+				.map(Class::getSimpleName).collect(Collectors.joining(",", "(", ")"));
+	}
+
+}
@@ -0,0 +1,27 @@
+package ru.sentyurin.util.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Hibernate {@link StatementInspector} that counts every SQL statement in the
+ * {@link RequestStatements} of the current request, if there is one. The
+ * request is found through {@link RequestContextHolder}, which Spring MVC also
+ * binds on the threads of asynchronous handlers. Register it with the
+ * {@code hibernate.session_factory.statement_inspector} property.
+ */
+public class RequestStatementInspector implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String inspect(String sql) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null && attributes.getAttribute(RequestStatements.ATTRIBUTE,
+				RequestAttributes.SCOPE_REQUEST) instanceof RequestStatements statements)
+			statements.onStatement(sql);
+		return sql;
+	}
+
+}
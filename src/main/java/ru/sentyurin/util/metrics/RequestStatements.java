@@ -0,0 +1,51 @@
+package ru.sentyurin.util.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Number of SQL statements issued while handling one request, checked against
+ * the statement budget of the request. Crossing the budget is logged at once,
+ * together with the statement that crossed it, so that an N+1 pattern is
+ * reported where it happens.
+ * <p>
+ * A request is handled by one thread at a time, so the count is not
+ * synchronised.
+ */
+public class RequestStatements {
+	public static final String ATTRIBUTE = RequestStatements.class.getName();
+
+	private static final Logger LOG = LoggerFactory.getLogger(RequestStatements.class);
+
+	private final String handler;
+	private final int budget;
+	private int count;
+
+	public RequestStatements(String handler, int budget) {
+		this.handler = handler;
+		this.budget = budget;
+	}
+
+	public void onStatement(String sql) {
+		if (++count == budget + 1)
+			LOG.warn("{} exceeded its budget of {} SQL statements with: {}", handler, budget,
+					sql);
+	}
+
+	public String getHandler() {
+		return handler;
+	}
+
+	public int getBudget() {
+		return budget;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public boolean isOverBudget() {
+		return count > budget;
+	}
+
+}
@@ -1,11 +1,49 @@
 create table if not exists Movie (
-	id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+	id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50),
 	title varchar UNIQUE NOT NULL,
 	release_year int NOT NULL,
 	director_id int NOT NULL
 );
 
 create table if not exists Director (
-	id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+	id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50),
 	name varchar UNIQUE NOT NULL
-);
\ No newline at end of file
+);
+
+-- IDs are allocated by pooled sequence generators in blocks of 50. Tables created
+-- before that still increment their identity sequences by 1
+alter table Movie alter column id set increment by 50;
+alter table Director alter column id set increment by 50;
+
+alter table Movie add column if not exists title_search tsvector
+	GENERATED ALWAYS AS (to_tsvector('english', title)) STORED;
+
+create index if not exists movie_title_search_idx on Movie using gin (title_search);
+
+-- Serves director filters (with or without a year range), the lazy load of
+-- Director.movies and the delete of a director's movies
+create index if not exists movie_director_year_idx on Movie (director_id, release_year, id)
+	include (title);
+
+-- Serves year ranges and year-ordered keyset pages across all directors
+create index if not exists movie_year_idx on Movie (release_year, id)
+	include (title, director_id);
+
+-- Optimistic-locking versions, incremented by Hibernate on every update
+alter table Movie add column if not exists version int NOT NULL DEFAULT 0;
+alter table Director add column if not exists version int NOT NULL DEFAULT 0;
+
+-- Checks the director of every movie, including updates that change it without
+-- reading the director first. The key is added once and without a scan, which
+-- would block writes to Movie; the existing rows are then checked under a lock
+-- that lets them through. Validating a valid key does nothing.
+do $$
+begin
+	if not exists (select 1 from pg_constraint where conname = 'movie_director_fk'
+			and conrelid = 'movie'::regclass) then
+		alter table Movie add constraint movie_director_fk foreign key (director_id)
+			references Director (id) not valid;
+	end if;
+end
+$$;
+alter table Movie validate constraint movie_director_fk;
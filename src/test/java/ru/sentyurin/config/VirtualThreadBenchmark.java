@@ -0,0 +1,170 @@
+package ru.sentyurin.config;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import ru.sentyurin.util.concurrent.DbGate;
+import ru.sentyurin.util.concurrent.GatedDataSource;
+
+/**
+ * Compares request throughput of a controller run on the container threads, a
+ * fixed pool of {@value #CONTAINER_THREADS} as in a servlet container, with the
+ * same controller run by {@link VirtualThreadHandlerAdapter} on virtual threads
+ * behind a {@link GatedDataSource}, for several connection pool sizes. Requests
+ * go through the dispatcher servlet of MockMvc, wired as in {@link SpringConfig}:
+ * with virtual threads a container thread only starts a request and, once the
+ * virtual thread is done, dispatches its result. The controller holds a
+ * connection of an H2 in-memory database for {@value #DB_MILLIS} ms (a query,
+ * then a sleep standing for server time) and then blocks for
+ * {@value #IO_MILLIS} ms without a connection, as when writing to a slow client.
+ * <p>
+ * Not run by the build. Start it with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.sentyurin.config.VirtualThreadBenchmark}
+ */
+public class VirtualThreadBenchmark {
+	private static final int CONTAINER_THREADS = 200;
+	private static final int REQUESTS = 10_000;
+	private static final int DB_MILLIS = 5;
+	private static final int IO_MILLIS = 50;
+
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%6s %10s %12s %10s%n", "pool", "threads", "requests/s", "failed");
+		for (int poolSize : new int[] { 5, 10, 20, 40, 80 }) {
+			try (HikariDataSource pool = pool(poolSize)) {
+				run(poolSize, "platform", pool);
+				run(poolSize, "virtual",
+						new GatedDataSource(pool, new DbGate(poolSize, REQUESTS, 60_000)));
+			}
+		}
+	}
+
+	private static void run(int poolSize, String threads, DataSource dataSource)
+			throws InterruptedException {
+		LongAdder failed = new LongAdder();
+		CountDownLatch done = new CountDownLatch(REQUESTS);
+		long start;
+		try (AnnotationConfigWebApplicationContext context = context(dataSource);
+				ExecutorService container = Executors.newFixedThreadPool(CONTAINER_THREADS)) {
+			MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+			start = System.nanoTime();
+			for (int i = 0; i < REQUESTS; i++)
+				container.execute(() -> perform(mockMvc, get("/request"), container, done, failed));
+			done.await();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%6d %10s %12.0f %10d%n", poolSize, threads, REQUESTS / seconds,
+				failed.sum());
+	}
+
+	/**
+	 * Performs a request on a container thread. A request put into async mode is
+	 * dispatched again on a container thread when its result is ready.
+	 */
+	private static void perform(MockMvc mockMvc, RequestBuilder request,
+			ExecutorService container, CountDownLatch done, LongAdder failed) {
+		try {
+			MvcResult result = mockMvc.perform(request).andReturn();
+			if (result.getRequest().isAsyncStarted()) {
+				((MockAsyncContext) result.getRequest().getAsyncContext())
+						.addDispatchHandler(() -> container.execute(() -> perform(mockMvc,
+								asyncDispatch(result), container, done, failed)));
+				return;
+			}
+			if (result.getResponse().getStatus() != 200)
+				failed.increment();
+		} catch (Exception e) {
+			failed.increment();
+		}
+		done.countDown();
+	}
+
+	private static AnnotationConfigWebApplicationContext context(DataSource dataSource) {
+		AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.addBeanFactoryPostProcessor(
+				beanFactory -> beanFactory.registerSingleton("dataSource", dataSource));
+		context.register(WebConfig.class);
+		context.refresh();
+		return context;
+	}
+
+	private static HikariDataSource pool(int size) {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl("jdbc:h2:mem:benchmark");
+		config.setMaximumPoolSize(size);
+		config.setMinimumIdle(size);
+		config.setConnectionTimeout(60_000);
+		return new HikariDataSource(config);
+	}
+
+	/**
+	 * Virtual threads are enabled together with the gated data source, as in
+	 * {@link SpringConfig}
+	 */
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig {
+
+		@Bean
+		VirtualThreadHandlerAdapter virtualThreadHandlerAdapter(
+				RequestMappingHandlerAdapter requestMappingHandlerAdapter,
+				DataSource dataSource) {
+			return new VirtualThreadHandlerAdapter(requestMappingHandlerAdapter,
+					dataSource instanceof GatedDataSource, 0);
+		}
+
+		@Bean
+		RequestController requestController(DataSource dataSource) {
+			return new RequestController(dataSource);
+		}
+	}
+
+	@RestController
+	static class RequestController {
+		private final DataSource dataSource;
+
+		RequestController(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		@GetMapping("/request")
+		String doGet() throws SQLException, InterruptedException {
+			try (Connection connection = dataSource.getConnection();
+					Statement statement = connection.createStatement()) {
+				statement.execute("select 1");
+				Thread.sleep(DB_MILLIS);
+			}
+			Thread.sleep(IO_MILLIS);
+			return "done";
+		}
+	}
+
+}
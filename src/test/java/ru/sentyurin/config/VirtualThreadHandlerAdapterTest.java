@@ -0,0 +1,170 @@
+package ru.sentyurin.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ru.sentyurin.controller.advice.DefaultAdvice;
+import ru.sentyurin.util.exception.NoDataInRepositoryException;
+
+class VirtualThreadHandlerAdapterTest {
+
+	private RequestMappingHandlerAdapter delegate;
+	private HandlerMethod handler;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@BeforeEach
+	void init() throws NoSuchMethodException {
+		delegate = Mockito.mock(RequestMappingHandlerAdapter.class);
+		handler = new HandlerMethod(new ThreadController(),
+				ThreadController.class.getDeclaredMethod("doGet"));
+		Mockito.when(delegate.supports(handler)).thenReturn(true);
+		request = new MockHttpServletRequest("GET", "/movies");
+		request.setAsyncSupported(true);
+		response = new MockHttpServletResponse();
+	}
+
+	@Test
+	void shouldRunHandlerOnVirtualThreadAndReturnItsResultOnDispatch() throws Exception {
+		ModelAndView modelAndView = new ModelAndView();
+		AtomicBoolean virtual = new AtomicBoolean();
+		Mockito.when(delegate.handle(request, response, handler)).thenAnswer(invocation -> {
+			virtual.set(Thread.currentThread().isVirtual());
+			return modelAndView;
+		});
+		VirtualThreadHandlerAdapter adapter = new VirtualThreadHandlerAdapter(delegate, true, 0);
+
+		assertTrue(adapter.supports(handler));
+		assertNull(adapter.handle(request, response, handler));
+		assertTrue(request.isAsyncStarted());
+		awaitResult();
+		assertTrue(virtual.get());
+		assertSame(modelAndView, adapter.handle(request, response, handler));
+	}
+
+	@Test
+	void shouldRethrowHandlerExceptionOnDispatch() throws Exception {
+		Mockito.when(delegate.handle(request, response, handler))
+				.thenThrow(new NoDataInRepositoryException("There is no movie with this ID"));
+		VirtualThreadHandlerAdapter adapter = new VirtualThreadHandlerAdapter(delegate, true, 0);
+
+		adapter.handle(request, response, handler);
+		awaitResult();
+		assertThrows(NoDataInRepositoryException.class,
+				() -> adapter.handle(request, response, handler));
+	}
+
+	@Test
+	void shouldWriteResponseBodyThroughAsyncDispatch() throws Exception {
+		try (AnnotationConfigWebApplicationContext context =
+				new AnnotationConfigWebApplicationContext()) {
+			context.setServletContext(new MockServletContext());
+			context.register(WebConfig.class);
+			context.refresh();
+			MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+			MvcResult result = mockMvc.perform(get("/thread"))
+					.andExpect(request().asyncStarted()).andReturn();
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+					.andExpect(content().string("virtual"));
+
+			result = mockMvc.perform(get("/missing")).andReturn();
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
+		}
+	}
+
+	@Test
+	void shouldLeaveAsynchronousHandlersToDelegate() throws NoSuchMethodException {
+		HandlerMethod emitterHandler = new HandlerMethod(new ThreadController(),
+				ThreadController.class.getDeclaredMethod("doGetEmitter"));
+		Mockito.when(delegate.supports(emitterHandler)).thenReturn(true);
+		assertFalse(new VirtualThreadHandlerAdapter(delegate, true, 0).supports(emitterHandler));
+	}
+
+	@Test
+	void shouldNotSupportHandlersWhenDisabled() {
+		assertFalse(new VirtualThreadHandlerAdapter(delegate, false, 0).supports(handler));
+	}
+
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig {
+
+		@Bean
+		VirtualThreadHandlerAdapter virtualThreadHandlerAdapter(
+				RequestMappingHandlerAdapter requestMappingHandlerAdapter) {
+			return new VirtualThreadHandlerAdapter(requestMappingHandlerAdapter, true, 0);
+		}
+
+		@Bean
+		ThreadController threadController() {
+			return new ThreadController();
+		}
+
+		@Bean
+		DefaultAdvice defaultAdvice() {
+			return new DefaultAdvice();
+		}
+	}
+
+	@RestController
+	static class ThreadController {
+
+		@GetMapping("/thread")
+		String doGet() {
+			return Thread.currentThread().isVirtual() ? "virtual" : "platform";
+		}
+
+		@GetMapping("/emitter")
+		SseEmitter doGetEmitter() {
+			return new SseEmitter();
+		}
+
+		@GetMapping("/missing")
+		String doGetMissing() {
+			throw new NoDataInRepositoryException("Missing");
+		}
+	}
+
+	private void awaitResult() throws InterruptedException {
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!asyncManager.hasConcurrentResult() && System.nanoTime() < deadline)
+			Thread.sleep(1);
+		assertTrue(asyncManager.hasConcurrentResult());
+	}
+
+}
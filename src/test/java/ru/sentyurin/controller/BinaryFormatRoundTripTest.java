@@ -0,0 +1,229 @@
+package ru.sentyurin.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.sentyurin.controller.advice.DefaultAdvice;
+import ru.sentyurin.controller.advice.FieldsetAdvice;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.service.DirectorService;
+import ru.sentyurin.service.MovieImportService;
+import ru.sentyurin.service.MovieService;
+
+/**
+ * Sends Smile and CBOR requests through the dispatcher servlet, to the message
+ * converters Spring MVC registers for them and set up as in the application
+ */
+class BinaryFormatRoundTripTest {
+	private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+	private static final ObjectMapper SMILE_MAPPER = Jackson2ObjectMapperBuilder.smile().build();
+	private static final ObjectMapper CBOR_MAPPER = Jackson2ObjectMapperBuilder.cbor().build();
+
+	private AnnotationConfigWebApplicationContext context;
+	private MockMvc mockMvc;
+	private MovieService movieService;
+	private DirectorService directorService;
+	private MovieOutgoingDto movie;
+
+	@BeforeEach
+	void init() {
+		context = new AnnotationConfigWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.register(WebConfig.class);
+		context.refresh();
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		movieService = context.getBean(MovieService.class);
+		directorService = context.getBean(DirectorService.class);
+		movie = new MovieOutgoingDto(1, "Reservoir dogs", 1992, 2, "Quentin Tarantino")
+				.setVersion(3);
+		Mockito.when(movieService.getMovieById(Mockito.eq(1), Mockito.any()))
+				.thenReturn(Optional.of(movie));
+	}
+
+	@AfterEach
+	void close() {
+		context.close();
+	}
+
+	@Test
+	void shouldWriteMovieInSmileWhenAccepted() throws Exception {
+		byte[] body = mockMvc.perform(get("/movies/1").accept(SMILE)).andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(SMILE)).andReturn().getResponse()
+				.getContentAsByteArray();
+
+		assertMovie(SMILE_MAPPER.readValue(body, MovieOutgoingDto.class));
+	}
+
+	@Test
+	void shouldWriteMovieInCborWhenAccepted() throws Exception {
+		byte[] body = mockMvc.perform(get("/movies/1").accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		assertMovie(CBOR_MAPPER.readValue(body, MovieOutgoingDto.class));
+	}
+
+	@Test
+	void shouldPreferFormatWithHigherQuality() throws Exception {
+		mockMvc.perform(get("/movies/1").header("Accept",
+				"application/json;q=0.5, application/cbor;q=0.9, application/x-jackson-smile;q=0.7"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+	}
+
+	@Test
+	void shouldReadSmileBodyOfPost() throws Exception {
+		Mockito.when(movieService.createMovie(Mockito.any())).thenReturn(movie);
+		MovieIncomingDto input = new MovieIncomingDto(null, "Reservoir dogs", 1992, 2, null);
+
+		byte[] body = mockMvc.perform(post("/movies").contentType(SMILE).accept(SMILE)
+				.content(SMILE_MAPPER.writeValueAsBytes(input))).andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsByteArray();
+
+		ArgumentCaptor<MovieIncomingDto> created = ArgumentCaptor.forClass(MovieIncomingDto.class);
+		Mockito.verify(movieService).createMovie(created.capture());
+		assertEquals("Reservoir dogs", created.getValue().getTitle());
+		assertEquals(1992, created.getValue().getReleaseYear());
+		assertEquals(2, created.getValue().getDirectorId());
+		assertMovie(SMILE_MAPPER.readValue(body, MovieOutgoingDto.class));
+	}
+
+	@Test
+	void shouldReadCborBodyOfPut() throws Exception {
+		DirectorOutgoingDto director = new DirectorOutgoingDto();
+		director.setId(2);
+		director.setName("QT");
+		director.setVersion(5);
+		director.setMovies(List.of(movie));
+		Mockito.when(directorService.updateDirector(Mockito.any())).thenReturn(director);
+		DirectorIncomingDto input = new DirectorIncomingDto(2, "QT").setVersion(4);
+
+		byte[] body = mockMvc.perform(put("/directors").contentType(MediaType.APPLICATION_CBOR)
+				.accept(MediaType.APPLICATION_CBOR).content(CBOR_MAPPER.writeValueAsBytes(input)))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+
+		ArgumentCaptor<DirectorIncomingDto> updated = ArgumentCaptor
+				.forClass(DirectorIncomingDto.class);
+		Mockito.verify(directorService).updateDirector(updated.capture());
+		assertEquals("QT", updated.getValue().getName());
+		assertEquals(4, updated.getValue().getVersion());
+		DirectorOutgoingDto written = CBOR_MAPPER.readValue(body, DirectorOutgoingDto.class);
+		assertEquals(5, written.getVersion());
+		assertMovie(written.getMovies().get(0));
+	}
+
+	@Test
+	void shouldWriteOnlyRequestedFieldsInCbor() throws Exception {
+		byte[] body = mockMvc
+				.perform(get("/movies/1").param("fields", "title,releaseYear")
+						.accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+
+		assertEquals(Map.of("title", "Reservoir dogs", "releaseYear", 1992),
+				CBOR_MAPPER.readValue(body, new TypeReference<Map<String, Object>>() {
+				}));
+		ArgumentCaptor<Fieldset> fieldset = ArgumentCaptor.forClass(Fieldset.class);
+		Mockito.verify(movieService).getMovieById(Mockito.eq(1), fieldset.capture());
+		assertFalse(fieldset.getValue().isComplete());
+	}
+
+	@Test
+	void shouldWriteOnlyRequestedFieldsInSmile() throws Exception {
+		byte[] body = mockMvc
+				.perform(get("/movies/1").param("fields", "directorName").accept(SMILE))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+
+		assertEquals(Map.of("directorName", "Quentin Tarantino"),
+				SMILE_MAPPER.readValue(body, new TypeReference<Map<String, Object>>() {
+				}));
+	}
+
+	private static void assertMovie(MovieOutgoingDto written) {
+		assertEquals(1, written.getId());
+		assertEquals("Reservoir dogs", written.getTitle());
+		assertEquals(1992, written.getReleaseYear());
+		assertEquals(2, written.getDirectorId());
+		assertEquals("Quentin Tarantino", written.getDirectorName());
+		assertEquals(3, written.getVersion());
+	}
+
+	/**
+	 * The controllers on mocked services, with the converters set up as in
+	 * {@code SpringConfig}
+	 */
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig implements WebMvcConfigurer {
+
+		@Override
+		public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+			FieldsetAdvice.configure(converters);
+		}
+
+		@Bean
+		MovieService movieService() {
+			return Mockito.mock(MovieService.class);
+		}
+
+		@Bean
+		DirectorService directorService() {
+			return Mockito.mock(DirectorService.class);
+		}
+
+		@Bean
+		MovieController movieController(MovieService movieService) {
+			return new MovieController(movieService, Mockito.mock(MovieImportService.class),
+					Mockito.mock(SnapshotResponses.class));
+		}
+
+		@Bean
+		DirectorController directorController(DirectorService directorService) {
+			return new DirectorController(directorService, Mockito.mock(SnapshotResponses.class));
+		}
+
+		@Bean
+		FieldsetAdvice fieldsetAdvice() {
+			return new FieldsetAdvice();
+		}
+
+		@Bean
+		DefaultAdvice defaultAdvice() {
+			return new DefaultAdvice();
+		}
+	}
+
+}
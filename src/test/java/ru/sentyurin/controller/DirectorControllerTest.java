@@ -3,63 +3,108 @@ package ru.sentyurin.controller;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.repository.DirectorField;
+import ru.sentyurin.repository.Fieldset;
 import ru.sentyurin.service.DirectorService;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
 
 class DirectorControllerTest {
 	private DirectorService service;
 	private DirectorController controller;
+	private SnapshotResponses snapshotResponses;
 
 	@BeforeEach
 	void init() {
 		service = Mockito.mock(DirectorService.class);
-		controller = new DirectorController(service);
+		snapshotResponses = Mockito.mock(SnapshotResponses.class);
+		controller = new DirectorController(service, snapshotResponses);
 	}
 
 	@Test
-	void shouldReturnAllDirectors() {
+	void shouldReturnAllDirectorsWhileSnapshotIsRebuilt() throws IOException {
 		List<DirectorOutgoingDto> directorsOutgoingDtos = List.of(new DirectorOutgoingDto(),
 				new DirectorOutgoingDto());
-		Mockito.when(service.getDirectors()).thenReturn(directorsOutgoingDtos);
-		List<DirectorOutgoingDto> directorsDtos = controller.doGet();
+		Mockito.when(service.getDirectors(Fieldset.ALL)).thenReturn(directorsOutgoingDtos);
+		List<DirectorOutgoingDto> directorsDtos = controller
+				.doGet(null, null, null, null, null).getBody();
 		assertEquals(directorsOutgoingDtos.size(), directorsDtos.size());
-		verify(service).getDirectors();
+		verify(service).getDirectors(Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
+	@Test
+	void shouldReadOnlyRequestedFieldsBypassingSnapshot() throws IOException {
+		Mockito.when(service.getDirectors(any(Fieldset.class)))
+				.thenReturn(List.of(new DirectorOutgoingDto()));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/directors");
+
+		assertEquals(1, controller.doGet(null, null, "id, name", request,
+				new MockHttpServletResponse()).getBody().size());
+
+		ArgumentCaptor<Fieldset> fieldset = ArgumentCaptor.forClass(Fieldset.class);
+		verify(service).getDirectors(fieldset.capture());
+		assertEquals(Set.of(DirectorField.ID, DirectorField.NAME),
+				fieldset.getValue().getDirectorFields());
+		assertTrue(fieldset.getValue().getMovieFields().isEmpty());
+		verifyNoInteractions(snapshotResponses);
+	}
+
+	@Test
+	void shouldReturnPageWithDefaultSizeWhenLimitIsOmitted() throws IOException {
+		Mockito.when(service.getDirectors(1, 100, Fieldset.ALL))
+				.thenReturn(new CursorPage<>(List.of(new DirectorOutgoingDto()), 2));
+		ResponseEntity<List<DirectorOutgoingDto>> response = controller.doGet(1, null,
+				null, null, null);
+		assertEquals(1, response.getBody().size());
+		assertEquals("2", response.getHeaders().getFirst("X-Next-Cursor"));
+		verify(service).getDirectors(1, 100, Fieldset.ALL);
+		verifyNoMoreInteractions(service);
+		verifyNoInteractions(snapshotResponses);
+	}
+
 	@Test
 	void shouldReturnDirectorById() {
 		Integer directorIdToGet = 2;
-		Mockito.when(service.getDirectorById(directorIdToGet))
+		Mockito.when(service.getDirectorById(directorIdToGet, Fieldset.ALL))
 				.thenReturn(Optional.of(new DirectorOutgoingDto()));
-		DirectorOutgoingDto directorDto = controller.doGetById(directorIdToGet);
+		DirectorOutgoingDto directorDto = controller.doGetById(directorIdToGet, null, null);
 		assertNotNull(directorDto);
-		verify(service).getDirectorById(directorIdToGet);
+		verify(service).getDirectorById(directorIdToGet, Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
 	@Test
 	void shouldThrowExceptionWhenGetByIdWithInvalidId() {
-		Mockito.when(service.getDirectorById(any(Integer.class))).thenReturn(Optional.empty());
+		Mockito.when(service.getDirectorById(any(Integer.class), eq(Fieldset.ALL)))
+				.thenReturn(Optional.empty());
 		Integer directorIdToGet = 3;
 		assertThrows(NoDataInRepositoryException.class,
-				() -> controller.doGetById(directorIdToGet));
-		verify(service).getDirectorById(directorIdToGet);
+				() -> controller.doGetById(directorIdToGet, null, null));
+		verify(service).getDirectorById(directorIdToGet, Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
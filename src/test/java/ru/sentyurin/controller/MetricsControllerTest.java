@@ -0,0 +1,172 @@
+package ru.sentyurin.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import ru.sentyurin.controller.dto.CacheStatsOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.controller.dto.PoolStatsOutgoingDto;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.concurrent.DbGate;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+import ru.sentyurin.util.metrics.PoolMetrics;
+import ru.sentyurin.util.metrics.RequestMetrics;
+
+class MetricsControllerTest {
+	private PoolMetrics poolMetrics;
+	private CatalogCache catalogCache;
+	private RequestMetrics requestMetrics;
+	private Statistics hibernateStatistics;
+	private CompressionMetrics compressionMetrics;
+	private MetricsController controller;
+
+	@BeforeEach
+	void init() {
+		poolMetrics = new PoolMetrics();
+		catalogCache = new CatalogCache(100, 100);
+		requestMetrics = new RequestMetrics();
+		compressionMetrics = new CompressionMetrics();
+		hibernateStatistics = Mockito.mock(Statistics.class);
+		Mockito.when(hibernateStatistics.getQueries()).thenReturn(new String[0]);
+		Mockito.when(hibernateStatistics.getEntityNames()).thenReturn(new String[0]);
+		Mockito.when(hibernateStatistics.getCollectionRoleNames()).thenReturn(new String[0]);
+		Mockito.when(hibernateStatistics.getSecondLevelCacheRegionNames())
+				.thenReturn(new String[0]);
+		controller = new MetricsController(poolMetrics, catalogCache, requestMetrics,
+				new DbGate(10, 100, 1_000), hibernateStatistics, compressionMetrics);
+	}
+
+	@Test
+	void shouldReturnCacheStats() {
+		catalogCache.getMovie(1, id -> Optional.of(new MovieOutgoingDto()));
+		catalogCache.getMovie(1, id -> Optional.empty());
+		List<CacheStatsOutgoingDto> stats = controller.doGetCache();
+		assertEquals("movies", stats.get(0).getName());
+		assertEquals(1, stats.get(0).getHits());
+		assertEquals(1, stats.get(0).getMisses());
+		assertEquals(1, stats.get(0).getSize());
+		assertEquals("directors", stats.get(1).getName());
+	}
+
+	@Test
+	void shouldReturnZerosBeforePoolStarts() {
+		PoolStatsOutgoingDto stats = controller.doGetPool();
+		assertEquals(0, stats.getActive());
+		assertEquals(0, stats.getAcquired());
+	}
+
+	@Test
+	void shouldReturnPoolStats() {
+		PoolStats poolStats = Mockito.mock(PoolStats.class);
+		Mockito.when(poolStats.getActiveConnections()).thenReturn(3);
+		Mockito.when(poolStats.getIdleConnections()).thenReturn(2);
+		Mockito.when(poolStats.getPendingThreads()).thenReturn(7);
+		IMetricsTracker tracker = poolMetrics.create("pool", poolStats);
+		tracker.recordConnectionAcquiredNanos(2_000_000);
+		tracker.recordConnectionTimeout();
+
+		PoolStatsOutgoingDto stats = controller.doGetPool();
+		assertEquals(3, stats.getActive());
+		assertEquals(2, stats.getIdle());
+		assertEquals(7, stats.getWaiting());
+		assertEquals(1, stats.getAcquired());
+		assertEquals(1, stats.getTimeouts());
+		assertEquals(2_000, stats.getAcquireMaxMicros());
+	}
+
+	@Test
+	void shouldExportPrometheusText() throws NoSuchMethodException {
+		requestMetrics.endpoint(MetricsController.class.getMethod("doGetPool"))
+				.record(2_000_000, -1, 300, 503);
+		requestMetrics.endpoint(MetricsController.class.getMethod("doGetPool"))
+				.recordStatements(12, true);
+		requestMetrics.service(Object.class.getMethod("toString"), String.class)
+				.record(1_000, true);
+		catalogCache.getMovie(1, id -> Optional.of(new MovieOutgoingDto()));
+		compressionMetrics.recordCompression(ContentEncoding.GZIP, 1_000_000);
+		compressionMetrics.recordResponse(ContentEncoding.GZIP, 3_000, 1_000);
+
+		String output = controller.doGet();
+
+		assertTrue(output.contains("# TYPE http_server_requests_seconds histogram\n"));
+		assertTrue(output.contains("http_server_requests_seconds_count"
+				+ "{handler=\"MetricsController.doGetPool\"} 1\n"));
+		assertTrue(output.contains("http_server_errors_total"
+				+ "{handler=\"MetricsController.doGetPool\",status=\"5xx\"} 1\n"));
+		assertTrue(output.contains("http_server_request_size_bytes_count"
+				+ "{handler=\"MetricsController.doGetPool\"} 0\n"));
+		assertTrue(output.contains("http_server_response_size_bytes_sum"
+				+ "{handler=\"MetricsController.doGetPool\"} 300\n"));
+		assertTrue(output.contains("http_server_sql_statements_bucket"
+				+ "{handler=\"MetricsController.doGetPool\",le=\"20\"} 1\n"));
+		assertTrue(output.contains("http_server_sql_budget_exceeded_total"
+				+ "{handler=\"MetricsController.doGetPool\"} 1\n"));
+		assertTrue(output.contains("service_errors_total{method=\"String.toString()\"} 1\n"));
+		assertTrue(output.contains("db_gate_holders{state=\"active\"} 0\n"));
+		assertTrue(output.contains("cache_misses_total{cache=\"movies\"} 1\n"));
+		assertTrue(output.contains(
+				"http_response_compression_seconds_total{encoding=\"gzip\"} 0.001\n"));
+		assertTrue(output.contains(
+				"http_response_compression_output_bytes_total{encoding=\"zstd\"} 0\n"));
+		assertTrue(output.contains("http_response_compression_seconds_per_saved_byte"
+				+ "{encoding=\"gzip\"} 0.0000005\n"));
+	}
+
+	@Test
+	void shouldExportHibernateStatistics() {
+		String query = "select d from Director d";
+		QueryStatistics queryStatistics = Mockito.mock(QueryStatistics.class);
+		Mockito.when(queryStatistics.getExecutionCount()).thenReturn(4L);
+		Mockito.when(queryStatistics.getExecutionMaxTime()).thenReturn(250L);
+		Mockito.when(hibernateStatistics.getQueries()).thenReturn(new String[] { query });
+		Mockito.when(hibernateStatistics.getQueryStatistics(query)).thenReturn(queryStatistics);
+		EntityStatistics entityStatistics = Mockito.mock(EntityStatistics.class);
+		Mockito.when(entityStatistics.getFetchCount()).thenReturn(2L);
+		Mockito.when(hibernateStatistics.getEntityNames()).thenReturn(new String[] { "Movie" });
+		Mockito.when(hibernateStatistics.getEntityStatistics("Movie"))
+				.thenReturn(entityStatistics);
+		CollectionStatistics collectionStatistics = Mockito.mock(CollectionStatistics.class);
+		Mockito.when(collectionStatistics.getFetchCount()).thenReturn(9L);
+		Mockito.when(hibernateStatistics.getCollectionRoleNames())
+				.thenReturn(new String[] { "Director.movies" });
+		Mockito.when(hibernateStatistics.getCollectionStatistics("Director.movies"))
+				.thenReturn(collectionStatistics);
+		CacheRegionStatistics regionStatistics = Mockito.mock(CacheRegionStatistics.class);
+		Mockito.when(regionStatistics.getRegionName()).thenReturn("director");
+		Mockito.when(regionStatistics.getHitCount()).thenReturn(7L);
+		Mockito.when(hibernateStatistics.getSecondLevelCacheRegionNames())
+				.thenReturn(new String[] { "director", "default-update-timestamps-region" });
+		Mockito.when(hibernateStatistics.getCacheRegionStatistics("director"))
+				.thenReturn(regionStatistics);
+
+		String output = controller.doGet();
+
+		assertTrue(output.contains("hibernate_query_executions_total{query=\"" + query
+				+ "\"} 4\n"));
+		assertTrue(output.contains("hibernate_query_execution_max_seconds{query=\"" + query
+				+ "\"} 0.25\n"));
+		assertTrue(output.contains("hibernate_entity_fetches_total{entity=\"Movie\"} 2\n"));
+		assertTrue(output.contains(
+				"hibernate_collection_fetches_total{role=\"Director.movies\"} 9\n"));
+		assertTrue(output.contains("hibernate_cache_hits_total{region=\"director\"} 7\n"));
+		assertFalse(output.contains("default-update-timestamps-region"));
+	}
+
+}
@@ -2,63 +2,231 @@ package ru.sentyurin.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.MovieIncomingDto;
 import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieField;
+import ru.sentyurin.repository.MovieFilter;
+import ru.sentyurin.repository.MovieSort;
+import ru.sentyurin.service.MovieDataFormat;
+import ru.sentyurin.service.MovieImportService;
 import ru.sentyurin.service.MovieService;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
 
 class MovieControllerTest {
 	private MovieService service;
+	private SnapshotResponses snapshotResponses;
 	private MovieController controller;
 
 	@BeforeEach
 	void init() {
 		service = Mockito.mock(MovieService.class);
-		controller = new MovieController(service);
+		snapshotResponses = Mockito.mock(SnapshotResponses.class);
+		controller = new MovieController(service, Mockito.mock(MovieImportService.class),
+				snapshotResponses);
 	}
 
 	@Test
-	void shouldReturnAllMovies() {
+	void shouldReturnAllMoviesWhileSnapshotIsRebuilt() throws IOException {
 		List<MovieOutgoingDto> moviesOutgoingDtos = List.of(new MovieOutgoingDto(),
 				new MovieOutgoingDto());
-		Mockito.when(service.getMovies()).thenReturn(moviesOutgoingDtos);
-		List<MovieOutgoingDto> movieDtos = controller.doGet();
+		Mockito.when(service.getMovies(Fieldset.ALL)).thenReturn(moviesOutgoingDtos);
+		List<MovieOutgoingDto> movieDtos = controller
+				.doGet(null, null, null, null, null, null, null, null, null).getBody();
 		assertEquals(moviesOutgoingDtos.size(), movieDtos.size());
-		verify(service).getMovies();
+		verify(service).getMovies(Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
+	@Test
+	void shouldWriteAllMoviesFromSnapshot() throws IOException {
+		HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+		HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+		Mockito.when(snapshotResponses.writeMovies(request, response)).thenReturn(true);
+
+		assertNull(
+				controller.doGet(null, null, null, null, null, null, null, request, response));
+
+		verify(snapshotResponses).writeMovies(request, response);
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	void shouldReturnPageWithNextCursor() throws IOException {
+		List<MovieOutgoingDto> moviesOutgoingDtos = List.of(new MovieOutgoingDto().setId(4),
+				new MovieOutgoingDto().setId(5));
+		Mockito.when(service.getMovies(3, 2)).thenReturn(new CursorPage<>(moviesOutgoingDtos, 5));
+		ResponseEntity<List<MovieOutgoingDto>> response = controller.doGet(3, 2, null, null,
+				null, null, null, null, null);
+		assertEquals(moviesOutgoingDtos, response.getBody());
+		assertEquals("5", response.getHeaders().getFirst("X-Next-Cursor"));
+		verify(service).getMovies(3, 2);
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	void shouldReturnLastPageWithoutNextCursor() throws IOException {
+		Mockito.when(service.getMovies(null, 100))
+				.thenReturn(new CursorPage<>(List.of(new MovieOutgoingDto()), null));
+		ResponseEntity<List<MovieOutgoingDto>> response = controller.doGet(null, 100, null,
+				null, null, null, null, null, null);
+		assertEquals(1, response.getBody().size());
+		assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+	}
+
+	@Test
+	void shouldPassFilterAndSortToService() throws IOException {
+		Mockito.when(service.getMovies(any(MovieFilter.class), eq(7), eq(100), eq(Fieldset.ALL)))
+				.thenReturn(new CursorPage<>(List.of(new MovieOutgoingDto()), 8));
+		ResponseEntity<List<MovieOutgoingDto>> response = controller.doGet(7, null, 1, 1990,
+				2000, "-releaseYear", null, null, null);
+		assertEquals("8", response.getHeaders().getFirst("X-Next-Cursor"));
+		ArgumentCaptor<MovieFilter> filter = ArgumentCaptor.forClass(MovieFilter.class);
+		verify(service).getMovies(filter.capture(), eq(7), eq(100), eq(Fieldset.ALL));
+		assertEquals(1, filter.getValue().getDirectorId());
+		assertEquals(1990, filter.getValue().getYearFrom());
+		assertEquals(2000, filter.getValue().getYearTo());
+		assertEquals(MovieSort.RELEASE_YEAR_DESC, filter.getValue().getSort());
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void shouldStreamAllMoviesAsJsonArray() throws IOException {
+		Mockito.doAnswer(invocation -> {
+			Consumer<MovieOutgoingDto> action = invocation.getArgument(1);
+			action.accept(new MovieOutgoingDto(1, "RD", 1992, 2, "QT"));
+			action.accept(new MovieOutgoingDto(2, "PF", 1994, 2, "QT"));
+			return null;
+		}).when(service).forEachMovie(eq(Fieldset.ALL), any(Consumer.class));
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+		Mockito.when(response.getOutputStream()).thenReturn(servletOutputStream(body));
+
+		controller.doGetStream(null, new MockHttpServletRequest(), response);
+		String json = body.toString(StandardCharsets.UTF_8);
+		assertTrue(json.startsWith("[{\"id\":1,"));
+		assertTrue(json.endsWith("\"directorName\":\"QT\",\"version\":null}]"));
+		verify(service).forEachMovie(eq(Fieldset.ALL), any(Consumer.class));
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void shouldStreamOnlyRequestedFields() throws IOException {
+		Mockito.doAnswer(invocation -> {
+			invocation.<Consumer<MovieOutgoingDto>>getArgument(1)
+					.accept(new MovieOutgoingDto().setId(1).setTitle("RD"));
+			return null;
+		}).when(service).forEachMovie(any(Fieldset.class), any(Consumer.class));
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+		Mockito.when(response.getOutputStream()).thenReturn(servletOutputStream(body));
+
+		controller.doGetStream("title", new MockHttpServletRequest(), response);
+
+		assertEquals("[{\"title\":\"RD\"}]", body.toString(StandardCharsets.UTF_8));
+		ArgumentCaptor<Fieldset> fieldset = ArgumentCaptor.forClass(Fieldset.class);
+		verify(service).forEachMovie(fieldset.capture(), any(Consumer.class));
+		assertEquals(Set.of(MovieField.TITLE), fieldset.getValue().getMovieFields());
+	}
+
+	@Test
+	void shouldPageOnlyRequestedFieldsBypassingSnapshot() throws IOException {
+		Mockito.when(service.getMovies(any(MovieFilter.class), eq(3), eq(100),
+				any(Fieldset.class))).thenReturn(new CursorPage<>(List.of(), null));
+
+		controller.doGet(3, null, null, null, null, null, "id,title",
+				new MockHttpServletRequest(), new MockHttpServletResponse());
+
+		ArgumentCaptor<Fieldset> fieldset = ArgumentCaptor.forClass(Fieldset.class);
+		verify(service).getMovies(any(MovieFilter.class), eq(3), eq(100), fieldset.capture());
+		assertEquals(Set.of(MovieField.ID, MovieField.TITLE),
+				fieldset.getValue().getMovieFields());
+		verifyNoMoreInteractions(service);
+		verifyNoInteractions(snapshotResponses);
+	}
+
+	@Test
+	void shouldSearchMovies() {
+		Mockito.when(service.searchMovies("dogs", 0, 20, Fieldset.ALL))
+				.thenReturn(List.of(new MovieOutgoingDto(1, "Reservoir dogs", 1992, 2, "QT")));
+		assertEquals(1, controller.doGetSearch("dogs", 0, 20, null, null).size());
+		verify(service).searchMovies("dogs", 0, 20, Fieldset.ALL);
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	void shouldExportBodyLeavingCompressionToFilter() throws IOException {
+		Mockito.when(service.exportMovies(eq(MovieDataFormat.CSV), eq(1990), isNull(), isNull(),
+				any(OutputStream.class))).thenAnswer(invocation -> {
+					invocation.<OutputStream>getArgument(4)
+							.write("id,title\n1,RD\n".getBytes(StandardCharsets.UTF_8));
+					return 1L;
+				});
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		controller.doGetExport("csv", 1990, null, null, new MockHttpServletRequest(), response);
+
+		assertEquals("text/csv;charset=UTF-8", response.getContentType());
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("id,title\n1,RD\n", response.getContentAsString());
+	}
+
 	@Test
 	void shouldReturnMovieById() {
 		Integer movieIdToGet = 2;
-		Mockito.when(service.getMovieById(movieIdToGet))
+		Mockito.when(service.getMovieById(movieIdToGet, Fieldset.ALL))
 				.thenReturn(Optional.of(new MovieOutgoingDto()));
-		MovieOutgoingDto movieDto = controller.doGetById(movieIdToGet);
+		MovieOutgoingDto movieDto = controller.doGetById(movieIdToGet, null, null);
 		assertNotNull(movieDto);
-		verify(service).getMovieById(movieIdToGet);
+		verify(service).getMovieById(movieIdToGet, Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
 	@Test
 	void shouldThrowExceptionWhenGetWithInvalidId() {
 		Integer movieIdToGet = 2;
-		Mockito.when(service.getMovieById(movieIdToGet)).thenReturn(Optional.empty());
-		assertThrows(NoDataInRepositoryException.class, () -> controller.doGetById(movieIdToGet));
-		verify(service).getMovieById(movieIdToGet);
+		Mockito.when(service.getMovieById(movieIdToGet, Fieldset.ALL))
+				.thenReturn(Optional.empty());
+		assertThrows(NoDataInRepositoryException.class,
+				() -> controller.doGetById(movieIdToGet, null, null));
+		verify(service).getMovieById(movieIdToGet, Fieldset.ALL);
 		verifyNoMoreInteractions(service);
 	}
 
@@ -81,6 +249,18 @@ class MovieControllerTest {
 		verifyNoMoreInteractions(service);
 	}
 
+	@Test
+	void shouldPostBatch() {
+		List<MovieIncomingDto> input = List.of(new MovieIncomingDto());
+		Mockito.when(service.createMovies(input))
+				.thenReturn(List.of(BatchItemResultDto.created(0, 1)));
+		List<BatchItemResultDto> results = controller.doPostBatch(input);
+		assertEquals(1, results.size());
+		assertEquals(1, results.get(0).getId());
+		verify(service).createMovies(input);
+		verifyNoMoreInteractions(service);
+	}
+
 	@Test
 	void shouldUpdateMovie() {
 		Mockito.when(service.updateMovie(any(MovieIncomingDto.class)))
@@ -91,4 +271,23 @@ class MovieControllerTest {
 		verifyNoMoreInteractions(service);
 	}
 
+	private static ServletOutputStream servletOutputStream(ByteArrayOutputStream body) {
+		return new ServletOutputStream() {
+
+			@Override
+			public void write(int b) {
+				body.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		};
+	}
+
 }
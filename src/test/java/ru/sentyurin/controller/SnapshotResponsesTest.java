@@ -0,0 +1,108 @@
+package ru.sentyurin.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import ru.sentyurin.service.cache.CatalogSnapshot;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+class SnapshotResponsesTest {
+	private static final byte[] ZSTD = { 40, -75, 47, -3 };
+
+	private CatalogSnapshot catalogSnapshot;
+	private CompressionMetrics compressionMetrics;
+	private SnapshotResponses snapshotResponses;
+	private byte[] json;
+
+	@BeforeEach
+	void init() {
+		catalogSnapshot = Mockito.mock(CatalogSnapshot.class);
+		compressionMetrics = new CompressionMetrics();
+		snapshotResponses = new SnapshotResponses(catalogSnapshot,
+				new ResponseCompression(new String[] { "zstd", "gzip" }, 16, 6, 3, 9, 12,
+						compressionMetrics),
+				compressionMetrics);
+		json = new byte[100];
+		Arrays.fill(json, (byte) ' ');
+		Mockito.when(catalogSnapshot.getDirectors())
+				.thenReturn(Optional.of(new CatalogSnapshot.Body(json,
+						Map.of(ContentEncoding.ZSTD, ZSTD, ContentEncoding.GZIP, new byte[5]))));
+	}
+
+	@Test
+	void shouldWriteBodyCompressedWithPreferredEncoding() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertTrue(snapshotResponses.writeDirectors(request(null, "gzip, deflate, br, zstd"),
+				response));
+
+		assertEquals("zstd", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+		assertEquals(ZSTD.length, response.getContentLength());
+		assertArrayEquals(ZSTD, response.getContentAsByteArray());
+		assertEquals(json.length, compressionMetrics.getInputBytes(ContentEncoding.ZSTD));
+		assertEquals(ZSTD.length, compressionMetrics.getOutputBytes(ContentEncoding.ZSTD));
+	}
+
+	@Test
+	void shouldWritePlainBodyToClientAcceptingNoEncoding() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertTrue(snapshotResponses.writeDirectors(request("application/json", null),
+				response));
+
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(json, response.getContentAsByteArray());
+	}
+
+	@Test
+	void shouldWriteNothingWhileSnapshotIsRebuilt() throws IOException {
+		Mockito.when(catalogSnapshot.getMovies()).thenReturn(Optional.empty());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertFalse(snapshotResponses.writeMovies(request(null, "gzip"), response));
+
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	void shouldWriteOnlyToClientsPreferringJson() throws IOException {
+		assertTrue(snapshotResponses.writeDirectors(request("text/html, */*;q=0.8", null),
+				new MockHttpServletResponse()));
+		assertTrue(snapshotResponses.writeDirectors(
+				request("application/json, application/cbor", null),
+				new MockHttpServletResponse()));
+		assertFalse(snapshotResponses.writeDirectors(request("application/cbor", null),
+				new MockHttpServletResponse()));
+		assertFalse(snapshotResponses.writeDirectors(
+				request("application/json;q=0.5, application/x-jackson-smile", null),
+				new MockHttpServletResponse()));
+	}
+
+	private static MockHttpServletRequest request(String accept, String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/directors");
+		if (accept != null)
+			request.addHeader(HttpHeaders.ACCEPT, accept);
+		if (acceptEncoding != null)
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		return request;
+	}
+
+}
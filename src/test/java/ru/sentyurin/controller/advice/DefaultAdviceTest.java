@@ -17,6 +17,7 @@ import ru.sentyurin.util.exception.IncompleateInputExeption;
 import ru.sentyurin.util.exception.InconsistentInputException;
 import ru.sentyurin.util.exception.IncorrectInputException;
 import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 class DefaultAdviceTest {
 
@@ -45,6 +46,16 @@ class DefaultAdviceTest {
 		assertEquals(expectedStatus, response.getStatusCode());
 	}
 
+	@Test
+	void shouldHandleVersionConflictException() {
+		expectedMessage = "some message";
+		expectedStatus = HttpStatus.CONFLICT;
+		VersionConflictException exception = new VersionConflictException(expectedMessage);
+		ResponseEntity<String> response = advice.handleVersionConflictException(exception);
+		assertEquals(expectedMessage, response.getBody());
+		assertEquals(expectedStatus, response.getStatusCode());
+	}
+
 	@Test
 	void shouldHandleJsonProcessingException() {
 		expectedStatus = HttpStatus.BAD_REQUEST;
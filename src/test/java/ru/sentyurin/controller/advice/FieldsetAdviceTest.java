@@ -0,0 +1,63 @@
+package ru.sentyurin.controller.advice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
+
+class FieldsetAdviceTest {
+	private static final ObjectMapper MAPPER = FieldsetAdvice.configure(new ObjectMapper());
+
+	private final FieldsetAdvice advice = new FieldsetAdvice();
+
+	@Test
+	void shouldSerialiseOnlySelectedProperties() throws JsonProcessingException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		FieldsetAdvice.select(request, Fieldset.ofDirectors("name,movies.title"));
+
+		MappingJacksonValue value = (MappingJacksonValue) advice.beforeBodyWrite(
+				List.of(director()), null, MediaType.APPLICATION_JSON,
+				MappingJackson2HttpMessageConverter.class, new ServletServerHttpRequest(request),
+				null);
+
+		assertEquals("[{\"name\":\"QT\",\"movies\":[{\"title\":\"RD\"}]}]",
+				MAPPER.writer(value.getFilters()).writeValueAsString(value.getValue()));
+	}
+
+	@Test
+	void shouldLeaveBodyOfCompleteFieldsetAsItIs() throws JsonProcessingException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		FieldsetAdvice.select(request, Fieldset.ofDirectors(null));
+		List<DirectorOutgoingDto> body = List.of(director());
+
+		assertSame(body, advice.beforeBodyWrite(body, null, MediaType.APPLICATION_JSON,
+				MappingJackson2HttpMessageConverter.class, new ServletServerHttpRequest(request),
+				null));
+		assertEquals(new ObjectMapper().writeValueAsString(body),
+				MAPPER.writeValueAsString(body));
+	}
+
+	private static DirectorOutgoingDto director() {
+		DirectorOutgoingDto director = new DirectorOutgoingDto();
+		director.setId(2);
+		director.setName("QT");
+		director.setVersion(1);
+		director.setMovies(List.of(new MovieOutgoingDto(1, "RD", 1992, 2, "QT")));
+		return director;
+	}
+
+}
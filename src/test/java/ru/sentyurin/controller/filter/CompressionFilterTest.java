@@ -0,0 +1,165 @@
+package ru.sentyurin.controller.filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+class CompressionFilterTest {
+	private static final byte[] BODY = "{\"title\":\"Movie\"},".repeat(200)
+			.getBytes(StandardCharsets.UTF_8);
+
+	private CompressionMetrics compressionMetrics;
+	private CompressionFilter filter;
+
+	@BeforeEach
+	void init() {
+		compressionMetrics = new CompressionMetrics();
+		filter = new CompressionFilter(new ResponseCompression(new String[] { "zstd", "gzip" },
+				1024, 6, 3, 9, 12, compressionMetrics), compressionMetrics);
+	}
+
+	@Test
+	void shouldCompressLargeBodyWithPreferredEncoding() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(request("gzip, zstd"), response,
+				writing(MediaType.APPLICATION_JSON_VALUE, BODY));
+
+		assertEquals("zstd", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+		assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+		byte[] compressed = response.getContentAsByteArray();
+		assertArrayEquals(BODY,
+				decompress(new ZstdInputStream(new ByteArrayInputStream(compressed))));
+		assertEquals(BODY.length, compressionMetrics.getInputBytes(ContentEncoding.ZSTD));
+		assertEquals(compressed.length, compressionMetrics.getOutputBytes(ContentEncoding.ZSTD));
+		assertTrue(compressionMetrics.getNanos(ContentEncoding.ZSTD) > 0);
+	}
+
+	@Test
+	void shouldSendSmallBodyAsItIsWithItsLength() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+
+		filter.doFilter(request("gzip"), response,
+				writing(MediaType.APPLICATION_JSON_VALUE, body));
+
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+		assertEquals(body.length, response.getContentLength());
+		assertArrayEquals(body, response.getContentAsByteArray());
+	}
+
+	@Test
+	void shouldSendEncodedAndBinaryBodiesAsTheyAre() throws Exception {
+		MockHttpServletResponse encoded = new MockHttpServletResponse();
+		filter.doFilter(request("zstd"), encoded, (req, res) -> {
+			res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			((HttpServletResponse) res).setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			res.getOutputStream().write(BODY);
+		});
+		MockHttpServletResponse binary = new MockHttpServletResponse();
+		filter.doFilter(request("zstd"), binary, writing(MediaType.IMAGE_PNG_VALUE, BODY));
+
+		assertEquals("gzip", encoded.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(BODY, encoded.getContentAsByteArray());
+		assertNull(binary.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertNull(binary.getHeader(HttpHeaders.VARY));
+		assertArrayEquals(BODY, binary.getContentAsByteArray());
+	}
+
+	@Test
+	void shouldCompressExportsOnlyInAcceptedEncoding() throws Exception {
+		MockHttpServletResponse refused = new MockHttpServletResponse();
+		filter.doFilter(request("gzip;q=0"), refused, writing("text/csv", BODY));
+		MockHttpServletResponse preferred = new MockHttpServletResponse();
+		filter.doFilter(request("gzip;q=0.5, zstd"), preferred,
+				writing("application/x-ndjson", BODY));
+
+		assertNull(refused.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(BODY, refused.getContentAsByteArray());
+		assertEquals("zstd", preferred.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(BODY, decompress(new ZstdInputStream(
+				new ByteArrayInputStream(preferred.getContentAsByteArray()))));
+	}
+
+	@Test
+	void shouldFinishBodyWrittenAsynchronouslyAfterAsyncDispatch() throws Exception {
+		MockHttpServletRequest request = request("gzip");
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		AtomicReference<ServletResponse> written = new AtomicReference<>();
+
+		filter.doFilter(request, response, (req, res) -> {
+			req.startAsync();
+			written.set(res);
+			writing(MediaType.APPLICATION_JSON_VALUE, BODY).doFilter(req, res);
+		});
+		request.setAsyncStarted(false);
+		request.setDispatcherType(DispatcherType.ASYNC);
+		filter.doFilter(request, response, (req, res) -> assertSame(written.get(), res));
+
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(BODY, decompress(new GZIPInputStream(
+				new ByteArrayInputStream(response.getContentAsByteArray()))));
+	}
+
+	@Test
+	void shouldSkipChangeFeedAndOtherMethods() throws ServletException, IOException {
+		FilterChain unwrapped = (req, res) -> assertTrue(res instanceof MockHttpServletResponse);
+		filter.doFilter(new MockHttpServletRequest("GET", "/changes"),
+				new MockHttpServletResponse(), unwrapped);
+		filter.doFilter(new MockHttpServletRequest("POST", "/movies"),
+				new MockHttpServletResponse(), unwrapped);
+	}
+
+	private static MockHttpServletRequest request(String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/directors");
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		return request;
+	}
+
+	private static FilterChain writing(String contentType, byte[] body) {
+		return (req, res) -> {
+			res.setContentType(contentType);
+			int half = body.length / 2;
+			res.getOutputStream().write(body, 0, half);
+			res.getOutputStream().write(body, half, body.length - half);
+			res.getOutputStream().flush();
+		};
+	}
+
+	private static byte[] decompress(InputStream input) throws IOException {
+		try (input) {
+			return input.readAllBytes();
+		}
+	}
+
+}
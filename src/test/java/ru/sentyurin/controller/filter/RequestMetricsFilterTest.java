@@ -0,0 +1,75 @@
+package ru.sentyurin.controller.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.sentyurin.util.metrics.EndpointMetrics;
+import ru.sentyurin.util.metrics.RequestMetrics;
+
+class RequestMetricsFilterTest {
+	private RequestMetrics requestMetrics;
+	private RequestMetricsFilter filter;
+
+	@BeforeEach
+	void init() {
+		requestMetrics = new RequestMetrics();
+		filter = new RequestMetricsFilter(requestMetrics);
+	}
+
+	@Test
+	void shouldRecordLatencySizesAndStatusOfHandler() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/movies");
+		request.setContent(new byte[42]);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HandlerMethod handler = new HandlerMethod(this, "handle");
+		FilterChain chain = (req, res) -> {
+			req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+			((HttpServletResponse) res).setStatus(409);
+			res.getOutputStream().write("conflict".getBytes(StandardCharsets.UTF_8));
+			res.getOutputStream().write('!');
+		};
+
+		filter.doFilter(request, response, chain);
+		filter.doFilter(new MockHttpServletRequest("GET", "/movies"),
+				new MockHttpServletResponse(), chain);
+
+		assertEquals("conflict!", response.getContentAsString());
+		EndpointMetrics metrics = requestMetrics.getEndpoints().get(0);
+		assertEquals("RequestMetricsFilterTest.handle", metrics.getName());
+		assertEquals(2, metrics.getLatencyNanos().getCount());
+		assertEquals(1, metrics.getRequestBytes().getCount());
+		assertEquals(42, metrics.getRequestBytes().getSum());
+		assertEquals(18, metrics.getResponseBytes().getSum());
+		assertEquals(2, metrics.getClientErrorCount());
+		assertEquals(0, metrics.getServerErrorCount());
+	}
+
+	@Test
+	void shouldSkipUnmappedRequestsAndScrapes() throws ServletException, IOException {
+		filter.doFilter(new MockHttpServletRequest("GET", "/unknown"),
+				new MockHttpServletResponse(), (req, res) -> {
+				});
+		filter.doFilter(new MockHttpServletRequest("GET", "/metrics"),
+				new MockHttpServletResponse(), (req, res) -> {
+					assertTrue(res instanceof MockHttpServletResponse);
+				});
+		assertTrue(requestMetrics.getEndpoints().isEmpty());
+	}
+
+	public void handle() {
+	}
+
+}
@@ -0,0 +1,102 @@
+package ru.sentyurin.controller.interceptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import ru.sentyurin.service.cache.CatalogVersion;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+class ConditionalGetInterceptorTest {
+
+	private CatalogVersion catalogVersion;
+	private ConditionalGetInterceptor interceptor;
+
+	@BeforeEach
+	void init() {
+		catalogVersion = new CatalogVersion(1000);
+		interceptor = new ConditionalGetInterceptor(catalogVersion);
+	}
+
+	@Test
+	void shouldAnswerNotModifiedWhileMovieIsUnchanged() {
+		MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/movies/1");
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		assertTrue(interceptor.preHandle(firstRequest, first, null));
+		ConditionalGetInterceptor.addValidators(firstRequest, first);
+		String etag = first.getHeader(HttpHeaders.ETAG);
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 2, 10));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/1");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertFalse(interceptor.preHandle(request, response, null));
+		assertEquals(304, response.getStatus());
+		assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+		assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		response = new MockHttpServletResponse();
+		assertTrue(interceptor.preHandle(request, response, null));
+		assertEquals(200, response.getStatus());
+	}
+
+	@Test
+	void shouldNotAnswerIfModifiedSinceWithNotModifiedAfterChangeInSameSecond() {
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/movies/1");
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		interceptor.preHandle(firstRequest, first, null);
+		ConditionalGetInterceptor.addValidators(firstRequest, first);
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/1");
+		request.addHeader(HttpHeaders.IF_MODIFIED_SINCE,
+				first.getHeader(HttpHeaders.LAST_MODIFIED));
+		assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+	}
+
+	@Test
+	void shouldUseCatalogVersionForCollections() {
+		MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/directors");
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		interceptor.preHandle(firstRequest, first, null);
+		ConditionalGetInterceptor.addValidators(firstRequest, first);
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.DELETED, 2, 10));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/directors");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+		assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+	}
+
+	@Test
+	void shouldLeaveValidatorsOutOfErrorResponses() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/404");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertTrue(interceptor.preHandle(request, response, null));
+		assertNull(response.getHeader(HttpHeaders.ETAG));
+
+		response.setStatus(404);
+		ConditionalGetInterceptor.addValidators(request, response);
+
+		assertNull(response.getHeader(HttpHeaders.ETAG));
+		assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+	}
+
+	@Test
+	void shouldIgnoreModifyingRequests() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertTrue(interceptor.preHandle(new MockHttpServletRequest("PUT", "/movies"), response,
+				null));
+		assertEquals(null, response.getHeader(HttpHeaders.ETAG));
+	}
+
+}
@@ -0,0 +1,87 @@
+package ru.sentyurin.controller.interceptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+
+import ru.sentyurin.util.metrics.EndpointMetrics;
+import ru.sentyurin.util.metrics.RequestMetrics;
+import ru.sentyurin.util.metrics.RequestStatementInspector;
+import ru.sentyurin.util.metrics.RequestStatements;
+
+class SqlBudgetInterceptorTest {
+	private RequestMetrics requestMetrics;
+	private SqlBudgetInterceptor interceptor;
+	private RequestStatementInspector inspector;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+	private HandlerMethod handler;
+
+	@BeforeEach
+	void init() throws NoSuchMethodException {
+		requestMetrics = new RequestMetrics();
+		interceptor = new SqlBudgetInterceptor(requestMetrics, 2);
+		inspector = new RequestStatementInspector();
+		request = new MockHttpServletRequest("GET", "/directors");
+		response = new MockHttpServletResponse();
+		handler = new HandlerMethod(this, "handle");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	@AfterEach
+	void reset() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void shouldCountStatementsOfRequestAndFlagExcess() {
+		assertTrue(interceptor.preHandle(request, response, handler));
+		inspector.inspect("select d from Director d");
+		inspector.inspect("select m from Movie m where m.director_id=1");
+		RequestStatements statements = (RequestStatements) request
+				.getAttribute(RequestStatements.ATTRIBUTE);
+		assertFalse(statements.isOverBudget());
+		inspector.inspect("select m from Movie m where m.director_id=2");
+		interceptor.afterCompletion(request, response, handler, null);
+
+		assertEquals(3, statements.getCount());
+		assertTrue(statements.isOverBudget());
+		EndpointMetrics metrics = requestMetrics.getEndpoints().get(0);
+		assertEquals("SqlBudgetInterceptorTest.handle", statements.getHandler());
+		assertEquals(3, metrics.getStatements().getSum());
+		assertEquals(1, metrics.getOverBudgetCount());
+	}
+
+	@Test
+	void shouldKeepCountAcrossAsyncDispatch() {
+		interceptor.preHandle(request, response, handler);
+		Object statements = request.getAttribute(RequestStatements.ATTRIBUTE);
+		inspector.inspect("select 1");
+		interceptor.preHandle(request, response, handler);
+
+		assertSame(statements, request.getAttribute(RequestStatements.ATTRIBUTE));
+		assertEquals(1, ((RequestStatements) statements).getCount());
+	}
+
+	@Test
+	void shouldIgnoreStatementsOutsideRequests() {
+		RequestContextHolder.resetRequestAttributes();
+		assertEquals("select 1", inspector.inspect("select 1"));
+		interceptor.afterCompletion(request, response, handler, null);
+		assertTrue(requestMetrics.getEndpoints().isEmpty());
+	}
+
+	public void handle() {
+	}
+
+}
@@ -0,0 +1,56 @@
+package ru.sentyurin.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+class FieldsetTest {
+
+	@Test
+	void shouldSelectEverythingWithoutParameter() {
+		assertSame(Fieldset.ALL, Fieldset.ofMovies(null));
+		assertSame(Fieldset.ALL, Fieldset.ofDirectors(null));
+		assertTrue(Fieldset.ALL.isComplete());
+	}
+
+	@Test
+	void shouldParseMovieFields() {
+		Fieldset fieldset = Fieldset.ofMovies("id, title");
+
+		assertEquals(Set.of(MovieField.ID, MovieField.TITLE), fieldset.getMovieFields());
+		assertFalse(fieldset.isComplete());
+	}
+
+	@Test
+	void shouldParseDirectorFieldsWithEmbeddedMovieFields() {
+		Fieldset named = Fieldset.ofDirectors("name");
+		Fieldset withMovies = Fieldset.ofDirectors("name,movies");
+		Fieldset withTitles = Fieldset.ofDirectors("name,movies.title");
+
+		assertEquals(Set.of(DirectorField.NAME), named.getDirectorFields());
+		assertTrue(named.getMovieFields().isEmpty());
+		assertEquals(Set.of(DirectorField.NAME, DirectorField.MOVIES),
+				withMovies.getDirectorFields());
+		assertEquals(EnumSet.allOf(MovieField.class), withMovies.getMovieFields());
+		assertEquals(withMovies.getDirectorFields(), withTitles.getDirectorFields());
+		assertEquals(Set.of(MovieField.TITLE), withTitles.getMovieFields());
+	}
+
+	@Test
+	void shouldRejectUnknownAndEmptyFields() {
+		assertThrows(IncorrectInputException.class, () -> Fieldset.ofMovies("id,rating"));
+		assertThrows(IncorrectInputException.class, () -> Fieldset.ofMovies(""));
+		assertThrows(IncorrectInputException.class, () -> Fieldset.ofDirectors("id,,name"));
+		assertThrows(IncorrectInputException.class, () -> Fieldset.ofDirectors("movies.name"));
+	}
+
+}
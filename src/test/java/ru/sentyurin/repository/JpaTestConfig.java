@@ -0,0 +1,90 @@
+package ru.sentyurin.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import javax.cache.CacheManager;
+import javax.sql.DataSource;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.sentyurin.config.SecondLevelCache;
+import ru.sentyurin.util.SqlStatementCounter;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+/**
+ * Persistence layer and services on top of an in-memory H2 database, with every
+ * SQL statement recorded by {@link SqlStatementCounter}
+ */
+@Configuration
+@EnableTransactionManagement
+@EnableJpaRepositories("ru.sentyurin.repository")
+@ComponentScan({ "ru.sentyurin.repository", "ru.sentyurin.service.impl",
+		"ru.sentyurin.service.cache", "ru.sentyurin.controller.mapper" })
+public class JpaTestConfig {
+
+	@Bean
+	public DataSource dataSource() {
+		return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true).build();
+	}
+
+	@Bean
+	public LocalContainerEntityManagerFactoryBean entityManagerFactory() throws IOException {
+		Properties properties = new Properties();
+		try (InputStream input = getClass().getClassLoader()
+				.getResourceAsStream("hibernate.properties")) {
+			properties.load(input);
+		}
+		properties.setProperty("hibernate.hbm2ddl.auto", schemaAction());
+		properties.setProperty("hibernate.session_factory.statement_inspector",
+				SqlStatementCounter.class.getName());
+
+		LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
+		emf.setDataSource(dataSource());
+		emf.setPackagesToScan("ru.sentyurin.model");
+		emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		emf.setJpaProperties(properties);
+		emf.getJpaPropertyMap().put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager());
+		return emf;
+	}
+
+	/**
+	 * Hibernate creates the tables from the entities unless a subclass runs on a
+	 * database with the tables of {@code schema.sql}
+	 */
+	protected String schemaAction() {
+		return "create-drop";
+	}
+
+	@Bean
+	public CacheManager secondLevelCacheManager() {
+		return SecondLevelCache.createCacheManager(1000, 60_000);
+	}
+
+	@Bean
+	public ResponseCompression responseCompression() {
+		return new ResponseCompression(new String[] { "zstd", "gzip" }, 1024, 6, 3, 9, 12,
+				new CompressionMetrics());
+	}
+
+	@Bean
+	public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+		return new JpaTransactionManager(emf);
+	}
+
+}
@@ -0,0 +1,101 @@
+package ru.sentyurin.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.service.MovieDataFormat;
+import ru.sentyurin.util.PostgresTestDatabase;
+import ru.sentyurin.util.exception.DataBaseException;
+
+class MovieCopyRepositoryTest {
+
+	@Test
+	void shouldBuildUnfilteredCsvExport() {
+		assertEquals("COPY (select m.id, m.title, m.release_year as \"releaseYear\", "
+				+ "d.id as \"directorId\", d.name as \"directorName\" from Movie m "
+				+ "join Director d on d.id = m.director_id order by m.id) "
+				+ "TO STDOUT WITH (FORMAT csv, HEADER)",
+				MovieCopyRepository.exportSql(MovieDataFormat.CSV, null, null, null));
+	}
+
+	@Test
+	void shouldInlineFiltersIntoNdjsonExport() {
+		String sql = MovieCopyRepository.exportSql(MovieDataFormat.NDJSON, 1990, 1999, 7);
+		assertEquals(" where m.release_year >= 1990 and m.release_year <= 1999"
+				+ " and m.director_id = 7 order by m.id) TO STDOUT WITH (FORMAT csv,"
+				+ " QUOTE e'\\x01', DELIMITER e'\\x02')",
+				sql.substring(sql.indexOf(" where ")));
+	}
+
+	@Test
+	void shouldStartWhereClauseWithFirstPresentFilter() {
+		String sql = MovieCopyRepository.exportSql(MovieDataFormat.CSV, null, null, 3);
+		assertEquals(" where m.director_id = 3 order by m.id)",
+				sql.substring(sql.indexOf(" where "), sql.indexOf(" TO STDOUT")));
+	}
+
+	@Test
+	void shouldTakeIdsFromBlocksEndingAtSequenceValues() {
+		int[] ids = new int[53];
+
+		int reserved = MovieCopyRepository.addBlock(ids, 0, 1);
+		reserved = MovieCopyRepository.addBlock(ids, reserved, 51);
+		reserved = MovieCopyRepository.addBlock(ids, reserved, 151);
+
+		assertEquals(ids.length, reserved);
+		assertArrayEquals(IntStream.concat(IntStream.rangeClosed(1, 51),
+				IntStream.rangeClosed(102, 103)).toArray(), ids);
+	}
+
+	@Test
+	void shouldKeepSqlExceptionAsCauseOfFailedExport() throws SQLException {
+		SQLException failure = new SQLException("connection lost", "08006");
+		Connection connection = Mockito.mock(Connection.class);
+		Mockito.when(connection.unwrap(PGConnection.class)).thenThrow(failure);
+		DataSource dataSource = Mockito.mock(DataSource.class);
+		Mockito.when(dataSource.getConnection()).thenReturn(connection);
+		MovieCopyRepository repository = new MovieCopyRepository(dataSource);
+
+		DataBaseException exception = assertThrows(DataBaseException.class,
+				() -> repository.copyOut(MovieDataFormat.CSV, null, null, null,
+						OutputStream.nullOutputStream()));
+
+		assertSame(failure, exception.getCause());
+	}
+
+	@Test
+	void shouldCopyMoviesWithOneIdEach() {
+		JdbcTemplate jdbc = PostgresTestDatabase.dropSchema();
+		PostgresTestDatabase.applySchema();
+		jdbc.update("insert into Director (id, name) values (1, 'Director')");
+		MovieCopyRepository repository = new MovieCopyRepository(
+				PostgresTestDatabase.dataSource());
+
+		long copied = repository.copyIn(IntStream.range(0, 120)
+				.mapToObj(i -> new MovieIncomingDto(null, "Movie " + i, 2000, 1, null))
+				.toList());
+
+		assertEquals(120, copied);
+		List<Integer> ids = jdbc.queryForList("select id from Movie order by id", Integer.class);
+		assertEquals(IntStream.rangeClosed(1, 120).boxed().toList(), ids);
+		// The sequence moved past the reserved blocks only
+		assertEquals(151, jdbc.queryForObject("select last_value from movie_id_seq", Long.class));
+	}
+
+}
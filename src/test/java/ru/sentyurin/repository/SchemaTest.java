@@ -0,0 +1,84 @@
+package ru.sentyurin.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptStatementFailedException;
+
+import ru.sentyurin.util.PostgresTestDatabase;
+
+/**
+ * Runs {@code schema.sql} against PostgreSQL, on an empty database and on one
+ * created by an earlier version of the script
+ */
+class SchemaTest {
+
+	private JdbcTemplate jdbc;
+
+	@BeforeEach
+	void dropSchema() {
+		jdbc = PostgresTestDatabase.dropSchema();
+	}
+
+	@Test
+	void shouldCreateIdentitiesIncrementingByAllocationSize() {
+		PostgresTestDatabase.applySchema();
+		PostgresTestDatabase.applySchema();
+
+		assertEquals(50, increment("movie_id_seq"));
+		assertEquals(50, increment("director_id_seq"));
+	}
+
+	@Test
+	void shouldSetIncrementOfBaselineIdentitiesAboveExistingIds() {
+		jdbc.execute(PostgresTestDatabase.BASELINE_SCHEMA);
+		jdbc.update("insert into Director (name) values ('A'), ('B')");
+		jdbc.update("insert into Movie (title, release_year, director_id) "
+				+ "values ('X', 2000, 1), ('Y', 2001, 2), ('Z', 2002, 2)");
+
+		PostgresTestDatabase.applySchema();
+
+		assertEquals(50, increment("movie_id_seq"));
+		assertEquals(50, increment("director_id_seq"));
+		// A pooled generator takes the 50 IDs up to the next value
+		long next = jdbc.queryForObject("select nextval('movie_id_seq')", Long.class);
+		assertTrue(next - 49 > 3, "next block " + next + " overlaps existing IDs");
+	}
+
+	@Test
+	void shouldAddValidatedDirectorKeyOnlyOnce() {
+		PostgresTestDatabase.applySchema();
+		long key = directorKey();
+
+		PostgresTestDatabase.applySchema();
+
+		assertEquals(key, directorKey());
+		assertTrue(jdbc.queryForObject(
+				"select convalidated from pg_constraint where conname = 'movie_director_fk'",
+				Boolean.class));
+	}
+
+	@Test
+	void shouldRejectBaselineMoviesWithoutDirector() {
+		jdbc.execute(PostgresTestDatabase.BASELINE_SCHEMA);
+		jdbc.update("insert into Movie (title, release_year, director_id) values ('X', 2000, 1)");
+
+		assertThrows(ScriptStatementFailedException.class, PostgresTestDatabase::applySchema);
+	}
+
+	private long directorKey() {
+		return jdbc.queryForObject(
+				"select oid from pg_constraint where conname = 'movie_director_fk'", Long.class);
+	}
+
+	private long increment(String sequence) {
+		return jdbc.queryForObject(
+				"select increment_by from pg_sequences where sequencename = ?", Long.class,
+				sequence);
+	}
+
+}
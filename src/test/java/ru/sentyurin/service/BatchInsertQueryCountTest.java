@@ -0,0 +1,67 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.BatchItemResultDto.Status;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.repository.JpaTestConfig;
+import ru.sentyurin.util.SqlStatementCounter;
+
+@SpringJUnitConfig(JpaTestConfig.class)
+@DirtiesContext
+class BatchInsertQueryCountTest {
+
+	private static final int MOVIES = 120;
+
+	@Autowired
+	private DirectorService directorService;
+	@Autowired
+	private MovieService movieService;
+
+	@Test
+	void shouldInsertMoviesInJdbcBatches() {
+		Integer directorId = directorService
+				.createDirector(new DirectorIncomingDto(null, "Batch director")).getId();
+		List<MovieIncomingDto> movies = new ArrayList<>();
+		for (int i = 0; i < MOVIES; i++)
+			movies.add(new MovieIncomingDto(null, "Batch movie " + i, 2000, directorId, null));
+		movies.add(new MovieIncomingDto(null, "Batch movie 0", 2000, directorId, null));
+		movies.add(new MovieIncomingDto(null, "Orphan movie", 2000, -1, null));
+		movies.add(new MovieIncomingDto(null, null, 2000, directorId, null));
+
+		SqlStatementCounter.reset();
+		List<BatchItemResultDto> results = movieService.createMovies(movies);
+		List<String> statements = SqlStatementCounter.getStatements();
+
+		// one prepared insert for the whole batch plus lookups and pooled sequence
+		// calls, instead of one round trip per row
+		assertEquals(1, statements.stream().filter(sql -> sql.startsWith("insert")).count(),
+				String.join("\n", statements));
+		assertTrue(statements.size() < 10, String.join("\n", statements));
+		assertEquals(movies.size(), results.size());
+		for (int i = 0; i < MOVIES; i++) {
+			assertEquals(Status.CREATED, results.get(i).getStatus());
+			assertNotNull(results.get(i).getId());
+		}
+		for (int i = MOVIES; i < movies.size(); i++) {
+			assertEquals(Status.REJECTED, results.get(i).getStatus());
+			assertNull(results.get(i).getId());
+		}
+		assertEquals(MOVIES, directorService.getDirectorById(directorId).orElseThrow()
+				.getMovies().size());
+	}
+
+}
@@ -3,25 +3,39 @@ package ru.sentyurin.service;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.BatchItemResultDto.Status;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.controller.mapper.DirectorDtoMapper;
 import ru.sentyurin.controller.mapper.DirectorDtoMapperImpl;
 import ru.sentyurin.model.Director;
 import ru.sentyurin.repository.DirectorRepository;
 import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.repository.MovieView;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.service.cache.SecondLevelCacheEvictor;
+import ru.sentyurin.service.event.CatalogChangedEvent;
 import ru.sentyurin.service.impl.DirectorServiceImpl;
 import ru.sentyurin.util.exception.IncompleateInputExeption;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 class DirectorServiceImplTest {
 
@@ -30,13 +44,17 @@ class DirectorServiceImplTest {
 	private DirectorDtoMapper dtoMapper;
 	private DirectorServiceImpl directorService;
 	private DirectorDtoMapperImpl mapper;
+	private ApplicationEventPublisher eventPublisher;
 
 	@BeforeEach
 	void init() {
 		directorRepository = Mockito.mock(DirectorRepository.class);
 		movieRepository = Mockito.mock(MovieRepository.class);
 		dtoMapper = new DirectorDtoMapperImpl();
-		directorService = new DirectorServiceImpl(directorRepository, movieRepository, dtoMapper);
+		eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		directorService = new DirectorServiceImpl(directorRepository, movieRepository, dtoMapper,
+				new CatalogCache(100, 100), Mockito.mock(SecondLevelCacheEvictor.class),
+				eventPublisher);
 		mapper = new DirectorDtoMapperImpl();
 	}
 
@@ -52,24 +70,40 @@ class DirectorServiceImplTest {
 
 	@Test
 	void shouldCorrectlyFindAllDirectors() {
-		List<Director> directorsFromMockRepository = List.of(
-				new Director(1, "Quentin Tarantino", null), new Director(2, "Tim Berton", null));
-		Mockito.when(directorRepository.findAll()).thenReturn(directorsFromMockRepository);
+		List<MovieOutgoingDto> rowsFromMockRepository = List.of(
+				new MovieOutgoingDto(1, "RD", 1992, 1, "Quentin Tarantino"),
+				new MovieOutgoingDto(2, "PF", 1994, 1, "Quentin Tarantino"),
+				new MovieOutgoingDto(null, null, null, 2, "Tim Berton"));
+		Mockito.when(directorRepository.findAllAsMovieRows()).thenReturn(rowsFromMockRepository);
 		List<DirectorOutgoingDto> directors = directorService.getDirectors();
 		assertEquals(2, directors.size());
+		assertEquals(2, directors.get(0).getMovies().size());
+		assertTrue(directors.get(1).getMovies().isEmpty());
+	}
+
+	@Test
+	void shouldReturnPageAndNextCursorIfThereAreMoreDirectors() {
+		Mockito.when(directorRepository.findIdPageAfter(Integer.MIN_VALUE, Limit.of(2)))
+				.thenReturn(List.of(1, 2));
+		Mockito.when(directorRepository.findAsMovieRowsByIdIn(List.of(1)))
+				.thenReturn(List.of(new MovieOutgoingDto(null, null, null, 1, "Quentin Tarantino")));
+		CursorPage<DirectorOutgoingDto> page = directorService.getDirectors(null, 1);
+		assertEquals(1, page.getItems().size());
+		assertEquals(1, page.getNextCursor());
 	}
 
 	@Test
 	void shouldReturnOptionalEmptyIfRepositoryReturnOptionalEmpty() {
-		Mockito.doReturn(Optional.empty()).when(directorRepository).findById(Mockito.anyInt());
+		Mockito.doReturn(List.of()).when(directorRepository)
+				.findAsMovieRowsByIdIn(Mockito.anyCollection());
 		Optional<DirectorOutgoingDto> director = directorService.getDirectorById(0);
 		assertTrue(director.isEmpty());
 	}
 
 	@Test
 	void shouldReturnDirectorById() {
-		Mockito.doReturn(Optional.of(new Director(1, "Quentin Tarantino", null)))
-				.when(directorRepository).findById(Mockito.anyInt());
+		Mockito.doReturn(List.of(new MovieOutgoingDto(null, null, null, 1, "Quentin Tarantino")))
+				.when(directorRepository).findAsMovieRowsByIdIn(List.of(1));
 		Optional<DirectorOutgoingDto> director = directorService.getDirectorById(1);
 		assertTrue(director.isPresent());
 		assertEquals("Quentin Tarantino", director.get().getName());
@@ -90,24 +124,87 @@ class DirectorServiceImplTest {
 	}
 
 	@Test
-	void shouldCorrectlyUpdate() {
+	void shouldThrowExceptionIfUpdateWithoutVersion() {
 		DirectorIncomingDto directorToUpdate = new DirectorIncomingDto(1, "Quentin Tarantino");
-		Mockito.doReturn(mapper.map(directorToUpdate)).when(directorRepository)
-				.save(Mockito.any(Director.class));
-		Mockito.doReturn(Optional.of(mapper.map(directorToUpdate))).when(directorRepository)
-				.findById(Mockito.any(Integer.class));
+		assertThrows(IncompleateInputExeption.class,
+				() -> directorService.updateDirector(directorToUpdate));
+	}
+
+	@Test
+	void shouldCorrectlyUpdate() {
+		DirectorIncomingDto directorToUpdate = new DirectorIncomingDto(1, "Quentin Tarantino")
+				.setVersion(2);
+		MovieView row = Mockito.mock(MovieView.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.when(row.getId()).thenReturn(null);
+		Mockito.when(row.getDirectorId()).thenReturn(1);
+		Mockito.when(row.getDirectorName()).thenReturn("Quentin Tarantino");
+		Mockito.when(row.getDirectorVersion()).thenReturn(3);
+		Mockito.when(directorRepository.updateVersioned(1, "Quentin Tarantino", 2))
+				.thenReturn(List.of(row));
+
 		DirectorOutgoingDto director = directorService.updateDirector(directorToUpdate);
 		assertEquals(directorToUpdate.getName(), director.getName());
+		assertEquals(3, director.getVersion());
+		assertTrue(director.getMovies().isEmpty());
+		verify(directorRepository).updateVersioned(1, "Quentin Tarantino", 2);
+		verifyNoMoreInteractions(directorRepository);
+	}
+
+	@Test
+	void shouldThrowVersionConflictIfDirectorChangedSinceRead() {
+		DirectorIncomingDto directorToUpdate = new DirectorIncomingDto(1, "Quentin Tarantino")
+				.setVersion(2);
+		Mockito.when(directorRepository.updateVersioned(1, "Quentin Tarantino", 2))
+				.thenReturn(List.of());
+		Mockito.when(directorRepository.existsById(1)).thenReturn(true);
+		assertThrows(VersionConflictException.class,
+				() -> directorService.updateDirector(directorToUpdate));
 	}
 
 	@Test
 	void shouldDelete() {
 		Integer directorId = 7;
+		Mockito.when(directorRepository.existsById(directorId)).thenReturn(true);
 		directorService.deleteDirector(directorId);
 		verify(movieRepository).deleteByDirectorId(directorId);
 		verifyNoMoreInteractions(movieRepository);
+		verify(directorRepository).existsById(directorId);
 		verify(directorRepository).deleteById(directorId);
 		verifyNoMoreInteractions(directorRepository);
+		verify(eventPublisher).publishEvent(Mockito.any(CatalogChangedEvent.class));
+	}
+
+	@Test
+	void shouldNotPublishDeletionOfMissingDirector() {
+		directorService.deleteDirector(7);
+		verifyNoInteractions(movieRepository, eventPublisher);
+		verify(directorRepository, never()).deleteById(7);
+	}
+
+	@Test
+	void shouldSaveValidDirectorsOfBatchAndRejectInvalidOnes() {
+		List<DirectorIncomingDto> directors = List.of(
+				new DirectorIncomingDto(null, "Quentin Tarantino"),
+				new DirectorIncomingDto(null, null),
+				new DirectorIncomingDto(null, "Quentin Tarantino"),
+				new DirectorIncomingDto(null, "David Lynch"));
+		Mockito.when(directorRepository.findExistingNames(Mockito.anyCollection()))
+				.thenReturn(List.of("David Lynch"));
+		Mockito.when(directorRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Director> saved = invocation.getArgument(0);
+			saved.forEach(director -> director.setId(7));
+			return saved;
+		});
+
+		List<BatchItemResultDto> results = directorService.createDirectors(directors);
+
+		assertEquals(List.of(Status.CREATED, Status.REJECTED, Status.REJECTED, Status.REJECTED),
+				results.stream().map(BatchItemResultDto::getStatus).toList());
+		assertEquals(7, results.get(0).getId());
+		verify(directorRepository).flush();
+		verify(eventPublisher).publishEvent(Mockito.argThat((CatalogChangedEvent event) -> event
+				.getId() == null && event.getDirectorIds().equals(Set.of(7))));
+		verifyNoMoreInteractions(eventPublisher);
 	}
 
 }
@@ -0,0 +1,87 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.sentyurin.util.SqlStatementCounter.assertStatementCount;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import ru.sentyurin.controller.dto.CursorPage;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.JpaTestConfig;
+
+@SpringJUnitConfig(JpaTestConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DirectorServiceQueryCountTest {
+
+	private static final int DIRECTORS = 5;
+	private static final int MOVIES_PER_DIRECTOR = 3;
+
+	@Autowired
+	private DirectorService directorService;
+	@Autowired
+	private MovieService movieService;
+
+	@BeforeAll
+	void init() {
+		for (int i = 0; i < DIRECTORS; i++) {
+			DirectorOutgoingDto director = directorService
+					.createDirector(new DirectorIncomingDto(null, "Director " + i));
+			for (int j = 0; j < MOVIES_PER_DIRECTOR; j++) {
+				movieService.createMovie(new MovieIncomingDto(null, "Movie " + i + "-" + j,
+						2000 + j, director.getId(), null));
+			}
+		}
+	}
+
+	@Test
+	void shouldListDirectorsWithTheirMoviesInOneStatement() {
+		List<DirectorOutgoingDto> directors = assertStatementCount(1,
+				() -> directorService.getDirectors());
+		assertEquals(DIRECTORS, directors.size());
+		directors.forEach(
+				director -> assertEquals(MOVIES_PER_DIRECTOR, director.getMovies().size()));
+		assertEquals(directors.get(0).getName(),
+				directors.get(0).getMovies().get(0).getDirectorName());
+	}
+
+	@Test
+	void shouldPageDirectorsWithTheirMoviesInTwoStatements() {
+		CursorPage<DirectorOutgoingDto> page = assertStatementCount(2,
+				() -> directorService.getDirectors(null, DIRECTORS - 1));
+		assertEquals(DIRECTORS - 1, page.getItems().size());
+		page.getItems().forEach(
+				director -> assertEquals(MOVIES_PER_DIRECTOR, director.getMovies().size()));
+	}
+
+	@Test
+	void shouldGetMovieInOneStatement() {
+		Integer id = movieService.getMovies().get(0).getId();
+		MovieOutgoingDto movie = assertStatementCount(1, () -> movieService.getMovieById(id))
+				.orElseThrow();
+		assertEquals("Director 0", movie.getDirectorName());
+	}
+
+	@Test
+	void shouldListMoviesInOneStatement() {
+		assertEquals(DIRECTORS * MOVIES_PER_DIRECTOR,
+				assertStatementCount(1, () -> movieService.getMovies()).size());
+	}
+
+	@Test
+	void shouldGetDirectorWithMoviesInOneStatement() {
+		Integer id = directorService.getDirectors().get(0).getId();
+		DirectorOutgoingDto director = assertStatementCount(1,
+				() -> directorService.getDirectorById(id)).orElseThrow();
+		assertEquals(MOVIES_PER_DIRECTOR, director.getMovies().size());
+	}
+
+}
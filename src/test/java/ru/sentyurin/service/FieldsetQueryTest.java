@@ -0,0 +1,113 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.sentyurin.util.SqlStatementCounter.assertStatementCount;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import ru.sentyurin.controller.dto.CursorPage;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.JpaTestConfig;
+import ru.sentyurin.repository.MovieFilter;
+import ru.sentyurin.util.SqlStatementCounter;
+
+@SpringJUnitConfig(JpaTestConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class FieldsetQueryTest {
+
+	private static final int MOVIES = 3;
+
+	@Autowired
+	private DirectorService directorService;
+	@Autowired
+	private MovieService movieService;
+
+	private Integer directorId;
+
+	@BeforeAll
+	void init() {
+		directorId = directorService.createDirector(new DirectorIncomingDto(null, "Sparse"))
+				.getId();
+		for (int i = 0; i < MOVIES; i++)
+			movieService.createMovie(
+					new MovieIncomingDto(null, "Sparse " + i, 2000 + i, directorId, null));
+	}
+
+	@Test
+	void shouldSelectOnlyRequestedMovieColumnsWithoutDirector() {
+		List<MovieOutgoingDto> movies = assertStatementCount(1,
+				() -> movieService.getMovies(Fieldset.ofMovies("title,directorId"))).stream()
+				.filter(movie -> directorId.equals(movie.getDirectorId())).toList();
+		String sql = lastStatement();
+
+		assertEquals(MOVIES, movies.size());
+		assertFalse(sql.contains("join"), sql);
+		assertFalse(sql.contains("release_year"), sql);
+		assertEquals("Sparse 0", movies.get(0).getTitle());
+		assertEquals(directorId, movies.get(0).getDirectorId());
+		assertNull(movies.get(0).getReleaseYear());
+		assertNull(movies.get(0).getDirectorName());
+	}
+
+	@Test
+	void shouldJoinDirectorOnlyForItsName() {
+		CursorPage<MovieOutgoingDto> page = assertStatementCount(1,
+				() -> movieService.getMovies(new MovieFilter().setDirectorId(directorId), null,
+						2, Fieldset.ofMovies("directorName")));
+		String sql = lastStatement();
+
+		assertTrue(sql.contains("join"), sql);
+		assertEquals(2, page.getItems().size());
+		assertEquals(page.getItems().get(1).getId(), page.getNextCursor());
+		assertEquals("Sparse", page.getItems().get(0).getDirectorName());
+		assertNull(page.getItems().get(0).getTitle());
+	}
+
+	@Test
+	void shouldReadDirectorsWithoutMoviesFromDirectorTableOnly() {
+		DirectorOutgoingDto director = assertStatementCount(1,
+				() -> directorService.getDirectors(Fieldset.ofDirectors("name"))).stream()
+				.filter(sparse -> directorId.equals(sparse.getId())).findFirst().orElseThrow();
+		String sql = lastStatement();
+
+		assertFalse(sql.contains("movie"), sql);
+		assertEquals("Sparse", director.getName());
+		assertTrue(director.getMovies().isEmpty());
+	}
+
+	@Test
+	void shouldReadOnlyRequestedColumnsOfEmbeddedMovies() {
+		DirectorOutgoingDto director = assertStatementCount(1,
+				() -> directorService.getDirectorById(directorId,
+						Fieldset.ofDirectors("id,movies.title")))
+				.orElseThrow();
+		String sql = lastStatement();
+
+		assertFalse(sql.contains("release_year"), sql);
+		assertNull(director.getName());
+		assertEquals(MOVIES, director.getMovies().size());
+		assertEquals("Sparse 0", director.getMovies().get(0).getTitle());
+		assertNull(director.getMovies().get(0).getReleaseYear());
+	}
+
+	private static String lastStatement() {
+		List<String> statements = SqlStatementCounter.getStatements();
+		return statements.get(statements.size() - 1).toLowerCase();
+	}
+
+}
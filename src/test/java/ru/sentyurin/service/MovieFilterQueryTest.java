@@ -0,0 +1,111 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.sentyurin.util.SqlStatementCounter.assertStatementCount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import ru.sentyurin.controller.dto.CursorPage;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.repository.JpaTestConfig;
+import ru.sentyurin.repository.MovieFilter;
+import ru.sentyurin.repository.MovieSort;
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+@SpringJUnitConfig(JpaTestConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class MovieFilterQueryTest {
+
+	private static final int[] YEARS = { 1994, 1990, 2001, 1994, 1997, 1985, 1994 };
+
+	@Autowired
+	private DirectorService directorService;
+	@Autowired
+	private MovieService movieService;
+
+	private Integer directorId;
+
+	@BeforeAll
+	void init() {
+		directorId = directorService.createDirector(new DirectorIncomingDto(null, "Filtered"))
+				.getId();
+		Integer otherDirectorId = directorService
+				.createDirector(new DirectorIncomingDto(null, "Other")).getId();
+		for (int i = 0; i < YEARS.length; i++) {
+			movieService.createMovie(new MovieIncomingDto(null, "Filtered " + i, YEARS[i],
+					directorId, null));
+			movieService.createMovie(new MovieIncomingDto(null, "Other " + i, YEARS[i],
+					otherDirectorId, null));
+		}
+	}
+
+	@Test
+	void shouldPageFilteredMoviesByReleaseYearInOneStatementPerPage() {
+		MovieFilter filter = new MovieFilter().setDirectorId(directorId).setYearFrom(1990)
+				.setYearTo(2000).setSort(MovieSort.RELEASE_YEAR);
+		List<Integer> years = new ArrayList<>();
+		Integer after = null;
+		do {
+			Integer cursor = after;
+			CursorPage<MovieOutgoingDto> page = assertStatementCount(1,
+					() -> movieService.getMovies(filter, cursor, 2));
+			page.getItems().forEach(movie -> {
+				assertEquals(directorId, movie.getDirectorId());
+				years.add(movie.getReleaseYear());
+			});
+			after = page.getNextCursor();
+		} while (after != null);
+		assertEquals(List.of(1990, 1994, 1994, 1994, 1997), years);
+	}
+
+	@Test
+	void shouldPageInDescendingReleaseYearOrderWithoutGapsOrRepeats() {
+		MovieFilter filter = new MovieFilter().setYearTo(1994)
+				.setSort(MovieSort.RELEASE_YEAR_DESC);
+		CursorPage<MovieOutgoingDto> first = movieService.getMovies(filter, null, 5);
+		CursorPage<MovieOutgoingDto> second = movieService.getMovies(filter, first.getNextCursor(),
+				5);
+		List<MovieOutgoingDto> movies = new ArrayList<>(first.getItems());
+		movies.addAll(second.getItems());
+		assertEquals(10, movies.size());
+		assertNull(second.getNextCursor());
+		assertEquals(10, movies.stream().map(MovieOutgoingDto::getId).distinct().count());
+		for (int i = 1; i < movies.size(); i++) {
+			MovieOutgoingDto previous = movies.get(i - 1);
+			MovieOutgoingDto current = movies.get(i);
+			assertTrue(previous.getReleaseYear() > current.getReleaseYear()
+					|| previous.getReleaseYear().equals(current.getReleaseYear())
+							&& previous.getId() > current.getId());
+		}
+	}
+
+	@Test
+	void shouldRejectYearOrderedPageAfterDeletedMovie() {
+		Integer deletedId = movieService
+				.createMovie(new MovieIncomingDto(null, "Deleted", 1994, directorId, null))
+				.getId();
+		movieService.deleteMovie(deletedId);
+		MovieFilter filter = new MovieFilter().setDirectorId(directorId);
+
+		assertThrows(IncorrectInputException.class, () -> movieService
+				.getMovies(filter.setSort(MovieSort.RELEASE_YEAR), deletedId, 2));
+		// An ID-ordered page needs nothing but the cursor ID
+		assertTrue(movieService.getMovies(filter.setSort(MovieSort.ID), deletedId, 2).getItems()
+				.isEmpty());
+	}
+
+}
@@ -0,0 +1,138 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ru.sentyurin.controller.dto.ImportProgressDto;
+import ru.sentyurin.controller.dto.ImportRejectionDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.MovieCopyRepository;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.service.impl.MovieImportServiceImpl;
+import ru.sentyurin.util.exception.IncorrectInputException;
+
+class MovieImportServiceImplTest {
+
+	private MovieRepository movieRepository;
+	private DirectorRepository directorRepository;
+	private MovieCopyRepository movieCopyRepository;
+	private MovieImportServiceImpl importService;
+	private List<ImportRejectionDto> rejections;
+	private List<Long> progress;
+	private MovieImportListener listener;
+
+	@BeforeEach
+	void init() {
+		movieRepository = Mockito.mock(MovieRepository.class);
+		directorRepository = Mockito.mock(DirectorRepository.class);
+		movieCopyRepository = Mockito.mock(MovieCopyRepository.class);
+		importService = new MovieImportServiceImpl(movieRepository, directorRepository,
+				movieCopyRepository, Mockito.mock(PlatformTransactionManager.class),
+				Mockito.mock(ApplicationEventPublisher.class), 3);
+		Mockito.when(movieRepository.findExistingTitles(Mockito.anyCollection()))
+				.thenReturn(List.of("Pulp fiction"));
+		Mockito.when(directorRepository.findExistingIds(Mockito.anyCollection()))
+				.thenReturn(List.of(1));
+		Mockito.when(directorRepository.findByNameIn(Mockito.anyCollection()))
+				.thenReturn(List.of(new Director(1, "Quentin Tarantino", null)));
+		Mockito.when(directorRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Director> saved = invocation.getArgument(0);
+			saved.forEach(director -> director.setId(2));
+			return saved;
+		});
+		Mockito.when(movieCopyRepository.copyIn(Mockito.anyList()))
+				.thenAnswer(invocation -> (long) invocation.<List<?>>getArgument(0).size());
+		rejections = new ArrayList<>();
+		progress = new ArrayList<>();
+		listener = new MovieImportListener() {
+
+			@Override
+			public void onRowRejected(ImportRejectionDto rejection) {
+				rejections.add(rejection);
+			}
+
+			@Override
+			public void onProgress(ImportProgressDto chunkProgress) {
+				progress.add(chunkProgress.getRowsRead());
+			}
+		};
+	}
+
+	@Test
+	void shouldImportCsvInChunksAndReportRejectedRows() throws IOException {
+		String csv = """
+				title,releaseYear,directorId,directorName
+				Reservoir dogs,1992,,Quentin Tarantino
+				Pulp fiction,1994,1,
+				Eraserhead,1977,,David Lynch
+				Kill Bill,1800,1,
+				Jackie Brown,1997,5,
+				"Django, unchained",2012,1,
+				""";
+
+		ImportProgressDto result = importService.importMovies(input(csv),
+				MovieDataFormat.CSV, listener);
+
+		assertEquals(6, result.getRowsRead());
+		assertEquals(3, result.getImported());
+		assertEquals(3, result.getRejected());
+		assertEquals(2, result.getChunks());
+		assertTrue(result.isCompleted());
+		assertEquals(List.of(2L, 4L, 5L),
+				rejections.stream().map(ImportRejectionDto::getRow).toList());
+		assertEquals(List.of(3L, 6L, 6L), progress);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<MovieIncomingDto>> copied = ArgumentCaptor.forClass(List.class);
+		verify(movieCopyRepository, Mockito.times(2)).copyIn(copied.capture());
+		assertEquals(List.of(1, 2, 1), copied.getAllValues().stream().flatMap(List::stream)
+				.map(MovieIncomingDto::getDirectorId).toList());
+	}
+
+	@Test
+	void shouldRejectUnparsableNdjsonRow() throws IOException {
+		String ndjson = """
+				{"title":"Reservoir dogs","releaseYear":1992,"directorId":1}
+				{"title":"Jackie Brown","releaseYear":"soon","directorId":1}
+				{"title":"Kill Bill","releaseYear":2003}
+				""";
+
+		ImportProgressDto result = importService.importMovies(input(ndjson),
+				MovieDataFormat.NDJSON, listener);
+
+		assertEquals(1, result.getImported());
+		assertEquals(List.of(2L, 3L),
+				rejections.stream().map(ImportRejectionDto::getRow).toList());
+	}
+
+	@Test
+	void shouldThrowExceptionForUnsupportedContentType() {
+		assertThrows(IncorrectInputException.class,
+				() -> MovieDataFormat.fromContentType("application/xml"));
+		assertEquals(MovieDataFormat.CSV,
+				MovieDataFormat.fromContentType("text/csv; charset=UTF-8"));
+	}
+
+	private static InputStream input(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
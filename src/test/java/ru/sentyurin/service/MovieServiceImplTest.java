@@ -2,17 +2,29 @@ package ru.sentyurin.service;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import ru.sentyurin.controller.dto.BatchItemResultDto;
+import ru.sentyurin.controller.dto.BatchItemResultDto.Status;
+import ru.sentyurin.controller.dto.CursorPage;
 import ru.sentyurin.controller.dto.MovieIncomingDto;
 import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.controller.mapper.MovieDtoMapper;
@@ -20,10 +32,20 @@ import ru.sentyurin.controller.mapper.MovieDtoMapperImpl;
 import ru.sentyurin.model.Director;
 import ru.sentyurin.model.Movie;
 import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.Fieldset;
+import ru.sentyurin.repository.MovieCopyRepository;
 import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.repository.MovieUpdateView;
+import ru.sentyurin.repository.MovieView;
+import ru.sentyurin.service.cache.CatalogCache;
+import ru.sentyurin.service.cache.SecondLevelCacheEvictor;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
 import ru.sentyurin.service.impl.MovieServiceImpl;
 import ru.sentyurin.util.exception.IncompleateInputExeption;
 import ru.sentyurin.util.exception.IncorrectInputException;
+import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
 
 class MovieServiceImplTest {
 
@@ -32,13 +54,17 @@ class MovieServiceImplTest {
 	private DirectorRepository directorRepository;
 	private MovieDtoMapperImpl mapper;
 	private MovieDtoMapper dtoMapper;
+	private ApplicationEventPublisher eventPublisher;
 
 	@BeforeEach
 	void init() {
 		movieRepository = Mockito.mock(MovieRepository.class);
 		directorRepository = Mockito.mock(DirectorRepository.class);
 		dtoMapper = new MovieDtoMapperImpl();
-		movieService = new MovieServiceImpl(movieRepository, directorRepository, dtoMapper);
+		eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		movieService = new MovieServiceImpl(movieRepository, directorRepository,
+				Mockito.mock(MovieCopyRepository.class), dtoMapper, new CatalogCache(100, 100),
+				Mockito.mock(SecondLevelCacheEvictor.class), eventPublisher);
 		mapper = new MovieDtoMapperImpl();
 	}
 
@@ -46,6 +72,7 @@ class MovieServiceImplTest {
 	void shouldCorrectlyCreateMovie() {
 		MovieIncomingDto incomingDto = new MovieIncomingDto(1, "Reservoir dogs", 1992, 1,
 				"Quentin Tarantino");
+		Mockito.when(directorRepository.existsById(1)).thenReturn(true);
 		Mockito.doReturn(
 				new Movie(1, "Reservoir dogs", 1992, new Director(1, "Quentin Tarantino", null)))
 				.when(movieRepository).save(Mockito.any(Movie.class));
@@ -57,32 +84,107 @@ class MovieServiceImplTest {
 		assertEquals(incomingDto.getDirectorName(), outgoingDto.getDirectorName());
 	}
 
+	@Test
+	void shouldThrowExceptionIfCreateWithMissingDirector() {
+		MovieIncomingDto incomingDto = new MovieIncomingDto(null, "Reservoir dogs", 1992, 1,
+				null);
+		Mockito.when(directorRepository.existsById(1)).thenReturn(false);
+
+		assertThrows(NoDataInRepositoryException.class,
+				() -> movieService.createMovie(incomingDto));
+		verifyNoInteractions(movieRepository, eventPublisher);
+	}
+
+	@Test
+	void shouldThrowExceptionIfDirectorIsDeletedWhileCreating() {
+		MovieIncomingDto incomingDto = new MovieIncomingDto(null, "Reservoir dogs", 1992, 1,
+				null);
+		Mockito.when(directorRepository.existsById(1)).thenReturn(true);
+		Mockito.doThrow(new DataIntegrityViolationException("insert",
+				new ConstraintViolationException("insert", null, "movie_director_fk")))
+				.when(movieRepository).flush();
+
+		assertThrows(NoDataInRepositoryException.class,
+				() -> movieService.createMovie(incomingDto));
+		verifyNoInteractions(eventPublisher);
+	}
+
 	@Test
 	void shouldCorrectlyFindAllMovies() {
-		Director director = new Director(1, "Quentin Tarantino", null);
-		List<Movie> moviesFromMockRepository = List.of(new Movie(1, "RD", 1992, director),
-				new Movie(2, "DU", 2012, director));
-		Mockito.when(movieRepository.findAll()).thenReturn(moviesFromMockRepository);
+		List<MovieOutgoingDto> moviesFromMockRepository = List.of(
+				new MovieOutgoingDto(1, "RD", 1992, 1, "Quentin Tarantino"),
+				new MovieOutgoingDto(2, "DU", 2012, 1, "Quentin Tarantino"));
+		Mockito.when(movieRepository.findAllDtos()).thenReturn(moviesFromMockRepository);
 		List<MovieOutgoingDto> movies = movieService.getMovies();
 		assertEquals(2, movies.size());
 	}
 
+	@Test
+	void shouldReturnPageAndNextCursorIfThereAreMoreMovies() {
+		List<MovieOutgoingDto> moviesFromMockRepository = List.of(
+				new MovieOutgoingDto(3, "RD", 1992, 1, "QT"),
+				new MovieOutgoingDto(4, "PF", 1994, 1, "QT"),
+				new MovieOutgoingDto(5, "DU", 2012, 1, "QT"));
+		Mockito.when(movieRepository.findPageAfter(2, Limit.of(3)))
+				.thenReturn(moviesFromMockRepository);
+		CursorPage<MovieOutgoingDto> page = movieService.getMovies(2, 2);
+		assertEquals(2, page.getItems().size());
+		assertEquals(4, page.getNextCursor());
+	}
+
+	@Test
+	void shouldReturnLastPageWithoutNextCursor() {
+		Mockito.when(movieRepository.findPageAfter(Integer.MIN_VALUE, Limit.of(3)))
+				.thenReturn(List.of(new MovieOutgoingDto(3, "RD", 1992, 1, "QT")));
+		CursorPage<MovieOutgoingDto> page = movieService.getMovies(null, 2);
+		assertEquals(1, page.getItems().size());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void shouldThrowExceptionIfPageSizeIsInvalid() {
+		assertThrows(IncorrectInputException.class, () -> movieService.getMovies(null, 0));
+		assertThrows(IncorrectInputException.class, () -> movieService.getMovies(null, 100_000));
+	}
+
+	@Test
+	void shouldPassEveryStreamedMovieToAction() {
+		Mockito.when(movieRepository.streamAll()).thenReturn(Stream.of(
+				new MovieOutgoingDto(1, "RD", 1992, 1, "QT"),
+				new MovieOutgoingDto(2, "DU", 2012, 1, "QT")));
+		List<MovieOutgoingDto> movies = new ArrayList<>();
+		movieService.forEachMovie(movies::add);
+		assertEquals(2, movies.size());
+		assertEquals("DU", movies.get(1).getTitle());
+	}
+
 	@Test
 	void shouldReturnOptionalEmptyIfRepositoryReturnOptionalEmpty() {
-		Mockito.doReturn(Optional.empty()).when(movieRepository).findById(Mockito.anyInt());
+		Mockito.doReturn(Optional.empty()).when(movieRepository).findDtoById(Mockito.anyInt());
 		Optional<MovieOutgoingDto> movie = movieService.getMovieById(0);
 		assertTrue(movie.isEmpty());
 	}
 
 	@Test
 	void shouldReturnMovieById() {
-		Mockito.doReturn(Optional.of(new Movie(1, "RD", 1992, null))).when(movieRepository)
-				.findById(Mockito.anyInt());
+		Mockito.doReturn(Optional.of(new MovieOutgoingDto(1, "RD", 1992, 1, "QT")))
+				.when(movieRepository).findDtoById(Mockito.anyInt());
 		Optional<MovieOutgoingDto> movie = movieService.getMovieById(1);
 		assertTrue(movie.isPresent());
 		assertEquals("RD", movie.get().getTitle());
 	}
 
+	@Test
+	void shouldServeRepeatedGetByIdFromCache() {
+		Mockito.doReturn(Optional.of(new MovieOutgoingDto(1, "RD", 1992, 1, "QT")))
+				.when(movieRepository).findDtoById(1);
+		movieService.getMovieById(1);
+		Optional<MovieOutgoingDto> movie = movieService.getMovieById(1);
+		assertEquals("RD", movie.get().getTitle());
+		verify(movieRepository).findDtoById(1);
+		verifyNoMoreInteractions(movieRepository);
+	}
+
 	@Test
 	void shouldThrowExceptionIfUpdateWithoutId() {
 		MovieIncomingDto movieToUpdate = new MovieIncomingDto(null, "RD", 2012, 1, "QT");
@@ -116,20 +218,133 @@ class MovieServiceImplTest {
 	@Test
 	void shouldDelete() {
 		Integer movieId = 7;
+		Movie movie = new Movie(movieId, "RD", 1992, new Director(2, "QT", null));
+		Mockito.doReturn(Optional.of(movie)).when(movieRepository).findById(movieId);
 		movieService.deleteMovie(movieId);
-		verify(movieRepository).deleteById(movieId);
+		verify(movieRepository).findById(movieId);
+		verify(movieRepository).delete(movie);
 		verifyNoMoreInteractions(movieRepository);
+		verify(eventPublisher).publishEvent(Mockito.argThat((CatalogChangedEvent event) -> event
+				.getChangeType() == ChangeType.DELETED && event.getDirectorIds().contains(2)));
+	}
+
+	@Test
+	void shouldThrowExceptionIfUpdateWithoutVersion() {
+		MovieIncomingDto movieToUpdate = new MovieIncomingDto(1, "RD", 1992, 1, "QT");
+		assertThrows(IncompleateInputExeption.class, () -> movieService.updateMovie(movieToUpdate));
 	}
 
 	@Test
 	void shouldCorrectlyUpdate() {
 		MovieIncomingDto movieToUpdate = new MovieIncomingDto(1, "RD", 1992, 1, "QT");
-		Mockito.doReturn(mapper.map(movieToUpdate)).when(movieRepository)
-				.save(Mockito.any(Movie.class));
-		Mockito.doReturn(Optional.of(mapper.map(movieToUpdate))).when(movieRepository)
-				.findById(Mockito.any(Integer.class));
+		movieToUpdate.setVersion(4);
+		MovieUpdateView updated = Mockito.mock(MovieUpdateView.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.when(updated.getId()).thenReturn(1);
+		Mockito.when(updated.getTitle()).thenReturn("RD");
+		Mockito.when(updated.getDirectorId()).thenReturn(1);
+		Mockito.when(updated.getVersion()).thenReturn(5);
+		Mockito.when(updated.getPreviousDirectorId()).thenReturn(2);
+		Mockito.when(movieRepository.updateVersioned(1, "RD", 1992, 1, 4))
+				.thenReturn(Optional.of(updated));
+
 		MovieOutgoingDto movie = movieService.updateMovie(movieToUpdate);
 		assertEquals(movieToUpdate.getTitle(), movie.getTitle());
+		assertEquals(5, movie.getVersion());
+		verify(movieRepository).updateVersioned(1, "RD", 1992, 1, 4);
+		verifyNoMoreInteractions(movieRepository);
+		verify(eventPublisher).publishEvent(Mockito.argThat((CatalogChangedEvent event) -> event
+				.getDirectorIds().equals(Set.of(1, 2))));
+	}
+
+	@Test
+	void shouldThrowVersionConflictIfMovieChangedSinceRead() {
+		MovieIncomingDto movieToUpdate = new MovieIncomingDto(1, "RD", 1992, 1, "QT");
+		movieToUpdate.setVersion(4);
+		Mockito.when(movieRepository.updateVersioned(1, "RD", 1992, 1, 4))
+				.thenReturn(Optional.empty());
+		Mockito.when(movieRepository.existsById(1)).thenReturn(true);
+		assertThrows(VersionConflictException.class,
+				() -> movieService.updateMovie(movieToUpdate));
+
+		Mockito.when(movieRepository.existsById(1)).thenReturn(false);
+		assertThrows(NoDataInRepositoryException.class,
+				() -> movieService.updateMovie(movieToUpdate));
+	}
+
+	@Test
+	void shouldSaveValidBatchItemsAndRejectInvalidOnes() {
+		List<MovieIncomingDto> movies = List.of(
+				new MovieIncomingDto(null, "Reservoir dogs", 1992, 1, null),
+				new MovieIncomingDto(null, "Pulp fiction", 1994, 1, null),
+				new MovieIncomingDto(null, "Reservoir dogs", 1992, 1, null),
+				new MovieIncomingDto(null, "Django unchained", 2012, 2, null),
+				new MovieIncomingDto(null, "Jackie Brown", 1800, 1, null),
+				new MovieIncomingDto(null, "Kill Bill", 2003, 1, null));
+		Mockito.when(movieRepository.findExistingTitles(Mockito.anyCollection()))
+				.thenReturn(List.of("Pulp fiction"));
+		Mockito.when(directorRepository.findExistingIds(Mockito.anyCollection()))
+				.thenReturn(List.of(1));
+		Mockito.when(movieRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Movie> saved = invocation.getArgument(0);
+			for (int i = 0; i < saved.size(); i++)
+				saved.get(i).setId(100 + i);
+			return saved;
+		});
+
+		List<BatchItemResultDto> results = movieService.createMovies(movies);
+
+		assertEquals(6, results.size());
+		assertEquals(Status.CREATED, results.get(0).getStatus());
+		assertEquals(100, results.get(0).getId());
+		assertEquals(Status.REJECTED, results.get(1).getStatus());
+		assertEquals(Status.REJECTED, results.get(2).getStatus());
+		assertEquals(Status.REJECTED, results.get(3).getStatus());
+		assertEquals(Status.REJECTED, results.get(4).getStatus());
+		assertEquals(Status.CREATED, results.get(5).getStatus());
+		assertEquals(101, results.get(5).getId());
+		verify(movieRepository).flush();
+		verify(eventPublisher).publishEvent(Mockito.argThat((CatalogChangedEvent event) -> event
+				.getId() == null && event.getDirectorIds().equals(Set.of(1))));
+		verifyNoMoreInteractions(eventPublisher);
+	}
+
+	@Test
+	void shouldThrowExceptionWhenBatchIsEmpty() {
+		assertThrows(IncorrectInputException.class, () -> movieService.createMovies(List.of()));
+	}
+
+	@Test
+	void shouldMapSearchResultsInRelevanceOrder() {
+		MovieView movie = Mockito.mock(MovieView.class, Mockito.CALLS_REAL_METHODS);
+		Mockito.when(movie.getId()).thenReturn(3);
+		Mockito.when(movie.getTitle()).thenReturn("Reservoir dogs");
+		Mockito.when(movie.getReleaseYear()).thenReturn(1992);
+		Mockito.when(movie.getDirectorId()).thenReturn(1);
+		Mockito.when(movie.getDirectorName()).thenReturn("Quentin Tarantino");
+		Mockito.when(movieRepository.search("dog", 20, 10)).thenReturn(List.of(movie));
+
+		List<MovieOutgoingDto> movies = movieService.searchMovies("dog", 20, 10);
+
+		assertEquals(1, movies.size());
+		assertEquals(3, movies.get(0).getId());
+		assertEquals("Quentin Tarantino", movies.get(0).getDirectorName());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenSearchIsBlankOrTooDeep() {
+		assertThrows(IncorrectInputException.class, () -> movieService.searchMovies(" ", 0, 10));
+		assertThrows(IncorrectInputException.class,
+				() -> movieService.searchMovies("dog", 995, 10));
+		assertThrows(IncorrectInputException.class, () -> movieService.searchMovies("dog", 0, 0));
+	}
+
+	@Test
+	void shouldThrowExceptionWhenSearchOffsetWouldOverflow() {
+		assertThrows(IncorrectInputException.class,
+				() -> movieService.searchMovies("dog", Integer.MAX_VALUE - 5, 10));
+		assertThrows(IncorrectInputException.class, () -> movieService
+				.searchMovies("dog", Integer.MAX_VALUE - 5, 10, Fieldset.ofMovies("title")));
+		verifyNoInteractions(movieRepository);
 	}
 
 }
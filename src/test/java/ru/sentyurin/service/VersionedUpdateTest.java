@@ -0,0 +1,222 @@
+package ru.sentyurin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.sentyurin.util.SqlStatementCounter.assertStatementCount;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.sentyurin.controller.advice.DefaultAdvice;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.model.Movie;
+import ru.sentyurin.repository.JpaTestConfig;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.repository.MovieUpdateView;
+import ru.sentyurin.util.PostgresTestDatabase;
+import ru.sentyurin.util.exception.NoDataInRepositoryException;
+import ru.sentyurin.util.exception.VersionConflictException;
+
+/**
+ * Runs the version-checked updates of {@code MovieRepository} and
+ * {@code DirectorRepository}, native statements H2 does not run, against
+ * PostgreSQL with the tables and foreign key of {@code schema.sql}, together
+ * with the second-level cache invalidation around them
+ */
+class VersionedUpdateTest {
+
+	private static final DefaultAdvice ADVICE = new DefaultAdvice();
+
+	private static AnnotationConfigApplicationContext context;
+	private static MovieService movieService;
+	private static DirectorService directorService;
+
+	@BeforeAll
+	static void startContext() {
+		PostgresTestDatabase.dropSchema();
+		PostgresTestDatabase.applySchema();
+		context = new AnnotationConfigApplicationContext(PostgresJpaTestConfig.class);
+		movieService = context.getBean(MovieService.class);
+		directorService = context.getBean(DirectorService.class);
+	}
+
+	@AfterAll
+	static void closeContext() {
+		if (context != null)
+			context.close();
+	}
+
+	@Test
+	void shouldConflictWhenMovieVersionIsStale() {
+		MovieOutgoingDto movie = createMovie("Stale movie", createDirector("Stale director"));
+		movieService.updateMovie(update(movie, "Stale movie, renamed", movie.getDirectorId()));
+
+		VersionConflictException exception = assertThrows(VersionConflictException.class,
+				() -> movieService.updateMovie(update(movie, "Stale movie, renamed again",
+						movie.getDirectorId())));
+
+		assertEquals(HttpStatus.CONFLICT,
+				ADVICE.handleVersionConflictException(exception).getStatusCode());
+	}
+
+	@Test
+	void shouldConflictWhenDirectorVersionIsStale() {
+		DirectorOutgoingDto director = createDirector("Stale name");
+		directorService.updateDirector(new DirectorIncomingDto(director.getId(), "Fresh name")
+				.setVersion(director.getVersion()));
+
+		VersionConflictException exception = assertThrows(VersionConflictException.class,
+				() -> directorService.updateDirector(
+						new DirectorIncomingDto(director.getId(), "Fresher name")
+								.setVersion(director.getVersion())));
+
+		assertEquals(HttpStatus.CONFLICT,
+				ADVICE.handleVersionConflictException(exception).getStatusCode());
+	}
+
+	@Test
+	void shouldNotFindMissingDirectorThroughForeignKey() {
+		MovieOutgoingDto movie = createMovie("Orphaned movie", createDirector("Kept director"));
+
+		NoDataInRepositoryException exception = assertThrows(NoDataInRepositoryException.class,
+				() -> movieService.updateMovie(update(movie, "Orphaned movie", -1)));
+
+		assertEquals(HttpStatus.NOT_FOUND,
+				ADVICE.handleNotFoundException(exception).getStatusCode());
+		assertEquals(movie.getDirectorId(),
+				movieService.getMovieById(movie.getId()).orElseThrow().getDirectorId());
+	}
+
+	@Test
+	void shouldNotCreateMovieOfMissingDirector() {
+		NoDataInRepositoryException exception = assertThrows(NoDataInRepositoryException.class,
+				() -> movieService.createMovie(
+						new MovieIncomingDto(null, "Movie without director", 2000, -1, null)));
+
+		assertEquals(HttpStatus.NOT_FOUND,
+				ADVICE.handleNotFoundException(exception).getStatusCode());
+	}
+
+	@Test
+	void shouldReturnPreviousDirectorOfMovedMovie() {
+		DirectorOutgoingDto from = createDirector("Director moved from");
+		DirectorOutgoingDto to = createDirector("Director moved to");
+		MovieOutgoingDto movie = createMovie("Moved movie", from);
+
+		MovieUpdateView updated = transaction().execute(status -> context
+				.getBean(MovieRepository.class).updateVersioned(movie.getId(), movie.getTitle(),
+						movie.getReleaseYear(), to.getId(), movie.getVersion())
+				.orElseThrow());
+
+		assertEquals(from.getId(), updated.getPreviousDirectorId());
+		assertEquals(to.getId(), updated.getDirectorId());
+		assertEquals(to.getName(), updated.getDirectorName());
+		assertEquals(movie.getVersion() + 1, updated.getVersion());
+	}
+
+	@Test
+	void shouldNotTakeQueryResultsLoadedDuringUpdateAsCurrent() {
+		MovieOutgoingDto movie = createMovie("Interleaved movie",
+				createDirector("Interleaved director"));
+		loadTitles();
+
+		transaction().executeWithoutResult(status -> {
+			movieService.updateMovie(update(movie, "Interleaved movie, renamed",
+					movie.getDirectorId()));
+			// another session reads the row the update has not committed yet
+			assertTrue(inOtherSession(VersionedUpdateTest::loadTitles)
+					.contains("Interleaved movie"));
+			inOtherSession(() -> assertStatementCount(1, VersionedUpdateTest::loadTitles));
+		});
+
+		assertTrue(loadTitles().contains("Interleaved movie, renamed"));
+		assertStatementCount(0, VersionedUpdateTest::loadTitles);
+	}
+
+	@Test
+	void shouldCacheQueryResultsAgainWhenUpdateIsRolledBack() {
+		DirectorOutgoingDto director = createDirector("Kept name");
+		MovieOutgoingDto movie = createMovie("Kept movie", director);
+		loadTitles();
+
+		transaction().executeWithoutResult(status -> {
+			movieService.updateMovie(update(movie, "Rolled back movie", director.getId()));
+			directorService.updateDirector(new DirectorIncomingDto(director.getId(),
+					"Rolled back name").setVersion(director.getVersion()));
+			status.setRollbackOnly();
+		});
+
+		assertTrue(loadTitles().contains("Kept movie"));
+		assertStatementCount(0, VersionedUpdateTest::loadTitles);
+	}
+
+	private static DirectorOutgoingDto createDirector(String name) {
+		return directorService.createDirector(new DirectorIncomingDto(null, name));
+	}
+
+	private static MovieOutgoingDto createMovie(String title, DirectorOutgoingDto director) {
+		return movieService.createMovie(
+				new MovieIncomingDto(null, title, 2000, director.getId(), null));
+	}
+
+	private static MovieIncomingDto update(MovieOutgoingDto movie, String title,
+			Integer directorId) {
+		MovieIncomingDto update = new MovieIncomingDto(movie.getId(), title,
+				movie.getReleaseYear(), directorId, null);
+		update.setVersion(movie.getVersion());
+		return update;
+	}
+
+	/**
+	 * Loads the titles through a cacheable query
+	 */
+	private static List<String> loadTitles() {
+		return transaction().execute(status -> context.getBean(MovieRepository.class).findAll()
+				.stream().map(Movie::getTitle).toList());
+	}
+
+	private static <T> T inOtherSession(Supplier<T> load) {
+		return CompletableFuture.supplyAsync(load).join();
+	}
+
+	private static TransactionTemplate transaction() {
+		return new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+	}
+
+	/**
+	 * {@link JpaTestConfig} on the PostgreSQL test database, whose tables come from
+	 * {@code schema.sql}
+	 */
+	@Configuration
+	static class PostgresJpaTestConfig extends JpaTestConfig {
+
+		@Bean
+		@Override
+		public DataSource dataSource() {
+			return PostgresTestDatabase.dataSource();
+		}
+
+		@Override
+		protected String schemaAction() {
+			return "none";
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package ru.sentyurin.service.autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.sentyurin.controller.dto.SuggestionDto;
+import ru.sentyurin.controller.dto.SuggestionDto.Type;
+
+class AutocompleteIndexTest {
+
+	private AutocompleteIndex index;
+
+	@BeforeEach
+	void init() {
+		index = new AutocompleteIndex(1000);
+		index.putDirector(1, "Quentin Tarantino");
+		index.putMovie(10, "Reservoir dogs", 1992, 1);
+		index.putMovie(11, "Pulp fiction", 1994, 1);
+		index.putMovie(12, "Kill Bill", 2003, 1);
+		index.putDirector(2, "David Lynch");
+		index.putMovie(20, "Eraserhead", 1977, 2);
+		index.putMovie(21, "Pulp", 1977, 2);
+	}
+
+	@Test
+	void shouldSuggestByPrefixIgnoringCaseMostRecentFirst() {
+		assertEquals(List.of("Pulp fiction", "Pulp"), texts(index.suggest("pU", 10)));
+		assertEquals(List.of("Pulp fiction", "Pulp"), texts(index.suggest("pulp", 10)));
+		assertTrue(index.suggest("x", 10).isEmpty());
+		assertTrue(index.suggest("", 10).isEmpty());
+	}
+
+	@Test
+	void shouldScoreDirectorByLatestMovie() {
+		index.putMovie(13, "Quiz show", 1994, 2);
+		List<SuggestionDto> suggestions = index.suggest("q", 10);
+		assertEquals(List.of("Quentin Tarantino", "Quiz show"), texts(suggestions));
+		assertEquals(Type.DIRECTOR, suggestions.get(0).getType());
+		assertEquals(1, suggestions.get(0).getId());
+	}
+
+	@Test
+	void shouldKeepSuggestionsCurrent() {
+		assertEquals(List.of("Pulp fiction", "Pulp"), texts(index.suggest("p", 10)));
+
+		index.putMovie(30, "Paris, Texas", 1984, 3);
+		index.putMovie(11, "Jackie Brown", 1997, 1);
+		assertEquals(List.of("Paris, Texas", "Pulp"), texts(index.suggest("p", 10)));
+
+		index.removeMovie(30);
+		assertEquals(List.of("Pulp"), texts(index.suggest("p", 10)));
+		assertEquals(List.of("Jackie Brown"), texts(index.suggest("j", 10)));
+	}
+
+	@Test
+	void shouldRemoveDirectorWithItsMovies() {
+		index.removeDirector(2);
+		assertTrue(index.suggest("d", 10).isEmpty());
+		assertTrue(index.suggest("eraser", 10).isEmpty());
+		assertEquals(4, index.size());
+	}
+
+	@Test
+	void shouldRemoveOnlyMoviesStillBelongingToDirector() {
+		index.putMovie(21, "Pulp", 1977, 1);
+		index.removeDirector(2);
+		assertEquals(List.of("Pulp fiction", "Pulp"), texts(index.suggest("pulp", 10)));
+		assertTrue(index.suggest("eraser", 10).isEmpty());
+
+		index.removeDirector(1);
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void shouldMatchPrefixIgnoringLeadingSpaceAndKeepDisplayText() {
+		index.putMovie(30, "  PULP Fact", 1970, 2);
+		assertEquals(List.of("Pulp fiction", "Pulp", "  PULP Fact"),
+				texts(index.suggest("pulp", 10)));
+		assertEquals(List.of("Pulp fiction", "  PULP Fact"), texts(index.suggest(" Pulp F", 10)));
+		assertEquals(List.of("  PULP Fact"), texts(index.suggest("pulp fa", 10)));
+	}
+
+	@Test
+	void shouldLimitSuggestions() {
+		for (int i = 0; i < 50; i++)
+			index.putMovie(100 + i, "Sequel " + i, 1950 + i, 1);
+		List<SuggestionDto> suggestions = index.suggest("seq", 100);
+		assertEquals(AutocompleteIndex.MAX_SUGGESTIONS, suggestions.size());
+		assertEquals("Sequel 49", suggestions.get(0).getText());
+		assertEquals(List.of("Sequel 49", "Sequel 48"), texts(index.suggest("sequel", 2)));
+	}
+
+	@Test
+	void shouldKeepBestOfCrowdedPrefixesThroughChanges() {
+		// most titles share a few leading words, as in real catalogs
+		String[] words = { "The ", "The Last ", "The Lord of ", "A ", "Star ", "Love " };
+		int[] weights = { 50, 15, 10, 10, 10, 5 };
+		Random random = new Random(42);
+		Map<Integer, String> titles = new HashMap<>();
+		Map<Integer, Integer> years = new HashMap<>();
+		for (int id = 0; id < 2000; id++) {
+			titles.put(id, randomTitle(random, words, weights));
+			years.put(id, 1900 + random.nextInt(120));
+		}
+		index = new AutocompleteIndex(10_000);
+		index.rebuild(loader -> titles
+				.forEach((id, title) -> loader.putMovie(id, title, years.get(id), 1)));
+		for (int step = 0; step < 20_000; step++) {
+			int id = random.nextInt(3000);
+			if (random.nextInt(4) == 0) {
+				index.removeMovie(id);
+				titles.remove(id);
+				continue;
+			}
+			String title = randomTitle(random, words, weights);
+			int year = 1900 + random.nextInt(120);
+			index.putMovie(id, title, year, 1);
+			titles.put(id, title);
+			years.put(id, year);
+		}
+
+		assertEquals(titles.size(), index.size());
+		for (String prefix : List.of("t", "th", "the ", "the l", "the last ", "the lord of 1",
+				"a", "a 1", "star 9", "love", "x")) {
+			List<String> expected = titles.entrySet().stream()
+					.filter(title -> title.getValue().toLowerCase().startsWith(prefix))
+					.sorted(Comparator.<Map.Entry<Integer, String>>comparingInt(
+							title -> -years.get(title.getKey()))
+							.thenComparing(title -> title.getValue().toLowerCase())
+							.thenComparing(Map.Entry::getKey))
+					.limit(AutocompleteIndex.MAX_SUGGESTIONS).map(Map.Entry::getValue).toList();
+			assertEquals(expected, texts(index.suggest(prefix, AutocompleteIndex.MAX_SUGGESTIONS)),
+					prefix);
+		}
+	}
+
+	@Test
+	void shouldKeepBestEntriesWhenRebuiltOverCap() {
+		index = new AutocompleteIndex(3);
+		index.rebuild(loader -> {
+			loader.putMovie(10, "Reservoir dogs", 1992, 1);
+			loader.putMovie(11, "Pulp fiction", 1994, 1);
+			loader.putMovie(20, "Eraserhead", 1977, 2);
+			loader.putMovie(21, "Pulp", 1977, 2);
+			loader.putDirector(1, "Quentin Tarantino");
+		});
+
+		assertEquals(3, index.size());
+		assertEquals(List.of("Pulp fiction"), texts(index.suggest("pulp", 10)));
+		assertEquals(List.of("Quentin Tarantino"), texts(index.suggest("q", 10)));
+		assertTrue(index.suggest("eraser", 10).isEmpty());
+	}
+
+	@Test
+	void shouldLeaveOutNewEntriesPastCapButApplyOtherChanges() {
+		index = new AutocompleteIndex(2);
+		index.putMovie(10, "Reservoir dogs", 1992, 1);
+		index.putMovie(11, "Pulp fiction", 1994, 1);
+		index.putMovie(12, "Kill Bill", 2003, 1);
+		assertTrue(index.suggest("kill", 10).isEmpty());
+
+		index.putMovie(10, "Jackie Brown", 1997, 1);
+		assertEquals(List.of("Jackie Brown"), texts(index.suggest("j", 10)));
+		index.removeMovie(11);
+		index.putMovie(12, "Kill Bill", 2003, 1);
+		assertEquals(List.of("Kill Bill"), texts(index.suggest("kill", 10)));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void shouldReplaceContentOnRebuild() {
+		index.rebuild(loader -> {
+			loader.putMovie(40, "Solaris", 1972, 4);
+			loader.putDirector(4, "Andrei Tarkovsky");
+		});
+
+		assertEquals(2, index.size());
+		assertTrue(index.suggest("pulp", 10).isEmpty());
+		assertEquals(List.of("Andrei Tarkovsky"), texts(index.suggest("andrei", 10)));
+		index.removeDirector(4);
+		assertEquals(0, index.size());
+	}
+
+	private static String randomTitle(Random random, String[] words, int[] weights) {
+		int pick = random.nextInt(100);
+		int word = 0;
+		while (pick >= weights[word])
+			pick -= weights[word++];
+		return words[word] + Integer.toString(random.nextInt(500), 36);
+	}
+
+	private static List<String> texts(List<SuggestionDto> suggestions) {
+		return suggestions.stream().map(SuggestionDto::getText).toList();
+	}
+
+}
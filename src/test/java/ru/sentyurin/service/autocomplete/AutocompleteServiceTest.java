@@ -0,0 +1,54 @@
+package ru.sentyurin.service.autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.controller.dto.SuggestionDto;
+import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.service.cache.CatalogVersion;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+class AutocompleteServiceTest {
+
+	@Test
+	void shouldBeUpdatedBeforeCatalogVersionMovesOn() {
+		MovieRepository movieRepository = Mockito.mock(MovieRepository.class);
+		DirectorRepository directorRepository = Mockito.mock(DirectorRepository.class);
+		Mockito.when(directorRepository.streamAllAsMovieRows()).thenReturn(Stream.empty());
+		Mockito.when(movieRepository.findDtoById(1)).thenReturn(
+				Optional.of(new MovieOutgoingDto(1, "Reservoir dogs", 1992, 10, "QT")));
+		AtomicReference<List<String>> suggestedWhenVersioned = new AtomicReference<>();
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.registerBean(PlatformTransactionManager.class,
+					() -> Mockito.mock(PlatformTransactionManager.class));
+			context.registerBean(MovieRepository.class, () -> movieRepository);
+			context.registerBean(DirectorRepository.class, () -> directorRepository);
+			context.registerBean(AutocompleteService.class);
+			context.registerBean(CatalogVersion.class, () -> new CatalogVersion(100) {
+				@Override
+				public void onCatalogChanged(CatalogChangedEvent event) {
+					suggestedWhenVersioned.set(context.getBean(AutocompleteService.class)
+							.suggest("res", 10).stream().map(SuggestionDto::getText).toList());
+					super.onCatalogChanged(event);
+				}
+			});
+			context.refresh();
+
+			context.publishEvent(CatalogChangedEvent.movieChanged(ChangeType.CREATED, 1, 10));
+		}
+		assertEquals(List.of("Reservoir dogs"), suggestedWhenVersioned.get());
+	}
+
+}
@@ -0,0 +1,119 @@
+package ru.sentyurin.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+class CatalogCacheTest {
+
+	private CatalogCache cache;
+	private AtomicInteger loads;
+
+	@BeforeEach
+	void init() {
+		cache = new CatalogCache(100, 100);
+		loads = new AtomicInteger();
+	}
+
+	@Test
+	void shouldLoadOnlyOnce() {
+		cache.getMovie(1, this::loadMovie);
+		cache.getMovie(1, this::loadMovie);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getMovieStats().hitCount());
+		assertEquals(1, cache.getMovieStats().missCount());
+	}
+
+	@Test
+	void shouldNotCacheMissingValues() {
+		cache.getMovie(1, id -> {
+			loads.incrementAndGet();
+			return Optional.empty();
+		});
+		assertTrue(cache.getMovie(1, this::loadMovie).isPresent());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void shouldBeInvalidatedBeforeCatalogVersionMovesOn() {
+		AtomicBoolean cachedWhenVersioned = new AtomicBoolean(true);
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.registerBean(CatalogVersion.class, () -> new CatalogVersion(100) {
+				@Override
+				public void onCatalogChanged(CatalogChangedEvent event) {
+					cachedWhenVersioned.set(cache.peekMovie(1).isPresent());
+					super.onCatalogChanged(event);
+				}
+			});
+			context.registerBean(CatalogCache.class, () -> cache);
+			context.refresh();
+			cache.getMovie(1, this::loadMovie);
+
+			context.publishEvent(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		}
+		assertFalse(cachedWhenVersioned.get());
+	}
+
+	@Test
+	void shouldInvalidateMovieAndItsDirectorsWhenMovieChanges() {
+		cache.getMovie(1, this::loadMovie);
+		cache.getMovie(2, this::loadMovie);
+		cache.getDirector(10, this::loadDirector);
+		cache.getDirector(20, this::loadDirector);
+		cache.getDirector(30, this::loadDirector);
+
+		cache.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10, 20));
+		assertEquals(1, cache.getMovieCount());
+		assertEquals(1, cache.getDirectorCount());
+		assertTrue(cache.getDirector(30, id -> Optional.empty()).isPresent());
+	}
+
+	@Test
+	void shouldInvalidateDirectorAndItsMoviesWhenDirectorChanges() {
+		cache.getMovie(1, this::loadMovie);
+		cache.getMovie(2, id -> Optional.of(new MovieOutgoingDto(id, "PF", 1994, 20, "QT")));
+		cache.getDirector(10, this::loadDirector);
+
+		cache.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.UPDATED, 10));
+		assertEquals(0, cache.getDirectorCount());
+		assertEquals(List.of(2), cache.getMovie(2, id -> Optional.empty()).stream()
+				.map(MovieOutgoingDto::getId).toList());
+		assertTrue(cache.getMovie(1, id -> Optional.empty()).isEmpty());
+	}
+
+	@Test
+	void shouldNotKeepValueLoadedDuringInvalidation() {
+		cache.getMovie(1, id -> {
+			cache.onCatalogChanged(
+					CatalogChangedEvent.movieChanged(ChangeType.UPDATED, id, 10));
+			return loadMovie(id);
+		});
+		assertEquals(0, cache.getMovieCount());
+	}
+
+	private Optional<MovieOutgoingDto> loadMovie(Integer id) {
+		loads.incrementAndGet();
+		return Optional.of(new MovieOutgoingDto(id, "RD", 1992, 10, "QT"));
+	}
+
+	private Optional<DirectorOutgoingDto> loadDirector(Integer id) {
+		DirectorOutgoingDto director = new DirectorOutgoingDto();
+		director.setId(id);
+		return Optional.of(director);
+	}
+
+}
@@ -0,0 +1,159 @@
+package ru.sentyurin.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
+import ru.sentyurin.service.DirectorService;
+import ru.sentyurin.service.MovieService;
+import ru.sentyurin.service.cache.CatalogSnapshot.Body;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+import ru.sentyurin.util.compression.ContentEncoding;
+import ru.sentyurin.util.compression.ResponseCompression;
+import ru.sentyurin.util.metrics.CompressionMetrics;
+
+class CatalogSnapshotTest {
+
+	private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+	private MovieService movieService;
+	private DirectorService directorService;
+	private CatalogVersion catalogVersion;
+	private ResponseCompression responseCompression;
+	private CatalogSnapshot snapshot;
+	private List<MovieOutgoingDto> movies;
+	private List<DirectorOutgoingDto> directors;
+
+	@BeforeEach
+	void init() {
+		movieService = Mockito.mock(MovieService.class);
+		directorService = Mockito.mock(DirectorService.class);
+		catalogVersion = new CatalogVersion(1000);
+		responseCompression = new ResponseCompression(new String[] { "gzip" }, 1024, 6, 3, 9,
+				19, new CompressionMetrics());
+		movies = List.of(new MovieOutgoingDto(1, "Title", 2000, 10, "Name"));
+		DirectorOutgoingDto director = new DirectorOutgoingDto();
+		director.setId(10);
+		director.setName("Name");
+		director.setMovies(movies);
+		directors = List.of(director);
+		when(movieService.getMovies()).thenReturn(movies);
+		when(directorService.getDirectors()).thenReturn(directors);
+	}
+
+	@AfterEach
+	void close() throws InterruptedException {
+		snapshot.close();
+	}
+
+	@Test
+	void shouldServeSerialisedListsOnceBuilt() throws IOException {
+		snapshot = new CatalogSnapshot(movieService, directorService, catalogVersion,
+				responseCompression, 60_000);
+		assertTrue(snapshot.getMovies().isEmpty());
+
+		snapshot.rebuild();
+
+		assertBody(MAPPER.writeValueAsBytes(movies), snapshot.getMovies().orElseThrow());
+		assertBody(MAPPER.writeValueAsBytes(directors), snapshot.getDirectors().orElseThrow());
+	}
+
+	@Test
+	void shouldNotServeSnapshotOlderThanCatalog() {
+		snapshot = new CatalogSnapshot(movieService, directorService, catalogVersion,
+				responseCompression, 60_000);
+		snapshot.rebuild();
+
+		catalogVersion
+				.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.CREATED, 20));
+
+		assertTrue(snapshot.getMovies().isEmpty());
+		assertTrue(snapshot.getDirectors().isEmpty());
+		snapshot.rebuild();
+		assertTrue(snapshot.getDirectors().isPresent());
+	}
+
+	@Test
+	void shouldRebuildOnceForBurstOfChanges() throws InterruptedException {
+		snapshot = new CatalogSnapshot(movieService, directorService, catalogVersion,
+				responseCompression, 100);
+		for (int i = 0; i < 5; i++) {
+			CatalogChangedEvent event = CatalogChangedEvent.directorChanged(ChangeType.CREATED, i);
+			catalogVersion.onCatalogChanged(event);
+			snapshot.onCatalogChanged(event);
+		}
+
+		verify(directorService, timeout(5_000)).getDirectors();
+		while (snapshot.getDirectors().isEmpty())
+			Thread.sleep(10);
+		Thread.sleep(200);
+		verify(movieService).getMovies();
+	}
+
+	@Test
+	void shouldWaitForRunningRebuildAndCancelPendingOneWhenClosed() throws Exception {
+		CountDownLatch rebuilding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(movieService.getMovies()).thenAnswer(invocation -> {
+			rebuilding.countDown();
+			release.await();
+			return movies;
+		});
+		snapshot = new CatalogSnapshot(movieService, directorService, catalogVersion,
+				responseCompression, 0);
+		snapshot.getMovies();
+		assertTrue(rebuilding.await(5, TimeUnit.SECONDS));
+		// a change during the rebuild schedules the next one
+		CatalogChangedEvent event = CatalogChangedEvent.directorChanged(ChangeType.CREATED, 20);
+		catalogVersion.onCatalogChanged(event);
+		snapshot.onCatalogChanged(event);
+
+		CompletableFuture<Void> closed = CompletableFuture.runAsync(() -> {
+			try {
+				snapshot.close();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread.sleep(100);
+		assertFalse(closed.isDone());
+		release.countDown();
+		closed.get(5, TimeUnit.SECONDS);
+
+		verify(movieService).getMovies();
+		verify(directorService).getDirectors();
+		snapshot.onCatalogChanged(event);
+		assertTrue(snapshot.getMovies().isEmpty());
+	}
+
+	private static void assertBody(byte[] json, Body body) throws IOException {
+		assertArrayEquals(json, body.json());
+		try (GZIPInputStream input = new GZIPInputStream(
+				new ByteArrayInputStream(body.compressed().get(ContentEncoding.GZIP)))) {
+			assertArrayEquals(json, input.readAllBytes());
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package ru.sentyurin.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+class CatalogVersionTest {
+
+	private CatalogVersion catalogVersion;
+
+	@BeforeEach
+	void init() {
+		catalogVersion = new CatalogVersion(1000);
+	}
+
+	@Test
+	void shouldChangeOnlyVersionsOfChangedMovieAndItsDirectors() {
+		String movieTag = catalogVersion.toETag(catalogVersion.getMovieStamp(1));
+		String otherMovieTag = catalogVersion.toETag(catalogVersion.getMovieStamp(2));
+		String directorTag = catalogVersion.toETag(catalogVersion.getDirectorStamp(10));
+		String otherDirectorTag = catalogVersion.toETag(catalogVersion.getDirectorStamp(20));
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+
+		assertNotEquals(movieTag, catalogVersion.toETag(catalogVersion.getMovieStamp(1)));
+		assertNotEquals(directorTag, catalogVersion.toETag(catalogVersion.getDirectorStamp(10)));
+		assertEquals(otherMovieTag, catalogVersion.toETag(catalogVersion.getMovieStamp(2)));
+		assertEquals(otherDirectorTag, catalogVersion.toETag(catalogVersion.getDirectorStamp(20)));
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getMovieStamp(1));
+	}
+
+	@Test
+	void shouldChangeVersionsOfAllMoviesWhenDirectorIsRenamedOrMoviesAreImported() {
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		CatalogVersion.Stamp movieStamp = catalogVersion.getMovieStamp(1);
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.CREATED, 20));
+		assertEquals(movieStamp, catalogVersion.getMovieStamp(1));
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.UPDATED, 10));
+		assertTrue(catalogVersion.getMovieStamp(1).version() > movieStamp.version());
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getMovieStamp(2));
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.moviesImported(List.of(30)));
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getMovieStamp(1));
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getDirectorStamp(30));
+	}
+
+	@Test
+	void shouldChangeVersionsOfEveryDirectorOfBatch() {
+		CatalogVersion.Stamp movieStamp = catalogVersion.getMovieStamp(1);
+
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.directorsCreated(List.of(20, 21)));
+
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getDirectorStamp(20));
+		assertEquals(catalogVersion.getCatalogStamp(), catalogVersion.getDirectorStamp(21));
+		assertEquals(movieStamp, catalogVersion.getMovieStamp(1));
+	}
+
+	@Test
+	void shouldPutEveryChangeInLaterSecond() {
+		long before = System.currentTimeMillis();
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		long first = catalogVersion.getMovieStamp(1).lastModified();
+		catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 1, 10));
+		long second = catalogVersion.getMovieStamp(1).lastModified();
+
+		assertTrue(first >= before);
+		assertEquals(0, first % 1000);
+		assertEquals(first + 1000, second);
+	}
+
+	@Test
+	void shouldNeverGoBackToEarlierVersionWhenVersionsAreEvicted() {
+		catalogVersion = new CatalogVersion(10);
+		Map<Integer, Long> versionsAfterChange = new HashMap<>();
+		for (int id = 1; id <= 100; id++) {
+			catalogVersion.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, id));
+			catalogVersion.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.CREATED, id));
+			versionsAfterChange.put(id, catalogVersion.getMovieStamp(id).version());
+		}
+
+		versionsAfterChange.forEach((id, version) -> {
+			assertTrue(catalogVersion.getMovieStamp(id).version() >= version);
+			assertTrue(catalogVersion.getDirectorStamp(id).version() >= version);
+		});
+	}
+
+}
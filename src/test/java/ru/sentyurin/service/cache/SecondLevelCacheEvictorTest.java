@@ -0,0 +1,124 @@
+package ru.sentyurin.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.sentyurin.util.SqlStatementCounter.assertStatementCount;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.sentyurin.controller.dto.DirectorIncomingDto;
+import ru.sentyurin.controller.dto.MovieIncomingDto;
+import ru.sentyurin.model.Director;
+import ru.sentyurin.model.Movie;
+import ru.sentyurin.repository.DirectorRepository;
+import ru.sentyurin.repository.JpaTestConfig;
+import ru.sentyurin.repository.MovieRepository;
+import ru.sentyurin.service.DirectorService;
+import ru.sentyurin.service.MovieService;
+import ru.sentyurin.service.event.CatalogChangedEvent;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+@SpringJUnitConfig(JpaTestConfig.class)
+@DirtiesContext
+class SecondLevelCacheEvictorTest {
+
+	@Autowired
+	private DirectorService directorService;
+	@Autowired
+	private MovieService movieService;
+	@Autowired
+	private MovieRepository movieRepository;
+	@Autowired
+	private DirectorRepository directorRepository;
+	@Autowired
+	private SecondLevelCacheEvictor evictor;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Cache cache;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void init() {
+		cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+		cache.evictAll();
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Test
+	void shouldLoadMovieAndItsDirectorFromCache() {
+		Integer directorId = createDirector("Cached director");
+		Integer movieId = createMovie("Cached movie", directorId);
+		cache.evictAll();
+
+		assertEquals("Cached director", loadDirectorName(movieId));
+		assertEquals("Cached director",
+				assertStatementCount(0, () -> loadDirectorName(movieId)));
+	}
+
+	@Test
+	void shouldEvictOnlyMoviesWhenDeletingMoviesOfDirector() {
+		Integer deletedId = createDirector("Deleted director");
+		Integer keptId = createDirector("Kept director");
+		Integer movieId = createMovie("Deleted movie", deletedId);
+		loadDirectorName(movieId);
+		loadMovieCount(keptId);
+
+		directorService.deleteDirector(deletedId);
+
+		assertFalse(cache.containsEntity(Movie.class, movieId));
+		assertFalse(cache.containsEntity(Director.class, deletedId));
+		assertTrue(movieRepository.findById(movieId).isEmpty());
+		assertTrue(cache.containsEntity(Director.class, keptId));
+	}
+
+	@Test
+	void shouldEvictChangedMovieAndMovieListOfItsDirector() {
+		Integer directorId = createDirector("Changed director");
+		Integer movieId = createMovie("Changed movie", directorId);
+		assertEquals(1, loadMovieCount(directorId));
+		loadDirectorName(movieId);
+		assertTrue(cache.containsCollection(SecondLevelCacheEvictor.DIRECTOR_MOVIES_ROLE,
+				directorId));
+
+		evictor.onCatalogChanged(
+				CatalogChangedEvent.movieChanged(ChangeType.UPDATED, movieId, directorId));
+
+		assertFalse(cache.containsEntity(Movie.class, movieId));
+		assertFalse(cache.containsCollection(SecondLevelCacheEvictor.DIRECTOR_MOVIES_ROLE,
+				directorId));
+		assertTrue(cache.containsEntity(Director.class, directorId));
+	}
+
+	private Integer createDirector(String name) {
+		return directorService.createDirector(new DirectorIncomingDto(null, name)).getId();
+	}
+
+	private Integer createMovie(String title, Integer directorId) {
+		return movieService.createMovie(new MovieIncomingDto(null, title, 2000, directorId, null))
+				.getId();
+	}
+
+	private String loadDirectorName(Integer movieId) {
+		return transactionTemplate.execute(status -> movieRepository.findById(movieId)
+				.orElseThrow().getDirector().getName());
+	}
+
+	private int loadMovieCount(Integer directorId) {
+		return transactionTemplate.execute(status -> directorRepository
+				.getReferenceById(directorId).getMovies().size());
+	}
+
+}
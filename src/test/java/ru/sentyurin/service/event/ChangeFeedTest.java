@@ -0,0 +1,121 @@
+package ru.sentyurin.service.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sentyurin.controller.dto.ChangeDto;
+import ru.sentyurin.service.ChangeFeedListener;
+import ru.sentyurin.service.event.CatalogChangedEvent.ChangeType;
+
+class ChangeFeedTest {
+
+	@Test
+	void shouldSendNewChangesInOrder() throws InterruptedException {
+		ChangeFeed feed = new ChangeFeed(16);
+		feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, 1, 10));
+		RecordingListener listener = new RecordingListener();
+		feed.subscribe(null, listener);
+
+		feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.UPDATED, 2, 10));
+		feed.onCatalogChanged(CatalogChangedEvent.directorChanged(ChangeType.DELETED, 10));
+
+		String first = listener.next();
+		assertTrue(first.endsWith(".2 MOVIE UPDATED 2"));
+		assertTrue(listener.next().endsWith(".3 DIRECTOR DELETED 10"));
+		assertNull(listener.events.poll(50, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void shouldResumeAfterLastEventId() throws InterruptedException {
+		ChangeFeed feed = new ChangeFeed(16);
+		RecordingListener listener = new RecordingListener();
+		feed.subscribe(null, listener);
+		for (int id = 1; id <= 3; id++)
+			feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, id, 10));
+		String firstEventId = listener.next().split(" ")[0];
+
+		RecordingListener resumed = new RecordingListener();
+		feed.subscribe(firstEventId, resumed);
+		assertTrue(resumed.next().endsWith(" MOVIE CREATED 2"));
+		assertTrue(resumed.next().endsWith(" MOVIE CREATED 3"));
+	}
+
+	@Test
+	void shouldResetWhenLastEventIdIsUnknown() throws InterruptedException {
+		ChangeFeed feed = new ChangeFeed(16);
+		feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, 1, 10));
+		RecordingListener listener = new RecordingListener();
+		feed.subscribe("previousrun.42", listener);
+		assertTrue(listener.next().endsWith(".1 reset"));
+
+		feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, 2, 10));
+		assertTrue(listener.next().endsWith(".2 MOVIE CREATED 2"));
+	}
+
+	@Test
+	void shouldDropSubscriberThatFallsBehindTheBuffer() throws InterruptedException {
+		ChangeFeed feed = new ChangeFeed(4);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingListener listener = new RecordingListener() {
+
+			@Override
+			public void onChange(String eventId, ChangeDto change) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onChange(eventId, change);
+			}
+		};
+		feed.subscribe(null, listener);
+		feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, 1, 10));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		for (int id = 2; id <= 10; id++)
+			feed.onCatalogChanged(CatalogChangedEvent.movieChanged(ChangeType.CREATED, id, 10));
+		release.countDown();
+
+		String event;
+		do {
+			event = listener.next();
+		} while (!event.equals("dropped"));
+		assertEquals(0, feed.getSubscriberCount());
+	}
+
+	private static class RecordingListener implements ChangeFeedListener {
+		final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onChange(String eventId, ChangeDto change) {
+			events.add(eventId + " " + change.getEntityType() + " " + change.getChangeType() + " "
+					+ change.getId());
+		}
+
+		@Override
+		public void onReset(String eventId) {
+			events.add(eventId + " reset");
+		}
+
+		@Override
+		public void onDropped() {
+			events.add("dropped");
+		}
+
+		String next() throws InterruptedException {
+			String event = events.poll(5, TimeUnit.SECONDS);
+			assertTrue(event != null, "no event received");
+			return event;
+		}
+	}
+
+}
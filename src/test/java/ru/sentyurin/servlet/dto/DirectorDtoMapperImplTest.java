@@ -12,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import ru.sentyurin.controller.dto.DirectorIncomingDto;
 import ru.sentyurin.controller.dto.DirectorOutgoingDto;
+import ru.sentyurin.controller.dto.MovieOutgoingDto;
 import ru.sentyurin.controller.mapper.DirectorDtoMapperImpl;
 import ru.sentyurin.model.Director;
 import ru.sentyurin.model.Movie;
@@ -62,6 +63,23 @@ class DirectorDtoMapperImplTest {
 		assertNull(directorDto.getMovies());
 	}
 
+	@Test
+	void shouldGroupMovieRowsByDirector() {
+		List<MovieOutgoingDto> rows = List.of(
+				new MovieOutgoingDto(MOVIE_ID, MOVIE_TITLE, MOVIE_RELEASE_YEAR, DIRECTOR_ID,
+						DIRECTOR_NAME),
+				new MovieOutgoingDto(MOVIE_ID + 1, "Pulp Fiction", 1994, DIRECTOR_ID, DIRECTOR_NAME),
+				new MovieOutgoingDto(null, null, null, DIRECTOR_ID + 1, "Tim Burton"));
+
+		List<DirectorOutgoingDto> directors = dtoMapper.groupByDirector(rows);
+		assertEquals(2, directors.size());
+		assertEquals(DIRECTOR_NAME, directors.get(0).getName());
+		assertEquals(2, directors.get(0).getMovies().size());
+		assertEquals(MOVIE_TITLE, directors.get(0).getMovies().get(0).getTitle());
+		assertEquals("Tim Burton", directors.get(1).getName());
+		assertEquals(0, directors.get(1).getMovies().size());
+	}
+
 	@Test
 	void shouldCorrectlyMapFromIncomingDto() {
 		DirectorIncomingDto incomingDto = new DirectorIncomingDto();
@@ -0,0 +1,75 @@
+package ru.sentyurin.util;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import javax.sql.DataSource;
+
+import org.postgresql.Driver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import ru.sentyurin.config.CatalogSchema;
+
+/**
+ * PostgreSQL for tests of SQL that H2 does not run: the database at
+ * {@code -Dtest.db.url} (user and password {@code postgres}) if given, otherwise a
+ * container started once per JVM. Tests are skipped when neither is available.
+ */
+public final class PostgresTestDatabase {
+	/** Schema of the baseline, before identity increments and the director key */
+	public static final String BASELINE_SCHEMA = """
+			create table Movie (
+				id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+				title varchar UNIQUE NOT NULL,
+				release_year int NOT NULL,
+				director_id int NOT NULL
+			);
+			create table Director (
+				id int PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+				name varchar UNIQUE NOT NULL
+			);
+			""";
+
+	private static DataSource dataSource;
+
+	private PostgresTestDatabase() {
+	}
+
+	public static synchronized DataSource dataSource() {
+		if (dataSource == null) {
+			String url = System.getProperty("test.db.url", "");
+			String username = "postgres";
+			String password = "postgres";
+			if (url.isEmpty()) {
+				assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+						"Neither -Dtest.db.url nor Docker is available");
+				PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine");
+				container.start();
+				url = container.getJdbcUrl();
+				username = container.getUsername();
+				password = container.getPassword();
+			}
+			dataSource = new SimpleDriverDataSource(new Driver(), url, username, password);
+		}
+		return dataSource;
+	}
+
+	/**
+	 * Drops the catalog tables, leaving an empty database
+	 */
+	public static JdbcTemplate dropSchema() {
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource());
+		jdbc.execute("drop table if exists Movie, Director cascade");
+		return jdbc;
+	}
+
+	/**
+	 * Runs {@code schema.sql} as the application deployment does
+	 */
+	public static void applySchema() {
+		CatalogSchema.apply(dataSource());
+	}
+
+}
@@ -0,0 +1,51 @@
+package ru.sentyurin.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link StatementInspector} that records every SQL statement issued
+ * by the current thread. Register it with the
+ * {@code hibernate.session_factory.statement_inspector} property and wrap the
+ * call under test in {@link #assertStatementCount(int, Supplier)}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal
+			.withInitial(ArrayList::new);
+
+	@Override
+	public String inspect(String sql) {
+		STATEMENTS.get().add(sql);
+		return sql;
+	}
+
+	public static void reset() {
+		STATEMENTS.get().clear();
+	}
+
+	public static List<String> getStatements() {
+		return List.copyOf(STATEMENTS.get());
+	}
+
+	/**
+	 * Runs {@code call} and asserts that it issued exactly {@code expected} SQL
+	 * statements
+	 */
+	public static <T> T assertStatementCount(int expected, Supplier<T> call) {
+		reset();
+		T result = call.get();
+		List<String> statements = getStatements();
+		assertEquals(expected, statements.size(),
+				"Unexpected number of SQL statements: " + String.join("\n", statements));
+		return result;
+	}
+
+}
@@ -0,0 +1,41 @@
+package ru.sentyurin.util.compression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class ContentEncodingTest {
+	private static final List<ContentEncoding> OFFERED = List.of(ContentEncoding.ZSTD,
+			ContentEncoding.GZIP);
+
+	@Test
+	void shouldPreferOfferedOrderAmongEquallyAcceptedEncodings() {
+		assertEquals(Optional.of(ContentEncoding.ZSTD),
+				ContentEncoding.negotiate("gzip, deflate, br, zstd", OFFERED));
+		assertEquals(Optional.of(ContentEncoding.GZIP),
+				ContentEncoding.negotiate("gzip, deflate, br, zstd", List.of(
+						ContentEncoding.GZIP, ContentEncoding.ZSTD)));
+	}
+
+	@Test
+	void shouldFollowQualityValues() {
+		assertEquals(Optional.of(ContentEncoding.GZIP),
+				ContentEncoding.negotiate("zstd;q=0.5, GZIP;q=0.8", OFFERED));
+		assertEquals(Optional.of(ContentEncoding.GZIP),
+				ContentEncoding.negotiate("gzip, zstd;q=0", OFFERED));
+		assertEquals(Optional.of(ContentEncoding.ZSTD),
+				ContentEncoding.negotiate("identity, *;q=0.1", OFFERED));
+	}
+
+	@Test
+	void shouldChooseNothingWhenNoOfferedEncodingIsAccepted() {
+		assertTrue(ContentEncoding.negotiate(null, OFFERED).isEmpty());
+		assertTrue(ContentEncoding.negotiate("br, deflate", OFFERED).isEmpty());
+		assertTrue(ContentEncoding.negotiate("gzip;q=0, *;q=0", OFFERED).isEmpty());
+	}
+
+}
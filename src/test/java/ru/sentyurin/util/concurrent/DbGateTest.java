@@ -0,0 +1,62 @@
+package ru.sentyurin.util.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class DbGateTest {
+
+	@Test
+	void shouldRefuseWhenNoPermitFreesInTime() throws SQLException {
+		DbGate gate = new DbGate(2, 10, 10);
+		gate.acquire();
+		gate.acquire();
+		assertEquals(2, gate.getActive());
+		assertThrows(SQLTransientConnectionException.class, gate::acquire);
+		assertEquals(1, gate.getRejectedCount());
+		assertEquals(0, gate.getWaiting());
+
+		gate.release();
+		gate.acquire();
+		assertEquals(2, gate.getActive());
+	}
+
+	@Test
+	void shouldRefuseAtOnceWhenTooManyWait() throws SQLException {
+		DbGate gate = new DbGate(1, 0, 60_000);
+		gate.acquire();
+		assertThrows(SQLTransientConnectionException.class, gate::acquire);
+		assertEquals(1, gate.getRejectedCount());
+	}
+
+	@Test
+	void shouldHoldPermitUntilConnectionIsClosed() throws Exception {
+		DbGate gate = new DbGate(1, 10, 10);
+		DataSource target = Mockito.mock(DataSource.class);
+		Connection connection = Mockito.mock(Connection.class);
+		Mockito.when(target.getConnection()).thenReturn(connection);
+		try (GatedDataSource dataSource = new GatedDataSource(target, gate)) {
+			Connection gated = dataSource.getConnection();
+			assertEquals(1, gate.getActive());
+			assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+			gated.close();
+			gated.close();
+			assertEquals(0, gate.getActive());
+			Mockito.verify(connection, Mockito.times(2)).close();
+
+			Mockito.when(target.getConnection()).thenThrow(new SQLException("down"));
+			assertThrows(SQLException.class, dataSource::getConnection);
+			assertEquals(0, gate.getActive());
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package ru.sentyurin.util.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	void shouldBeEmptyInitially() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.getValueAtQuantile(0.99));
+	}
+
+	@Test
+	void shouldCountSumAndMax() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(30);
+		histogram.record(20);
+		assertEquals(3, histogram.getCount());
+		assertEquals(60, histogram.getSum());
+		assertEquals(20, histogram.getMean());
+		assertEquals(30, histogram.getMax());
+	}
+
+	@Test
+	void shouldReportQuantilesWithBoundedRelativeError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 1_000_000; value++) {
+			histogram.record(value);
+		}
+		long median = histogram.getValueAtQuantile(0.5);
+		long p99 = histogram.getValueAtQuantile(0.99);
+		assertTrue(Math.abs(median - 500_000) <= 500_000 / 8, "median was " + median);
+		assertTrue(Math.abs(p99 - 990_000) <= 990_000 / 8, "p99 was " + p99);
+		assertEquals(1_000_000, histogram.getValueAtQuantile(1.0));
+	}
+
+	@Test
+	void shouldMapEveryValueIntoItsBucket() {
+		long[] values = { 0, 1, 7, 8, 15, 16, 1000, 123_456_789, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+			assertTrue(index == 0 || LatencyHistogram.bucketUpperBound(index - 1) < value);
+		}
+	}
+
+	@Test
+	void shouldCountValuesAtOrBelowThreshold() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1);
+		histogram.record(5);
+		histogram.record(1000);
+		assertEquals(2, histogram.getCountAtOrBelow(5));
+		assertEquals(3, histogram.getCountAtOrBelow(2000));
+	}
+
+}
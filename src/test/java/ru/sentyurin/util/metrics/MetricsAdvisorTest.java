@@ -0,0 +1,89 @@
+package ru.sentyurin.util.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+class MetricsAdvisorTest {
+	private RequestMetrics requestMetrics;
+	private MetricsAdvisor advisor;
+
+	@BeforeEach
+	void init() {
+		requestMetrics = new RequestMetrics();
+		advisor = new MetricsAdvisor(requestMetrics);
+	}
+
+	@Test
+	void shouldTimeServiceMethodsAndCountErrors() throws NoSuchMethodException {
+		ProxyFactory factory = new ProxyFactory(new GreetingServiceImpl());
+		factory.addAdvisor(advisor);
+		GreetingService service = (GreetingService) factory.getProxy();
+
+		assertEquals("Hello, Bob", service.greet("Bob"));
+		assertEquals("Hello, ", service.greet(""));
+		assertThrows(IllegalArgumentException.class, () -> service.greet(null));
+
+		assertEquals(1, requestMetrics.getServices().size());
+		OperationMetrics metrics = requestMetrics.getServices().get(0);
+		assertEquals("GreetingServiceImpl.greet(String)", metrics.getName());
+		assertEquals(3, metrics.getLatencyNanos().getCount());
+		assertEquals(1, metrics.getErrorCount());
+	}
+
+	@Test
+	void shouldMatchOnlyExceptionHandlersOfAdvice() throws NoSuchMethodException {
+		assertTrue(advisor.matches(Advice.class.getMethod("handle", RuntimeException.class),
+				Advice.class));
+		assertFalse(advisor.matches(Advice.class.getMethod("helper"), Advice.class));
+		assertFalse(advisor.matches(Object.class.getMethod("hashCode"), GreetingServiceImpl.class));
+		assertFalse(advisor.matches(String.class.getMethod("length"), String.class));
+
+		ProxyFactory factory = new ProxyFactory(new Advice());
+		factory.setProxyTargetClass(true);
+		factory.addAdvisor(advisor);
+		((Advice) factory.getProxy()).handle(new IllegalStateException());
+
+		assertEquals("Advice.handle",
+				requestMetrics.getExceptionHandlers().get(0).getName());
+		assertEquals(1, requestMetrics.getExceptionHandlers().get(0).getLatencyNanos().getCount());
+	}
+
+	public interface GreetingService {
+
+		String greet(String name);
+	}
+
+	@Service
+	public static class GreetingServiceImpl implements GreetingService {
+
+		@Override
+		public String greet(String name) {
+			if (name == null)
+				throw new IllegalArgumentException();
+			return "Hello, " + name;
+		}
+	}
+
+	@ControllerAdvice
+	public static class Advice {
+
+		@ExceptionHandler
+		public String handle(RuntimeException e) {
+			return e.getClass().getSimpleName();
+		}
+
+		public String helper() {
+			return "";
+		}
+	}
+
+}
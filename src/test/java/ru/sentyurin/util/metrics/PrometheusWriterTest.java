@@ -0,0 +1,56 @@
+package ru.sentyurin.util.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PrometheusWriterTest {
+
+	@Test
+	void shouldWriteCumulativeSecondsHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(300_000);
+		histogram.record(2_000_000);
+		histogram.record(20_000_000_000L);
+
+		String output = new PrometheusWriter()
+				.family("request_seconds", "histogram", "Request time")
+				.seconds("request_seconds", PrometheusWriter.label("handler", "A.get"), histogram,
+						1)
+				.toString();
+
+		assertTrue(output.startsWith(
+				"# HELP request_seconds Request time\n# TYPE request_seconds histogram\n"));
+		assertTrue(output.contains("request_seconds_bucket{handler=\"A.get\",le=\"0.0005\"} 1\n"));
+		assertTrue(output.contains("request_seconds_bucket{handler=\"A.get\",le=\"0.0025\"} 2\n"));
+		assertTrue(output.contains("request_seconds_bucket{handler=\"A.get\",le=\"10\"} 2\n"));
+		assertTrue(output.contains("request_seconds_bucket{handler=\"A.get\",le=\"+Inf\"} 3\n"));
+		assertTrue(output.contains("request_seconds_sum{handler=\"A.get\"} 20.0023\n"));
+		assertTrue(output.endsWith("request_seconds_count{handler=\"A.get\"} 3\n"));
+	}
+
+	@Test
+	void shouldConvertMillisecondsAndWriteBytes() {
+		LatencyHistogram millis = new LatencyHistogram();
+		millis.record(3);
+		LatencyHistogram bytes = new LatencyHistogram();
+		bytes.record(100);
+
+		String output = new PrometheusWriter().seconds("usage_seconds", "", millis, 1_000_000)
+				.bytes("size_bytes", "", bytes).sample("up", "", 1).toString();
+
+		assertTrue(output.contains("usage_seconds_bucket{le=\"0.0025\"} 0\n"));
+		assertTrue(output.contains("usage_seconds_bucket{le=\"0.005\"} 1\n"));
+		assertTrue(output.contains("usage_seconds_sum 0.003\n"));
+		assertTrue(output.contains("size_bytes_bucket{le=\"128\"} 1\n"));
+		assertTrue(output.contains("size_bytes_sum 100\n"));
+		assertTrue(output.endsWith("up 1\n"));
+	}
+
+	@Test
+	void shouldEscapeLabelValue() {
+		assertEquals("method=\"a\\\"b\\\\c\\nd\"", PrometheusWriter.label("method", "a\"b\\c\nd"));
+	}
+
+}